@@ -0,0 +1,185 @@
+package io.github.eetchyza.springauth.benchmarks;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.github.eetchyza.springauth.AuthService;
+import io.github.eetchyza.springauth.Authentication;
+import io.github.eetchyza.springauth.SecurityContext;
+import io.github.eetchyza.springauth.annotations.AllowRoles;
+import io.github.eetchyza.springauth.api.UserDetails;
+import io.github.eetchyza.springauth.exceptions.NotAuthenticatedException;
+import io.github.eetchyza.springauth.exceptions.NotAuthorisedException;
+import io.github.eetchyza.springauth.exceptions.TokenExpiredException;
+import io.github.eetchyza.springauth.session.ExpiringSessionStore;
+import io.github.eetchyza.springauth.session.InMemorySessionStore;
+import io.github.eetchyza.springauth.session.Session;
+import io.github.eetchyza.springauth.web.SecurityFilter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.method.HandlerMethod;
+
+/**
+ * Every call made while handling an authenticated request, against the default session store with 10,000 sessions.
+ * {@link SingleThread SingleThread} runs each on one thread and {@link Contended Contended} on one thread per core.
+ * Run {@link #main(String[]) main} to run these and {@link LoginBenchmark LoginBenchmark} with the GC profiler
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public abstract class AuthHotPathBenchmark {
+	private static final int SESSIONS = 10_000;
+
+	@Threads(1)
+	public static class SingleThread extends AuthHotPathBenchmark {
+	}
+
+	@Threads(Threads.MAX)
+	public static class Contended extends AuthHotPathBenchmark {
+	}
+
+	@State(Scope.Benchmark)
+	public static class Shared {
+		AuthService authService;
+
+		ExpiringSessionStore sessionStore;
+
+		SecurityFilter securityFilter;
+
+		BenchmarkUser user;
+
+		String[] tokens;
+
+		Object controller;
+
+		Method method;
+
+		private final AtomicInteger threads = new AtomicInteger();
+
+		@Setup
+		public void setup() throws Exception {
+			user = new BenchmarkUser(1L, "bench-user", "password", "STANDARD", "ADMIN");
+			sessionStore = new ExpiringSessionStore(new InMemorySessionStore());
+			authService = new AuthService(username -> null);
+			authService.setSessionStore(sessionStore);
+
+			tokens = new String[SESSIONS];
+			for (int i = 0; i < SESSIONS; i++) {
+				tokens[i] = authService.generateToken();
+				sessionStore.putIfAbsent(BenchmarkUser.session(tokens[i], user));
+			}
+
+			securityFilter = new SecurityFilter();
+			Field field = SecurityFilter.class.getDeclaredField("authService");
+			field.setAccessible(true);
+			field.set(securityFilter, authService);
+
+			controller = new Controller();
+			method = Controller.class.getMethod("admin");
+		}
+
+		@TearDown
+		public void tearDown() {
+			securityFilter.destroy();
+			sessionStore.close();
+			authService.destroy();
+		}
+
+		String randomToken() {
+			return tokens[ThreadLocalRandom.current().nextInt(SESSIONS)];
+		}
+	}
+
+	@State(Scope.Thread)
+	public static class PerThread {
+		Authentication authentication;
+
+		MockHttpServletRequest request;
+
+		MockHttpServletResponse response;
+
+		@Setup
+		public void setup(Shared shared) {
+			// Each thread refreshes its own session so threads never race for the same refresh token
+			String token = "refresh-thread-" + shared.threads.incrementAndGet();
+			Session session = BenchmarkUser.session(token, shared.user);
+			shared.sessionStore.putIfAbsent(session);
+			authentication = session.getAuthentication();
+
+			request = new MockHttpServletRequest("GET", "/admin");
+			request.addHeader("TOKEN", shared.tokens[0]);
+			response = new MockHttpServletResponse();
+		}
+	}
+
+	@Benchmark
+	public String generateToken(Shared shared) {
+		return shared.authService.generateToken();
+	}
+
+	@Benchmark
+	public void checkAuthenticated(Shared shared) throws NotAuthenticatedException, TokenExpiredException {
+		shared.authService.checkAuthenticated(shared.randomToken());
+	}
+
+	@Benchmark
+	public void checkIsAuthorised(Shared shared) throws NotAuthorisedException {
+		shared.authService.checkIsAuthorised(shared.randomToken(), shared.method);
+	}
+
+	@Benchmark
+	public Authentication refresh(Shared shared, PerThread perThread) {
+		perThread.authentication = shared.authService.refresh(perThread.authentication.getAuthenticationToken(), perThread.authentication.getRefreshToken());
+		return perThread.authentication;
+	}
+
+	@Benchmark
+	public UserDetails securityContext(Shared shared) {
+		SecurityContext.setCurrentUser(shared.user);
+		return SecurityContext.getCurrentUser();
+	}
+
+	@Benchmark
+	public boolean preHandle(Shared shared, PerThread perThread) throws Exception {
+		// Spring creates a new handler method for each request
+		boolean allowed = shared.securityFilter.preHandle(perThread.request, perThread.response, new HandlerMethod(shared.controller, shared.method));
+		SecurityContext.clear();
+		return allowed;
+	}
+
+	@AllowRoles("ADMIN")
+	public static class Controller {
+		public String admin() {
+			return "admin";
+		}
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder()
+				.include(AuthHotPathBenchmark.class.getSimpleName())
+				.include(LoginBenchmark.class.getSimpleName())
+				.addProfiler(GCProfiler.class)
+				.build()).run();
+	}
+}
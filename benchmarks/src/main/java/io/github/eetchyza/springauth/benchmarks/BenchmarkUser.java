@@ -0,0 +1,83 @@
+package io.github.eetchyza.springauth.benchmarks;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import io.github.eetchyza.springauth.Authentication;
+import io.github.eetchyza.springauth.api.GrantedAuthority;
+import io.github.eetchyza.springauth.api.UserDetails;
+import io.github.eetchyza.springauth.session.Session;
+
+/**
+ * A serializable user shared by the benchmarks
+ */
+public class BenchmarkUser implements UserDetails {
+	private final long id;
+
+	private final String username;
+
+	private final String password;
+
+	private final List<BenchmarkAuthority> authorities;
+
+	public BenchmarkUser(long id, String username, String password, String... roles) {
+		this.id = id;
+		this.username = username;
+		this.password = password;
+		this.authorities = new ArrayList<>();
+
+		for (String role : roles) {
+			authorities.add(new BenchmarkAuthority(role));
+		}
+	}
+
+	public static Session session(String token, BenchmarkUser user) {
+		Authentication authentication = new Authentication(token, "refresh-" + token, LocalDateTime.now().plusHours(1), user.getAuthorities(), user.getUsername(), user.getId());
+		return new Session(authentication, user);
+	}
+
+	@Override
+	public long getId() {
+		return id;
+	}
+
+	@Override
+	public Collection<? extends GrantedAuthority> getAuthorities() {
+		return authorities;
+	}
+
+	@Override
+	public String getPassword() {
+		return password;
+	}
+
+	@Override
+	public String getUsername() {
+		return username;
+	}
+
+	@Override
+	public boolean isTemporaryPassword() {
+		return false;
+	}
+
+	@Override
+	public LocalDateTime getExpires() {
+		return null;
+	}
+
+	public static class BenchmarkAuthority implements GrantedAuthority {
+		private final String authority;
+
+		public BenchmarkAuthority(String authority) {
+			this.authority = authority;
+		}
+
+		@Override
+		public String getAuthority() {
+			return authority;
+		}
+	}
+}
@@ -0,0 +1,83 @@
+package io.github.eetchyza.springauth.benchmarks;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import io.github.eetchyza.springauth.AuthService;
+import io.github.eetchyza.springauth.Authentication;
+import io.github.eetchyza.springauth.exceptions.UsernameOrPasswordIncorrectException;
+import io.github.eetchyza.springauth.session.BoundedSessionStore;
+import io.github.eetchyza.springauth.session.EvictionPolicy;
+import io.github.eetchyza.springauth.session.InMemorySessionStore;
+import org.mindrot.jbcrypt.BCrypt;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Sustained logins against a bounded store, the heap used after each iteration should stay flat
+ * however many iterations are run. Compare with store=unbounded to see the heap grow.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 10, time = 5)
+@Fork(value = 1, jvmArgs = { "-Xmx1g" })
+public class BoundedLoginBenchmark {
+	private static final int USERS = 100_000;
+
+	private static final String PASSWORD = "password";
+
+	@Param({ "LRU", "TINY_LFU", "unbounded" })
+	public String store;
+
+	private AuthService authService;
+
+	private MemoryMXBean memory;
+
+	@Setup
+	public void setup() {
+		// The lowest BCrypt cost so the benchmark measures the store rather than hashing
+		String hash = BCrypt.hashpw(PASSWORD, BCrypt.gensalt(4));
+		authService = new AuthService(username -> new BenchmarkUser(Long.parseLong(username.substring(5)), username, hash, "STANDARD"));
+
+		if ("unbounded".equals(store)) {
+			authService.setSessionStore(new InMemorySessionStore());
+		} else {
+			authService.setSessionStore(new BoundedSessionStore(new InMemorySessionStore(), 50_000, 3, EvictionPolicy.valueOf(store)));
+		}
+
+		memory = ManagementFactory.getMemoryMXBean();
+	}
+
+	@TearDown(Level.Iteration)
+	public void reportHeap() {
+		System.gc();
+		System.out.printf("%n  heap used after gc: %d MB%n", memory.getHeapMemoryUsage().getUsed() / (1024 * 1024));
+	}
+
+	@TearDown
+	public void tearDown() {
+		authService.destroy();
+	}
+
+	@Benchmark
+	@Threads(4)
+	public Authentication login() throws UsernameOrPasswordIncorrectException {
+		return authService.login("user-" + ThreadLocalRandom.current().nextInt(USERS), PASSWORD);
+	}
+}
@@ -0,0 +1,66 @@
+package io.github.eetchyza.springauth.benchmarks;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.concurrent.TimeUnit;
+
+import io.github.eetchyza.springauth.api.AuthClock;
+import io.github.eetchyza.springauth.clock.CoarseClock;
+import io.github.eetchyza.springauth.clock.MonotonicClock;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The expiry check made on every request. {@code localDateTime} compares against {@code LocalDateTime.now()} as sessions used to,
+ * the others compare epoch milliseconds read from each {@link AuthClock AuthClock}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ClockBenchmark {
+	private final LocalDateTime expire = LocalDateTime.now().plusHours(1);
+
+	private final long expiresAt = expire.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+
+	private final AuthClock systemClock = System::currentTimeMillis;
+
+	private final AuthClock monotonicClock = new MonotonicClock();
+
+	private final CoarseClock coarseClock = new CoarseClock();
+
+	@TearDown
+	public void tearDown() {
+		coarseClock.close();
+	}
+
+	@Benchmark
+	public boolean localDateTime() {
+		return expire.isBefore(LocalDateTime.now());
+	}
+
+	@Benchmark
+	public boolean system() {
+		return expiresAt < systemClock.millis();
+	}
+
+	@Benchmark
+	public boolean monotonic() {
+		return expiresAt < monotonicClock.millis();
+	}
+
+	@Benchmark
+	public boolean coarse() {
+		return expiresAt < coarseClock.millis();
+	}
+}
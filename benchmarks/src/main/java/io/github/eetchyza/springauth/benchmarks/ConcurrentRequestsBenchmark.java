@@ -0,0 +1,201 @@
+package io.github.eetchyza.springauth.benchmarks;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import io.github.eetchyza.springauth.AuthService;
+import io.github.eetchyza.springauth.ReactiveSecurityContext;
+import io.github.eetchyza.springauth.SecurityContext;
+import io.github.eetchyza.springauth.annotations.AllowRoles;
+import io.github.eetchyza.springauth.session.InMemorySessionStore;
+import io.github.eetchyza.springauth.web.ReactiveSecurityFilter;
+import io.github.eetchyza.springauth.web.SecurityFilter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.support.StaticApplicationContext;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.reactive.result.method.annotation.RequestMappingHandlerMapping;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * 10,000 requests in flight at once, each from a different user, through {@link SecurityFilter SecurityFilter} on a 200 thread pool
+ * (Tomcat's default), on a thread per request (virtual threads on Java 21 and later) and through {@link ReactiveSecurityFilter ReactiveSecurityFilter}.
+ * The handler either returns straight away or waits as if it were calling another service
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ConcurrentRequestsBenchmark {
+	private static final int REQUESTS = 10_000;
+
+	@Param({ "0", "10" })
+	private int handlerMillis;
+
+	private AuthService authService;
+
+	private SecurityFilter securityFilter;
+
+	private ReactiveSecurityFilter reactiveSecurityFilter;
+
+	private Controller controller;
+
+	private Method method;
+
+	private MockHttpServletRequest[] requests;
+
+	private MockServerWebExchange[] exchanges;
+
+	private WebFilterChain chain;
+
+	private ExecutorService pool;
+
+	private Executor threadPerTask;
+
+	@Setup
+	public void setup() throws Exception {
+		authService = new AuthService(username -> null);
+		InMemorySessionStore sessionStore = new InMemorySessionStore();
+		authService.setSessionStore(sessionStore);
+
+		securityFilter = new SecurityFilter();
+		Field field = SecurityFilter.class.getDeclaredField("authService");
+		field.setAccessible(true);
+		field.set(securityFilter, authService);
+
+		StaticApplicationContext context = new StaticApplicationContext();
+		context.registerSingleton("controller", Controller.class);
+		context.refresh();
+		RequestMappingHandlerMapping handlerMapping = new RequestMappingHandlerMapping();
+		handlerMapping.setApplicationContext(context);
+		handlerMapping.afterPropertiesSet();
+		reactiveSecurityFilter = new ReactiveSecurityFilter(authService, handlerMapping);
+
+		controller = new Controller();
+		method = Controller.class.getMethod("admin");
+
+		requests = new MockHttpServletRequest[REQUESTS];
+		exchanges = new MockServerWebExchange[REQUESTS];
+		for (int i = 0; i < REQUESTS; i++) {
+			String token = "token-" + i;
+			sessionStore.putIfAbsent(BenchmarkUser.session(token, new BenchmarkUser(i, "user-" + i, "password", "STANDARD", "ADMIN")));
+
+			requests[i] = new MockHttpServletRequest("GET", "/admin");
+			requests[i].addHeader("TOKEN", token);
+			exchanges[i] = MockServerWebExchange.from(MockServerHttpRequest.get("/admin").header("TOKEN", token));
+		}
+
+		Duration delay = Duration.ofMillis(handlerMillis);
+		chain = exchange -> handlerMillis == 0
+				? ReactiveSecurityContext.getCurrentUser().then()
+				: Mono.delay(delay).then(ReactiveSecurityContext.getCurrentUser()).then();
+
+		pool = Executors.newFixedThreadPool(200);
+		threadPerTask = threadPerTaskExecutor();
+	}
+
+	@TearDown
+	public void tearDown() {
+		pool.shutdown();
+		if (threadPerTask instanceof ExecutorService) {
+			((ExecutorService) threadPerTask).shutdown();
+		}
+		reactiveSecurityFilter.destroy();
+		securityFilter.destroy();
+		authService.destroy();
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(REQUESTS)
+	public void servletPool() throws InterruptedException {
+		servlet(pool);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(REQUESTS)
+	public void servletThreadPerRequest() throws InterruptedException {
+		servlet(threadPerTask);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(REQUESTS)
+	public void reactive() {
+		Flux.range(0, REQUESTS)
+				.flatMap(i -> reactiveSecurityFilter.filter(exchanges[i], chain), REQUESTS)
+				.then()
+				.block();
+	}
+
+	private void servlet(Executor executor) throws InterruptedException {
+		CountDownLatch done = new CountDownLatch(REQUESTS);
+
+		for (int i = 0; i < REQUESTS; i++) {
+			MockHttpServletRequest request = requests[i];
+			executor.execute(() -> {
+				try {
+					MockHttpServletResponse response = new MockHttpServletResponse();
+					HandlerMethod handler = new HandlerMethod(controller, method);
+
+					if (securityFilter.preHandle(request, response, handler)) {
+						SecurityContext.getCurrentUser();
+						if (handlerMillis > 0) {
+							Thread.sleep(handlerMillis);
+						}
+						securityFilter.afterCompletion(request, response, handler, null);
+					}
+				} catch (Exception e) {
+					throw new IllegalStateException(e);
+				} finally {
+					done.countDown();
+				}
+			});
+		}
+
+		done.await();
+	}
+
+	private static Executor threadPerTaskExecutor() {
+		try {
+			return (Executor) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+		} catch (ReflectiveOperationException e) {
+			return command -> new Thread(command).start();
+		}
+	}
+
+	@RestController
+	@AllowRoles("STANDARD")
+	public static class Controller {
+		@GetMapping("/admin")
+		@AllowRoles({ "SUPPORT", "ADMIN" })
+		public String admin() {
+			return "admin";
+		}
+	}
+}
@@ -0,0 +1,166 @@
+package io.github.eetchyza.springauth.benchmarks;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+
+import io.github.eetchyza.springauth.AuthService;
+import io.github.eetchyza.springauth.annotations.AllowRoles;
+import io.github.eetchyza.springauth.audit.AuditLog;
+import io.github.eetchyza.springauth.exceptions.NotAuthorisedException;
+import io.github.eetchyza.springauth.session.InMemorySessionStore;
+import io.github.eetchyza.springauth.web.SecurityFilter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.method.HandlerMethod;
+
+/**
+ * Rejected requests through {@link SecurityFilter#preHandle SecurityFilter#preHandle}, as seen while someone is scanning for endpoints,
+ * with no token and with a token missing the role. {@code concatenated} writes the same body the way the filter used to, building the
+ * JSON for each request and writing it through the writer before {@code sendError}. The mock response does not dispatch to an error page,
+ * so the cost that adds in a real container is not included. {@code preEncoded} is the write the filter does now on its own
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DenialBenchmark {
+	private static final byte[] PRE_ENCODED = "{\"message\":\"Not authorised\"}".getBytes(StandardCharsets.UTF_8);
+
+	private AuthService authService;
+
+	private SecurityFilter securityFilter;
+
+	private AuditLog auditLog;
+
+	private HandlerMethod handler;
+
+	private MockHttpServletRequest anonymous;
+
+	private MockHttpServletRequest standard;
+
+	private NotAuthorisedException notAuthorised;
+
+	@Setup
+	public void setup() throws Exception {
+		authService = new AuthService(username -> null);
+		InMemorySessionStore sessionStore = new InMemorySessionStore();
+		authService.setSessionStore(sessionStore);
+		sessionStore.putIfAbsent(BenchmarkUser.session("token", new BenchmarkUser(1L, "bench-user", "password", "STANDARD")));
+
+		securityFilter = new SecurityFilter();
+		Field field = SecurityFilter.class.getDeclaredField("authService");
+		field.setAccessible(true);
+		field.set(securityFilter, authService);
+		// Denied requests are always recorded, dropping them keeps the audit writer from competing for the core
+		auditLog = new AuditLog(events -> { }, 0);
+		securityFilter.setAuditLog(auditLog);
+
+		Method method = Controller.class.getMethod("admin");
+		handler = new HandlerMethod(new Controller(), method);
+
+		anonymous = new MockHttpServletRequest("GET", "/admin");
+		standard = new MockHttpServletRequest("GET", "/admin");
+		standard.addHeader("TOKEN", "token");
+		notAuthorised = new NotAuthorisedException();
+	}
+
+	@TearDown
+	public void tearDown() {
+		auditLog.close();
+		securityFilter.destroy();
+		authService.destroy();
+	}
+
+	@Benchmark
+	public MockHttpServletResponse notAuthenticated() throws IOException {
+		MockHttpServletResponse response = new ContainerResponse();
+		securityFilter.preHandle(anonymous, response, handler);
+		return response;
+	}
+
+	@Benchmark
+	public MockHttpServletResponse notAuthorised() throws IOException {
+		MockHttpServletResponse response = new ContainerResponse();
+		securityFilter.preHandle(standard, response, handler);
+		return response;
+	}
+
+	@Benchmark
+	public MockHttpServletResponse concatenated() throws IOException {
+		MockHttpServletResponse response = new ContainerResponse();
+		response.setContentType("application/json");
+		response.getWriter().print("{\"message\":\"" + notAuthorised.getMessage() + "\"}");
+		response.sendError(403, notAuthorised.getMessage());
+		return response;
+	}
+
+	@Benchmark
+	public MockHttpServletResponse preEncoded() throws IOException {
+		MockHttpServletResponse response = new ContainerResponse();
+		response.setStatus(403);
+		response.setContentType("application/json");
+		response.setContentLength(PRE_ENCODED.length);
+		response.getOutputStream().write(PRE_ENCODED);
+		return response;
+	}
+
+	/**
+	 * The mock response writes its output stream a byte at a time, a container copies arrays into its buffer in one go
+	 */
+	private static class ContainerResponse extends MockHttpServletResponse {
+		private final ByteArrayOutputStream buffer = new ByteArrayOutputStream(256);
+
+		private final ServletOutputStream outputStream = new ServletOutputStream() {
+			@Override
+			public void write(int b) {
+				buffer.write(b);
+			}
+
+			@Override
+			public void write(byte[] b, int off, int len) {
+				buffer.write(b, off, len);
+			}
+
+			@Override
+			public boolean isReady() {
+				return true;
+			}
+
+			@Override
+			public void setWriteListener(WriteListener writeListener) {
+				throw new UnsupportedOperationException();
+			}
+		};
+
+		@Override
+		public ServletOutputStream getOutputStream() {
+			return outputStream;
+		}
+	}
+
+	@AllowRoles("ADMIN")
+	public static class Controller {
+		public String admin() {
+			return "admin";
+		}
+	}
+}
@@ -0,0 +1,67 @@
+package io.github.eetchyza.springauth.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import io.github.eetchyza.springauth.AuthService;
+import io.github.eetchyza.springauth.Authentication;
+import io.github.eetchyza.springauth.exceptions.UsernameOrPasswordIncorrectException;
+import io.github.eetchyza.springauth.password.BCryptPasswordHasher;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * A successful login at different BCrypt costs, almost all of the time is spent verifying the password.
+ * {@link SingleThread SingleThread} runs on one thread and {@link Contended Contended} on one thread per core
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public abstract class LoginBenchmark {
+	private static final String PASSWORD = "password";
+
+	@Param({ "4", "10", "12" })
+	public int cost;
+
+	private AuthService authService;
+
+	@Threads(1)
+	public static class SingleThread extends LoginBenchmark {
+	}
+
+	@Threads(Threads.MAX)
+	public static class Contended extends LoginBenchmark {
+	}
+
+	@Setup
+	public void setup() {
+		BCryptPasswordHasher passwordHasher = new BCryptPasswordHasher(cost);
+		BenchmarkUser user = new BenchmarkUser(1L, "bench-user", passwordHasher.hash(PASSWORD), "STANDARD");
+
+		authService = new AuthService(username -> user);
+		authService.setPasswordHasher(passwordHasher);
+	}
+
+	@TearDown
+	public void tearDown() {
+		authService.destroy();
+	}
+
+	@Benchmark
+	public Authentication login() throws UsernameOrPasswordIncorrectException {
+		return authService.login("bench-user", PASSWORD);
+	}
+}
@@ -0,0 +1,95 @@
+package io.github.eetchyza.springauth.benchmarks;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import io.github.eetchyza.springauth.AuthService;
+import io.github.eetchyza.springauth.Authentication;
+import io.github.eetchyza.springauth.exceptions.UsernameOrPasswordIncorrectException;
+import io.github.eetchyza.springauth.password.BCryptPasswordHasher;
+import io.github.eetchyza.springauth.ratelimit.LoginThrottle;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * What the login throttle adds to a successful login. {@code throttle} measures just the calls made around a login,
+ * with 10% of usernames and addresses holding a recent failure, and {@code login} is a whole login at the lowest BCrypt cost.
+ * Both are run with the throttle on and off
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+public class LoginThrottleBenchmark {
+	private static final int USERS = 100_000;
+
+	private static final String PASSWORD = "password";
+
+	@Param({ "true", "false" })
+	public boolean throttled;
+
+	private LoginThrottle loginThrottle;
+
+	private AuthService authService;
+
+	private String[] usernames;
+
+	private String[] addresses;
+
+	@Setup
+	public void setup() {
+		loginThrottle = new LoginThrottle();
+		usernames = new String[USERS];
+		addresses = new String[USERS];
+
+		for (int i = 0; i < USERS; i++) {
+			usernames[i] = "user-" + i;
+			addresses[i] = "10.0." + (i >> 8 & 0xff) + "." + (i & 0xff);
+
+			if (i % 10 == 0) {
+				loginThrottle.failed(usernames[i], addresses[i]);
+			}
+		}
+
+		BCryptPasswordHasher passwordHasher = new BCryptPasswordHasher(4);
+		BenchmarkUser user = new BenchmarkUser(1L, "bench-user", passwordHasher.hash(PASSWORD), "STANDARD");
+		authService = new AuthService(username -> user);
+		authService.setPasswordHasher(passwordHasher);
+		authService.setLoginThrottle(throttled ? loginThrottle : null);
+	}
+
+	@TearDown
+	public void tearDown() {
+		authService.destroy();
+	}
+
+	@Benchmark
+	public long throttle() {
+		if (!throttled) {
+			return 0;
+		}
+
+		int user = ThreadLocalRandom.current().nextInt(USERS);
+		return loginThrottle.check(usernames[user], addresses[user]);
+	}
+
+	@Benchmark
+	public Authentication login() throws UsernameOrPasswordIncorrectException {
+		int user = ThreadLocalRandom.current().nextInt(USERS);
+		return authService.login(usernames[user], PASSWORD, addresses[user]);
+	}
+}
@@ -0,0 +1,106 @@
+package io.github.eetchyza.springauth.benchmarks;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import io.github.eetchyza.springauth.AuthService;
+import io.github.eetchyza.springauth.exceptions.NotAuthenticatedException;
+import io.github.eetchyza.springauth.exceptions.TokenExpiredException;
+import io.github.eetchyza.springauth.session.LocalInvalidationChannel;
+import io.github.eetchyza.springauth.session.LocalSessionBackend;
+import io.github.eetchyza.springauth.session.NearCacheSessionStore;
+import io.github.eetchyza.springauth.session.SharedSessionStore;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * {@link AuthService#checkAuthenticated(String) AuthService#checkAuthenticated} with sessions in a {@link SharedSessionStore SharedSessionStore}
+ * over the in-process {@link LocalSessionBackend LocalSessionBackend}, with a {@link NearCacheSessionStore NearCacheSessionStore} in front
+ * answering the given percentage of lookups. Misses are forced by invalidating the token first. {@code direct} checks against the shared store
+ * with no cache at all. A real backend adds a network round trip to every miss, so the gap only widens
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class NearCacheBenchmark {
+	private static final int SESSIONS = 10_000;
+
+	private static final int PATTERN = 1024;
+
+	@Param({ "0", "50", "99" })
+	private int hitPercent;
+
+	private AuthService cached;
+
+	private AuthService direct;
+
+	private NearCacheSessionStore nearCache;
+
+	private String[] tokens;
+
+	private boolean[] hits;
+
+	private int next;
+
+	@Setup
+	public void setup() {
+		LocalSessionBackend backend = new LocalSessionBackend();
+		SharedSessionStore sharedStore = new SharedSessionStore(backend, Duration.ofHours(1));
+		// Sized above the working set, as forced misses leave their old entry queued until it ages out
+		nearCache = new NearCacheSessionStore(sharedStore, Duration.ofMinutes(5), 2 * SESSIONS, new LocalInvalidationChannel());
+
+		cached = new AuthService(username -> null);
+		cached.setSessionStore(nearCache);
+		direct = new AuthService(username -> null);
+		direct.setSessionStore(sharedStore);
+
+		BenchmarkUser user = new BenchmarkUser(1L, "bench-user", "password", "STANDARD");
+		tokens = new String[SESSIONS];
+		for (int i = 0; i < SESSIONS; i++) {
+			tokens[i] = "token-" + i;
+			nearCache.putIfAbsent(BenchmarkUser.session(tokens[i], user));
+		}
+
+		// Spread the misses evenly through the pattern
+		hits = new boolean[PATTERN];
+		for (int i = 0; i < PATTERN; i++) {
+			hits[i] = (i * hitPercent) % 100 + hitPercent >= 100;
+		}
+	}
+
+	@TearDown
+	public void tearDown() {
+		cached.destroy();
+		direct.destroy();
+	}
+
+	@Benchmark
+	public void nearCache() throws NotAuthenticatedException, TokenExpiredException {
+		int i = next++ & Integer.MAX_VALUE;
+		String token = tokens[i % SESSIONS];
+
+		if (!hits[i & (PATTERN - 1)]) {
+			nearCache.invalidate(token);
+		}
+
+		cached.checkAuthenticated(token);
+	}
+
+	@Benchmark
+	public void direct() throws NotAuthenticatedException, TokenExpiredException {
+		direct.checkAuthenticated(tokens[(next++ & Integer.MAX_VALUE) % SESSIONS]);
+	}
+}
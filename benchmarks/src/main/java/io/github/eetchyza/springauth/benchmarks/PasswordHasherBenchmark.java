@@ -0,0 +1,71 @@
+package io.github.eetchyza.springauth.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import io.github.eetchyza.springauth.api.PasswordHasher;
+import io.github.eetchyza.springauth.password.Argon2PasswordHasher;
+import io.github.eetchyza.springauth.password.BCryptPasswordHasher;
+import io.github.eetchyza.springauth.password.Pbkdf2PasswordHasher;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Hash and verify latency per algorithm and cost, use it to pick parameters that take around 50ms on your hardware.
+ * Pass your own with -p hasher=bcrypt:13,argon2:65536:3:1 and so on.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PasswordHasherBenchmark {
+	private static final String PASSWORD = "correct horse battery staple";
+
+	@Param({ "bcrypt:10", "bcrypt:11", "bcrypt:12", "pbkdf2:310000", "pbkdf2:600000", "argon2:19456:2:1", "argon2:65536:3:1" })
+	public String hasher;
+
+	private PasswordHasher passwordHasher;
+
+	private String hash;
+
+	@Setup
+	public void setup() {
+		String[] spec = hasher.split(":");
+
+		switch (spec[0]) {
+			case "bcrypt":
+				passwordHasher = new BCryptPasswordHasher(Integer.parseInt(spec[1]));
+				break;
+			case "pbkdf2":
+				passwordHasher = new Pbkdf2PasswordHasher(Integer.parseInt(spec[1]));
+				break;
+			case "argon2":
+				passwordHasher = new Argon2PasswordHasher(Integer.parseInt(spec[1]), Integer.parseInt(spec[2]), Integer.parseInt(spec[3]));
+				break;
+			default:
+				throw new IllegalArgumentException("Unknown hasher " + hasher);
+		}
+
+		hash = passwordHasher.hash(PASSWORD);
+	}
+
+	@Benchmark
+	public String hash() {
+		return passwordHasher.hash(PASSWORD);
+	}
+
+	@Benchmark
+	public boolean verify() {
+		return passwordHasher.matches(PASSWORD, hash);
+	}
+}
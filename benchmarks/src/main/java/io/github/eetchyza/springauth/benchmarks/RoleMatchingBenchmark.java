@@ -0,0 +1,91 @@
+package io.github.eetchyza.springauth.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import io.github.eetchyza.springauth.AuthService;
+import io.github.eetchyza.springauth.AuthorizationPlan;
+import io.github.eetchyza.springauth.api.GrantedAuthority;
+import io.github.eetchyza.springauth.exceptions.NotAuthorisedException;
+import io.github.eetchyza.springauth.session.InMemorySessionStore;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Checking a user's roles against an endpoint's allowed roles by comparing names, as {@code Authentication#hasRoles} used to,
+ * compared to the encoded role sets. The only matching role is the last one on both sides, the worst case for comparing names
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RoleMatchingBenchmark {
+	@Param({ "1", "8", "32", "100" })
+	public int granted;
+
+	@Param({ "1", "4" })
+	public int allowed;
+
+	private AuthService authService;
+
+	private InMemorySessionStore sessionStore;
+
+	private String[] allowedRoles;
+
+	private AuthorizationPlan plan;
+
+	@Setup
+	public void setup() {
+		String[] grantedRoles = new String[granted];
+		for (int i = 0; i < granted; i++) {
+			grantedRoles[i] = "GRANTED_" + i;
+		}
+
+		allowedRoles = new String[allowed];
+		for (int i = 0; i < allowed - 1; i++) {
+			allowedRoles[i] = "OTHER_" + i;
+		}
+		allowedRoles[allowed - 1] = grantedRoles[granted - 1];
+
+		authService = new AuthService(username -> null);
+		sessionStore = new InMemorySessionStore();
+		authService.setSessionStore(sessionStore);
+		sessionStore.putIfAbsent(BenchmarkUser.session("token", new BenchmarkUser(1L, "bench-user", "password", grantedRoles)));
+		plan = AuthorizationPlan.allowRoles(allowedRoles);
+	}
+
+	@TearDown
+	public void tearDown() {
+		authService.destroy();
+	}
+
+	@Benchmark
+	public boolean names() {
+		for (GrantedAuthority authority : sessionStore.get("token").getUserDetails().getAuthorities()) {
+			for (String role : allowedRoles) {
+				if (role.equals(authority.getAuthority())) {
+					return true;
+				}
+			}
+		}
+
+		return false;
+	}
+
+	@Benchmark
+	public boolean roleSet() throws NotAuthorisedException {
+		authService.checkIsAuthorised("token", plan);
+		return true;
+	}
+}
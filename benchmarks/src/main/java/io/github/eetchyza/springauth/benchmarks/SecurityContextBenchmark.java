@@ -0,0 +1,65 @@
+package io.github.eetchyza.springauth.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import io.github.eetchyza.springauth.SecurityContext;
+import io.github.eetchyza.springauth.api.UserDetails;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * What every request does to the {@link SecurityContext SecurityContext}, set the user, read it back and clear it, on every core at once.
+ * Compared to the same thread local behind a class wide lock as the context used to be, which lets one thread in at a time.
+ * Run with {@code -t 1}, {@code -t 2} and so on up to the number of cores to see how each scales
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SecurityContextBenchmark {
+	private final UserDetails user = new BenchmarkUser(1L, "bench-user", "password", "STANDARD");
+
+	@Benchmark
+	@Threads(Threads.MAX)
+	public UserDetails threadLocal() {
+		SecurityContext.setCurrentUser(user);
+		UserDetails current = SecurityContext.getCurrentUser();
+		SecurityContext.clear();
+		return current;
+	}
+
+	@Benchmark
+	@Threads(Threads.MAX)
+	public UserDetails synchronizedThreadLocal() {
+		SynchronizedContext.setCurrentUser(user);
+		UserDetails current = SynchronizedContext.getCurrentUser();
+		SynchronizedContext.clear();
+		return current;
+	}
+
+	private static class SynchronizedContext {
+		private static final ThreadLocal<UserDetails> user = new ThreadLocal<>();
+
+		static synchronized UserDetails getCurrentUser() {
+			return user.get();
+		}
+
+		static synchronized void setCurrentUser(UserDetails userDetails) {
+			user.set(userDetails);
+		}
+
+		static synchronized void clear() {
+			user.remove();
+		}
+	}
+}
@@ -0,0 +1,111 @@
+package io.github.eetchyza.springauth.benchmarks;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+
+import io.github.eetchyza.springauth.AuthService;
+import io.github.eetchyza.springauth.AuthorizationPlan;
+import io.github.eetchyza.springauth.SecurityContext;
+import io.github.eetchyza.springauth.annotations.AllowAnon;
+import io.github.eetchyza.springauth.annotations.AllowRoles;
+import io.github.eetchyza.springauth.session.InMemorySessionStore;
+import io.github.eetchyza.springauth.web.SecurityFilter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.method.HandlerMethod;
+
+/**
+ * An authorised request through {@link SecurityFilter#preHandle SecurityFilter#preHandle} with its cached authorization plan,
+ * compared to reading the handler's annotations on every request as the filter used to
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SecurityFilterBenchmark {
+	private AuthService authService;
+
+	private SecurityFilter securityFilter;
+
+	private Object controller;
+
+	private Method method;
+
+	private MockHttpServletRequest request;
+
+	private MockHttpServletResponse response;
+
+	@Setup
+	public void setup() throws Exception {
+		authService = new AuthService(username -> null);
+		InMemorySessionStore sessionStore = new InMemorySessionStore();
+		authService.setSessionStore(sessionStore);
+		sessionStore.putIfAbsent(BenchmarkUser.session("token", new BenchmarkUser(1L, "bench-user", "password", "STANDARD", "ADMIN")));
+
+		securityFilter = new SecurityFilter();
+		Field field = SecurityFilter.class.getDeclaredField("authService");
+		field.setAccessible(true);
+		field.set(securityFilter, authService);
+
+		controller = new Controller();
+		method = Controller.class.getMethod("admin");
+
+		request = new MockHttpServletRequest("GET", "/admin");
+		request.addHeader("TOKEN", "token");
+		response = new MockHttpServletResponse();
+
+		// Spring creates a new handler method for each request, so the cached plan is found by equality rather than identity
+		securityFilter.preHandle(request, response, new HandlerMethod(controller, method));
+	}
+
+	@TearDown
+	public void tearDown() {
+		securityFilter.destroy();
+		authService.destroy();
+	}
+
+	@Benchmark
+	public boolean cached() throws Exception {
+		boolean allowed = securityFilter.preHandle(request, response, new HandlerMethod(controller, method));
+		SecurityContext.clear();
+		return allowed;
+	}
+
+	@Benchmark
+	public boolean reflective() throws Exception {
+		HandlerMethod handlerMethod = new HandlerMethod(controller, method);
+		String token = request.getHeader("TOKEN");
+
+		authService.setCurrentUser(token);
+
+		if (!handlerMethod.getMethod().isAnnotationPresent(AllowAnon.class)) {
+			authService.checkAuthenticated(token);
+		}
+
+		authService.checkIsAuthorised(token, AuthorizationPlan.of(handlerMethod.getBeanType(), handlerMethod.getMethod()));
+		SecurityContext.clear();
+		return true;
+	}
+
+	@AllowRoles("STANDARD")
+	public static class Controller {
+		@AllowRoles({ "SUPPORT", "ADMIN" })
+		public String admin() {
+			return "admin";
+		}
+	}
+}
@@ -0,0 +1,129 @@
+package io.github.eetchyza.springauth.benchmarks;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import io.github.eetchyza.springauth.session.ExpiringSessionStore;
+import io.github.eetchyza.springauth.session.InMemorySessionStore;
+import io.github.eetchyza.springauth.session.RefreshTokenIndex;
+import io.github.eetchyza.springauth.session.SessionSnapshot;
+import io.github.eetchyza.springauth.token.SecureTokenGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Restoring 1,000,000 sessions from a {@link SessionSnapshot SessionSnapshot} into the default session store and refresh token index,
+ * which is what a restarted node does before it serves its first request, and writing them out again
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+public class SessionSnapshotBenchmark {
+	private static final int SESSIONS = 1_000_000;
+
+	private static final int USERS = 100_000;
+
+	/**
+	 * The index of sessions to write, only kept for {@link #save(Written) save} so it is not part of the heap being collected while loading
+	 */
+	@State(Scope.Benchmark)
+	public static class Written {
+		Path file;
+
+		SessionSnapshot snapshot;
+
+		RefreshTokenIndex refreshTokens;
+
+		@Setup
+		public void setup() throws IOException {
+			file = Files.createTempFile("sessions", ".snapshot");
+			snapshot = new SessionSnapshot(file, Duration.ZERO);
+			refreshTokens = new RefreshTokenIndex();
+
+			BenchmarkUser[] users = new BenchmarkUser[USERS];
+			for (int i = 0; i < USERS; i++) {
+				users[i] = i % 100 == 0 ? new BenchmarkUser(i, "user-" + i, "password", "STANDARD", "ADMIN") : new BenchmarkUser(i, "user-" + i, "password", "STANDARD");
+			}
+
+			SecureTokenGenerator tokenGenerator = new SecureTokenGenerator();
+			for (int i = 0; i < SESSIONS; i++) {
+				refreshTokens.add(BenchmarkUser.session(tokenGenerator.generate(), users[i % USERS]));
+			}
+		}
+
+		@TearDown
+		public void tearDown() throws IOException {
+			refreshTokens.close();
+			Files.deleteIfExists(file);
+		}
+	}
+
+	/**
+	 * A snapshot of 1,000,000 sessions, and a fresh store and index to restore it into for each iteration
+	 */
+	@State(Scope.Benchmark)
+	public static class Restored {
+		Path file;
+
+		SessionSnapshot snapshot;
+
+		ExpiringSessionStore sessionStore;
+
+		RefreshTokenIndex refreshTokens;
+
+		@Setup
+		public void setup() throws IOException {
+			Written written = new Written();
+			written.setup();
+			written.snapshot.save(written.refreshTokens);
+			written.refreshTokens.close();
+
+			file = written.file;
+			snapshot = written.snapshot;
+		}
+
+		@TearDown
+		public void tearDown() throws IOException {
+			Files.deleteIfExists(file);
+		}
+
+		@Setup(Level.Iteration)
+		public void emptyStore() {
+			sessionStore = new ExpiringSessionStore(new InMemorySessionStore());
+			refreshTokens = new RefreshTokenIndex();
+		}
+
+		@TearDown(Level.Iteration)
+		public void closeStore() {
+			sessionStore.close();
+			refreshTokens.close();
+			sessionStore = null;
+			refreshTokens = null;
+		}
+	}
+
+	@Benchmark
+	public int load(Restored restored) {
+		return restored.snapshot.load(restored.sessionStore, restored.refreshTokens);
+	}
+
+	@Benchmark
+	public int save(Written written) {
+		return written.snapshot.save(written.refreshTokens);
+	}
+}
@@ -0,0 +1,96 @@
+package io.github.eetchyza.springauth.benchmarks;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import io.github.eetchyza.springauth.session.InMemorySessionStore;
+import io.github.eetchyza.springauth.session.LocalSessionBackend;
+import io.github.eetchyza.springauth.session.MappedFileSessionStore;
+import io.github.eetchyza.springauth.session.Session;
+import io.github.eetchyza.springauth.session.SessionStore;
+import io.github.eetchyza.springauth.session.SharedSessionStore;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Throughput of each {@link SessionStore SessionStore} implementation
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SessionStoreBenchmark {
+	private static final int SESSIONS = 10_000;
+
+	@Param({ "memory", "mapped", "shared" })
+	public String store;
+
+	private final AtomicLong sequence = new AtomicLong();
+
+	private SessionStore sessionStore;
+
+	private Path file;
+
+	private BenchmarkUser user;
+
+	@Setup
+	public void setup() throws IOException {
+		user = new BenchmarkUser(1L, "bench-user", "password", "STANDARD");
+
+		switch (store) {
+			case "mapped":
+				file = Files.createTempFile("sessions", ".dat");
+				sessionStore = new MappedFileSessionStore(file, 256 * 1024 * 1024);
+				break;
+			case "shared":
+				sessionStore = new SharedSessionStore(new LocalSessionBackend(), Duration.ofHours(1));
+				break;
+			default:
+				sessionStore = new InMemorySessionStore();
+		}
+
+		for (int i = 0; i < SESSIONS; i++) {
+			sessionStore.putIfAbsent(BenchmarkUser.session("token-" + i, user));
+		}
+	}
+
+	@TearDown
+	public void tearDown() throws IOException {
+		if (sessionStore instanceof MappedFileSessionStore) {
+			((MappedFileSessionStore) sessionStore).close();
+			Files.deleteIfExists(file);
+		}
+	}
+
+	@Benchmark
+	@Threads(4)
+	public Session get() {
+		return sessionStore.get("token-" + ThreadLocalRandom.current().nextInt(SESSIONS));
+	}
+
+	@Benchmark
+	@Threads(4)
+	public boolean putAndRemove() {
+		Session session = BenchmarkUser.session("new-" + sequence.incrementAndGet(), user);
+		sessionStore.putIfAbsent(session);
+		return sessionStore.remove(session);
+	}
+}
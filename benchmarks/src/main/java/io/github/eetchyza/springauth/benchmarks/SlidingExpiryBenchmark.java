@@ -0,0 +1,100 @@
+package io.github.eetchyza.springauth.benchmarks;
+
+import java.io.Closeable;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import io.github.eetchyza.springauth.AuthService;
+import io.github.eetchyza.springauth.Authentication;
+import io.github.eetchyza.springauth.exceptions.NotAuthenticatedException;
+import io.github.eetchyza.springauth.exceptions.TokenExpiredException;
+import io.github.eetchyza.springauth.session.ExpiringSessionStore;
+import io.github.eetchyza.springauth.session.InMemorySessionStore;
+import io.github.eetchyza.springauth.session.LocalSessionBackend;
+import io.github.eetchyza.springauth.session.Session;
+import io.github.eetchyza.springauth.session.SessionStore;
+import io.github.eetchyza.springauth.session.SharedSessionStore;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * {@link AuthService#checkAuthenticated(String) AuthService#checkAuthenticated} over 10,000 sessions with an hour ttl,
+ * in the default store and in a {@link SharedSessionStore SharedSessionStore} over the in-process {@link LocalSessionBackend LocalSessionBackend}.
+ * {@code fixed} has sliding expiry off, {@code coalesced} only extends tokens with less than half their ttl left,
+ * and {@code everyRequest} extends a token whenever the clock has moved since it was last extended, as if touches were not coalesced
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SlidingExpiryBenchmark {
+	private static final int SESSIONS = 10_000;
+
+	private static final Duration TTL = Duration.ofHours(1);
+
+	@Param({ "inMemory", "shared" })
+	private String store;
+
+	@Param({ "fixed", "coalesced", "everyRequest" })
+	private String expiry;
+
+	private SessionStore sessionStore;
+
+	private AuthService authService;
+
+	private String[] tokens;
+
+	private int next;
+
+	@Setup
+	public void setup() {
+		sessionStore = "shared".equals(store)
+				? new SharedSessionStore(new LocalSessionBackend(), Duration.ofDays(1))
+				: new ExpiringSessionStore(new InMemorySessionStore());
+
+		authService = new AuthService(username -> null);
+		authService.setSessionStore(sessionStore);
+		authService.setSessionTtl(TTL);
+
+		if ("coalesced".equals(expiry)) {
+			authService.setSlidingExpiry(TTL.dividedBy(2), Duration.ofDays(1));
+		} else if ("everyRequest".equals(expiry)) {
+			authService.setSlidingExpiry(TTL, Duration.ofDays(1));
+		}
+
+		BenchmarkUser user = new BenchmarkUser(1L, "bench-user", "password", "STANDARD");
+		long now = System.currentTimeMillis();
+		long maxExpiresAt = "fixed".equals(expiry) ? now + TTL.toMillis() : now + Duration.ofDays(1).toMillis();
+
+		tokens = new String[SESSIONS];
+		for (int i = 0; i < SESSIONS; i++) {
+			tokens[i] = "token-" + i;
+			Authentication authentication = new Authentication(tokens[i], "refresh-" + tokens[i], now + TTL.toMillis(), maxExpiresAt,
+					user.getAuthorities(), user.getUsername(), user.getId());
+			sessionStore.putIfAbsent(new Session(authentication, user));
+		}
+	}
+
+	@TearDown
+	public void tearDown() throws Exception {
+		((Closeable) sessionStore).close();
+		authService.destroy();
+	}
+
+	@Benchmark
+	public void checkAuthenticated() throws NotAuthenticatedException, TokenExpiredException {
+		authService.checkAuthenticated(tokens[(next++ & Integer.MAX_VALUE) % SESSIONS]);
+	}
+}
@@ -0,0 +1,98 @@
+package io.github.eetchyza.springauth.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import io.github.eetchyza.springauth.session.InMemorySessionStore;
+import io.github.eetchyza.springauth.token.SecureTokenGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The Random based generator {@code AuthService#generateToken} used to have, including its check of the session store,
+ * compared to {@link SecureTokenGenerator SecureTokenGenerator}. Run with {@code -prof gc} to see the allocations per token
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+public class TokenGeneratorBenchmark {
+	private InMemorySessionStore sessionStore;
+
+	private SecureTokenGenerator secure128;
+
+	private SecureTokenGenerator secure256;
+
+	@Setup
+	public void setup() {
+		sessionStore = new InMemorySessionStore();
+		secure128 = new SecureTokenGenerator(128);
+		secure256 = new SecureTokenGenerator(256);
+	}
+
+	@Benchmark
+	public String legacy() {
+		int length = 20;
+
+		String[] characterGroups = new String[4];
+		characterGroups[0] = ("abcdefghjkmnpqrstuvwxyz");
+		characterGroups[1] = ("ABCDEFGHJKMNPQRSTWUVXYZ");
+		characterGroups[2] = ("23456789");
+		characterGroups[3] = ("!-+#");
+
+		Random rng = new Random();
+
+		List<String> chars = new ArrayList<>();
+		for (String characters : characterGroups) {
+			char[] text = new char[length];
+			for (int i = 0; i < length; i++) {
+				text[i] = characters.charAt(rng.nextInt(characters.length()));
+			}
+
+			chars.add((new String(text)));
+		}
+
+		StringBuilder characters = new StringBuilder();
+
+		for (String character : chars) {
+			characters.append(character);
+		}
+
+		char[] text = new char[length];
+		for (int i = 0; i < length; i++) {
+			text[i] = characters.charAt(rng.nextInt(characters.length()));
+		}
+
+		String generated = new String(text);
+
+		if (sessionStore.contains(generated)) {
+			generated = legacy();
+		}
+
+		return generated;
+	}
+
+	@Benchmark
+	public String secure128() {
+		return secure128.generate();
+	}
+
+	@Benchmark
+	public String secure256() {
+		return secure256.generate();
+	}
+}
@@ -0,0 +1,82 @@
+package io.github.eetchyza.springauth.benchmarks;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import io.github.eetchyza.springauth.AuthService;
+import io.github.eetchyza.springauth.exceptions.NotAuthenticatedException;
+import io.github.eetchyza.springauth.exceptions.TokenExpiredException;
+import io.github.eetchyza.springauth.session.InMemorySessionStore;
+import io.github.eetchyza.springauth.token.KeyRing;
+import io.github.eetchyza.springauth.token.TokenSigner;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Verifying a token against the session store compared to verifying a signed token
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TokenVerifyBenchmark {
+	private static final int SESSIONS = 10_000;
+
+	@Param({ "stateful", "signed" })
+	public String mode;
+
+	private AuthService authService;
+
+	private String[] tokens;
+
+	@Setup
+	public void setup() {
+		authService = new AuthService(username -> null);
+		tokens = new String[SESSIONS];
+		BenchmarkUser user = new BenchmarkUser(1L, "bench-user", "password", "STANDARD", "ADMIN");
+
+		if ("signed".equals(mode)) {
+			TokenSigner tokenSigner = new TokenSigner(new KeyRing("k1", "0123456789abcdef0123456789abcdef".getBytes(StandardCharsets.US_ASCII)));
+			authService.setTokenSigner(tokenSigner);
+
+			for (int i = 0; i < SESSIONS; i++) {
+				LocalDateTime expire = LocalDateTime.now().plusHours(1);
+				tokens[i] = tokenSigner.issue(user.getId(), user.getUsername(), user.getAuthorities(), expire, expire.plusHours(1)).getAuthenticationToken();
+			}
+		} else {
+			InMemorySessionStore sessionStore = new InMemorySessionStore();
+			authService.setSessionStore(sessionStore);
+
+			for (int i = 0; i < SESSIONS; i++) {
+				tokens[i] = "token-" + i;
+				sessionStore.putIfAbsent(BenchmarkUser.session(tokens[i], user));
+			}
+		}
+	}
+
+	@TearDown
+	public void tearDown() {
+		authService.destroy();
+	}
+
+	@Benchmark
+	@Threads(4)
+	public void checkAuthenticated() throws NotAuthenticatedException, TokenExpiredException {
+		authService.checkAuthenticated(tokens[ThreadLocalRandom.current().nextInt(SESSIONS)]);
+	}
+}
@@ -1,24 +1,53 @@
 package io.github.eetchyza.springauth;
 
 import java.lang.reflect.Method;
-import java.time.LocalDateTime;
-import java.util.ArrayList;
-import java.util.HashMap;
+import java.time.Duration;
+import java.time.ZoneId;
+import java.util.Collection;
 import java.util.List;
-import java.util.Map;
-import java.util.Random;
-
-import io.github.eetchyza.springauth.annotations.AllowAnon;
-import io.github.eetchyza.springauth.annotations.AllowRoles;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.github.eetchyza.springauth.api.AuthClock;
+import io.github.eetchyza.springauth.api.AuthMetrics;
+import io.github.eetchyza.springauth.api.GrantedAuthority;
+import io.github.eetchyza.springauth.api.PasswordHasher;
+import io.github.eetchyza.springauth.api.PasswordRehashListener;
+import io.github.eetchyza.springauth.api.TokenGenerator;
 import io.github.eetchyza.springauth.api.UserDetails;
 import io.github.eetchyza.springauth.api.UserDetailsService;
+import io.github.eetchyza.springauth.cache.CachingUserDetailsService;
+import io.github.eetchyza.springauth.clock.MonotonicClock;
+import io.github.eetchyza.springauth.exceptions.LoginThrottledException;
 import io.github.eetchyza.springauth.exceptions.NotAuthenticatedException;
 import io.github.eetchyza.springauth.exceptions.NotAuthorisedException;
 import io.github.eetchyza.springauth.exceptions.PasswordExpiredException;
 import io.github.eetchyza.springauth.exceptions.TokenExpiredException;
+import io.github.eetchyza.springauth.exceptions.TooManyRequestsException;
 import io.github.eetchyza.springauth.exceptions.UsernameOrPasswordIncorrectException;
-import org.mindrot.jbcrypt.BCrypt;
-
+import io.github.eetchyza.springauth.password.BCryptPasswordHasher;
+import io.github.eetchyza.springauth.ratelimit.LoginThrottle;
+import io.github.eetchyza.springauth.session.ExpiringSessionStore;
+import io.github.eetchyza.springauth.session.IndexedSession;
+import io.github.eetchyza.springauth.session.InMemorySessionStore;
+import io.github.eetchyza.springauth.session.RefreshTokenIndex;
+import io.github.eetchyza.springauth.session.RestoredUserDetails;
+import io.github.eetchyza.springauth.session.Session;
+import io.github.eetchyza.springauth.session.SessionSnapshot;
+import io.github.eetchyza.springauth.session.SessionStore;
+import io.github.eetchyza.springauth.token.SecureTokenGenerator;
+import io.github.eetchyza.springauth.token.TokenSigner;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
@@ -30,19 +59,272 @@ import org.springframework.stereotype.Component;
  * @since 2019-04-04
  */
 @Component
-public class AuthService {
+public class AuthService implements InitializingBean, DisposableBean {
+	private static final Logger logger = LoggerFactory.getLogger(AuthService.class);
+
+	private static final Duration DEFAULT_SESSION_TTL = Duration.ofHours(1);
 
 	private final UserDetailsService userDetailsService;
 
-	private final Map<String, Authentication> authenticationMap;
+	private final ExpiringSessionStore defaultSessionStore;
+
+	private final RefreshTokenIndex defaultRefreshTokens;
+
+	private final ExecutorService defaultLoginExecutor;
+
+	private final ConcurrentMap<Method, AuthorizationPlan> plans = new ConcurrentHashMap<>();
+
+	private SessionStore sessionStore;
+
+	private RefreshTokenIndex refreshTokens;
+
+	private ExecutorService loginExecutor;
+
+	private PasswordHasher passwordHasher;
 
-	private final Map<String, UserDetails> loggedInMap;
+	private PasswordRehashListener passwordRehashListener;
+
+	private TokenSigner tokenSigner;
+
+	private TokenGenerator tokenGenerator;
+
+	private AuthMetrics authMetrics;
+
+	private LoginThrottle loginThrottle;
+
+	private SessionSnapshot sessionSnapshot;
+
+	private AuthClock clock;
+
+	private long sessionTtlMillis;
+
+	private long touchThresholdMillis;
+
+	private long maxLifetimeMillis;
 
 	@Autowired
 	public AuthService(UserDetailsService userDetailsService) {
 		this.userDetailsService = userDetailsService;
-		this.authenticationMap = new HashMap<>();
-		this.loggedInMap = new HashMap<>();
+		this.clock = new MonotonicClock();
+		// The defaults read whichever clock is set, so they expire sessions, refresh tokens and throttles by the same time sessions are checked against
+		this.defaultSessionStore = new ExpiringSessionStore(new InMemorySessionStore(), () -> clock.millis());
+		this.sessionStore = defaultSessionStore;
+		this.defaultRefreshTokens = new RefreshTokenIndex(() -> clock.millis());
+		this.refreshTokens = defaultRefreshTokens;
+		this.defaultLoginExecutor = createLoginExecutor(Runtime.getRuntime().availableProcessors());
+		this.loginExecutor = defaultLoginExecutor;
+		this.passwordHasher = new BCryptPasswordHasher();
+		this.tokenGenerator = new SecureTokenGenerator();
+		this.loginThrottle = new LoginThrottle(() -> clock.millis());
+		this.sessionTtlMillis = DEFAULT_SESSION_TTL.toMillis();
+	}
+
+	/**
+	 * This method is used to replace the default in memory session store,
+	 * any {@link SessionStore SessionStore} bean in the context is used automatically.
+	 * Wrap the store in an {@link ExpiringSessionStore ExpiringSessionStore} if it does not remove expired sessions itself.
+	 * Sessions the store evicts to stay within its limits have their refresh tokens revoked
+	 *
+	 * @param sessionStore Store to keep sessions in
+	 */
+	@Autowired(required = false)
+	public void setSessionStore(SessionStore sessionStore) {
+		this.sessionStore = sessionStore;
+		sessionStore.setEvictionListener(this::evicted);
+		defaultSessionStore.close();
+	}
+
+	/**
+	 * This method is used to replace the default refresh token index, any {@link RefreshTokenIndex RefreshTokenIndex} bean in the context is used automatically.
+	 * The default keeps refresh tokens for a day
+	 *
+	 * @param refreshTokens Index to find sessions by refresh token in
+	 */
+	@Autowired(required = false)
+	public void setRefreshTokenIndex(RefreshTokenIndex refreshTokens) {
+		this.refreshTokens = refreshTokens;
+		defaultRefreshTokens.close();
+	}
+
+	/**
+	 * This method is used to keep sessions over a restart, any {@link SessionSnapshot SessionSnapshot} bean in the context is used automatically.
+	 * The snapshot is read once the service is set up, and written periodically and when the service is destroyed.
+	 * <p>
+	 * The snapshot does not keep the user's own {@link UserDetails UserDetails}, restored sessions hold a {@link RestoredUserDetails RestoredUserDetails}
+	 * with only their id, username, roles and password expiry. The first time a restored session's user is asked for, through
+	 * {@link #getCurrentUser(Session) getCurrentUser} or the security context, they are loaded again from the {@link UserDetailsService UserDetailsService}
+	 * so the application gets its own class back. If they can no longer be loaded under the same id the restored details are returned instead
+	 *
+	 * @param sessionSnapshot Snapshot to restore sessions from and save them to
+	 */
+	@Autowired(required = false)
+	public void setSessionSnapshot(SessionSnapshot sessionSnapshot) {
+		this.sessionSnapshot = sessionSnapshot;
+	}
+
+	/**
+	 * This method is used to replace the default BCrypt hasher, any {@link PasswordHasher PasswordHasher} bean in the context is used automatically.
+	 * Use a {@link io.github.eetchyza.springauth.password.DelegatingPasswordHasher DelegatingPasswordHasher} to move to a new algorithm
+	 * while still accepting existing hashes
+	 *
+	 * @param passwordHasher Hasher to hash and verify passwords with
+	 */
+	@Autowired(required = false)
+	public void setPasswordHasher(PasswordHasher passwordHasher) {
+		this.passwordHasher = passwordHasher;
+	}
+
+	/**
+	 * This method is used to listen for passwords that are rehashed on login because their hash is out of date,
+	 * any {@link PasswordRehashListener PasswordRehashListener} bean in the context is used automatically.
+	 * Without a listener hashes are never upgraded. Once the listener has saved a new hash the user is invalidated
+	 * if the {@link UserDetailsService UserDetailsService} is a {@link CachingUserDetailsService CachingUserDetailsService}
+	 *
+	 * @param passwordRehashListener Listener to hand new hashes to
+	 */
+	@Autowired(required = false)
+	public void setPasswordRehashListener(PasswordRehashListener passwordRehashListener) {
+		this.passwordRehashListener = passwordRehashListener;
+	}
+
+	/**
+	 * This method is used to switch to stateless tokens, any {@link TokenSigner TokenSigner} bean in the context is used automatically.
+	 * Tokens are then signed rather than stored, so any node with the same keys can verify them and the session store is not used
+	 *
+	 * @param tokenSigner Signer to issue and verify tokens with
+	 */
+	@Autowired(required = false)
+	public void setTokenSigner(TokenSigner tokenSigner) {
+		this.tokenSigner = tokenSigner;
+	}
+
+	/**
+	 * This method is used to replace the default token generator, any {@link TokenGenerator TokenGenerator} bean in the context is used automatically.
+	 * The default is a {@link SecureTokenGenerator SecureTokenGenerator} with 128 bits of entropy
+	 *
+	 * @param tokenGenerator Generator for authentication and refresh tokens
+	 */
+	@Autowired(required = false)
+	public void setTokenGenerator(TokenGenerator tokenGenerator) {
+		this.tokenGenerator = tokenGenerator;
+	}
+
+	/**
+	 * This method is used to replace the default limits on failed logins, any {@link LoginThrottle LoginThrottle} bean in the context is used automatically.
+	 * By default 5 failures are allowed per username and 50 per address every 15 minutes, null turns the limits off
+	 *
+	 * @param loginThrottle Throttle to check logins against
+	 */
+	@Autowired(required = false)
+	public void setLoginThrottle(LoginThrottle loginThrottle) {
+		this.loginThrottle = loginThrottle;
+	}
+
+	/**
+	 * This method is used to record counts and timings, any {@link AuthMetrics AuthMetrics} bean in the context is used automatically.
+	 * Without one nothing is recorded or timed
+	 *
+	 * @param authMetrics Metrics to record to
+	 */
+	@Autowired(required = false)
+	public void setAuthMetrics(AuthMetrics authMetrics) {
+		this.authMetrics = authMetrics;
+	}
+
+	/**
+	 * This method is used to replace the clock sessions are issued and checked against, any {@link AuthClock AuthClock} bean in the context is used automatically.
+	 * The default is a {@link MonotonicClock MonotonicClock}, a {@link io.github.eetchyza.springauth.clock.CoarseClock CoarseClock} is cheaper to read on every request.
+	 * The default session store, refresh token index and login throttle read it as well
+	 *
+	 * @param clock Clock to read the time from
+	 */
+	@Autowired(required = false)
+	public void setClock(AuthClock clock) {
+		this.clock = clock;
+	}
+
+	/**
+	 * This method is used to change how long an auth token lasts after login or refresh, the default is an hour.
+	 * Refresh tokens last as long as the {@link RefreshTokenIndex RefreshTokenIndex} keeps them
+	 *
+	 * @param sessionTtl How long auth tokens last
+	 * @exception IllegalArgumentException Exception thrown when sliding expiry is on and the ttl is shorter than its threshold or longer than its max lifetime
+	 */
+	public void setSessionTtl(Duration sessionTtl) {
+		long millis = sessionTtl.toMillis();
+
+		if (touchThresholdMillis > 0) {
+			checkSlidingExpiry(touchThresholdMillis, maxLifetimeMillis, millis);
+		}
+
+		this.sessionTtlMillis = millis;
+	}
+
+	/**
+	 * This method is used to turn on sliding expiry, so a token that is in use keeps being extended to a full session ttl from its last use.
+	 * To save a write on every request a token is only extended once less than the threshold is left,
+	 * and never past the max lifetime from login or refresh. Signed tokens can not be extended
+	 *
+	 * @param touchThreshold How little of the session ttl must be left before a token is extended, at most the session ttl
+	 * @param maxLifetime Longest a token can be extended to from when it was issued, at least the session ttl
+	 * @exception IllegalArgumentException Exception thrown when the threshold is negative or longer than the session ttl, or the max lifetime is shorter than it
+	 */
+	public void setSlidingExpiry(Duration touchThreshold, Duration maxLifetime) {
+		long thresholdMillis = touchThreshold.toMillis();
+		long lifetimeMillis = maxLifetime.toMillis();
+
+		checkSlidingExpiry(thresholdMillis, lifetimeMillis, sessionTtlMillis);
+
+		this.touchThresholdMillis = thresholdMillis;
+		this.maxLifetimeMillis = lifetimeMillis;
+	}
+
+	/**
+	 * This method is used to replace the executor that {@link #loginAsync(String, String) loginAsync} verifies passwords on.
+	 * The default has one thread per core and a queue of 16 logins per thread, it should stay bounded so a burst of logins is
+	 * rejected rather than queued indefinitely
+	 *
+	 * @param loginExecutor Executor to run logins on
+	 */
+	public void setLoginExecutor(ExecutorService loginExecutor) {
+		this.loginExecutor = loginExecutor;
+		defaultLoginExecutor.shutdown();
+	}
+
+	/**
+	 * Restores the sessions in the snapshot, if there is one, and starts writing it periodically
+	 */
+	@Override
+	public void afterPropertiesSet() {
+		if (sessionSnapshot == null || tokenSigner != null) {
+			return;
+		}
+
+		long start = System.nanoTime();
+		int restored = sessionSnapshot.load(sessionStore, refreshTokens);
+		logger.info("Restored {} sessions in {} ms", restored, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+
+		sessionSnapshot.schedule(refreshTokens);
+	}
+
+	/**
+	 * Writes the session snapshot, if there is one, then stops the default session store and refresh token index from sweeping expired entries and the default login executor
+	 */
+	@Override
+	public void destroy() {
+		if (sessionSnapshot != null && tokenSigner == null) {
+			sessionSnapshot.close();
+
+			try {
+				sessionSnapshot.save(refreshTokens);
+			} catch (RuntimeException e) {
+				logger.warn("Unable to write session snapshot", e);
+			}
+		}
+
+		defaultSessionStore.close();
+		defaultRefreshTokens.close();
+		defaultLoginExecutor.shutdown();
 	}
 
 	/**
@@ -56,17 +338,116 @@ public class AuthService {
 	 * @see UsernameOrPasswordIncorrectException
 	 */
 	public Authentication login(String username, String password) throws UsernameOrPasswordIncorrectException {
-		UserDetails userDetails = userDetailsService.loadUserByUsername(username);
+		return login(username, password, null);
+	}
+
+	/**
+	 * This method is used to retrieve a users details and validates the given password, limiting failed logins from the client's address as well as for the username.
+	 * Once retrieved and validated an authentication object is created and stored for later authorization
+	 *
+	 * @param username Users username
+	 * @param password Users un-hashed password
+	 * @param clientAddress Address the login came from, or null if it is not known
+	 * @return {@link Authentication Authentication} Returns authentication details
+	 * @exception UsernameOrPasswordIncorrectException Exception thrown when username or password is incorrect, or a
+	 * {@link LoginThrottledException LoginThrottledException} when there have been too many failed logins
+	 * @see UsernameOrPasswordIncorrectException
+	 */
+	public Authentication login(String username, String password, String clientAddress) throws UsernameOrPasswordIncorrectException {
+		checkThrottle(username, clientAddress);
+
+		UserDetails userDetails = loadUser(username);
+
+		if (userDetails == null || !verifyPassword(password, userDetails.getPassword())) {
+			if (loginThrottle != null) {
+				loginThrottle.failed(username, clientAddress);
+			}
+
+			if (authMetrics != null) {
+				authMetrics.loginFailed();
+			}
 
-		if (userDetails == null || !passwordsMatch(password, userDetails.getPassword())) {
 			throw new UsernameOrPasswordIncorrectException();
 		}
 
-		Authentication authentication = new Authentication(generateToken(), generateToken(), LocalDateTime.now().plusHours(1), userDetails.getAuthorities(), username, userDetails.getId());
-		authenticationMap.put(authentication.getAuthenticationToken(), authentication);
-		loggedInMap.put(authentication.getAuthenticationToken(), userDetails);
+		if (loginThrottle != null) {
+			loginThrottle.succeeded(username);
+		}
 
-		return authentication;
+		if (authMetrics != null) {
+			authMetrics.loginSucceeded();
+		}
+
+		if (passwordRehashListener != null && passwordHasher.needsRehash(userDetails.getPassword())) {
+			rehash(username, userDetails, password);
+		}
+
+		long now = clock.millis();
+
+		if (tokenSigner != null) {
+			return tokenSigner.issue(userDetails.getId(), username, userDetails.getAuthorities(), now + sessionTtlMillis, now + refreshTokens.getTtl().toMillis());
+		}
+
+		Session session = createSession(userDetails, username, userDetails.getAuthorities(), now);
+		refreshTokens.add(session);
+
+		return session.getAuthentication();
+	}
+
+	/**
+	 * This method is used to log a user in without holding up the calling thread while their password is verified.
+	 * Logins run on a bounded executor, when it is full the login fails straight away.
+	 *
+	 * @param username Users username
+	 * @param password Users un-hashed password
+	 * @return {@link CompletableFuture CompletableFuture} Completes with the authentication details, or exceptionally with
+	 * {@link UsernameOrPasswordIncorrectException UsernameOrPasswordIncorrectException} when the username or password is incorrect
+	 * or {@link TooManyRequestsException TooManyRequestsException} when too many logins are already waiting
+	 */
+	public CompletableFuture<Authentication> loginAsync(String username, String password) {
+		return loginAsync(username, password, null);
+	}
+
+	/**
+	 * This method is used to log a user in without holding up the calling thread while their password is verified,
+	 * limiting failed logins from the client's address as well as for the username.
+	 * Throttled logins are rejected before they are queued
+	 *
+	 * @param username Users username
+	 * @param password Users un-hashed password
+	 * @param clientAddress Address the login came from, or null if it is not known
+	 * @return {@link CompletableFuture CompletableFuture} Completes with the authentication details, or exceptionally as
+	 * {@link #loginAsync(String, String) loginAsync} does
+	 */
+	public CompletableFuture<Authentication> loginAsync(String username, String password, String clientAddress) {
+		CompletableFuture<Authentication> future = new CompletableFuture<>();
+
+		try {
+			checkThrottle(username, clientAddress);
+		} catch (LoginThrottledException e) {
+			future.completeExceptionally(e);
+			return future;
+		}
+
+		try {
+			loginExecutor.execute(() -> {
+				try {
+					future.complete(login(username, password, clientAddress));
+				} catch (UsernameOrPasswordIncorrectException | RuntimeException e) {
+					future.completeExceptionally(e);
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			TooManyRequestsException exception = new TooManyRequestsException();
+
+			if (authMetrics != null) {
+				authMetrics.denied(exception);
+			}
+
+			future.completeExceptionally(exception);
+		}
+
+		return future;
 	}
 
 	/**
@@ -77,7 +458,7 @@ public class AuthService {
 	 * @return boolean Returns true if the hash and password match
 	 */
 	public boolean passwordsMatch(String password, String hashedPassword) {
-		return BCrypt.checkpw(password, hashedPassword);
+		return passwordHasher.matches(password, hashedPassword);
 	}
 
 	/**
@@ -86,8 +467,67 @@ public class AuthService {
 	 * @param token A users auth token
 	 */
 	public void logout(String token) {
-		authenticationMap.remove(token);
-		loggedInMap.remove(token);
+		if (tokenSigner != null) {
+			tokenSigner.revoke(token);
+		} else {
+			Session session = sessionStore.remove(token);
+
+			if (session != null) {
+				refreshTokens.revoke(session.getAuthentication().getRefreshToken());
+			} else {
+				// The session may have expired and been swept, its refresh token must still stop working
+				refreshTokens.revokeByAuthToken(token);
+			}
+		}
+
+		if (authMetrics != null) {
+			authMetrics.loggedOut();
+		}
+	}
+
+	/**
+	 * This method is used to log a user out everywhere, for example once they have been disabled.
+	 * Their refresh tokens are revoked as well, including for sessions that have already expired
+	 *
+	 * @param id Id of the user
+	 * @return int Returns the number of sessions revoked
+	 * @exception UnsupportedOperationException Exception thrown when using stateless tokens, which are not indexed
+	 */
+	public int revokeAllForUser(long id) {
+		checkRevocable();
+		return revokeAll(refreshTokens.revokeAllForUser(id));
+	}
+
+	/**
+	 * This method is used to log out everyone who was given a role when they logged in, for example once it has been taken away from some of them.
+	 * Their refresh tokens are revoked as well, including for sessions that have already expired
+	 *
+	 * @param role Name of the role
+	 * @return int Returns the number of sessions revoked
+	 * @exception UnsupportedOperationException Exception thrown when using stateless tokens, which are not indexed
+	 */
+	public int revokeAllWithRole(String role) {
+		checkRevocable();
+		return revokeAll(refreshTokens.revokeAllWithRole(role));
+	}
+
+	/**
+	 * This method is used to count the sessions held by the session store, always 0 with stateless tokens
+	 *
+	 * @return int Returns the number of sessions
+	 */
+	public int getSessionCount() {
+		return tokenSigner != null ? 0 : sessionStore.size();
+	}
+
+	/**
+	 * This method is used to tell whether looking up a token's session may wait on a backend shared with other nodes,
+	 * in which case it should be kept off event loop threads
+	 *
+	 * @return boolean Returns true if sessions are looked up in a shared store
+	 */
+	public boolean isBlockingLookup() {
+		return tokenSigner == null && sessionStore.isShared();
 	}
 
 	/**
@@ -98,41 +538,136 @@ public class AuthService {
 	 * @see PasswordExpiredException
 	 */
 	public void setCurrentUser(String token) throws PasswordExpiredException {
-		UserDetails userDetails = loggedInMap.get(token);
+		setCurrentUser(findSession(token));
+	}
+
+	/**
+	 * This method is used to add the user of a session already looked up to the security context
+	 *
+	 * @param session Session found by {@link #findSession(String) findSession}, or null if there is none
+	 * @exception PasswordExpiredException  Exception thrown when users password has expired
+	 * @see PasswordExpiredException
+	 */
+	public void setCurrentUser(Session session) throws PasswordExpiredException {
+		SecurityContext.setCurrentUser(getCurrentUser(session));
+	}
+
+	/**
+	 * This method is used to find the user a token belongs to without touching the security context, for requests that are not tied to one thread
+	 *
+	 * @param token Users auth token
+	 * @return {@link UserDetails UserDetails} Returns the stored user, or null if there is no session for the token
+	 * @exception PasswordExpiredException  Exception thrown when users password has expired
+	 * @see PasswordExpiredException
+	 */
+	public UserDetails getCurrentUser(String token) throws PasswordExpiredException {
+		return getCurrentUser(findSession(token));
+	}
 
-		if (userDetails != null && (userDetails.isTemporaryPassword() && userDetails.getExpires().isBefore(LocalDateTime.now()))) {
+	/**
+	 * This method is used to find the user of a session already looked up.
+	 * A session read back from a snapshot or an off heap store has its user loaded again the first time it is asked for
+	 *
+	 * @param session Session found by {@link #findSession(String) findSession}, or null if there is none
+	 * @return {@link UserDetails UserDetails} Returns the stored user, or null if there is no session
+	 * @exception PasswordExpiredException  Exception thrown when users password has expired
+	 * @see PasswordExpiredException
+	 */
+	public UserDetails getCurrentUser(Session session) throws PasswordExpiredException {
+		UserDetails userDetails = session == null ? null : userOf(session);
+
+		if (userDetails != null && userDetails.isTemporaryPassword()
+				&& userDetails.getExpires().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli() < clock.millis()) {
 			throw new PasswordExpiredException();
 		}
 
-		SecurityContext.setCurrentUser(userDetails);
+		return userDetails;
 	}
 
 	/**
-	 * This method is used to regenerate a users stored authentication details
+	 * This method is used to regenerate a users stored authentication details, each refresh token can only be used once.
+	 * Using a refresh token again after it has been used revokes every session refreshed from the same login
 	 *
-	 * @param token Users auth token
+	 * @param token Users auth token, this may be null as the session is found by its refresh token
 	 * @param refreshToken Users refresh token
-	 * @return {@link Authentication Authentication} Returns authentication details
+	 * @return {@link Authentication Authentication} Returns authentication details, or null if the tokens can not be refreshed
 	 */
 	public Authentication refresh(String token, String refreshToken) {
-		Authentication authentication = authenticationMap.get(token);
-		Authentication newAuth = null;
+		if (tokenSigner != null) {
+			long now = clock.millis();
+			return refreshed(tokenSigner.refresh(token, refreshToken, now + sessionTtlMillis, now + refreshTokens.getTtl().toMillis()));
+		}
 
-		if (authentication.isRefreshToken(refreshToken)) {
-			authenticationMap.remove(token);
-			UserDetails loggedInUser = loggedInMap.get(token);
+		if (refreshToken == null) {
+			return refreshed(null);
+		}
 
-			newAuth = new Authentication(generateToken(), generateToken(), LocalDateTime.now().plusHours(1), authentication.getRoles(), loggedInUser.getUsername(), loggedInUser.getId());
-			authenticationMap.put(newAuth.getAuthenticationToken(), newAuth);
-			loggedInMap.remove(token);
-			loggedInMap.put(newAuth.getAuthenticationToken(), loggedInUser);
+		IndexedSession latest = refreshTokens.get(refreshToken);
+
+		if (latest == null) {
+			return refreshed(refreshUnindexed(token, refreshToken));
+		}
+
+		if (!latest.isRefreshToken(refreshToken)) {
+			// The token has already been used, so it may have been stolen and the session it was refreshed to can not be trusted either
+			IndexedSession revoked = refreshTokens.revoke(refreshToken);
+
+			if (revoked != null) {
+				sessionStore.remove(revoked.getToken());
+			}
+
+			logger.warn("[{}]: Refresh token used more than once, revoking its sessions", latest.getUsername());
+			return refreshed(null);
+		}
+
+		if (token != null && !token.equals(latest.getToken())) {
+			return refreshed(null);
+		}
+
+		// The index does not keep the user, they come from the stored session or are loaded again once it has been removed
+		Session session = sessionStore.get(latest.getToken());
+
+		if (session != null && !session.getAuthentication().isRefreshToken(refreshToken)) {
+			session = null;
+		}
+
+		UserDetails userDetails = session != null ? userOf(session) : reloadUser(latest);
+
+		if (userDetails == null) {
+			return refreshed(null);
+		}
+
+		long now = clock.millis();
+		Session replacement = newSession(userDetails, userDetails.getUsername(), session != null ? session.getAuthentication().getRoles() : userDetails.getAuthorities(), now);
+
+		// Only the request that swaps in its replacement may keep it, and it is only stored once it has,
+		// so a losing request never counts towards a bounded store's limits and evicts the winner's session
+		if (!refreshTokens.replace(latest, replacement)) {
+			return refreshed(null);
 		}
 
-		return newAuth;
+		// A shared store only loses a session before it expires when another node refreshed, logged out or revoked it,
+		// none of which this node's index knows about, so the refresh token has been used again
+		boolean removed = session != null && sessionStore.remove(session);
+
+		if (!removed && sessionStore.isShared() && latest.getExpiresAt() >= now) {
+			refreshTokens.revoke(replacement.getAuthentication().getRefreshToken());
+
+			logger.warn("[{}]: Refresh token already used on another node, revoking its sessions", latest.getUsername());
+			return refreshed(null);
+		}
+
+		// Random tokens never collide in practice, but the family already points at these ones so can not be given new ones
+		if (!sessionStore.putIfAbsent(replacement)) {
+			refreshTokens.revoke(replacement.getAuthentication().getRefreshToken());
+			return refreshed(null);
+		}
+
+		return refreshed(replacement.getAuthentication());
 	}
 
 	/**
-	 * This method is used to check if a user is authenticated
+	 * This method is used to check if a user is authenticated, extending their token if sliding expiry is on
 	 *
 	 * @param token Users auth token
 	 * @exception NotAuthenticatedException Exception thrown when there is no stored authentication details
@@ -141,67 +676,274 @@ public class AuthService {
 	 * @see TokenExpiredException
 	 */
 	public void checkAuthenticated(String token) throws NotAuthenticatedException, TokenExpiredException {
-		Authentication authentication = authenticationMap.get(token);
+		checkAuthenticated(findSession(token));
+	}
 
-		if (authentication == null) {
+	/**
+	 * This method is used to check if a session already looked up is authenticated, extending its token if sliding expiry is on
+	 *
+	 * @param session Session found by {@link #findSession(String) findSession}, or null if there is none
+	 * @exception NotAuthenticatedException Exception thrown when there is no stored authentication details
+	 * @exception TokenExpiredException Exception thrown when the auth has expired
+	 * @see NotAuthenticatedException
+	 * @see TokenExpiredException
+	 */
+	public void checkAuthenticated(Session session) throws NotAuthenticatedException, TokenExpiredException {
+		if (session == null) {
 			throw new NotAuthenticatedException();
 		}
 
-		if (authentication.isExpired()) {
+		Authentication authentication = session.getAuthentication();
+		long now = clock.millis();
+
+		if (authentication.isExpired(now)) {
 			throw new TokenExpiredException();
 		}
+
+		if (authentication.getExpiresAt() - now < touchThresholdMillis && authentication.extend(now + sessionTtlMillis)) {
+			sessionStore.touch(session);
+		}
 	}
 
+	/**
+	 * This method is used to check if a user is allowed to call a method, the method's annotations are only read the first time it is checked
+	 *
+	 * @param token Users auth token
+	 * @param method Method being called
+	 * @exception NotAuthorisedException Exception thrown when the user does not have any of the allowed roles
+	 * @see NotAuthorisedException
+	 */
 	public void checkIsAuthorised(String token, Method method) throws NotAuthorisedException {
-		Authentication authentication = authenticationMap.get(token);
+		AuthorizationPlan plan = plans.get(method);
 
-		if (!method.isAnnotationPresent(AllowAnon.class) && !authentication.hasRoles(method.getAnnotation(AllowRoles.class).value())) {
+		if (plan == null) {
+			plan = plans.computeIfAbsent(method, key -> AuthorizationPlan.of(key.getDeclaringClass(), key));
+		}
+
+		checkIsAuthorised(token, plan);
+	}
+
+	/**
+	 * This method is used to check if a user is allowed to call a handler
+	 *
+	 * @param token Users auth token
+	 * @param plan What the handler requires
+	 * @exception NotAuthorisedException Exception thrown when the user does not have any of the allowed roles
+	 * @see NotAuthorisedException
+	 */
+	public void checkIsAuthorised(String token, AuthorizationPlan plan) throws NotAuthorisedException {
+		if (!plan.isAnonymous()) {
+			checkIsAuthorised(findSession(token), plan);
+		}
+	}
+
+	/**
+	 * This method is used to check if the user of a session already looked up is allowed to call a handler
+	 *
+	 * @param session Session found by {@link #findSession(String) findSession}, or null if there is none
+	 * @param plan What the handler requires
+	 * @exception NotAuthorisedException Exception thrown when the user does not have any of the allowed roles
+	 * @see NotAuthorisedException
+	 */
+	public void checkIsAuthorised(Session session, AuthorizationPlan plan) throws NotAuthorisedException {
+		if (plan.isAnonymous()) {
+			return;
+		}
+
+		if (session == null || !plan.isAllowed(session.getAuthentication())) {
 			throw new NotAuthorisedException();
 		}
 	}
 
 	public String hashAndSalt(String password) {
-		return BCrypt.hashpw(password, BCrypt.gensalt());
+		return passwordHasher.hash(password);
 	}
 
+	/**
+	 * This method is used to generate a new authentication or refresh token
+	 *
+	 * @return String Returns a new random token
+	 */
 	public String generateToken() {
-		int length = 20;
+		return tokenGenerator.generate();
+	}
+
+	private static void checkSlidingExpiry(long touchThresholdMillis, long maxLifetimeMillis, long sessionTtlMillis) {
+		if (touchThresholdMillis < 0) {
+			throw new IllegalArgumentException("Touch threshold must not be negative");
+		}
+
+		// A threshold longer than the ttl would extend a token on every request
+		if (touchThresholdMillis > sessionTtlMillis) {
+			throw new IllegalArgumentException("Touch threshold can not be longer than the session ttl");
+		}
+
+		// Otherwise tokens would be issued already expiring at their max lifetime, before the session ttl is up
+		if (maxLifetimeMillis < sessionTtlMillis) {
+			throw new IllegalArgumentException("Max lifetime can not be shorter than the session ttl");
+		}
+	}
+
+	private void checkRevocable() {
+		if (tokenSigner != null) {
+			throw new UnsupportedOperationException("Stateless tokens can only be revoked one at a time");
+		}
+	}
+
+	private int revokeAll(List<IndexedSession> sessions) {
+		for (IndexedSession session : sessions) {
+			sessionStore.remove(session.getToken());
+		}
+
+		return sessions.size();
+	}
+
+	private UserDetails reloadUser(IndexedSession session) {
+		UserDetails userDetails = userDetailsService.loadUserByUsername(session.getUsername());
+
+		// A different user may have been given the username since, they must not pick up this user's session
+		return userDetails != null && userDetails.getId() == session.getUserId() ? userDetails : null;
+	}
+
+	private UserDetails userOf(Session session) {
+		UserDetails userDetails = session.getUserDetails();
+
+		if (!(userDetails instanceof RestoredUserDetails)) {
+			return userDetails;
+		}
 
-		String[] characterGroups = new String[4];
-		characterGroups[0] = ("abcdefghjkmnpqrstuvwxyz");
-		characterGroups[1] = ("ABCDEFGHJKMNPQRSTWUVXYZ");
-		characterGroups[2] = ("23456789");
-		characterGroups[3] = ("!-+#");
+		// Sessions read back from a snapshot or an off heap store only know the user's id, username and roles,
+		// so the user is loaded again and kept on the session, which stores on the heap hand out to every later request
+		UserDetails loaded = loadUser(userDetails.getUsername());
 
-		Random rng = new Random();
+		// A different user may have been given the username since, the session keeps what it knew about its own user
+		return session.restoreUserDetails(loaded) ? loaded : session.getUserDetails();
+	}
+
+	private Authentication refreshUnindexed(String token, String refreshToken) {
+		// Tokens this node issued are only refreshed through the index, otherwise a retry within the reuse leeway
+		// could remove the old session before the refresh that won the swap does and be issued a second session
+		if (refreshTokens.contains(refreshToken)) {
+			return null;
+		}
+
+		// Sessions created by another node sharing the store can still be refreshed while their auth token is stored
+		Session session = token == null ? null : sessionStore.get(token);
+
+		// Only the request that removes the old session may issue its replacement
+		if (session == null || !session.getAuthentication().isRefreshToken(refreshToken) || !sessionStore.remove(session)) {
+			return null;
+		}
+
+		UserDetails userDetails = userOf(session);
+		Session replacement = createSession(userDetails, userDetails.getUsername(), session.getAuthentication().getRoles(), clock.millis());
+		refreshTokens.add(replacement);
+
+		return replacement.getAuthentication();
+	}
+
+	private void evicted(Session session) {
+		// Revoked by auth token so a session that a refresh in flight has already replaced does not take its replacement with it
+		refreshTokens.revokeByAuthToken(session.getToken());
+	}
+
+	private Session createSession(UserDetails userDetails, String username, Collection<? extends GrantedAuthority> roles, long now) {
+		Session session;
+		do {
+			session = newSession(userDetails, username, roles, now);
+		} while (!sessionStore.putIfAbsent(session));
+
+		return session;
+	}
+
+	private Session newSession(UserDetails userDetails, String username, Collection<? extends GrantedAuthority> roles, long now) {
+		long expiresAt = now + sessionTtlMillis;
+		long maxExpiresAt = touchThresholdMillis > 0 ? now + maxLifetimeMillis : expiresAt;
 
-		List<String> chars = new ArrayList<>();
-		for (String characters : characterGroups) {
-			char[] text = new char[length];
-			for (int i = 0; i < length; i++) {
-				text[i] = characters.charAt(rng.nextInt(characters.length()));
+		return new Session(new Authentication(generateToken(), generateToken(), expiresAt, maxExpiresAt, roles, username, userDetails.getId()), userDetails);
+	}
+
+	/**
+	 * This method is used to look up the session a token belongs to, so a request can be checked without looking it up again for each check
+	 *
+	 * @param token Users auth token
+	 * @return {@link Session Session} Returns the session, or null if there is none for the token
+	 */
+	public Session findSession(String token) {
+		return tokenSigner != null ? tokenSigner.verify(token) : sessionStore.get(token);
+	}
+
+	private void checkThrottle(String username, String clientAddress) throws LoginThrottledException {
+		long retryAfter = loginThrottle == null ? 0 : loginThrottle.check(username, clientAddress);
+
+		if (retryAfter > 0) {
+			LoginThrottledException exception = new LoginThrottledException(retryAfter);
+
+			if (authMetrics != null) {
+				authMetrics.denied(exception);
 			}
 
-			chars.add((new String(text)));
+			throw exception;
 		}
+	}
 
-		StringBuilder characters = new StringBuilder();
+	private UserDetails loadUser(String username) {
+		if (authMetrics == null) {
+			return userDetailsService.loadUserByUsername(username);
+		}
 
-		for (String character : chars) {
-			characters.append(character);
+		long start = System.nanoTime();
+		try {
+			return userDetailsService.loadUserByUsername(username);
+		} finally {
+			authMetrics.userLoaded(System.nanoTime() - start);
 		}
+	}
 
-		char[] text = new char[length];
-		for (int i = 0; i < length; i++) {
-			text[i] = characters.charAt(rng.nextInt(characters.length()));
+	private boolean verifyPassword(String password, String hashedPassword) {
+		if (authMetrics == null) {
+			return passwordsMatch(password, hashedPassword);
 		}
 
-		String generated = new String(text);
+		long start = System.nanoTime();
+		try {
+			return passwordsMatch(password, hashedPassword);
+		} finally {
+			authMetrics.passwordVerified(System.nanoTime() - start);
+		}
+	}
 
-		if (authenticationMap.containsKey(generated)) {
-			generated = generateToken();
+	private Authentication refreshed(Authentication authentication) {
+		if (authMetrics != null) {
+			authMetrics.refreshed(authentication != null);
 		}
 
-		return generated;
+		return authentication;
+	}
+
+	private void rehash(String username, UserDetails userDetails, String password) {
+		try {
+			passwordRehashListener.onRehash(userDetails, passwordHasher.hash(password));
+
+			// Otherwise logins keep verifying against the cached old hash, and rehash it again, until the entry expires
+			if (userDetailsService instanceof CachingUserDetailsService) {
+				((CachingUserDetailsService) userDetailsService).invalidate(username);
+			}
+		} catch (RuntimeException e) {
+			// The user is still logged in, their hash is upgraded on a later login instead
+			logger.warn("[{}]: Unable to rehash password", userDetails.getUsername(), e);
+		}
+	}
+
+	private static ExecutorService createLoginExecutor(int threads) {
+		AtomicInteger count = new AtomicInteger();
+		ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS, new ArrayBlockingQueue<>(threads * 16), runnable -> {
+			Thread thread = new Thread(runnable, "springauth-login-" + count.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+		executor.allowCoreThreadTimeOut(true);
+
+		return executor;
 	}
 }
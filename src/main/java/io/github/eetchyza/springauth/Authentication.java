@@ -1,6 +1,9 @@
 package io.github.eetchyza.springauth;
 
+import java.io.Serializable;
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.util.Collection;
 
 import io.github.eetchyza.springauth.api.GrantedAuthority;
@@ -12,12 +15,15 @@ import io.github.eetchyza.springauth.api.GrantedAuthority;
  * @version 1.0.0
  * @since 2019-04-06
  */
-public class Authentication {
+public class Authentication implements Serializable {
 	private String authenticationToken;
 
 	private String refreshToken;
 
-	private LocalDateTime expire;
+	// Milliseconds since the epoch, so checking it needs no time zone and means the same on every node
+	private volatile long expiresAt;
+
+	private long maxExpiresAt;
 
 	private Collection<? extends GrantedAuthority> roles;
 
@@ -25,42 +31,106 @@ public class Authentication {
 
 	private long id;
 
-	Authentication(String authenticationToken, String refreshToken, LocalDateTime expire, Collection<? extends GrantedAuthority> roles, String username, long id) {
+	// Role numbers are local to this JVM, so the set is rebuilt after a session is read back from a store
+	private transient RoleSet roleSet;
+
+	public Authentication(String authenticationToken, String refreshToken, LocalDateTime expire, Collection<? extends GrantedAuthority> roles, String username, long id) {
+		this(authenticationToken, refreshToken, expire.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli(), roles, username, id);
+	}
+
+	public Authentication(String authenticationToken, String refreshToken, long expiresAt, Collection<? extends GrantedAuthority> roles, String username, long id) {
+		this(authenticationToken, refreshToken, expiresAt, expiresAt, roles, username, id);
+	}
+
+	public Authentication(String authenticationToken, String refreshToken, long expiresAt, long maxExpiresAt, Collection<? extends GrantedAuthority> roles, String username, long id) {
 		this.authenticationToken = authenticationToken;
 		this.refreshToken = refreshToken;
-		this.expire = expire;
+		this.expiresAt = expiresAt;
+		this.maxExpiresAt = Math.max(expiresAt, maxExpiresAt);
 		this.roles = roles;
 		this.username = username;
 		this.id = id;
+		this.roleSet = RoleSet.of(roles);
 	}
 
-	boolean isRefreshToken(String refreshToken) {
-		return refreshToken.equals(this.refreshToken);
+	public boolean isRefreshToken(String refreshToken) {
+		return this.refreshToken != null && this.refreshToken.equals(refreshToken);
+	}
+
+	public String getRefreshToken() {
+		return refreshToken;
 	}
 
 	Collection<? extends GrantedAuthority> getRoles() {
 		return roles;
 	}
 
-	String getAuthenticationToken() {
+	public String getAuthenticationToken() {
 		return authenticationToken;
 	}
 
-	boolean isExpired() {
-		return expire.isBefore(LocalDateTime.now());
+	public String getUsername() {
+		return username;
+	}
+
+	public long getId() {
+		return id;
+	}
+
+	public LocalDateTime getExpire() {
+		return LocalDateTime.ofInstant(Instant.ofEpochMilli(expiresAt), ZoneId.systemDefault());
+	}
+
+	/**
+	 * @return long When the auth token expires in milliseconds since the epoch
+	 */
+	public long getExpiresAt() {
+		return expiresAt;
+	}
+
+	/**
+	 * @return long The latest the auth token can be extended to with sliding expiry in milliseconds since the epoch,
+	 * the same as {@link #getExpiresAt() getExpiresAt} when it can not be extended
+	 */
+	public long getMaxExpiresAt() {
+		return maxExpiresAt;
+	}
+
+	/**
+	 * This method is used to move the expiry later, up to the max expiry
+	 *
+	 * @param expiresAt When the auth token should now expire in milliseconds since the epoch
+	 * @return boolean Returns true if the expiry moved, and so the session needs saving
+	 */
+	boolean extend(long expiresAt) {
+		long extended = Math.min(expiresAt, maxExpiresAt);
+
+		// Two requests extending at once both write nearly the same time, so there is no need for a compare and set
+		if (extended <= this.expiresAt) {
+			return false;
+		}
+
+		this.expiresAt = extended;
+		return true;
+	}
+
+	boolean isExpired(long now) {
+		return expiresAt < now;
 	}
 
 	boolean hasRoles(String[] values) {
+		return hasRoles(RoleSet.of(values));
+	}
+
+	boolean hasRoles(RoleSet required) {
+		RoleSet granted = roleSet;
 
-		for (GrantedAuthority authority : roles) {
-			for (String value : values) {
-				if (value.equals(authority.getAuthority())) {
-					return true;
-				}
-			}
+		if (granted == null) {
+			granted = RoleSet.of(roles);
+			roleSet = granted;
 		}
 
-		return false;
+		return granted.intersects(required);
 	}
 
 	@Override
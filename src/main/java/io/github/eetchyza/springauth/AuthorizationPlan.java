@@ -0,0 +1,105 @@
+package io.github.eetchyza.springauth;
+
+import java.lang.reflect.AnnotatedElement;
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import io.github.eetchyza.springauth.annotations.AllowAnon;
+import io.github.eetchyza.springauth.annotations.AllowRoles;
+
+/**
+ * What a handler requires from a request, read once from its {@link AllowAnon AllowAnon} and {@link AllowRoles AllowRoles} annotations.
+ * Annotations on the method take precedence over those on its class, a handler with neither is not allowed for anyone
+ *
+ * @author Dan Williams
+ * @version 1.0.0
+ * @since 2019-06-08
+ */
+public final class AuthorizationPlan {
+	private static final String[] NO_ROLES = new String[0];
+
+	private final boolean anonymous;
+
+	private final String[] roles;
+
+	private final RoleSet roleSet;
+
+	private AuthorizationPlan(boolean anonymous, String[] roles) {
+		this.anonymous = anonymous;
+		this.roles = roles;
+		this.roleSet = RoleSet.of(roles);
+	}
+
+	/**
+	 * This method is used to read the plan for a handler method
+	 *
+	 * @param type Class the handler belongs to, this can differ from the declaring class when the method is inherited
+	 * @param method Handler method
+	 * @return {@link AuthorizationPlan AuthorizationPlan} Returns what the handler requires
+	 */
+	public static AuthorizationPlan of(Class<?> type, Method method) {
+		if (method.isAnnotationPresent(AllowAnon.class)) {
+			return new AuthorizationPlan(true, NO_ROLES);
+		}
+
+		if (method.isAnnotationPresent(AllowRoles.class)) {
+			return new AuthorizationPlan(false, roles(method));
+		}
+
+		return new AuthorizationPlan(type.isAnnotationPresent(AllowAnon.class), roles(type));
+	}
+
+	/**
+	 * This method is used to build a plan without annotations, for checking access to something other than a handler
+	 *
+	 * @param roles Roles allowed, a user needs any one of them
+	 * @return {@link AuthorizationPlan AuthorizationPlan} Returns a plan allowing the given roles
+	 */
+	public static AuthorizationPlan allowRoles(String... roles) {
+		return new AuthorizationPlan(false, intern(roles));
+	}
+
+	/**
+	 * @return boolean Returns true if the handler can be called without a token
+	 */
+	public boolean isAnonymous() {
+		return anonymous;
+	}
+
+	/**
+	 * @return String[] Returns the roles allowed to call the handler, a user needs any one of them
+	 */
+	public String[] getRoles() {
+		return roles.clone();
+	}
+
+	boolean isAllowed(Authentication authentication) {
+		return anonymous || authentication.hasRoles(roleSet);
+	}
+
+	private static String[] roles(AnnotatedElement element) {
+		AllowRoles allowRoles = element.getAnnotation(AllowRoles.class);
+
+		if (allowRoles == null) {
+			return NO_ROLES;
+		}
+
+		return intern(allowRoles.value());
+	}
+
+	private static String[] intern(String[] values) {
+		Set<String> roles = new LinkedHashSet<>();
+		for (String role : values) {
+			roles.add(role.intern());
+		}
+
+		return roles.toArray(NO_ROLES);
+	}
+
+	@Override
+	public String toString() {
+		return anonymous ? "anonymous" : Arrays.toString(roles);
+	}
+}
@@ -0,0 +1,40 @@
+package io.github.eetchyza.springauth;
+
+import io.github.eetchyza.springauth.api.UserDetails;
+import reactor.core.publisher.Mono;
+import reactor.util.context.Context;
+
+/**
+ * The {@link SecurityContext SecurityContext} for reactive requests, which can move between threads so the current user
+ * is carried in the Reactor context of the request instead of a thread local
+ *
+ * @author Dan Williams
+ * @version 1.0.0
+ * @since 2019-08-03
+ */
+public final class ReactiveSecurityContext {
+	private static final Object USER = ReactiveSecurityContext.class.getName() + ".USER";
+
+	private ReactiveSecurityContext() {
+		throw new IllegalStateException("Security context can not be initialised");
+	}
+
+	/**
+	 * This method is used to get the current user
+	 *
+	 * @return {@link Mono Mono} Returns the user the request being handled belongs to, or an empty Mono for anonymous requests
+	 */
+	public static Mono<UserDetails> getCurrentUser() {
+		return Mono.subscriberContext().flatMap(context -> Mono.justOrEmpty(context.<UserDetails>getOrEmpty(USER)));
+	}
+
+	/**
+	 * This method is used to add a user to the context of a request, with {@link Mono#subscriberContext(Context) Mono#subscriberContext}
+	 *
+	 * @param userDetails {@link UserDetails UserDetails} User to be set.
+	 * @return {@link Context Context} Returns a context holding only the user
+	 */
+	public static Context withCurrentUser(UserDetails userDetails) {
+		return Context.of(USER, userDetails);
+	}
+}
@@ -0,0 +1,39 @@
+package io.github.eetchyza.springauth;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Gives every role name seen by this node a small number, so sets of roles can be held as bits.
+ * The numbers are only meaningful inside this JVM and are never written out with a session
+ *
+ * @author Dan Williams
+ * @version 1.0.0
+ * @since 2019-06-15
+ */
+final class RoleRegistry {
+	private static final ConcurrentMap<String, Integer> indexes = new ConcurrentHashMap<>();
+
+	private static final AtomicInteger next = new AtomicInteger();
+
+	private RoleRegistry() {
+		throw new IllegalStateException("Role registry can not be initialised");
+	}
+
+	/**
+	 * This method is used to get the number for a role, registering it the first time it is seen
+	 *
+	 * @param role Role name
+	 * @return int Returns the role's number, starting at 0
+	 */
+	static int indexOf(String role) {
+		Integer index = indexes.get(role);
+
+		if (index == null) {
+			index = indexes.computeIfAbsent(role, key -> next.getAndIncrement());
+		}
+
+		return index;
+	}
+}
@@ -0,0 +1,98 @@
+package io.github.eetchyza.springauth;
+
+import java.util.Collection;
+
+import io.github.eetchyza.springauth.api.GrantedAuthority;
+
+/**
+ * An immutable set of roles held as bits numbered by the {@link RoleRegistry RoleRegistry}.
+ * While fewer than 65 roles are registered a set is a single long and checking two sets for a shared role is a single AND
+ *
+ * @author Dan Williams
+ * @version 1.0.0
+ * @since 2019-06-15
+ */
+final class RoleSet {
+	static final RoleSet EMPTY = new RoleSet(new long[0]);
+
+	private final long[] words;
+
+	private RoleSet(long[] words) {
+		this.words = words;
+	}
+
+	/**
+	 * This method is used to encode the roles a user has been granted
+	 *
+	 * @param authorities Users granted authorities, may be null
+	 * @return {@link RoleSet RoleSet} Returns the encoded roles
+	 */
+	static RoleSet of(Collection<? extends GrantedAuthority> authorities) {
+		if (authorities == null || authorities.isEmpty()) {
+			return EMPTY;
+		}
+
+		long[] words = new long[0];
+		for (GrantedAuthority authority : authorities) {
+			words = add(words, authority.getAuthority());
+		}
+
+		return new RoleSet(words);
+	}
+
+	/**
+	 * This method is used to encode role names
+	 *
+	 * @param roles Role names
+	 * @return {@link RoleSet RoleSet} Returns the encoded roles
+	 */
+	static RoleSet of(String... roles) {
+		if (roles.length == 0) {
+			return EMPTY;
+		}
+
+		long[] words = new long[0];
+		for (String role : roles) {
+			words = add(words, role);
+		}
+
+		return new RoleSet(words);
+	}
+
+	/**
+	 * This method is used to check if two sets share at least one role
+	 *
+	 * @param other Set to compare against
+	 * @return boolean Returns true if any role is in both sets
+	 */
+	boolean intersects(RoleSet other) {
+		long[] others = other.words;
+		int length = Math.min(words.length, others.length);
+
+		for (int i = 0; i < length; i++) {
+			if ((words[i] & others[i]) != 0) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	private static long[] add(long[] words, String role) {
+		if (role == null) {
+			return words;
+		}
+
+		int index = RoleRegistry.indexOf(role);
+		int word = index >>> 6;
+
+		if (word >= words.length) {
+			long[] grown = new long[word + 1];
+			System.arraycopy(words, 0, grown, 0, words.length);
+			words = grown;
+		}
+
+		words[word] |= 1L << index;
+		return words;
+	}
+}
@@ -1,16 +1,20 @@
 package io.github.eetchyza.springauth;
 
+import java.util.concurrent.Callable;
+
 import io.github.eetchyza.springauth.api.UserDetails;
 
 /**
  * A thread safe Security Context used to track the current logged in users.
+ * Each thread only sees its own user so no locking is needed, use {@link #wrap(Runnable) wrap} or a
+ * {@link SecurityContextExecutor SecurityContextExecutor} to carry the user over to work done on other threads
  *
  * @author Dan Williams
  * @version 1.0.0
  * @since 2019-04-04
  */
 public class SecurityContext {
-	private static volatile ThreadLocal<UserDetails> user = new ThreadLocal<>();
+	private static final ThreadLocal<UserDetails> user = new ThreadLocal<>();
 
 	private SecurityContext() {
 		throw new IllegalStateException("Security context can not be initialised");
@@ -21,7 +25,7 @@ public class SecurityContext {
 	 *
 	 * @return {@link UserDetails UserDetails} This returns the current user associated with the current thread.
 	 */
-	public static synchronized UserDetails getCurrentUser() {
+	public static UserDetails getCurrentUser() {
 		return user.get();
 	}
 
@@ -30,14 +34,73 @@ public class SecurityContext {
 	 *
 	 * @param userDetails {@link UserDetails UserDetails} User to be set.
 	 */
-	public static synchronized void setCurrentUser(UserDetails userDetails) {
+	public static void setCurrentUser(UserDetails userDetails) {
 		user.set(userDetails);
 	}
 
 	/**
 	 * Removes the user associated with this thread from the Security Context
 	 * */
-	public static synchronized void clear() {
+	public static void clear() {
 		user.remove();
 	}
+
+	/**
+	 * This method is used to run a task as the current user on another thread, the thread's own user is put back once the task is done
+	 *
+	 * @param task Task to run
+	 * @return {@link Runnable Runnable} Returns the task with the current user attached
+	 */
+	public static Runnable wrap(Runnable task) {
+		UserDetails current = user.get();
+
+		return () -> {
+			UserDetails previous = enter(current);
+			try {
+				task.run();
+			} finally {
+				exit(previous);
+			}
+		};
+	}
+
+	/**
+	 * This method is used to run a task as the current user on another thread, the thread's own user is put back once the task is done
+	 *
+	 * @param task Task to run
+	 * @param <T> Type of the task's result
+	 * @return {@link Callable Callable} Returns the task with the current user attached
+	 */
+	public static <T> Callable<T> wrap(Callable<T> task) {
+		UserDetails current = user.get();
+
+		return () -> {
+			UserDetails previous = enter(current);
+			try {
+				return task.call();
+			} finally {
+				exit(previous);
+			}
+		};
+	}
+
+	private static UserDetails enter(UserDetails userDetails) {
+		UserDetails previous = user.get();
+
+		if (userDetails == null) {
+			user.remove();
+		} else {
+			user.set(userDetails);
+		}
+
+		return previous;
+	}
+
+	private static void exit(UserDetails previous) {
+		if (previous == null) {
+			user.remove();
+		} else {
+			user.set(previous);
+		}
+	}
 }
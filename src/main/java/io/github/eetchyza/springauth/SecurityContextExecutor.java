@@ -0,0 +1,27 @@
+package io.github.eetchyza.springauth;
+
+import java.util.concurrent.Executor;
+
+/**
+ * An executor running each task as the user who submitted it, so {@link SecurityContext#getCurrentUser() SecurityContext#getCurrentUser}
+ * works inside {@code @Async} methods and {@code CompletableFuture} stages. The user is only set while the task runs
+ *
+ * @author Dan Williams
+ * @version 1.0.0
+ * @since 2019-08-10
+ */
+public class SecurityContextExecutor implements Executor {
+	private final Executor delegate;
+
+	/**
+	 * @param delegate Executor to run the tasks on
+	 */
+	public SecurityContextExecutor(Executor delegate) {
+		this.delegate = delegate;
+	}
+
+	@Override
+	public void execute(Runnable command) {
+		delegate.execute(SecurityContext.wrap(command));
+	}
+}
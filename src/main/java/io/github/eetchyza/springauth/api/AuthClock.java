@@ -0,0 +1,19 @@
+package io.github.eetchyza.springauth.api;
+
+/**
+ * The time sessions are issued and checked against. Times are milliseconds since the epoch so they mean the same on every node
+ * sharing a session store, and comparing them does not need a time zone or allocate
+ *
+ * @author Dan Williams
+ * @version 1.0.0
+ * @since 2019-09-07
+ * @see io.github.eetchyza.springauth.clock.MonotonicClock
+ * @see io.github.eetchyza.springauth.clock.CoarseClock
+ */
+public interface AuthClock {
+
+	/**
+	 * @return long The current time in milliseconds since the epoch
+	 */
+	long millis();
+}
@@ -0,0 +1,54 @@
+package io.github.eetchyza.springauth.api;
+
+/**
+ * Receives counts and timings from {@link io.github.eetchyza.springauth.AuthService AuthService} and
+ * {@link io.github.eetchyza.springauth.web.SecurityFilter SecurityFilter}.
+ * Implementations are called on every request so must be thread safe and should not block
+ *
+ * @author Dan Williams
+ * @version 1.0.0
+ * @since 2019-06-29
+ */
+public interface AuthMetrics {
+
+	/**
+	 * Called when a user logs in
+	 */
+	void loginSucceeded();
+
+	/**
+	 * Called when a login fails because the username or password is incorrect
+	 */
+	void loginFailed();
+
+	/**
+	 * @param success True if new tokens were issued
+	 */
+	void refreshed(boolean success);
+
+	/**
+	 * Called when a user logs out
+	 */
+	void loggedOut();
+
+	/**
+	 * @param exception Why a request or login was turned away, such as a
+	 * {@link io.github.eetchyza.springauth.exceptions.TokenExpiredException TokenExpiredException}
+	 */
+	void denied(Exception exception);
+
+	/**
+	 * @param nanos Time taken to load a user from the {@link UserDetailsService UserDetailsService}
+	 */
+	void userLoaded(long nanos);
+
+	/**
+	 * @param nanos Time taken to verify a password against its hash
+	 */
+	void passwordVerified(long nanos);
+
+	/**
+	 * @param nanos Time the security filter added to a request
+	 */
+	void requestFiltered(long nanos);
+}
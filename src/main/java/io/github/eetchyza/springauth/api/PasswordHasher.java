@@ -0,0 +1,36 @@
+package io.github.eetchyza.springauth.api;
+
+/**
+ * Hashes and verifies passwords with one algorithm
+ *
+ * @author Dan Williams
+ * @version 1.0.0
+ * @since 2019-05-25
+ */
+public interface PasswordHasher {
+
+	/**
+	 * @param password Plain text password
+	 * @return String The salted hash, prefixed so the algorithm can be recognised
+	 */
+	String hash(String password);
+
+	/**
+	 * @param password Plain text password
+	 * @param hashedPassword Hash previously returned by {@link #hash(String) hash}
+	 * @return boolean Returns true if the password matches the hash
+	 */
+	boolean matches(String password, String hashedPassword);
+
+	/**
+	 * @param hashedPassword Hashed password
+	 * @return boolean Returns true if the hash was made by this algorithm
+	 */
+	boolean supports(String hashedPassword);
+
+	/**
+	 * @param hashedPassword Hashed password
+	 * @return boolean Returns true if the hash was made with weaker parameters than this hasher now uses
+	 */
+	boolean needsRehash(String hashedPassword);
+}
@@ -0,0 +1,13 @@
+package io.github.eetchyza.springauth.api;
+
+/**
+ * Called when a user logs in with a password hashed by an older algorithm or weaker parameters,
+ * implement this to save the new hash so the user is upgraded without having to change their password
+ *
+ * @author Dan Williams
+ * @version 1.0.0
+ * @since 2019-05-25
+ */
+public interface PasswordRehashListener {
+	void onRehash(UserDetails userDetails, String hashedPassword);
+}
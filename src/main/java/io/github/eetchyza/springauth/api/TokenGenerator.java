@@ -0,0 +1,16 @@
+package io.github.eetchyza.springauth.api;
+
+/**
+ * Generates the random authentication and refresh tokens handed out on login and refresh
+ *
+ * @author Dan Williams
+ * @version 1.0.0
+ * @since 2019-06-22
+ */
+public interface TokenGenerator {
+
+	/**
+	 * @return String A new token, it must be unguessable and safe to send in a header or url without escaping
+	 */
+	String generate();
+}
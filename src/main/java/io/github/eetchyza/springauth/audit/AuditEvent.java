@@ -0,0 +1,69 @@
+package io.github.eetchyza.springauth.audit;
+
+/**
+ * A request that was allowed or denied by the {@link io.github.eetchyza.springauth.web.SecurityFilter SecurityFilter}
+ *
+ * @author Dan Williams
+ * @version 1.0.0
+ * @since 2019-07-06
+ */
+public final class AuditEvent {
+	private final long timestamp;
+
+	private final String method;
+
+	private final String path;
+
+	private final String username;
+
+	private final boolean allowed;
+
+	private final String reason;
+
+	AuditEvent(long timestamp, String method, String path, String username, boolean allowed, String reason) {
+		this.timestamp = timestamp;
+		this.method = method;
+		this.path = path;
+		this.username = username;
+		this.allowed = allowed;
+		this.reason = reason;
+	}
+
+	/**
+	 * @return long Milliseconds since the epoch when the request was checked
+	 */
+	public long getTimestamp() {
+		return timestamp;
+	}
+
+	public String getMethod() {
+		return method;
+	}
+
+	public String getPath() {
+		return path;
+	}
+
+	/**
+	 * @return String The user making the request, or null if they were anonymous
+	 */
+	public String getUsername() {
+		return username;
+	}
+
+	public boolean isAllowed() {
+		return allowed;
+	}
+
+	/**
+	 * @return String Why the request was denied, or null if it was allowed
+	 */
+	public String getReason() {
+		return reason;
+	}
+
+	@Override
+	public String toString() {
+		return method + " " + path + " by " + (username == null ? "anonymous user" : username) + (allowed ? " allowed" : " denied: " + reason);
+	}
+}
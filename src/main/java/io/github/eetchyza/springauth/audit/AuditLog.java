@@ -0,0 +1,180 @@
+package io.github.eetchyza.springauth.audit;
+
+import java.io.Closeable;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Records which requests were allowed and denied without holding up the request.
+ * Events go into a bounded lock free buffer and are written to an {@link AuditSink AuditSink} in batches by a background thread.
+ * Denials are always recorded, allowed requests can be sampled. When the buffer is full events are dropped and counted
+ * rather than waiting, the last quarter of the buffer is kept for denials so they are the last to be dropped
+ *
+ * @author Dan Williams
+ * @version 1.0.0
+ * @since 2019-07-06
+ */
+public class AuditLog implements Closeable {
+	private static final Logger logger = LoggerFactory.getLogger(AuditLog.class);
+
+	public static final int DEFAULT_CAPACITY = 16384;
+
+	public static final Duration DEFAULT_FLUSH_INTERVAL = Duration.ofMillis(50);
+
+	private static final int BATCH_SIZE = 256;
+
+	private final AuditSink sink;
+
+	private final double sampleRate;
+
+	private final RingBuffer<AuditEvent> buffer;
+
+	private final int allowedLimit;
+
+	private final List<AuditEvent> batch;
+
+	private final ScheduledExecutorService writer;
+
+	private final LongAdder dropped = new LongAdder();
+
+	private final LongAdder written = new LongAdder();
+
+	/**
+	 * Logs every request through SLF4J
+	 */
+	public AuditLog() {
+		this(new Slf4jAuditSink(), 1);
+	}
+
+	/**
+	 * @param sink Where to write events
+	 * @param sampleRate Fraction of allowed requests to record, from 0 to 1. Denied requests are always recorded
+	 */
+	public AuditLog(AuditSink sink, double sampleRate) {
+		this(sink, sampleRate, DEFAULT_CAPACITY, DEFAULT_FLUSH_INTERVAL);
+	}
+
+	/**
+	 * @param sink Where to write events
+	 * @param sampleRate Fraction of allowed requests to record, from 0 to 1. Denied requests are always recorded
+	 * @param capacity Events that can be waiting to be written, rounded up to a power of two
+	 * @param flushInterval How long the writer waits between emptying the buffer
+	 */
+	public AuditLog(AuditSink sink, double sampleRate, int capacity, Duration flushInterval) {
+		if (sampleRate < 0 || sampleRate > 1) {
+			throw new IllegalArgumentException("Sample rate must be between 0 and 1");
+		}
+
+		this.sink = sink;
+		this.sampleRate = sampleRate;
+		this.buffer = new RingBuffer<>(capacity);
+		this.allowedLimit = buffer.capacity() - buffer.capacity() / 4;
+		this.batch = new ArrayList<>(BATCH_SIZE);
+		this.writer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "springauth-audit-writer");
+			thread.setDaemon(true);
+			return thread;
+		});
+
+		long interval = flushInterval.toMillis();
+		writer.scheduleWithFixedDelay(this::flush, interval, interval, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * This method is used to record an allowed request, if it is sampled
+	 *
+	 * @param method HTTP method
+	 * @param path Path requested
+	 * @param username User making the request, or null if they are anonymous
+	 */
+	public void allowed(String method, String path, String username) {
+		if (sampleRate < 1 && (sampleRate == 0 || ThreadLocalRandom.current().nextDouble() >= sampleRate)) {
+			return;
+		}
+
+		record(new AuditEvent(System.currentTimeMillis(), method, path, username, true, null), allowedLimit);
+	}
+
+	/**
+	 * This method is used to record a denied request
+	 *
+	 * @param method HTTP method
+	 * @param path Path requested
+	 * @param username User making the request, or null if they are anonymous
+	 * @param reason Why the request was denied
+	 */
+	public void denied(String method, String path, String username, String reason) {
+		record(new AuditEvent(System.currentTimeMillis(), method, path, username, false, reason), buffer.capacity());
+	}
+
+	/**
+	 * @return long The number of events dropped because the buffer was full
+	 */
+	public long getDroppedCount() {
+		return dropped.sum();
+	}
+
+	/**
+	 * @return long The number of events handed to the sink
+	 */
+	public long getWrittenCount() {
+		return written.sum();
+	}
+
+	/**
+	 * Stops the writer and writes any events still in the buffer
+	 */
+	@Override
+	public void close() {
+		writer.shutdown();
+
+		try {
+			writer.awaitTermination(1, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+
+		flush();
+	}
+
+	synchronized void flush() {
+		AuditEvent event = buffer.poll();
+
+		while (event != null) {
+			batch.add(event);
+			event = buffer.poll();
+
+			if (event == null || batch.size() == BATCH_SIZE) {
+				write();
+			}
+		}
+	}
+
+	private void write() {
+		try {
+			sink.write(batch);
+			written.add(batch.size());
+		} catch (RuntimeException e) {
+			// Keep the writer running, a failing sink should not stop later events from being written
+			dropped.add(batch.size());
+			logger.warn("Unable to write {} audit events", batch.size(), e);
+		} finally {
+			batch.clear();
+		}
+	}
+
+	private void record(AuditEvent event, int limit) {
+		if (!buffer.offer(event, limit)) {
+			dropped.increment();
+		}
+	}
+}
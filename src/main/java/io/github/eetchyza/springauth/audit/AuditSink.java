@@ -0,0 +1,18 @@
+package io.github.eetchyza.springauth.audit;
+
+import java.util.List;
+
+/**
+ * Writes audit events somewhere, called by a single background thread
+ *
+ * @author Dan Williams
+ * @version 1.0.0
+ * @since 2019-07-06
+ */
+public interface AuditSink {
+
+	/**
+	 * @param events Events in the order they were recorded, the list is reused once this returns
+	 */
+	void write(List<AuditEvent> events);
+}
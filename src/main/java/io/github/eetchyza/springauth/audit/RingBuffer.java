@@ -0,0 +1,70 @@
+package io.github.eetchyza.springauth.audit;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A bounded lock free queue for many producers and a single consumer.
+ * Producers claim a slot by moving the tail with a CAS, the consumer frees slots by moving the head
+ *
+ * @author Dan Williams
+ * @version 1.0.0
+ * @since 2019-07-06
+ */
+final class RingBuffer<E> {
+	private final AtomicReferenceArray<E> slots;
+
+	private final int mask;
+
+	private final AtomicLong tail = new AtomicLong();
+
+	private volatile long head;
+
+	RingBuffer(int capacity) {
+		int size = Integer.highestOneBit(Math.max(capacity - 1, 1)) << 1;
+		this.slots = new AtomicReferenceArray<>(size);
+		this.mask = size - 1;
+	}
+
+	int capacity() {
+		return slots.length();
+	}
+
+	/**
+	 * @param element Element to add
+	 * @param limit Fill level at or above which the element is refused, at most the capacity
+	 * @return boolean Returns false if the buffer was too full
+	 */
+	boolean offer(E element, int limit) {
+		long claimed;
+		do {
+			claimed = tail.get();
+
+			if (claimed - head >= limit) {
+				return false;
+			}
+		} while (!tail.compareAndSet(claimed, claimed + 1));
+
+		slots.lazySet((int) claimed & mask, element);
+		return true;
+	}
+
+	/**
+	 * Must only be called by one thread at a time
+	 *
+	 * @return E Returns the oldest element, or null if it is empty or the oldest slot has been claimed but not yet filled
+	 */
+	E poll() {
+		long current = head;
+		int index = (int) current & mask;
+		E element = slots.get(index);
+
+		if (element == null) {
+			return null;
+		}
+
+		slots.lazySet(index, null);
+		head = current + 1;
+		return element;
+	}
+}
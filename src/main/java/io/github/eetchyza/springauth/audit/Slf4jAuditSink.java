@@ -0,0 +1,31 @@
+package io.github.eetchyza.springauth.audit;
+
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Logs allowed requests at INFO and denied requests at WARN, the default sink for an {@link AuditLog AuditLog}
+ *
+ * @author Dan Williams
+ * @version 1.0.0
+ * @since 2019-07-06
+ */
+public class Slf4jAuditSink implements AuditSink {
+	private static final Logger logger = LoggerFactory.getLogger(Slf4jAuditSink.class);
+
+	@Override
+	public void write(List<AuditEvent> events) {
+		for (AuditEvent event : events) {
+			if (event.isAllowed() && event.getUsername() == null) {
+				logger.info("{} request made to '{}' by anonymous user", event.getMethod(), event.getPath());
+			} else if (event.isAllowed()) {
+				logger.info("{} request made to '{}' by user: {}", event.getMethod(), event.getPath(), event.getUsername());
+			} else {
+				String username = event.getUsername() == null ? "anonymous user" : event.getUsername();
+				logger.warn("[{}]: {} request made to '{}' denied: {}", username, event.getMethod(), event.getPath(), event.getReason());
+			}
+		}
+	}
+}
@@ -0,0 +1,177 @@
+package io.github.eetchyza.springauth.cache;
+
+import java.time.Duration;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+import io.github.eetchyza.springauth.api.UserDetails;
+import io.github.eetchyza.springauth.api.UserDetailsService;
+
+/**
+ * A {@link UserDetailsService UserDetailsService} that caches the users loaded by another one.
+ * Usernames that do not exist are cached too, for their own (usually shorter) time,
+ * so repeated attempts to log in as someone who does not exist do not reach the data store.
+ * <p>
+ * Call {@link #invalidate(String) invalidate} whenever a users password or roles change,
+ * otherwise the old details are used until they expire from the cache.
+ *
+ * @author Dan Williams
+ * @version 1.0.0
+ * @since 2019-05-11
+ */
+public class CachingUserDetailsService implements UserDetailsService {
+	private final UserDetailsService delegate;
+
+	private final long ttlNanos;
+
+	private final long negativeTtlNanos;
+
+	private final int maxSize;
+
+	private final LongSupplier ticker;
+
+	private final ConcurrentMap<String, Entry> entries;
+
+	private final Queue<Entry> loadOrder;
+
+	private final AtomicInteger loadOrderSize;
+
+	private final AtomicLong invalidations;
+
+	private final LongAdder hits;
+
+	private final LongAdder misses;
+
+	/**
+	 * @param delegate Service to load users from
+	 * @param ttl How long a user is cached for
+	 * @param negativeTtl How long a username that does not exist is cached for, zero to not cache them
+	 * @param maxSize Most usernames that are cached at once, the longest cached are dropped first
+	 */
+	public CachingUserDetailsService(UserDetailsService delegate, Duration ttl, Duration negativeTtl, int maxSize) {
+		this(delegate, ttl, negativeTtl, maxSize, System::nanoTime);
+	}
+
+	CachingUserDetailsService(UserDetailsService delegate, Duration ttl, Duration negativeTtl, int maxSize, LongSupplier ticker) {
+		this.delegate = delegate;
+		this.ttlNanos = ttl.toNanos();
+		this.negativeTtlNanos = negativeTtl.toNanos();
+		this.maxSize = maxSize;
+		this.ticker = ticker;
+		this.entries = new ConcurrentHashMap<>();
+		this.loadOrder = new ConcurrentLinkedQueue<>();
+		this.loadOrderSize = new AtomicInteger();
+		this.invalidations = new AtomicLong();
+		this.hits = new LongAdder();
+		this.misses = new LongAdder();
+	}
+
+	@Override
+	public UserDetails loadUserByUsername(String username) {
+		// A login without a username is left to the delegate, the cache can not hold a null key
+		if (username == null) {
+			return delegate.loadUserByUsername(null);
+		}
+
+		long now = ticker.getAsLong();
+		Entry entry = entries.get(username);
+
+		if (entry != null && now - entry.expiresAt < 0) {
+			hits.increment();
+			return entry.userDetails;
+		}
+
+		misses.increment();
+		long invalidated = invalidations.get();
+		UserDetails userDetails = delegate.loadUserByUsername(username);
+
+		// Details loaded from before an invalidation may already be out of date, so are not cached
+		if ((userDetails != null || negativeTtlNanos > 0) && invalidated == invalidations.get()) {
+			cache(new Entry(username, userDetails, now + (userDetails == null ? negativeTtlNanos : ttlNanos)));
+		}
+
+		return userDetails;
+	}
+
+	/**
+	 * This method is used to drop a user from the cache, so their next login sees their current details
+	 *
+	 * @param username Username to drop
+	 */
+	public void invalidate(String username) {
+		invalidations.incrementAndGet();
+
+		if (username != null) {
+			entries.remove(username);
+		}
+	}
+
+	/**
+	 * This method is used to drop every user from the cache
+	 */
+	public void invalidateAll() {
+		invalidations.incrementAndGet();
+		entries.clear();
+	}
+
+	/**
+	 * @return long Number of lookups answered from the cache, including cached unknown usernames
+	 */
+	public long getHitCount() {
+		return hits.sum();
+	}
+
+	/**
+	 * @return long Number of lookups passed on to the delegate
+	 */
+	public long getMissCount() {
+		return misses.sum();
+	}
+
+	/**
+	 * @return int Number of usernames currently cached
+	 */
+	public int size() {
+		return entries.size();
+	}
+
+	private void cache(Entry entry) {
+		entries.put(entry.username, entry);
+		loadOrder.add(entry);
+
+		// Every cached entry is in the queue, so trimming the queue to size bounds the cache,
+		// entries that were since replaced or invalidated are simply skipped over
+		if (loadOrderSize.incrementAndGet() > maxSize) {
+			while (loadOrderSize.get() > maxSize) {
+				Entry oldest = loadOrder.poll();
+
+				if (oldest == null) {
+					break;
+				}
+
+				loadOrderSize.decrementAndGet();
+				entries.remove(oldest.username, oldest);
+			}
+		}
+	}
+
+	private static final class Entry {
+		private final String username;
+
+		private final UserDetails userDetails;
+
+		private final long expiresAt;
+
+		private Entry(String username, UserDetails userDetails, long expiresAt) {
+			this.username = username;
+			this.userDetails = userDetails;
+			this.expiresAt = expiresAt;
+		}
+	}
+}
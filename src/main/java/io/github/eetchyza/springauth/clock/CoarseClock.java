@@ -0,0 +1,73 @@
+package io.github.eetchyza.springauth.clock;
+
+import java.io.Closeable;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import io.github.eetchyza.springauth.api.AuthClock;
+
+/**
+ * A clock that is read from a field updated in the background, so reading it on every request costs no more than a volatile read.
+ * It can be behind by up to its precision, which only matters for sessions expiring within that window
+ *
+ * @author Dan Williams
+ * @version 1.0.0
+ * @since 2019-09-07
+ */
+public class CoarseClock implements AuthClock, Closeable {
+	private static final Duration DEFAULT_PRECISION = Duration.ofMillis(10);
+
+	private final AuthClock source;
+
+	private final ScheduledExecutorService updater;
+
+	private volatile long now;
+
+	/**
+	 * Follows a {@link MonotonicClock MonotonicClock} to within 10ms
+	 */
+	public CoarseClock() {
+		this(new MonotonicClock(), DEFAULT_PRECISION);
+	}
+
+	/**
+	 * @param source Clock to follow
+	 * @param precision How often the time is read from the source, and so how far behind it this clock can be
+	 */
+	public CoarseClock(AuthClock source, Duration precision) {
+		this.source = source;
+		this.now = source.millis();
+		this.updater = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "springauth-clock");
+			thread.setDaemon(true);
+			return thread;
+		});
+
+		long precisionMillis = precision.toMillis();
+		this.updater.scheduleAtFixedRate(this::update, precisionMillis, precisionMillis, TimeUnit.MILLISECONDS);
+	}
+
+	@Override
+	public long millis() {
+		return now;
+	}
+
+	/**
+	 * Stops updating the time
+	 */
+	@Override
+	public void close() {
+		updater.shutdown();
+	}
+
+	private void update() {
+		// Never moves backwards, even if the source does
+		long time = source.millis();
+
+		if (time > now) {
+			now = time;
+		}
+	}
+}
@@ -0,0 +1,29 @@
+package io.github.eetchyza.springauth.clock;
+
+import io.github.eetchyza.springauth.api.AuthClock;
+
+/**
+ * A clock that reads the system clock once and then counts forward from it with {@link System#nanoTime() System#nanoTime}.
+ * Steps to the system clock after it is created, from NTP or someone setting the time, are ignored so they can not expire
+ * every session at once or bring expired ones back. Slewing is still followed, as the monotonic clock is slewed with it.
+ * A large correction is only picked up by a new clock, usually on restart
+ *
+ * @author Dan Williams
+ * @version 1.0.0
+ * @since 2019-09-07
+ */
+public class MonotonicClock implements AuthClock {
+	private final long originMillis;
+
+	private final long originNanos;
+
+	public MonotonicClock() {
+		this.originMillis = System.currentTimeMillis();
+		this.originNanos = System.nanoTime();
+	}
+
+	@Override
+	public long millis() {
+		return originMillis + (System.nanoTime() - originNanos) / 1_000_000;
+	}
+}
@@ -0,0 +1,25 @@
+package io.github.eetchyza.springauth.exceptions;
+
+/**
+ * LoginThrottledException, thrown instead of checking the password when there have been too many failed logins.
+ * It extends {@link UsernameOrPasswordIncorrectException UsernameOrPasswordIncorrectException} so existing callers still treat it as a failed login
+ *
+ * @author Dan Williams
+ * @version 1.0.0
+ * @since 2019-07-13
+ */
+public class LoginThrottledException extends UsernameOrPasswordIncorrectException {
+	private final long retryAfterMillis;
+
+	public LoginThrottledException(long retryAfterMillis) {
+		super("Too many failed logins, try again later");
+		this.retryAfterMillis = retryAfterMillis;
+	}
+
+	/**
+	 * @return long Milliseconds until another login will be allowed
+	 */
+	public long getRetryAfterMillis() {
+		return retryAfterMillis;
+	}
+}
@@ -0,0 +1,14 @@
+package io.github.eetchyza.springauth.exceptions;
+
+/**
+ * TooManyRequestsException
+ *
+ * @author Dan Williams
+ * @version 1.0.0
+ * @since 2019-05-18
+ */
+public class TooManyRequestsException extends Exception {
+	public TooManyRequestsException() {
+		super("Too many requests");
+	}
+}
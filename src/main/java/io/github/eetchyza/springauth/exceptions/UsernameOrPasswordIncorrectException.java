@@ -11,4 +11,8 @@ public class UsernameOrPasswordIncorrectException extends Exception {
 	public UsernameOrPasswordIncorrectException() {
 		super("Username or password is incorrect");
 	}
+
+	protected UsernameOrPasswordIncorrectException(String message) {
+		super(message);
+	}
 }
@@ -0,0 +1,39 @@
+package io.github.eetchyza.springauth.metrics;
+
+import java.util.Map;
+
+import io.github.eetchyza.springauth.AuthService;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+
+/**
+ * An actuator endpoint at /actuator/springauth reporting the metrics in an {@link InMemoryAuthMetrics InMemoryAuthMetrics}
+ * and the number of live sessions. Needs spring-boot-starter-actuator on the classpath and the endpoint exposed with
+ * management.endpoints.web.exposure.include
+ *
+ * @author Dan Williams
+ * @version 1.0.0
+ * @since 2019-06-29
+ */
+@Endpoint(id = "springauth")
+public class AuthMetricsEndpoint {
+	private final InMemoryAuthMetrics metrics;
+
+	private final AuthService authService;
+
+	public AuthMetricsEndpoint(InMemoryAuthMetrics metrics, AuthService authService) {
+		this.metrics = metrics;
+		this.authService = authService;
+	}
+
+	/**
+	 * @return {@link Map Map} Returns every metric, named the way micrometer would name them
+	 */
+	@ReadOperation
+	public Map<String, Object> metrics() {
+		Map<String, Object> snapshot = metrics.snapshot();
+		snapshot.put("springauth.sessions", authService.getSessionCount());
+
+		return snapshot;
+	}
+}
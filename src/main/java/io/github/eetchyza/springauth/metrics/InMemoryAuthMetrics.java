@@ -0,0 +1,161 @@
+package io.github.eetchyza.springauth.metrics;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import io.github.eetchyza.springauth.api.AuthMetrics;
+
+/**
+ * Keeps counts and timings on the heap of this node using striped counters, so recording never takes a lock.
+ * Expose them with an {@link AuthMetricsEndpoint AuthMetricsEndpoint} or read them directly
+ *
+ * @author Dan Williams
+ * @version 1.0.0
+ * @since 2019-06-29
+ */
+public class InMemoryAuthMetrics implements AuthMetrics {
+	private final LongAdder loginSuccesses = new LongAdder();
+
+	private final LongAdder loginFailures = new LongAdder();
+
+	private final LongAdder refreshSuccesses = new LongAdder();
+
+	private final LongAdder refreshFailures = new LongAdder();
+
+	private final LongAdder logouts = new LongAdder();
+
+	private final ConcurrentMap<Class<?>, LongAdder> denials = new ConcurrentHashMap<>();
+
+	private final Timer userLoads = new Timer();
+
+	private final Timer passwordVerifications = new Timer();
+
+	private final Timer requests = new Timer();
+
+	@Override
+	public void loginSucceeded() {
+		loginSuccesses.increment();
+	}
+
+	@Override
+	public void loginFailed() {
+		loginFailures.increment();
+	}
+
+	@Override
+	public void refreshed(boolean success) {
+		(success ? refreshSuccesses : refreshFailures).increment();
+	}
+
+	@Override
+	public void loggedOut() {
+		logouts.increment();
+	}
+
+	@Override
+	public void denied(Exception exception) {
+		LongAdder count = denials.get(exception.getClass());
+
+		if (count == null) {
+			count = denials.computeIfAbsent(exception.getClass(), key -> new LongAdder());
+		}
+
+		count.increment();
+	}
+
+	@Override
+	public void userLoaded(long nanos) {
+		userLoads.record(nanos);
+	}
+
+	@Override
+	public void passwordVerified(long nanos) {
+		passwordVerifications.record(nanos);
+	}
+
+	@Override
+	public void requestFiltered(long nanos) {
+		requests.record(nanos);
+	}
+
+	public long getLoginSuccesses() {
+		return loginSuccesses.sum();
+	}
+
+	public long getLoginFailures() {
+		return loginFailures.sum();
+	}
+
+	public long getRefreshSuccesses() {
+		return refreshSuccesses.sum();
+	}
+
+	public long getRefreshFailures() {
+		return refreshFailures.sum();
+	}
+
+	public long getLogouts() {
+		return logouts.sum();
+	}
+
+	/**
+	 * @param exception Type of exception
+	 * @return long Returns how many requests or logins were turned away with the exception
+	 */
+	public long getDenials(Class<? extends Exception> exception) {
+		LongAdder count = denials.get(exception);
+		return count == null ? 0 : count.sum();
+	}
+
+	public Timer getUserLoads() {
+		return userLoads;
+	}
+
+	public Timer getPasswordVerifications() {
+		return passwordVerifications;
+	}
+
+	public Timer getRequests() {
+		return requests;
+	}
+
+	/**
+	 * This method is used to read every metric at once, named the way micrometer would name them
+	 *
+	 * @return {@link Map Map} Returns metric names mapped to counts, or to a map of statistics for timers
+	 */
+	public Map<String, Object> snapshot() {
+		Map<String, Object> snapshot = new LinkedHashMap<>();
+		snapshot.put("springauth.login.success", getLoginSuccesses());
+		snapshot.put("springauth.login.failure", getLoginFailures());
+		snapshot.put("springauth.refresh.success", getRefreshSuccesses());
+		snapshot.put("springauth.refresh.failure", getRefreshFailures());
+		snapshot.put("springauth.logout", getLogouts());
+
+		Map<String, Long> denied = new TreeMap<>();
+		denials.forEach((type, count) -> denied.put(type.getSimpleName(), count.sum()));
+		snapshot.put("springauth.denied", denied);
+
+		snapshot.put("springauth.user.load", statistics(userLoads));
+		snapshot.put("springauth.password.verify", statistics(passwordVerifications));
+		snapshot.put("springauth.filter", statistics(requests));
+
+		return snapshot;
+	}
+
+	private static Map<String, Object> statistics(Timer timer) {
+		Map<String, Object> statistics = new LinkedHashMap<>();
+		statistics.put("count", timer.getCount());
+		statistics.put("totalMicros", timer.getTotal(TimeUnit.MICROSECONDS));
+		statistics.put("maxMicros", timer.getMax(TimeUnit.MICROSECONDS));
+		statistics.put("p50Micros", timer.getPercentile(0.5, TimeUnit.MICROSECONDS));
+		statistics.put("p99Micros", timer.getPercentile(0.99, TimeUnit.MICROSECONDS));
+
+		return statistics;
+	}
+}
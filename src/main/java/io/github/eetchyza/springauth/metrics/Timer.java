@@ -0,0 +1,106 @@
+package io.github.eetchyza.springauth.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Records how long something took without locking. Durations are counted in buckets, four for every power of two,
+ * so percentiles are accurate to within 25%
+ *
+ * @author Dan Williams
+ * @version 1.0.0
+ * @since 2019-06-29
+ */
+public final class Timer {
+	private static final int SUB_BUCKETS = 4;
+
+	private final LongAdder count = new LongAdder();
+
+	private final LongAdder totalNanos = new LongAdder();
+
+	private final AtomicLong maxNanos = new AtomicLong();
+
+	private final AtomicLongArray buckets = new AtomicLongArray(64 * SUB_BUCKETS);
+
+	/**
+	 * @param nanos Duration to record, negative durations are recorded as 0
+	 */
+	public void record(long nanos) {
+		long duration = Math.max(nanos, 0);
+		count.increment();
+		totalNanos.add(duration);
+		buckets.incrementAndGet(bucketOf(duration));
+
+		long max = maxNanos.get();
+		while (duration > max && !maxNanos.compareAndSet(max, duration)) {
+			max = maxNanos.get();
+		}
+	}
+
+	public long getCount() {
+		return count.sum();
+	}
+
+	public long getTotal(TimeUnit unit) {
+		return unit.convert(totalNanos.sum(), TimeUnit.NANOSECONDS);
+	}
+
+	public long getMax(TimeUnit unit) {
+		return unit.convert(maxNanos.get(), TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * This method is used to estimate a percentile from the recorded durations
+	 *
+	 * @param percentile Between 0 and 1, for example 0.99
+	 * @param unit Unit to return the duration in
+	 * @return long Returns the highest duration in the bucket holding the percentile, or 0 if nothing has been recorded
+	 */
+	public long getPercentile(double percentile, TimeUnit unit) {
+		long[] counts = new long[buckets.length()];
+		long total = 0;
+
+		for (int i = 0; i < counts.length; i++) {
+			counts[i] = buckets.get(i);
+			total += counts[i];
+		}
+
+		long rank = (long) Math.ceil(percentile * total);
+		long seen = 0;
+
+		for (int i = 0; i < counts.length; i++) {
+			seen += counts[i];
+
+			if (seen >= rank && counts[i] > 0) {
+				return unit.convert(Math.min(upperBoundOf(i), maxNanos.get()), TimeUnit.NANOSECONDS);
+			}
+		}
+
+		return 0;
+	}
+
+	static int bucketOf(long nanos) {
+		if (nanos < SUB_BUCKETS) {
+			return (int) nanos;
+		}
+
+		int exponent = 63 - Long.numberOfLeadingZeros(nanos);
+		int sub = (int) (nanos >>> (exponent - 2)) & (SUB_BUCKETS - 1);
+
+		return (exponent - 1) * SUB_BUCKETS + sub;
+	}
+
+	static long upperBoundOf(int bucket) {
+		if (bucket < SUB_BUCKETS) {
+			return bucket;
+		}
+
+		int exponent = bucket / SUB_BUCKETS + 1;
+		long width = 1L << (exponent - 2);
+		long lower = (SUB_BUCKETS + bucket % SUB_BUCKETS) * width;
+
+		return lower + width - 1;
+	}
+}
@@ -0,0 +1,145 @@
+package io.github.eetchyza.springauth.password;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+
+import io.github.eetchyza.springauth.api.PasswordHasher;
+import org.bouncycastle.crypto.generators.Argon2BytesGenerator;
+import org.bouncycastle.crypto.params.Argon2Parameters;
+
+/**
+ * Hashes passwords with Argon2id, a memory hard algorithm, stored in the standard
+ * {@code $argon2id$v=19$m=memory,t=iterations,p=parallelism$salt$hash} format.
+ * Requires {@code org.bouncycastle:bcprov-jdk15on} on the classpath.
+ *
+ * @author Dan Williams
+ * @version 1.0.0
+ * @since 2019-05-25
+ */
+public class Argon2PasswordHasher implements PasswordHasher {
+	public static final int DEFAULT_MEMORY_KB = 19_456;
+
+	public static final int DEFAULT_ITERATIONS = 2;
+
+	public static final int DEFAULT_PARALLELISM = 1;
+
+	private static final String PREFIX = "$argon2id$";
+
+	private static final int SALT_LENGTH = 16;
+
+	private static final int HASH_LENGTH = 32;
+
+	private final int memoryKb;
+
+	private final int iterations;
+
+	private final int parallelism;
+
+	private final SecureRandom random;
+
+	public Argon2PasswordHasher() {
+		this(DEFAULT_MEMORY_KB, DEFAULT_ITERATIONS, DEFAULT_PARALLELISM);
+	}
+
+	/**
+	 * @param memoryKb Memory used by each hash in kilobytes
+	 * @param iterations Number of passes over the memory
+	 * @param parallelism Number of lanes hashed in parallel
+	 */
+	public Argon2PasswordHasher(int memoryKb, int iterations, int parallelism) {
+		if (memoryKb < 8 * parallelism || iterations < 1 || parallelism < 1) {
+			throw new IllegalArgumentException("Invalid Argon2 parameters");
+		}
+
+		this.memoryKb = memoryKb;
+		this.iterations = iterations;
+		this.parallelism = parallelism;
+		this.random = new SecureRandom();
+	}
+
+	@Override
+	public String hash(String password) {
+		byte[] salt = new byte[SALT_LENGTH];
+		random.nextBytes(salt);
+
+		byte[] hash = derive(password, salt, memoryKb, iterations, parallelism, HASH_LENGTH);
+
+		Base64.Encoder encoder = Base64.getEncoder().withoutPadding();
+		return PREFIX + "v=19$m=" + memoryKb + ",t=" + iterations + ",p=" + parallelism + "$" + encoder.encodeToString(salt) + "$" + encoder.encodeToString(hash);
+	}
+
+	@Override
+	public boolean matches(String password, String hashedPassword) {
+		String[] parts = split(hashedPassword);
+		int[] parameters = parameters(parts);
+		byte[] salt = Base64.getDecoder().decode(parts[2]);
+		byte[] expected = Base64.getDecoder().decode(parts[3]);
+
+		return MessageDigest.isEqual(expected, derive(password, salt, parameters[0], parameters[1], parameters[2], expected.length));
+	}
+
+	@Override
+	public boolean supports(String hashedPassword) {
+		return hashedPassword.startsWith(PREFIX);
+	}
+
+	@Override
+	public boolean needsRehash(String hashedPassword) {
+		int[] parameters = parameters(split(hashedPassword));
+		return parameters[0] < memoryKb || parameters[1] < iterations || parameters[2] < parallelism;
+	}
+
+	private static String[] split(String hashedPassword) {
+		String[] parts = hashedPassword.substring(PREFIX.length()).split("\\$");
+
+		if (parts.length != 4 || !"v=19".equals(parts[0])) {
+			throw new IllegalArgumentException("Invalid Argon2 hash");
+		}
+
+		return parts;
+	}
+
+	private static int[] parameters(String[] parts) {
+		int[] parameters = new int[3];
+
+		for (String parameter : parts[1].split(",")) {
+			int value = Integer.parseInt(parameter.substring(2));
+
+			switch (parameter.charAt(0)) {
+				case 'm':
+					parameters[0] = value;
+					break;
+				case 't':
+					parameters[1] = value;
+					break;
+				case 'p':
+					parameters[2] = value;
+					break;
+				default:
+					throw new IllegalArgumentException("Invalid Argon2 hash");
+			}
+		}
+
+		return parameters;
+	}
+
+	private static byte[] derive(String password, byte[] salt, int memoryKb, int iterations, int parallelism, int length) {
+		Argon2Parameters parameters = new Argon2Parameters.Builder(Argon2Parameters.ARGON2_id)
+				.withVersion(Argon2Parameters.ARGON2_VERSION_13)
+				.withSalt(salt)
+				.withMemoryAsKB(memoryKb)
+				.withIterations(iterations)
+				.withParallelism(parallelism)
+				.build();
+
+		Argon2BytesGenerator generator = new Argon2BytesGenerator();
+		generator.init(parameters);
+
+		byte[] hash = new byte[length];
+		generator.generateBytes(password.getBytes(StandardCharsets.UTF_8), hash);
+
+		return hash;
+	}
+}
@@ -0,0 +1,53 @@
+package io.github.eetchyza.springauth.password;
+
+import io.github.eetchyza.springauth.api.PasswordHasher;
+import org.mindrot.jbcrypt.BCrypt;
+
+/**
+ * Hashes passwords with BCrypt, each increase in cost doubles the time taken
+ *
+ * @author Dan Williams
+ * @version 1.0.0
+ * @since 2019-05-25
+ */
+public class BCryptPasswordHasher implements PasswordHasher {
+	public static final int DEFAULT_COST = 10;
+
+	private final int cost;
+
+	public BCryptPasswordHasher() {
+		this(DEFAULT_COST);
+	}
+
+	/**
+	 * @param cost Log2 of the number of rounds, between 4 and 30
+	 */
+	public BCryptPasswordHasher(int cost) {
+		if (cost < 4 || cost > 30) {
+			throw new IllegalArgumentException("BCrypt cost must be between 4 and 30");
+		}
+
+		this.cost = cost;
+	}
+
+	@Override
+	public String hash(String password) {
+		return BCrypt.hashpw(password, BCrypt.gensalt(cost));
+	}
+
+	@Override
+	public boolean matches(String password, String hashedPassword) {
+		return BCrypt.checkpw(password, hashedPassword);
+	}
+
+	@Override
+	public boolean supports(String hashedPassword) {
+		return hashedPassword.startsWith("$2a$") || hashedPassword.startsWith("$2$");
+	}
+
+	@Override
+	public boolean needsRehash(String hashedPassword) {
+		int offset = hashedPassword.charAt(2) == '$' ? 3 : 4;
+		return Integer.parseInt(hashedPassword.substring(offset, offset + 2)) < cost;
+	}
+}
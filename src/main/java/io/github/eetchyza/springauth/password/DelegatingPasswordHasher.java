@@ -0,0 +1,63 @@
+package io.github.eetchyza.springauth.password;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import io.github.eetchyza.springauth.api.PasswordHasher;
+
+/**
+ * Hashes new passwords with one algorithm while still verifying hashes made by others,
+ * the algorithm of a hash is recognised by its prefix. Hashes made by any other algorithm need rehashing.
+ *
+ * @author Dan Williams
+ * @version 1.0.0
+ * @since 2019-05-25
+ */
+public class DelegatingPasswordHasher implements PasswordHasher {
+	private final PasswordHasher hasher;
+
+	private final List<PasswordHasher> hashers;
+
+	/**
+	 * @param hasher Hasher used for new passwords
+	 * @param legacyHashers Hashers only used to verify existing passwords
+	 */
+	public DelegatingPasswordHasher(PasswordHasher hasher, PasswordHasher... legacyHashers) {
+		this.hasher = hasher;
+		this.hashers = new ArrayList<>();
+		this.hashers.add(hasher);
+		this.hashers.addAll(Arrays.asList(legacyHashers));
+	}
+
+	@Override
+	public String hash(String password) {
+		return hasher.hash(password);
+	}
+
+	@Override
+	public boolean matches(String password, String hashedPassword) {
+		PasswordHasher match = find(hashedPassword);
+		return match != null && match.matches(password, hashedPassword);
+	}
+
+	@Override
+	public boolean supports(String hashedPassword) {
+		return find(hashedPassword) != null;
+	}
+
+	@Override
+	public boolean needsRehash(String hashedPassword) {
+		return !hasher.supports(hashedPassword) || hasher.needsRehash(hashedPassword);
+	}
+
+	private PasswordHasher find(String hashedPassword) {
+		for (PasswordHasher candidate : hashers) {
+			if (candidate.supports(hashedPassword)) {
+				return candidate;
+			}
+		}
+
+		return null;
+	}
+}
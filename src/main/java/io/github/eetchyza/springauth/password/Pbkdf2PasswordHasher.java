@@ -0,0 +1,104 @@
+package io.github.eetchyza.springauth.password;
+
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+
+import io.github.eetchyza.springauth.api.PasswordHasher;
+
+/**
+ * Hashes passwords with PBKDF2 using HMAC-SHA256, stored as {@code $pbkdf2-sha256$i=iterations$salt$hash}
+ *
+ * @author Dan Williams
+ * @version 1.0.0
+ * @since 2019-05-25
+ */
+public class Pbkdf2PasswordHasher implements PasswordHasher {
+	public static final int DEFAULT_ITERATIONS = 310_000;
+
+	private static final String PREFIX = "$pbkdf2-sha256$";
+
+	private static final String ALGORITHM = "PBKDF2WithHmacSHA256";
+
+	private static final int SALT_LENGTH = 16;
+
+	private static final int HASH_LENGTH = 32;
+
+	private final int iterations;
+
+	private final SecureRandom random;
+
+	public Pbkdf2PasswordHasher() {
+		this(DEFAULT_ITERATIONS);
+	}
+
+	/**
+	 * @param iterations Number of iterations, the time taken grows linearly with it
+	 */
+	public Pbkdf2PasswordHasher(int iterations) {
+		if (iterations < 1) {
+			throw new IllegalArgumentException("PBKDF2 iterations must be at least 1");
+		}
+
+		this.iterations = iterations;
+		this.random = new SecureRandom();
+	}
+
+	@Override
+	public String hash(String password) {
+		byte[] salt = new byte[SALT_LENGTH];
+		random.nextBytes(salt);
+
+		Base64.Encoder encoder = Base64.getEncoder().withoutPadding();
+		return PREFIX + "i=" + iterations + "$" + encoder.encodeToString(salt) + "$" + encoder.encodeToString(derive(password, salt, iterations, HASH_LENGTH));
+	}
+
+	@Override
+	public boolean matches(String password, String hashedPassword) {
+		String[] parts = split(hashedPassword);
+		byte[] salt = Base64.getDecoder().decode(parts[1]);
+		byte[] expected = Base64.getDecoder().decode(parts[2]);
+
+		return MessageDigest.isEqual(expected, derive(password, salt, iterations(parts), expected.length));
+	}
+
+	@Override
+	public boolean supports(String hashedPassword) {
+		return hashedPassword.startsWith(PREFIX);
+	}
+
+	@Override
+	public boolean needsRehash(String hashedPassword) {
+		return iterations(split(hashedPassword)) < iterations;
+	}
+
+	private static String[] split(String hashedPassword) {
+		String[] parts = hashedPassword.substring(PREFIX.length()).split("\\$");
+
+		if (parts.length != 3 || !parts[0].startsWith("i=")) {
+			throw new IllegalArgumentException("Invalid PBKDF2 hash");
+		}
+
+		return parts;
+	}
+
+	private static int iterations(String[] parts) {
+		return Integer.parseInt(parts[0].substring(2));
+	}
+
+	private static byte[] derive(String password, byte[] salt, int iterations, int length) {
+		PBEKeySpec spec = new PBEKeySpec(password.toCharArray(), salt, iterations, length * 8);
+
+		try {
+			return SecretKeyFactory.getInstance(ALGORITHM).generateSecret(spec).getEncoded();
+		} catch (GeneralSecurityException e) {
+			throw new IllegalStateException("Unable to hash password", e);
+		} finally {
+			spec.clearPassword();
+		}
+	}
+}
@@ -0,0 +1,266 @@
+package io.github.eetchyza.springauth.ratelimit;
+
+import java.time.Duration;
+import java.util.HashMap;
+
+import io.github.eetchyza.springauth.api.AuthClock;
+import io.github.eetchyza.springauth.clock.MonotonicClock;
+
+/**
+ * Limits failed logins per username, and optionally per client address, so passwords can not be guessed at the speed the server can hash them.
+ * Failures are counted over a sliding window, estimated from the counts of the current and previous fixed windows.
+ * Once a username or address reaches its limit it is blocked, and every further failure while it is over the limit doubles
+ * how long it is blocked for, up to a maximum. A successful login clears the username but not the address,
+ * so logging in to one account does not hide guesses at others.
+ * <p>
+ * Addresses are not limited by default. Behind a proxy or NAT many users share one address, and unless the client's own address is
+ * resolved from the forwarded headers, a handful of failures would lock all of them out. Limiting addresses catches one client guessing at
+ * many usernames, so turn it on once every request's address is its client's.
+ * <p>
+ * Counters are split across shards, each with its own lock and holding a bounded number of keys. When a shard is full, keys that are
+ * no longer blocked and have no failures left in the window are dropped to make room. A key that is still blocked or counting is never dropped,
+ * otherwise failures against made up usernames could push out a blocked one and let guessing at it start again. If nothing can be dropped,
+ * new keys are not counted until something can.
+ * Usernames and addresses that have never failed are not stored, so checking them is a single lookup
+ *
+ * @author Dan Williams
+ * @version 1.0.0
+ * @since 2019-07-13
+ */
+public class LoginThrottle {
+	public static final int DEFAULT_MAX_USER_FAILURES = 5;
+
+	public static final int DEFAULT_MAX_ADDRESS_FAILURES = 0;
+
+	public static final Duration DEFAULT_WINDOW = Duration.ofMinutes(15);
+
+	public static final Duration DEFAULT_INITIAL_BACKOFF = Duration.ofSeconds(1);
+
+	public static final Duration DEFAULT_MAX_BACKOFF = Duration.ofMinutes(15);
+
+	public static final int DEFAULT_MAX_KEYS = 100_000;
+
+	private static final int SHARDS = 64;
+
+	private final Counters users;
+
+	private final Counters addresses;
+
+	private final long windowMillis;
+
+	private final long initialBackoffMillis;
+
+	private final long maxBackoffMillis;
+
+	private final AuthClock clock;
+
+	/**
+	 * Allows 5 failures per username every 15 minutes, blocking for 1 second doubling up to 15 minutes, and does not limit addresses
+	 */
+	public LoginThrottle() {
+		this(new MonotonicClock());
+	}
+
+	/**
+	 * Allows 5 failures per username every 15 minutes, blocking for 1 second doubling up to 15 minutes, and does not limit addresses
+	 *
+	 * @param clock Clock to count windows and backoff by, this should be the one given to {@link io.github.eetchyza.springauth.AuthService#setClock(AuthClock) AuthService#setClock}
+	 */
+	public LoginThrottle(AuthClock clock) {
+		this(DEFAULT_MAX_USER_FAILURES, DEFAULT_MAX_ADDRESS_FAILURES, DEFAULT_WINDOW, DEFAULT_INITIAL_BACKOFF, DEFAULT_MAX_BACKOFF, DEFAULT_MAX_KEYS, clock);
+	}
+
+	/**
+	 * @param maxUserFailures Failures allowed for a username within the window
+	 * @param maxAddressFailures Failures allowed from a client address within the window, or 0 not to limit addresses
+	 * @param window Period failures are counted over
+	 * @param initialBackoff How long to block for when the limit is first reached
+	 * @param maxBackoff Longest time to block for
+	 * @param maxKeys Most usernames, and separately addresses, to count failures for
+	 */
+	public LoginThrottle(int maxUserFailures, int maxAddressFailures, Duration window, Duration initialBackoff, Duration maxBackoff, int maxKeys) {
+		this(maxUserFailures, maxAddressFailures, window, initialBackoff, maxBackoff, maxKeys, new MonotonicClock());
+	}
+
+	/**
+	 * @param maxUserFailures Failures allowed for a username within the window
+	 * @param maxAddressFailures Failures allowed from a client address within the window, or 0 not to limit addresses
+	 * @param window Period failures are counted over
+	 * @param initialBackoff How long to block for when the limit is first reached
+	 * @param maxBackoff Longest time to block for
+	 * @param maxKeys Most usernames, and separately addresses, to count failures for
+	 * @param clock Clock to count windows and backoff by, this should be the one given to {@link io.github.eetchyza.springauth.AuthService#setClock(AuthClock) AuthService#setClock}
+	 */
+	public LoginThrottle(int maxUserFailures, int maxAddressFailures, Duration window, Duration initialBackoff, Duration maxBackoff, int maxKeys, AuthClock clock) {
+		if (maxUserFailures < 1 || maxAddressFailures < 0) {
+			throw new IllegalArgumentException("At least one failure must be allowed");
+		}
+
+		this.users = new Counters(maxUserFailures, maxKeys);
+		this.addresses = maxAddressFailures == 0 ? null : new Counters(maxAddressFailures, maxKeys);
+		this.windowMillis = window.toMillis();
+		this.initialBackoffMillis = initialBackoff.toMillis();
+		this.maxBackoffMillis = maxBackoff.toMillis();
+		this.clock = clock;
+	}
+
+	/**
+	 * This method is used to check if a login may be attempted, before any work is done to verify it
+	 *
+	 * @param username Username being logged in to
+	 * @param address Client address, or null if it is not known
+	 * @return long Returns 0 if the login may go ahead, otherwise the milliseconds until it will be allowed
+	 */
+	public long check(String username, String address) {
+		long now = clock.millis();
+		long blockedFor = users.blockedFor(username, now);
+
+		if (address != null && addresses != null) {
+			blockedFor = Math.max(blockedFor, addresses.blockedFor(address, now));
+		}
+
+		return blockedFor;
+	}
+
+	/**
+	 * This method is used to count a failed login
+	 *
+	 * @param username Username that failed to log in
+	 * @param address Client address, or null if it is not known
+	 */
+	public void failed(String username, String address) {
+		long now = clock.millis();
+		users.fail(username, now);
+
+		if (address != null && addresses != null) {
+			addresses.fail(address, now);
+		}
+	}
+
+	/**
+	 * This method is used to clear the failures for a username once it logs in
+	 *
+	 * @param username Username that logged in
+	 */
+	public void succeeded(String username) {
+		users.clear(username);
+	}
+
+	private final class Counters {
+		private final int maxFailures;
+
+		private final Shard[] shards;
+
+		private Counters(int maxFailures, int maxKeys) {
+			this.maxFailures = maxFailures;
+			this.shards = new Shard[SHARDS];
+
+			for (int i = 0; i < SHARDS; i++) {
+				shards[i] = new Shard(Math.max(1, maxKeys / SHARDS));
+			}
+		}
+
+		private long blockedFor(String key, long now) {
+			Shard shard = shardOf(key);
+
+			synchronized (shard) {
+				Window window = shard.get(key);
+				return window == null || window.blockedUntil - now <= 0 ? 0 : window.blockedUntil - now;
+			}
+		}
+
+		private void fail(String key, long now) {
+			Shard shard = shardOf(key);
+
+			synchronized (shard) {
+				Window window = shard.get(key);
+
+				if (window == null) {
+					if (shard.size() >= shard.maxKeys && !dropExpired(shard, now)) {
+						return;
+					}
+
+					window = new Window(now);
+					shard.put(key, window);
+				}
+
+				window.roll(now);
+				window.current++;
+
+				if (window.estimate(now) >= maxFailures) {
+					long backoff = initialBackoffMillis << Math.min(window.strikes, 62);
+					window.strikes++;
+					window.blockedUntil = now + (backoff <= 0 || backoff > maxBackoffMillis ? maxBackoffMillis : backoff);
+				}
+			}
+		}
+
+		private void clear(String key) {
+			Shard shard = shardOf(key);
+
+			synchronized (shard) {
+				shard.remove(key);
+			}
+		}
+
+		private boolean dropExpired(Shard shard, long now) {
+			shard.values().removeIf(window -> window.isExpired(now));
+			return shard.size() < shard.maxKeys;
+		}
+
+		private Shard shardOf(String key) {
+			int hash = key == null ? 0 : key.hashCode();
+			return shards[(hash ^ (hash >>> 16)) & (SHARDS - 1)];
+		}
+	}
+
+	private final class Window {
+		private long index;
+
+		private int previous;
+
+		private int current;
+
+		private int strikes;
+
+		private long blockedUntil;
+
+		private Window(long now) {
+			this.index = Math.floorDiv(now, windowMillis);
+			this.blockedUntil = now;
+		}
+
+		private void roll(long now) {
+			long nowIndex = Math.floorDiv(now, windowMillis);
+
+			if (nowIndex != index) {
+				previous = nowIndex == index + 1 ? current : 0;
+				current = 0;
+				index = nowIndex;
+
+				if (previous == 0) {
+					// A whole window without a failure, start backing off from the beginning again
+					strikes = 0;
+				}
+			}
+		}
+
+		private boolean isExpired(long now) {
+			// Failures in the last fixed window still count towards the estimate, and strikes are only forgotten after a whole quiet window
+			return blockedUntil - now <= 0 && Math.floorDiv(now, windowMillis) - index >= 2;
+		}
+
+		private double estimate(long now) {
+			double elapsed = (double) Math.floorMod(now, windowMillis) / windowMillis;
+			return previous * (1 - elapsed) + current;
+		}
+	}
+
+	private static final class Shard extends HashMap<String, Window> {
+		private final int maxKeys;
+
+		private Shard(int maxKeys) {
+			this.maxKeys = maxKeys;
+		}
+	}
+}
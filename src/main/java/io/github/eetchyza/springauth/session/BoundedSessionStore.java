@@ -0,0 +1,267 @@
+package io.github.eetchyza.springauth.session;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * A session store that caps how many sessions the store it wraps can hold, in total and per user.
+ * When a user goes over their limit their oldest session is removed, when the store goes over its limit
+ * a session is picked by the {@link EvictionPolicy EvictionPolicy}.
+ * <p>
+ * Writes are serialised by a lock, reads only record their access when the lock is free so they never wait.
+ * Wrap this store in an {@link ExpiringSessionStore ExpiringSessionStore}, rather than the other way around,
+ * so expired sessions stop counting towards the limits as soon as they are removed.
+ * {@link io.github.eetchyza.springauth.AuthService AuthService} listens for evicted sessions and revokes their refresh tokens,
+ * so an evicted session can not be refreshed back into the store.
+ *
+ * @author Dan Williams
+ * @version 1.0.0
+ * @since 2019-05-04
+ */
+public class BoundedSessionStore implements SessionStore {
+	private final SessionStore delegate;
+
+	private final int maxSessions;
+
+	private final int maxSessionsPerUser;
+
+	private final EvictionPolicy policy;
+
+	private final ReentrantLock lock;
+
+	private final LinkedHashMap<String, Long> window;
+
+	private final LinkedHashMap<String, Long> main;
+
+	private final Map<Long, Deque<String>> userSessions;
+
+	private final FrequencySketch sketch;
+
+	private final int maxWindow;
+
+	private long evicted;
+
+	private volatile EvictionListener evictionListener;
+
+	/**
+	 * @param delegate Store to keep sessions in
+	 * @param maxSessions Most sessions that can be stored
+	 * @param maxSessionsPerUser Most sessions one user can have at a time, 0 for no limit
+	 * @param policy How to pick a session to remove when the store is full
+	 */
+	public BoundedSessionStore(SessionStore delegate, int maxSessions, int maxSessionsPerUser, EvictionPolicy policy) {
+		if (maxSessions < 1) {
+			throw new IllegalArgumentException("maxSessions must be at least 1");
+		}
+
+		this.delegate = delegate;
+		this.maxSessions = maxSessions;
+		this.maxSessionsPerUser = maxSessionsPerUser;
+		this.policy = policy;
+		this.lock = new ReentrantLock();
+		this.window = new LinkedHashMap<>(16, 0.75f, true);
+		this.main = new LinkedHashMap<>(16, 0.75f, true);
+		this.userSessions = new HashMap<>();
+
+		if (policy == EvictionPolicy.TINY_LFU) {
+			this.sketch = new FrequencySketch(maxSessions);
+			this.maxWindow = Math.max(1, maxSessions / 100);
+		} else {
+			this.sketch = null;
+			this.maxWindow = 0;
+		}
+	}
+
+	@Override
+	public Session get(String token) {
+		Session session = delegate.get(token);
+
+		// Losing the odd access under contention is fine, blocking a request to record it is not
+		if (session != null && lock.tryLock()) {
+			try {
+				recordAccess(token);
+			} finally {
+				lock.unlock();
+			}
+		}
+
+		return session;
+	}
+
+	@Override
+	public boolean contains(String token) {
+		return delegate.contains(token);
+	}
+
+	@Override
+	public boolean putIfAbsent(Session session) {
+		lock.lock();
+		try {
+			if (!delegate.putIfAbsent(session)) {
+				return false;
+			}
+
+			String token = session.getToken();
+			long userId = session.getAuthentication().getId();
+
+			if (maxSessionsPerUser > 0) {
+				Deque<String> tokens = userSessions.get(userId);
+
+				while (tokens != null && tokens.size() >= maxSessionsPerUser) {
+					evict(tokens.pollFirst());
+					tokens = userSessions.get(userId);
+				}
+				userSessions.computeIfAbsent(userId, id -> new ArrayDeque<>()).addLast(token);
+			}
+
+			if (policy == EvictionPolicy.TINY_LFU) {
+				sketch.increment(token);
+				window.put(token, userId);
+				admit();
+			} else {
+				main.put(token, userId);
+
+				if (main.size() > maxSessions) {
+					evict(main.keySet().iterator().next());
+				}
+			}
+
+			return true;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public Session remove(String token) {
+		lock.lock();
+		try {
+			untrack(token);
+		} finally {
+			lock.unlock();
+		}
+
+		return delegate.remove(token);
+	}
+
+	@Override
+	public boolean remove(Session session) {
+		if (!delegate.remove(session)) {
+			return false;
+		}
+
+		lock.lock();
+		try {
+			untrack(session.getToken());
+		} finally {
+			lock.unlock();
+		}
+
+		return true;
+	}
+
+	@Override
+	public int size() {
+		return delegate.size();
+	}
+
+	@Override
+	public void touch(Session session) {
+		delegate.touch(session);
+	}
+
+	@Override
+	public void forEach(Consumer<? super Session> action) {
+		delegate.forEach(action);
+	}
+
+	@Override
+	public void setEvictionListener(EvictionListener listener) {
+		this.evictionListener = listener;
+	}
+
+	/**
+	 * @return long The number of sessions removed to stay within the limits
+	 */
+	public long getEvictedCount() {
+		lock.lock();
+		try {
+			return evicted;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	private void recordAccess(String token) {
+		if (policy == EvictionPolicy.TINY_LFU) {
+			sketch.increment(token);
+
+			if (window.get(token) == null) {
+				main.get(token);
+			}
+		} else {
+			main.get(token);
+		}
+	}
+
+	private void admit() {
+		if (window.size() <= maxWindow) {
+			return;
+		}
+
+		// The candidate leaves the window for main, then whichever of it and main's coldest session is used less goes
+		Iterator<Map.Entry<String, Long>> oldest = window.entrySet().iterator();
+		Map.Entry<String, Long> candidate = oldest.next();
+		oldest.remove();
+		main.put(candidate.getKey(), candidate.getValue());
+
+		if (window.size() + main.size() > maxSessions) {
+			String victim = main.keySet().iterator().next();
+
+			if (victim.equals(candidate.getKey())) {
+				evict(victim);
+			} else if (sketch.frequency(candidate.getKey()) > sketch.frequency(victim)) {
+				evict(victim);
+			} else {
+				evict(candidate.getKey());
+			}
+		}
+	}
+
+	private void evict(String token) {
+		untrack(token);
+		Session session = delegate.remove(token);
+
+		if (session != null) {
+			evicted++;
+
+			EvictionListener listener = evictionListener;
+			if (listener != null) {
+				listener.onEvict(session);
+			}
+		}
+	}
+
+	private void untrack(String token) {
+		Long userId = main.remove(token);
+
+		if (userId == null) {
+			userId = window.remove(token);
+		}
+
+		if (userId != null && maxSessionsPerUser > 0) {
+			Deque<String> tokens = userSessions.get(userId);
+			tokens.remove(token);
+
+			if (tokens.isEmpty()) {
+				userSessions.remove(userId);
+			}
+		}
+	}
+}
@@ -0,0 +1,14 @@
+package io.github.eetchyza.springauth.session;
+
+/**
+ * Called when a {@link BoundedSessionStore BoundedSessionStore} removes a session to stay within its limits,
+ * so anything else holding on to the session, such as its refresh token, can let it go too.
+ * Sessions that expire, log out or are refreshed are not passed to it
+ *
+ * @author Dan Williams
+ * @version 1.0.0
+ * @since 2019-05-04
+ */
+public interface EvictionListener {
+	void onEvict(Session session);
+}
@@ -0,0 +1,21 @@
+package io.github.eetchyza.springauth.session;
+
+/**
+ * How a {@link BoundedSessionStore BoundedSessionStore} picks a session to remove when it is full
+ *
+ * @author Dan Williams
+ * @version 1.0.0
+ * @since 2019-05-04
+ */
+public enum EvictionPolicy {
+	/**
+	 * Removes the session that was used least recently
+	 */
+	LRU,
+
+	/**
+	 * New sessions enter a small window, when they leave it they only displace an older session if they
+	 * have been used more often, so a burst of logins that are never used again can not flush out active users
+	 */
+	TINY_LFU
+}
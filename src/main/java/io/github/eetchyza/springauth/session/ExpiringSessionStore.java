@@ -0,0 +1,248 @@
+package io.github.eetchyza.springauth.session;
+
+import java.io.Closeable;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+import io.github.eetchyza.springauth.api.AuthClock;
+import io.github.eetchyza.springauth.clock.MonotonicClock;
+
+/**
+ * A session store that removes sessions from the store it wraps once they have expired.
+ * <p>
+ * Expiry times are kept in a hashed timing wheel, each bucket holds the sessions due in one tick
+ * so a sweep only ever looks at the sessions that are due rather than every stored session.
+ * Sessions are kept for a grace period after they expire so that they can still be refreshed.
+ * Any sessions the wrapped store already holds when this one is created are scheduled too.
+ *
+ * @author Dan Williams
+ * @version 1.0.0
+ * @since 2019-04-27
+ */
+public class ExpiringSessionStore implements SessionStore, Closeable {
+	private static final Duration DEFAULT_GRACE = Duration.ofHours(1);
+
+	private static final Duration DEFAULT_TICK = Duration.ofSeconds(1);
+
+	private static final int DEFAULT_WHEEL_SIZE = 512;
+
+	private final SessionStore delegate;
+
+	private final long graceMillis;
+
+	private final long tickMillis;
+
+	private final Bucket[] wheel;
+
+	private final int mask;
+
+	private final LongAdder evicted;
+
+	private final AuthClock clock;
+
+	private final ScheduledExecutorService sweeper;
+
+	private volatile long lastTick;
+
+	public ExpiringSessionStore(SessionStore delegate) {
+		this(delegate, new MonotonicClock());
+	}
+
+	/**
+	 * Keeps expired sessions for an hour, sweeping every second
+	 *
+	 * @param delegate Store to remove expired sessions from
+	 * @param clock Clock to sweep by, this should be the one given to {@link io.github.eetchyza.springauth.AuthService#setClock(AuthClock) AuthService#setClock}
+	 */
+	public ExpiringSessionStore(SessionStore delegate, AuthClock clock) {
+		this(delegate, DEFAULT_GRACE, DEFAULT_TICK, DEFAULT_WHEEL_SIZE, clock);
+	}
+
+	/**
+	 * @param delegate Store to remove expired sessions from
+	 * @param grace How long an expired session is kept so it can still be refreshed
+	 * @param tick How often expired sessions are swept
+	 * @param wheelSize Number of ticks in one turn of the wheel, rounded up to a power of two
+	 */
+	public ExpiringSessionStore(SessionStore delegate, Duration grace, Duration tick, int wheelSize) {
+		this(delegate, grace, tick, wheelSize, new MonotonicClock());
+	}
+
+	/**
+	 * @param delegate Store to remove expired sessions from
+	 * @param grace How long an expired session is kept so it can still be refreshed
+	 * @param tick How often expired sessions are swept
+	 * @param wheelSize Number of ticks in one turn of the wheel, rounded up to a power of two
+	 * @param clock Clock to sweep by, this should be the one given to {@link io.github.eetchyza.springauth.AuthService#setClock(AuthClock) AuthService#setClock}
+	 */
+	public ExpiringSessionStore(SessionStore delegate, Duration grace, Duration tick, int wheelSize, AuthClock clock) {
+		this.delegate = delegate;
+		this.clock = clock;
+		this.graceMillis = grace.toMillis();
+		this.tickMillis = tick.toMillis();
+		this.evicted = new LongAdder();
+
+		int size = Integer.highestOneBit(Math.max(wheelSize - 1, 1)) << 1;
+		this.wheel = new Bucket[size];
+		this.mask = size - 1;
+		for (int i = 0; i < size; i++) {
+			wheel[i] = new Bucket();
+		}
+
+		this.lastTick = clock.millis() / tickMillis;
+
+		// Sessions the delegate already holds, such as ones replayed from a file, would otherwise never be swept
+		delegate.forEach(this::schedule);
+
+		this.sweeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "springauth-session-sweeper");
+			thread.setDaemon(true);
+			return thread;
+		});
+		this.sweeper.scheduleAtFixedRate(() -> sweep(clock.millis()), tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+	}
+
+	@Override
+	public Session get(String token) {
+		return delegate.get(token);
+	}
+
+	@Override
+	public boolean contains(String token) {
+		return delegate.contains(token);
+	}
+
+	@Override
+	public boolean putIfAbsent(Session session) {
+		if (!delegate.putIfAbsent(session)) {
+			return false;
+		}
+
+		schedule(session);
+		return true;
+	}
+
+	@Override
+	public void touch(Session session) {
+		delegate.touch(session);
+
+		// The earlier entry is skipped when it comes due, as the session's expiry no longer matches it
+		schedule(session);
+	}
+
+	@Override
+	public void forEach(Consumer<? super Session> action) {
+		delegate.forEach(action);
+	}
+
+	@Override
+	public void setEvictionListener(EvictionListener listener) {
+		delegate.setEvictionListener(listener);
+	}
+
+	@Override
+	public Session remove(String token) {
+		return delegate.remove(token);
+	}
+
+	@Override
+	public boolean remove(Session session) {
+		return delegate.remove(session);
+	}
+
+	@Override
+	public int size() {
+		return delegate.size();
+	}
+
+	@Override
+	public boolean isShared() {
+		return delegate.isShared();
+	}
+
+	/**
+	 * @return long The number of sessions removed because they expired
+	 */
+	public long getEvictedCount() {
+		return evicted.sum();
+	}
+
+	/**
+	 * @return long The number of sessions currently stored
+	 */
+	public long getLiveCount() {
+		return delegate.size();
+	}
+
+	/**
+	 * Stops sweeping, sessions already in the store are left in it
+	 */
+	@Override
+	public void close() {
+		sweeper.shutdownNow();
+	}
+
+	synchronized void sweep(long now) {
+		long nowTick = now / tickMillis;
+		// After a long pause every bucket is due, so one full turn is all that is needed
+		long from = Math.max(lastTick + 1, nowTick - mask);
+
+		for (long tick = from; tick <= nowTick; tick++) {
+			Iterator<Expiry> bucket = wheel[(int) (tick & mask)].iterator();
+
+			while (bucket.hasNext()) {
+				Expiry expiry = bucket.next();
+
+				if (expiry.deadline <= now) {
+					bucket.remove();
+					evict(expiry.token, now);
+				}
+			}
+		}
+
+		lastTick = Math.max(lastTick, nowTick);
+	}
+
+	private void evict(String token, long now) {
+		Session session = delegate.get(token);
+
+		// The token may have been logged out, or reused by a newer session that is not due yet
+		if (session != null && evictAt(session) <= now && delegate.remove(session)) {
+			evicted.increment();
+		}
+	}
+
+	private void schedule(Session session) {
+		long deadline = evictAt(session);
+		// Anything already due goes in the next bucket to be swept rather than waiting a full turn
+		long tick = Math.max((deadline + tickMillis - 1) / tickMillis, lastTick + 1);
+		wheel[(int) (tick & mask)].add(new Expiry(session.getToken(), deadline));
+	}
+
+	private long evictAt(Session session) {
+		return session.getAuthentication().getExpiresAt() + graceMillis;
+	}
+
+	/**
+	 * The sessions due in one tick, a named type so the wheel can be an array without an unchecked generic array
+	 */
+	private static final class Bucket extends ConcurrentLinkedQueue<Expiry> {
+	}
+
+	private static final class Expiry {
+		private final String token;
+
+		private final long deadline;
+
+		private Expiry(String token, long deadline) {
+			this.token = token;
+			this.deadline = deadline;
+		}
+	}
+}
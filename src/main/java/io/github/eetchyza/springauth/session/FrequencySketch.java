@@ -0,0 +1,85 @@
+package io.github.eetchyza.springauth.session;
+
+/**
+ * A count-min sketch of 4 bit counters used to estimate how often a token has been used.
+ * Counters are halved once enough increments have been made, so old popularity fades.
+ * Not thread safe, callers must hold a lock.
+ *
+ * @author Dan Williams
+ * @version 1.0.0
+ * @since 2019-05-04
+ */
+final class FrequencySketch {
+	private static final long[] SEEDS = { 0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L };
+
+	private static final long RESET_MASK = 0x7777777777777777L;
+
+	private final long[] table;
+
+	private final int mask;
+
+	private final int sampleSize;
+
+	private int additions;
+
+	FrequencySketch(int maximumSize) {
+		int size = Integer.highestOneBit(Math.max(maximumSize - 1, 1)) << 1;
+		this.table = new long[size];
+		this.mask = size - 1;
+		this.sampleSize = 10 * Math.max(maximumSize, 1);
+	}
+
+	int frequency(String token) {
+		int hash = spread(token.hashCode());
+		int frequency = Integer.MAX_VALUE;
+
+		for (int i = 0; i < 4; i++) {
+			frequency = Math.min(frequency, (int) ((table[indexOf(hash, i)] >>> offsetOf(hash, i)) & 0xfL));
+		}
+
+		return frequency;
+	}
+
+	void increment(String token) {
+		int hash = spread(token.hashCode());
+		boolean added = false;
+
+		for (int i = 0; i < 4; i++) {
+			int index = indexOf(hash, i);
+			int offset = offsetOf(hash, i);
+
+			if (((table[index] >>> offset) & 0xfL) != 0xfL) {
+				table[index] += 1L << offset;
+				added = true;
+			}
+		}
+
+		if (added && ++additions == sampleSize) {
+			reset();
+		}
+	}
+
+	private void reset() {
+		for (int i = 0; i < table.length; i++) {
+			table[i] = (table[i] >>> 1) & RESET_MASK;
+		}
+		additions /= 2;
+	}
+
+	private int indexOf(int hash, int row) {
+		long h = (hash + SEEDS[row]) * SEEDS[row];
+		h += h >>> 32;
+		return (int) h & mask;
+	}
+
+	private int offsetOf(int hash, int row) {
+		// Each long holds 16 counters, every row uses its own quarter of them
+		return (((hash >>> (row << 3)) & 3) + (row << 2)) << 2;
+	}
+
+	private static int spread(int hash) {
+		hash = ((hash >>> 16) ^ hash) * 0x45d9f3b;
+		hash = ((hash >>> 16) ^ hash) * 0x45d9f3b;
+		return (hash >>> 16) ^ hash;
+	}
+}
@@ -0,0 +1,64 @@
+package io.github.eetchyza.springauth.session;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Consumer;
+
+/**
+ * The default session store, keeps sessions on the heap of this node.
+ * Reads never lock, writes only contend with writes to the same bin.
+ *
+ * @author Dan Williams
+ * @version 1.0.0
+ * @since 2019-04-20
+ */
+public class InMemorySessionStore implements SessionStore {
+	private final ConcurrentMap<String, Session> sessions;
+
+	public InMemorySessionStore() {
+		this.sessions = new ConcurrentHashMap<>();
+	}
+
+	@Override
+	public Session get(String token) {
+		return token == null ? null : sessions.get(token);
+	}
+
+	@Override
+	public boolean contains(String token) {
+		return token != null && sessions.containsKey(token);
+	}
+
+	@Override
+	public boolean putIfAbsent(Session session) {
+		return sessions.putIfAbsent(session.getToken(), session) == null;
+	}
+
+	@Override
+	public Session remove(String token) {
+		return token == null ? null : sessions.remove(token);
+	}
+
+	@Override
+	public boolean remove(Session session) {
+		return sessions.remove(session.getToken(), session);
+	}
+
+	@Override
+	public int size() {
+		return sessions.size();
+	}
+
+	@Override
+	public void touch(Session session) {
+		// Usually the stored session itself, so there is nothing to write
+		if (sessions.get(session.getToken()) != session) {
+			sessions.computeIfPresent(session.getToken(), (token, current) -> current.equals(session) ? session : current);
+		}
+	}
+
+	@Override
+	public void forEach(Consumer<? super Session> action) {
+		sessions.values().forEach(action);
+	}
+}
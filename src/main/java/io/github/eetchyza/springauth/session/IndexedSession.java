@@ -0,0 +1,131 @@
+package io.github.eetchyza.springauth.session;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import io.github.eetchyza.springauth.Authentication;
+import io.github.eetchyza.springauth.api.GrantedAuthority;
+import io.github.eetchyza.springauth.api.UserDetails;
+
+/**
+ * What a {@link RefreshTokenIndex RefreshTokenIndex} keeps of a family's latest session: its tokens, expiry times,
+ * the user's id and username, the names of their roles and when their password expires if it is temporary.
+ * The user's details are not kept, so a family that outlives its session does not hold on to them or their password hash
+ *
+ * @author Dan Williams
+ * @version 1.0.0
+ * @since 2019-07-20
+ */
+public final class IndexedSession {
+	private final String token;
+
+	private final String refreshToken;
+
+	private final long expiresAt;
+
+	private final long maxExpiresAt;
+
+	private final long userId;
+
+	private final String username;
+
+	private final String[] roles;
+
+	private final LocalDateTime passwordExpires;
+
+	private IndexedSession(Authentication authentication, String[] roles, LocalDateTime passwordExpires) {
+		this.token = authentication.getAuthenticationToken();
+		this.refreshToken = authentication.getRefreshToken();
+		this.expiresAt = authentication.getExpiresAt();
+		this.maxExpiresAt = authentication.getMaxExpiresAt();
+		this.userId = authentication.getId();
+		this.username = authentication.getUsername();
+		this.roles = roles;
+		this.passwordExpires = passwordExpires;
+	}
+
+	static IndexedSession of(Session session, IndexedSession previous) {
+		UserDetails user = session.getUserDetails();
+		String[] roles = roleNames(user == null ? null : user.getAuthorities());
+
+		// A refreshed session almost always has the same roles, so one array is shared by the whole family
+		if (previous != null && Arrays.equals(previous.roles, roles)) {
+			roles = previous.roles;
+		}
+
+		LocalDateTime passwordExpires = user != null && user.isTemporaryPassword() ? user.getExpires() : null;
+		return new IndexedSession(session.getAuthentication(), roles, passwordExpires);
+	}
+
+	public String getToken() {
+		return token;
+	}
+
+	public String getRefreshToken() {
+		return refreshToken;
+	}
+
+	public boolean isRefreshToken(String refreshToken) {
+		return this.refreshToken != null && this.refreshToken.equals(refreshToken);
+	}
+
+	/**
+	 * @return long When the auth token expires in milliseconds since the epoch
+	 */
+	public long getExpiresAt() {
+		return expiresAt;
+	}
+
+	/**
+	 * @return long The latest the auth token can be extended to with sliding expiry in milliseconds since the epoch
+	 */
+	public long getMaxExpiresAt() {
+		return maxExpiresAt;
+	}
+
+	public long getUserId() {
+		return userId;
+	}
+
+	public String getUsername() {
+		return username;
+	}
+
+	/**
+	 * @return {@link List List} Returns the names of the user's roles when the session was issued
+	 */
+	public List<String> getRoles() {
+		return Collections.unmodifiableList(Arrays.asList(roles));
+	}
+
+	/**
+	 * @return {@link LocalDateTime LocalDateTime} Returns when the user's temporary password expires, or null if it is not temporary
+	 */
+	public LocalDateTime getPasswordExpires() {
+		return passwordExpires;
+	}
+
+	String[] roleNames() {
+		return roles;
+	}
+
+	private static String[] roleNames(Collection<? extends GrantedAuthority> authorities) {
+		if (authorities == null) {
+			return new String[0];
+		}
+
+		List<String> names = new ArrayList<>(authorities.size());
+
+		for (GrantedAuthority authority : authorities) {
+			if (authority != null && authority.getAuthority() != null && !names.contains(authority.getAuthority())) {
+				names.add(authority.getAuthority());
+			}
+		}
+
+		return names.toArray(new String[0]);
+	}
+}
@@ -0,0 +1,28 @@
+package io.github.eetchyza.springauth.session;
+
+import java.util.function.Consumer;
+
+/**
+ * A broadcast channel between nodes, such as redis pub/sub, used by {@link NearCacheSessionStore NearCacheSessionStore}
+ * to tell every other node to drop a token from its cache when the session is removed.
+ * Implementations must be thread safe, messages may be lost or arrive late as the cache's ttl bounds how stale it can be.
+ *
+ * @author Dan Williams
+ * @version 1.0.0
+ * @since 2019-08-31
+ * @see LocalInvalidationChannel
+ */
+public interface InvalidationChannel {
+
+	/**
+	 * This method is used to tell every subscriber, including this node's own, that a token's session was removed
+	 *
+	 * @param token Auth token whose session was removed
+	 */
+	void publish(String token);
+
+	/**
+	 * @param listener Called with each token published by any node
+	 */
+	void subscribe(Consumer<String> listener);
+}
@@ -0,0 +1,33 @@
+package io.github.eetchyza.springauth.session;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * An in-process {@link InvalidationChannel InvalidationChannel}, useful as a stand-in for a real broadcast channel in tests.
+ * Messages are delivered straight away on the publishing thread.
+ *
+ * @author Dan Williams
+ * @version 1.0.0
+ * @since 2019-08-31
+ */
+public class LocalInvalidationChannel implements InvalidationChannel {
+	private final List<Consumer<String>> listeners;
+
+	public LocalInvalidationChannel() {
+		this.listeners = new CopyOnWriteArrayList<>();
+	}
+
+	@Override
+	public void publish(String token) {
+		for (Consumer<String> listener : listeners) {
+			listener.accept(token);
+		}
+	}
+
+	@Override
+	public void subscribe(Consumer<String> listener) {
+		listeners.add(listener);
+	}
+}
@@ -0,0 +1,55 @@
+package io.github.eetchyza.springauth.session;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * An in-process {@link SessionBackend SessionBackend}, useful as a stand-in for a real shared backend in tests.
+ * Values are not dropped when their ttl passes.
+ *
+ * @author Dan Williams
+ * @version 1.0.0
+ * @since 2019-04-20
+ */
+public class LocalSessionBackend implements SessionBackend {
+	private final ConcurrentMap<String, byte[]> values;
+
+	public LocalSessionBackend() {
+		this.values = new ConcurrentHashMap<>();
+	}
+
+	@Override
+	public byte[] get(String key) {
+		return values.get(key);
+	}
+
+	@Override
+	public boolean putIfAbsent(String key, byte[] value, long ttlMillis) {
+		return values.putIfAbsent(key, value) == null;
+	}
+
+	@Override
+	public byte[] remove(String key) {
+		return values.remove(key);
+	}
+
+	@Override
+	public boolean remove(String key, byte[] expected) {
+		byte[] current = values.get(key);
+
+		// Arrays compare by identity in the map, so only remove the exact array that matched
+		return current != null && Arrays.equals(current, expected) && values.remove(key, current);
+	}
+
+	@Override
+	public int size() {
+		return values.size();
+	}
+
+	@Override
+	public void replaceAll(Map<String, byte[]> replacements, long ttlMillis) {
+		replacements.forEach(values::replace);
+	}
+}
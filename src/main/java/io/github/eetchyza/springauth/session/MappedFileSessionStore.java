@@ -0,0 +1,276 @@
+package io.github.eetchyza.springauth.session;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Consumer;
+
+import io.github.eetchyza.springauth.api.AuthClock;
+import io.github.eetchyza.springauth.clock.MonotonicClock;
+
+/**
+ * A session store that writes every change to a memory mapped file, so sessions survive a restart.
+ * Lookups are served from the heap, the file is only read when the store is opened.
+ * <p>
+ * The file is an append only log of put and remove records, when it fills up the live sessions
+ * are compacted into a fresh file which then replaces the old one. Sessions that have expired are dropped when the file
+ * is opened and when it is compacted, wrap the store in an {@link ExpiringSessionStore ExpiringSessionStore} to remove them sooner.
+ * <p>
+ * The file holds every live auth and refresh token, anyone who can read it can use them. It is created readable and writable
+ * only by its owner where the file system has POSIX permissions, keep it in a directory only the application can read elsewhere.
+ *
+ * @author Dan Williams
+ * @version 1.0.0
+ * @since 2019-04-20
+ */
+public class MappedFileSessionStore implements SessionStore, Closeable {
+	private static final int MAGIC = 0x53415554;
+
+	private static final int HEADER_SIZE = 4;
+
+	private static final int RECORD_HEADER_SIZE = 5;
+
+	private static final byte PUT = 1;
+
+	private static final byte REMOVE = 2;
+
+	private final ConcurrentMap<String, Session> sessions;
+
+	private final Path file;
+
+	private final int capacity;
+
+	private final AuthClock clock;
+
+	private FileChannel channel;
+
+	private MappedByteBuffer buffer;
+
+	/**
+	 * Opens the store, loading any sessions already written to the file that have not expired
+	 *
+	 * @param file File to keep sessions in, created if it does not exist with access for its owner only
+	 * @param capacity Size of the file in bytes
+	 */
+	public MappedFileSessionStore(Path file, int capacity) {
+		this(file, capacity, new MonotonicClock());
+	}
+
+	/**
+	 * Opens the store, loading any sessions already written to the file that have not expired
+	 *
+	 * @param file File to keep sessions in, created if it does not exist with access for its owner only
+	 * @param capacity Size of the file in bytes
+	 * @param clock Clock to expire sessions by, this should be the one given to {@link io.github.eetchyza.springauth.AuthService#setClock(AuthClock) AuthService#setClock}
+	 */
+	public MappedFileSessionStore(Path file, int capacity, AuthClock clock) {
+		this.sessions = new ConcurrentHashMap<>();
+		this.file = file;
+		this.capacity = capacity;
+		this.clock = clock;
+
+		try {
+			map(file);
+			replay(true);
+
+			// Only dropped once the whole log is replayed, as a later put may have extended a session
+			long now = clock.millis();
+			sessions.values().removeIf(session -> isExpired(session, now));
+		} catch (IOException e) {
+			throw new UncheckedIOException("Unable to open session file " + file, e);
+		}
+	}
+
+	@Override
+	public Session get(String token) {
+		return token == null ? null : sessions.get(token);
+	}
+
+	@Override
+	public boolean contains(String token) {
+		return token != null && sessions.containsKey(token);
+	}
+
+	@Override
+	public synchronized boolean putIfAbsent(Session session) {
+		if (sessions.containsKey(session.getToken())) {
+			return false;
+		}
+
+		append(PUT, SessionCodec.encode(session));
+		sessions.put(session.getToken(), session);
+
+		return true;
+	}
+
+	@Override
+	public synchronized Session remove(String token) {
+		if (token == null || !sessions.containsKey(token)) {
+			return null;
+		}
+
+		append(REMOVE, token.getBytes(StandardCharsets.UTF_8));
+		return sessions.remove(token);
+	}
+
+	@Override
+	public synchronized boolean remove(Session session) {
+		if (!session.equals(sessions.get(session.getToken()))) {
+			return false;
+		}
+
+		append(REMOVE, session.getToken().getBytes(StandardCharsets.UTF_8));
+		sessions.remove(session.getToken());
+
+		return true;
+	}
+
+	@Override
+	public int size() {
+		return sessions.size();
+	}
+
+	@Override
+	public synchronized void touch(Session session) {
+		// Replaying a second put for the token overwrites the first, so the new expiry survives a restart
+		if (session.equals(sessions.get(session.getToken()))) {
+			append(PUT, SessionCodec.encode(session));
+			sessions.put(session.getToken(), session);
+		}
+	}
+
+	@Override
+	public void forEach(Consumer<? super Session> action) {
+		sessions.values().forEach(action);
+	}
+
+	/**
+	 * Flushes all changes to disk and closes the file
+	 */
+	@Override
+	public synchronized void close() throws IOException {
+		buffer.force();
+		channel.close();
+	}
+
+	private void map(Path path) throws IOException {
+		boolean created = !Files.exists(path) || Files.size(path) == 0;
+
+		channel = FileChannel.open(path, EnumSet.of(StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE), SessionFiles.ownerOnly(path));
+		buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+
+		if (created) {
+			buffer.putInt(0, MAGIC);
+		} else if (buffer.getInt(0) != MAGIC) {
+			throw new IOException(path + " is not a session file");
+		}
+
+		buffer.position(HEADER_SIZE);
+	}
+
+	private void replay(boolean apply) {
+		// A zero length marks the end of the log, the mapped region past the last write is always zeroed
+		while (buffer.remaining() >= RECORD_HEADER_SIZE) {
+			int start = buffer.position();
+			int length = buffer.getInt();
+
+			if (length <= 0 || length > buffer.remaining() - 1) {
+				buffer.position(start);
+				return;
+			}
+
+			byte type = buffer.get();
+
+			if (!apply) {
+				buffer.position(buffer.position() + length);
+			} else if (type == PUT) {
+				byte[] payload = new byte[length];
+				buffer.get(payload);
+
+				Session session = SessionCodec.decode(payload);
+				sessions.put(session.getToken(), session);
+			} else {
+				byte[] payload = new byte[length];
+				buffer.get(payload);
+
+				sessions.remove(new String(payload, StandardCharsets.UTF_8));
+			}
+		}
+	}
+
+	private void append(byte type, byte[] payload) {
+		if (buffer.remaining() < RECORD_HEADER_SIZE + payload.length) {
+			compact();
+
+			if (buffer.remaining() < RECORD_HEADER_SIZE + payload.length) {
+				throw new IllegalStateException("Session file " + file + " is full");
+			}
+		}
+
+		// The length is written last so a record cut short by a crash is never replayed
+		int start = buffer.position();
+		buffer.position(start + RECORD_HEADER_SIZE - 1);
+		buffer.put(type);
+		buffer.put(payload);
+		buffer.putInt(start, payload.length);
+	}
+
+	private static boolean isExpired(Session session, long now) {
+		return session.getAuthentication().getExpiresAt() < now;
+	}
+
+	private void compact() {
+		Path compacted = file.resolveSibling(file.getFileName() + ".compact");
+
+		try {
+			Files.deleteIfExists(compacted);
+
+			try (FileChannel out = FileChannel.open(compacted, EnumSet.of(StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE), SessionFiles.ownerOnly(compacted))) {
+				MappedByteBuffer target = out.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+				target.putInt(MAGIC);
+
+				long now = clock.millis();
+
+				for (Map.Entry<String, Session> entry : sessions.entrySet()) {
+					// Expired sessions are left out of the new file, otherwise they would fill it over a few restarts
+					if (isExpired(entry.getValue(), now)) {
+						sessions.remove(entry.getKey(), entry.getValue());
+						continue;
+					}
+
+					byte[] payload = SessionCodec.encode(entry.getValue());
+
+					if (target.remaining() < RECORD_HEADER_SIZE + payload.length) {
+						throw new IllegalStateException("Session file " + file + " is full");
+					}
+
+					target.putInt(payload.length);
+					target.put(PUT);
+					target.put(payload);
+				}
+
+				target.force();
+			}
+
+			buffer.force();
+			channel.close();
+			Files.move(compacted, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+			map(file);
+			replay(false);
+		} catch (IOException e) {
+			throw new UncheckedIOException("Unable to compact session file " + file, e);
+		}
+	}
+}
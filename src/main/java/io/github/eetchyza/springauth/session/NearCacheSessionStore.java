@@ -0,0 +1,257 @@
+package io.github.eetchyza.springauth.session;
+
+import java.time.Duration;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+
+/**
+ * A session store that keeps recently used sessions on this node in front of a slower one, such as a {@link SharedSessionStore SharedSessionStore},
+ * so most requests are checked without a remote or disk read.
+ * <p>
+ * Removing a session, on logout, refresh or revocation, drops it from this node's cache straight away and is published on an
+ * {@link InvalidationChannel InvalidationChannel} so the other nodes drop it too. If a message is lost another node can keep
+ * accepting the token until it expires from that node's cache, so the ttl is the longest a removed session can still be used.
+ *
+ * @author Dan Williams
+ * @version 1.0.0
+ * @since 2019-08-31
+ */
+public class NearCacheSessionStore implements SessionStore {
+	private static final Duration DEFAULT_TTL = Duration.ofSeconds(5);
+
+	private static final int DEFAULT_MAX_SIZE = 10_000;
+
+	private final SessionStore delegate;
+
+	private final long ttlNanos;
+
+	private final int maxSize;
+
+	private final InvalidationChannel channel;
+
+	private final LongSupplier ticker;
+
+	private final ConcurrentMap<String, Entry> entries;
+
+	private final Queue<Entry> loadOrder;
+
+	private final AtomicInteger loadOrderSize;
+
+	private final AtomicLong invalidations;
+
+	private final LongAdder hits;
+
+	private final LongAdder misses;
+
+	/**
+	 * Caches up to 10,000 sessions for 5 seconds each
+	 *
+	 * @param delegate Store to cache sessions from
+	 * @param channel Channel shared by every node, or null when only this node uses the delegate
+	 */
+	public NearCacheSessionStore(SessionStore delegate, InvalidationChannel channel) {
+		this(delegate, DEFAULT_TTL, DEFAULT_MAX_SIZE, channel);
+	}
+
+	/**
+	 * @param delegate Store to cache sessions from
+	 * @param ttl How long a session is cached for, and so how long a session removed on another node may still be accepted here
+	 * @param maxSize Most sessions cached at once, the longest cached are dropped first
+	 * @param channel Channel shared by every node, or null when only this node uses the delegate
+	 */
+	public NearCacheSessionStore(SessionStore delegate, Duration ttl, int maxSize, InvalidationChannel channel) {
+		this(delegate, ttl, maxSize, channel, System::nanoTime);
+	}
+
+	NearCacheSessionStore(SessionStore delegate, Duration ttl, int maxSize, InvalidationChannel channel, LongSupplier ticker) {
+		this.delegate = delegate;
+		this.ttlNanos = ttl.toNanos();
+		this.maxSize = maxSize;
+		this.channel = channel;
+		this.ticker = ticker;
+		this.entries = new ConcurrentHashMap<>();
+		this.loadOrder = new ConcurrentLinkedQueue<>();
+		this.loadOrderSize = new AtomicInteger();
+		this.invalidations = new AtomicLong();
+		this.hits = new LongAdder();
+		this.misses = new LongAdder();
+
+		if (channel != null) {
+			channel.subscribe(this::invalidate);
+		}
+	}
+
+	@Override
+	public Session get(String token) {
+		if (token == null) {
+			return null;
+		}
+
+		long now = ticker.getAsLong();
+		Entry entry = entries.get(token);
+
+		if (entry != null && now - entry.expiresAt < 0) {
+			hits.increment();
+			return entry.session;
+		}
+
+		misses.increment();
+		long invalidated = invalidations.get();
+		Session session = delegate.get(token);
+
+		// A session read before an invalidation may already have been removed, so is not cached
+		if (session != null && invalidated == invalidations.get()) {
+			cache(new Entry(session, now + ttlNanos));
+		}
+
+		return session;
+	}
+
+	@Override
+	public boolean contains(String token) {
+		return get(token) != null;
+	}
+
+	@Override
+	public boolean putIfAbsent(Session session) {
+		if (!delegate.putIfAbsent(session)) {
+			return false;
+		}
+
+		// A new session is usually used straight away
+		cache(new Entry(session, ticker.getAsLong() + ttlNanos));
+		return true;
+	}
+
+	@Override
+	public Session remove(String token) {
+		Session session = delegate.remove(token);
+
+		if (token != null) {
+			invalidateEverywhere(token);
+		}
+
+		return session;
+	}
+
+	@Override
+	public boolean remove(Session session) {
+		if (!delegate.remove(session)) {
+			// Already removed, possibly by another node whose message has not arrived yet
+			invalidate(session.getToken());
+			return false;
+		}
+
+		invalidateEverywhere(session.getToken());
+		return true;
+	}
+
+	@Override
+	public int size() {
+		return delegate.size();
+	}
+
+	@Override
+	public boolean isShared() {
+		return delegate.isShared();
+	}
+
+	@Override
+	public void touch(Session session) {
+		delegate.touch(session);
+		Entry entry = entries.get(session.getToken());
+
+		// Other nodes keep the old expiry until their entry expires, which is never later than the new one
+		if (entry != null && entry.session != session && entry.session.equals(session)) {
+			cache(new Entry(session, entry.expiresAt));
+		}
+	}
+
+	@Override
+	public void forEach(Consumer<? super Session> action) {
+		delegate.forEach(action);
+	}
+
+	@Override
+	public void setEvictionListener(EvictionListener listener) {
+		delegate.setEvictionListener(listener);
+	}
+
+	/**
+	 * This method is used to drop a token from this node's cache only, it is called for every token published on the channel
+	 *
+	 * @param token Auth token to drop
+	 */
+	public void invalidate(String token) {
+		invalidations.incrementAndGet();
+		entries.remove(token);
+	}
+
+	/**
+	 * @return long Number of lookups answered from the cache
+	 */
+	public long getHitCount() {
+		return hits.sum();
+	}
+
+	/**
+	 * @return long Number of lookups passed on to the delegate
+	 */
+	public long getMissCount() {
+		return misses.sum();
+	}
+
+	/**
+	 * @return int Number of sessions currently cached
+	 */
+	public int getCachedCount() {
+		return entries.size();
+	}
+
+	private void invalidateEverywhere(String token) {
+		// Removed from the delegate first, so a lookup racing with this either sees the invalidation or reads nothing
+		invalidate(token);
+
+		if (channel != null) {
+			channel.publish(token);
+		}
+	}
+
+	private void cache(Entry entry) {
+		entries.put(entry.session.getToken(), entry);
+		loadOrder.add(entry);
+
+		// Every cached entry is in the queue, so trimming the queue to size bounds the cache,
+		// entries that were since replaced or invalidated are simply skipped over
+		if (loadOrderSize.incrementAndGet() > maxSize) {
+			while (loadOrderSize.get() > maxSize) {
+				Entry oldest = loadOrder.poll();
+
+				if (oldest == null) {
+					break;
+				}
+
+				loadOrderSize.decrementAndGet();
+				entries.remove(oldest.session.getToken(), oldest);
+			}
+		}
+	}
+
+	private static final class Entry {
+		private final Session session;
+
+		private final long expiresAt;
+
+		private Entry(Session session, long expiresAt) {
+			this.session = session;
+			this.expiresAt = expiresAt;
+		}
+	}
+}
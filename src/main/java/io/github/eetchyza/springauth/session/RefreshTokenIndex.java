@@ -0,0 +1,472 @@
+package io.github.eetchyza.springauth.session;
+
+import java.io.Closeable;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.ObjLongConsumer;
+
+import io.github.eetchyza.springauth.api.AuthClock;
+import io.github.eetchyza.springauth.clock.MonotonicClock;
+
+/**
+ * Finds sessions by their refresh token, so a session can be refreshed after its auth token has expired and been removed from the session store.
+ * <p>
+ * Every session refreshed from the one created at login belongs to the same family. All of a family's refresh tokens,
+ * including ones that have already been used, point at the family's latest session, which is only ever replaced by compare and swap
+ * so a refresh token can be used once. Only an {@link IndexedSession IndexedSession} is kept of it, never the user's details.
+ * Used refresh tokens are kept until they expire so that using one again can be spotted and the family revoked.
+ * A token used again within a few seconds of its refresh is treated like a refresh that lost the race instead, as clients retry requests.
+ * Expired refresh tokens are swept in the background. Once more families are live than the index is allowed to hold the oldest logins are revoked,
+ * their sessions can then only be refreshed while the session store still holds them.
+ * <p>
+ * Each family is also indexed by its latest session's auth token, so logging out revokes the family even once that session has expired.
+ * Families are also indexed by user id and by role, so all of a user's sessions, or all sessions with a role,
+ * can be revoked in time proportional to the number revoked rather than by looking at every session.
+ *
+ * @author Dan Williams
+ * @version 1.0.0
+ * @since 2019-07-20
+ */
+public class RefreshTokenIndex implements Closeable {
+	public static final Duration DEFAULT_TTL = Duration.ofDays(1);
+
+	public static final Duration DEFAULT_REUSE_LEEWAY = Duration.ofSeconds(5);
+
+	public static final int DEFAULT_MAX_FAMILIES = 1_000_000;
+
+	private static final Duration SWEEP_INTERVAL = Duration.ofMinutes(1);
+
+	private final ConcurrentMap<String, Entry> tokens;
+
+	private final ConcurrentMap<String, Family> authTokens;
+
+	private final ConcurrentMap<Long, Set<Family>> users;
+
+	private final ConcurrentMap<String, Set<Family>> roles;
+
+	private final Queue<Family> loginOrder;
+
+	private final AtomicInteger liveFamilies;
+
+	private final int maxFamilies;
+
+	private final Duration ttl;
+
+	private final long ttlMillis;
+
+	private final long leewayMillis;
+
+	private final AuthClock clock;
+
+	private final ScheduledExecutorService sweeper;
+
+	/**
+	 * Keeps refresh tokens for a day, for up to a million logins
+	 */
+	public RefreshTokenIndex() {
+		this(DEFAULT_TTL, DEFAULT_REUSE_LEEWAY);
+	}
+
+	/**
+	 * @param ttl How long a refresh token can be used for after it is issued, this should be longer than an auth token lasts
+	 */
+	public RefreshTokenIndex(Duration ttl) {
+		this(ttl, DEFAULT_REUSE_LEEWAY);
+	}
+
+	/**
+	 * @param ttl How long a refresh token can be used for after it is issued, this should be longer than an auth token lasts
+	 * @param reuseLeeway How long after its refresh a refresh token can be used again without revoking its family
+	 */
+	public RefreshTokenIndex(Duration ttl, Duration reuseLeeway) {
+		this(ttl, reuseLeeway, DEFAULT_MAX_FAMILIES);
+	}
+
+	/**
+	 * @param ttl How long a refresh token can be used for after it is issued, this should be longer than an auth token lasts
+	 * @param reuseLeeway How long after its refresh a refresh token can be used again without revoking its family
+	 * @param maxFamilies Most logins whose sessions can be refreshed at once, the oldest are revoked to make room
+	 */
+	public RefreshTokenIndex(Duration ttl, Duration reuseLeeway, int maxFamilies) {
+		this(ttl, reuseLeeway, maxFamilies, new MonotonicClock());
+	}
+
+	/**
+	 * @param clock Clock refresh tokens expire by, this should be the one given to {@link io.github.eetchyza.springauth.AuthService#setClock(AuthClock) AuthService#setClock}
+	 */
+	public RefreshTokenIndex(AuthClock clock) {
+		this(DEFAULT_TTL, DEFAULT_REUSE_LEEWAY, DEFAULT_MAX_FAMILIES, clock);
+	}
+
+	/**
+	 * @param ttl How long a refresh token can be used for after it is issued, this should be longer than an auth token lasts
+	 * @param reuseLeeway How long after its refresh a refresh token can be used again without revoking its family
+	 * @param maxFamilies Most logins whose sessions can be refreshed at once, the oldest are revoked to make room
+	 * @param clock Clock refresh tokens expire by, this should be the one given to {@link io.github.eetchyza.springauth.AuthService#setClock(AuthClock) AuthService#setClock}
+	 */
+	public RefreshTokenIndex(Duration ttl, Duration reuseLeeway, int maxFamilies, AuthClock clock) {
+		this(ttl, reuseLeeway, maxFamilies, clock, true);
+	}
+
+	RefreshTokenIndex(Duration ttl, Duration reuseLeeway, int maxFamilies, AuthClock clock, boolean sweep) {
+		if (maxFamilies < 1) {
+			throw new IllegalArgumentException("maxFamilies must be at least 1");
+		}
+
+		this.tokens = new ConcurrentHashMap<>();
+		this.authTokens = new ConcurrentHashMap<>();
+		this.users = new ConcurrentHashMap<>();
+		this.roles = new ConcurrentHashMap<>();
+		this.loginOrder = new ConcurrentLinkedQueue<>();
+		this.liveFamilies = new AtomicInteger();
+		this.maxFamilies = maxFamilies;
+		this.ttl = ttl;
+		this.ttlMillis = ttl.toMillis();
+		this.leewayMillis = reuseLeeway.toMillis();
+		this.clock = clock;
+
+		if (sweep) {
+			long interval = Math.min(SWEEP_INTERVAL.toMillis(), Math.max(ttl.toMillis(), 1));
+			this.sweeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+				Thread thread = new Thread(runnable, "springauth-refresh-sweeper");
+				thread.setDaemon(true);
+				return thread;
+			});
+			this.sweeper.scheduleAtFixedRate(this::sweep, interval, interval, TimeUnit.MILLISECONDS);
+		} else {
+			this.sweeper = null;
+		}
+	}
+
+	/**
+	 * @return {@link Duration Duration} Returns how long a refresh token can be used for after it is issued
+	 */
+	public Duration getTtl() {
+		return ttl;
+	}
+
+	/**
+	 * This method is used to start a new family with a session created at login
+	 *
+	 * @param session Session to index by its refresh token
+	 */
+	public void add(Session session) {
+		add(session, ttlMillis);
+	}
+
+	void add(Session session, long remainingMillis) {
+		String refreshToken = session.getAuthentication().getRefreshToken();
+
+		if (refreshToken != null) {
+			// Indexed before it can be found by its token, so a family is never revoked before it is indexed
+			Family family = new Family(IndexedSession.of(session, null));
+			track(family);
+			authTokens.put(session.getToken(), family);
+			tokens.put(refreshToken, new Entry(family, clock.millis() + remainingMillis));
+
+			loginOrder.add(family);
+			if (liveFamilies.incrementAndGet() > maxFamilies) {
+				revokeOldest();
+			}
+		}
+	}
+
+	void forEachLatest(ObjLongConsumer<IndexedSession> action) {
+		long now = clock.millis();
+
+		tokens.forEach((refreshToken, entry) -> {
+			IndexedSession session = entry.family.get();
+
+			if (session != null && entry.deadline - now > 0 && session.isRefreshToken(refreshToken)) {
+				action.accept(session, entry.deadline - now);
+			}
+		});
+	}
+
+	/**
+	 * This method is used to find the latest session in the family a refresh token belongs to.
+	 * When the session's own refresh token is not the one given, the given token has already been used
+	 *
+	 * @param refreshToken Users refresh token
+	 * @return {@link IndexedSession IndexedSession} Returns the latest session, or null if the token is unknown, expired, was used within the leeway or its family has been revoked
+	 */
+	public IndexedSession get(String refreshToken) {
+		Entry entry = refreshToken == null ? null : tokens.get(refreshToken);
+
+		if (entry == null) {
+			return null;
+		}
+
+		long now = clock.millis();
+
+		if (entry.deadline - now <= 0) {
+			expire(refreshToken, entry);
+			return null;
+		}
+
+		IndexedSession session = entry.family.get();
+
+		if (session != null && !session.isRefreshToken(refreshToken) && now - entry.rotatedAt < leewayMillis) {
+			return null;
+		}
+
+		return session;
+	}
+
+	/**
+	 * This method is used to check whether a refresh token was issued by this index, including ones already used or revoked that have not been swept yet
+	 *
+	 * @param refreshToken Users refresh token
+	 * @return boolean Returns true if the token is held by this index
+	 */
+	public boolean contains(String refreshToken) {
+		return refreshToken != null && tokens.containsKey(refreshToken);
+	}
+
+	/**
+	 * This method is used to rotate a family to a refreshed session, only one replacement for a session can ever succeed
+	 *
+	 * @param session The family's latest session, as returned by {@link #get(String) get}
+	 * @param replacement Session refreshed from it
+	 * @return boolean Returns true if the replacement is now the family's latest session
+	 */
+	public boolean replace(IndexedSession session, Session replacement) {
+		Entry entry = tokens.get(session.getRefreshToken());
+
+		if (entry == null) {
+			return false;
+		}
+
+		long now = clock.millis();
+		// Set before the swap, so anyone who sees the replacement also sees when the token was used
+		entry.rotatedAt = now;
+
+		if (!entry.family.compareAndSet(session, IndexedSession.of(replacement, session))) {
+			return false;
+		}
+
+		tokens.put(replacement.getAuthentication().getRefreshToken(), new Entry(entry.family, now + ttlMillis));
+		authTokens.put(replacement.getToken(), entry.family);
+		authTokens.remove(session.getToken(), entry.family);
+		return true;
+	}
+
+	/**
+	 * This method is used to revoke the family a refresh token belongs to, none of its refresh tokens can be used again
+	 *
+	 * @param refreshToken Any refresh token in the family
+	 * @return {@link IndexedSession IndexedSession} Returns the family's latest session, or null if it was already revoked
+	 */
+	public IndexedSession revoke(String refreshToken) {
+		Entry entry = refreshToken == null ? null : tokens.remove(refreshToken);
+		return entry == null ? null : revoke(entry.family);
+	}
+
+	/**
+	 * This method is used to revoke the family whose latest session has the given auth token, for logging out once that session has left the session store
+	 *
+	 * @param token Auth token of the family's latest session
+	 * @return {@link IndexedSession IndexedSession} Returns the family's latest session, or null if there is none or it was already revoked
+	 */
+	public IndexedSession revokeByAuthToken(String token) {
+		Family family = token == null ? null : authTokens.remove(token);
+		IndexedSession session = family == null ? null : family.get();
+
+		// Only the latest session's token may revoke it, an older token was given up on refresh
+		return session != null && token.equals(session.getToken()) ? revoke(family) : null;
+	}
+
+	/**
+	 * This method is used to revoke every family issued to a user
+	 *
+	 * @param userId Id of the user
+	 * @return {@link List List} Returns the latest session of each family revoked
+	 */
+	public List<IndexedSession> revokeAllForUser(long userId) {
+		return revokeAll(users.remove(userId));
+	}
+
+	/**
+	 * This method is used to revoke every family issued with a role
+	 *
+	 * @param role Name of the role
+	 * @return {@link List List} Returns the latest session of each family revoked
+	 */
+	public List<IndexedSession> revokeAllWithRole(String role) {
+		return revokeAll(role == null ? null : roles.remove(role));
+	}
+
+	/**
+	 * @return int The number of refresh tokens held, including used ones that have not expired yet
+	 */
+	public int size() {
+		return tokens.size();
+	}
+
+	/**
+	 * @return int The number of logins whose sessions can still be refreshed
+	 */
+	public int getFamilyCount() {
+		return liveFamilies.get();
+	}
+
+	/**
+	 * Stops sweeping expired refresh tokens
+	 */
+	@Override
+	public void close() {
+		if (sweeper != null) {
+			sweeper.shutdownNow();
+		}
+	}
+
+	void sweep() {
+		long now = clock.millis();
+
+		tokens.forEach((refreshToken, entry) -> {
+			if (entry.deadline - now <= 0) {
+				expire(refreshToken, entry);
+			} else if (entry.family.get() == null) {
+				tokens.remove(refreshToken, entry);
+			}
+		});
+
+		authTokens.forEach((token, family) -> {
+			IndexedSession session = family.get();
+
+			if (session == null || !token.equals(session.getToken())) {
+				authTokens.remove(token, family);
+			}
+		});
+
+		loginOrder.removeIf(family -> family.get() == null);
+	}
+
+	private void expire(String refreshToken, Entry entry) {
+		if (!tokens.remove(refreshToken, entry)) {
+			return;
+		}
+
+		IndexedSession session = entry.family.get();
+
+		// Once the latest refresh token expires nothing in the family can be refreshed
+		if (session != null && session.isRefreshToken(refreshToken) && entry.family.compareAndSet(session, null)) {
+			untrack(entry.family);
+			authTokens.remove(session.getToken(), entry.family);
+			liveFamilies.decrementAndGet();
+		}
+	}
+
+	private void revokeOldest() {
+		// Families revoked or expired since they were added are skipped, they no longer count as live
+		while (liveFamilies.get() > maxFamilies) {
+			Family oldest = loginOrder.poll();
+
+			if (oldest == null) {
+				return;
+			}
+
+			revoke(oldest);
+		}
+	}
+
+	private List<IndexedSession> revokeAll(Set<Family> families) {
+		if (families == null) {
+			return Collections.emptyList();
+		}
+
+		List<IndexedSession> revoked = new ArrayList<>(families.size());
+
+		for (Family family : families) {
+			IndexedSession session = revoke(family);
+
+			if (session != null) {
+				revoked.add(session);
+			}
+		}
+
+		return revoked;
+	}
+
+	private IndexedSession revoke(Family family) {
+		IndexedSession session = family.getAndSet(null);
+
+		if (session != null) {
+			untrack(family);
+			authTokens.remove(session.getToken(), family);
+			liveFamilies.decrementAndGet();
+		}
+
+		return session;
+	}
+
+	private void track(Family family) {
+		add(users, family.userId, family);
+
+		for (String role : family.roles) {
+			add(roles, role, family);
+		}
+	}
+
+	private void untrack(Family family) {
+		remove(users, family.userId, family);
+
+		for (String role : family.roles) {
+			remove(roles, role, family);
+		}
+	}
+
+	private static <K> void add(ConcurrentMap<K, Set<Family>> index, K key, Family family) {
+		// Both run under the lock on the key's bin, so a family is never added to a set that has just been dropped
+		index.compute(key, (k, families) -> {
+			Set<Family> set = families == null ? ConcurrentHashMap.newKeySet() : families;
+			set.add(family);
+			return set;
+		});
+	}
+
+	private static <K> void remove(ConcurrentMap<K, Set<Family>> index, K key, Family family) {
+		index.computeIfPresent(key, (k, families) -> families.remove(family) && families.isEmpty() ? null : families);
+	}
+
+	/**
+	 * Every session refreshed from one login, holds the latest of them or null once the family is revoked
+	 */
+	private static final class Family extends AtomicReference<IndexedSession> {
+		private final long userId;
+
+		// The roles given at login, a refresh can not move the family to other role sets
+		private final String[] roles;
+
+		private Family(IndexedSession session) {
+			super(session);
+			this.userId = session.getUserId();
+			this.roles = session.roleNames();
+		}
+	}
+
+	private static final class Entry {
+		private final Family family;
+
+		private final long deadline;
+
+		private volatile long rotatedAt;
+
+		private Entry(Family family, long deadline) {
+			this.family = family;
+			this.deadline = deadline;
+		}
+	}
+}
@@ -0,0 +1,38 @@
+package io.github.eetchyza.springauth.session;
+
+import io.github.eetchyza.springauth.api.GrantedAuthority;
+
+/**
+ * A role of a session read back from a store or a {@link SessionSnapshot SessionSnapshot}, only its name is kept
+ *
+ * @author Dan Williams
+ * @version 1.0.0
+ * @since 2019-07-27
+ */
+public final class RestoredAuthority implements GrantedAuthority {
+	private final String authority;
+
+	RestoredAuthority(String authority) {
+		this.authority = authority;
+	}
+
+	@Override
+	public String getAuthority() {
+		return authority;
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		return o instanceof RestoredAuthority && authority.equals(((RestoredAuthority) o).authority);
+	}
+
+	@Override
+	public int hashCode() {
+		return authority.hashCode();
+	}
+
+	@Override
+	public String toString() {
+		return authority;
+	}
+}
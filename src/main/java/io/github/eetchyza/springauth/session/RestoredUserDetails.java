@@ -0,0 +1,67 @@
+package io.github.eetchyza.springauth.session;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Objects;
+
+import io.github.eetchyza.springauth.api.GrantedAuthority;
+import io.github.eetchyza.springauth.api.UserDetails;
+
+/**
+ * The user a session read back from a {@link SessionSnapshot SessionSnapshot}, a {@link MappedFileSessionStore MappedFileSessionStore}
+ * or a {@link SharedSessionStore SharedSessionStore} was issued to, only the details kept with the session are known so there is no password
+ *
+ * @author Dan Williams
+ * @version 1.0.0
+ * @since 2019-07-27
+ */
+public final class RestoredUserDetails implements UserDetails {
+	private final long id;
+
+	private final String username;
+
+	private final Collection<? extends GrantedAuthority> authorities;
+
+	private final LocalDateTime expires;
+
+	RestoredUserDetails(long id, String username, Collection<? extends GrantedAuthority> authorities, LocalDateTime expires) {
+		this.id = id;
+		this.username = username;
+		this.authorities = authorities;
+		this.expires = expires;
+	}
+
+	boolean isSame(String username, Collection<? extends GrantedAuthority> authorities, LocalDateTime expires) {
+		return this.username.equals(username) && this.authorities == authorities && Objects.equals(this.expires, expires);
+	}
+
+	@Override
+	public long getId() {
+		return id;
+	}
+
+	@Override
+	public Collection<? extends GrantedAuthority> getAuthorities() {
+		return authorities;
+	}
+
+	@Override
+	public String getPassword() {
+		return null;
+	}
+
+	@Override
+	public String getUsername() {
+		return username;
+	}
+
+	@Override
+	public boolean isTemporaryPassword() {
+		return expires != null;
+	}
+
+	@Override
+	public LocalDateTime getExpires() {
+		return expires;
+	}
+}
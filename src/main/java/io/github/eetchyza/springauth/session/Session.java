@@ -0,0 +1,72 @@
+package io.github.eetchyza.springauth.session;
+
+import io.github.eetchyza.springauth.Authentication;
+import io.github.eetchyza.springauth.api.UserDetails;
+
+/**
+ * Holds the authentication details and the user they were issued to
+ *
+ * @author Dan Williams
+ * @version 1.0.0
+ * @since 2019-04-20
+ */
+public final class Session {
+	private final Authentication authentication;
+
+	// Only ever changed from a RestoredUserDetails to the user's own details, so every request after the first sees them
+	private volatile UserDetails userDetails;
+
+	public Session(Authentication authentication, UserDetails userDetails) {
+		this.authentication = authentication;
+		this.userDetails = userDetails;
+	}
+
+	public String getToken() {
+		return authentication.getAuthenticationToken();
+	}
+
+	public Authentication getAuthentication() {
+		return authentication;
+	}
+
+	public UserDetails getUserDetails() {
+		return userDetails;
+	}
+
+	/**
+	 * This method is used to swap the {@link RestoredUserDetails RestoredUserDetails} of a session read back from a store or snapshot
+	 * for the user's own details once they have been loaded again
+	 *
+	 * @param userDetails The same user loaded from the {@link io.github.eetchyza.springauth.api.UserDetailsService UserDetailsService}
+	 * @return boolean Returns true if the session held restored details of the same user and now holds these instead
+	 */
+	public boolean restoreUserDetails(UserDetails userDetails) {
+		UserDetails current = this.userDetails;
+
+		if (!(current instanceof RestoredUserDetails) || userDetails == null || userDetails.getId() != current.getId()) {
+			return false;
+		}
+
+		this.userDetails = userDetails;
+		return true;
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (this == o) {
+			return true;
+		}
+
+		if (!(o instanceof Session)) {
+			return false;
+		}
+
+		Session other = (Session) o;
+		return getToken().equals(other.getToken()) && authentication.isRefreshToken(other.authentication.getRefreshToken());
+	}
+
+	@Override
+	public int hashCode() {
+		return getToken().hashCode();
+	}
+}
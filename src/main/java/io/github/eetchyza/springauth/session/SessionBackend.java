@@ -0,0 +1,62 @@
+package io.github.eetchyza.springauth.session;
+
+import java.util.Map;
+
+/**
+ * A shared key value store, such as redis or memcached, that sessions can be kept in
+ * so that every node behind a load balancer sees the same sessions.
+ * Implementations must be thread safe.
+ *
+ * @author Dan Williams
+ * @version 1.0.0
+ * @since 2019-04-20
+ * @see SharedSessionStore
+ */
+public interface SessionBackend {
+
+	/**
+	 * @param key Key to look up
+	 * @return byte[] The stored value or null if there is none
+	 */
+	byte[] get(String key);
+
+	/**
+	 * This method is used to store a value unless the key is already in use (SET NX)
+	 *
+	 * @param key Key to store against
+	 * @param value Value to store
+	 * @param ttlMillis Time in milliseconds after which the backend may drop the value
+	 * @return boolean Returns true if the value was stored
+	 */
+	boolean putIfAbsent(String key, byte[] value, long ttlMillis);
+
+	/**
+	 * @param key Key to remove
+	 * @return byte[] The removed value or null if there was none
+	 */
+	byte[] remove(String key);
+
+	/**
+	 * This method is used to remove a value only if it still equals the expected value (compare and delete)
+	 *
+	 * @param key Key to remove
+	 * @param expected Value expected to be stored
+	 * @return boolean Returns true if the value was removed
+	 */
+	boolean remove(String key, byte[] expected);
+
+	/**
+	 * @return int The number of stored values
+	 */
+	int size();
+
+	/**
+	 * This method is used to overwrite values whose keys are still in use (SET XX), keys removed in the meantime must stay removed.
+	 * Values should be sent together, in a pipeline or a single command, as this is called with every session touched since the last call.
+	 * Only called when sliding expiry is on
+	 *
+	 * @param values Values to store by key
+	 * @param ttlMillis Time in milliseconds after which the backend may drop the values
+	 */
+	void replaceAll(Map<String, byte[]> values, long ttlMillis);
+}
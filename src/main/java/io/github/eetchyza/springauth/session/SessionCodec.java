@@ -0,0 +1,164 @@
+package io.github.eetchyza.springauth.session;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import io.github.eetchyza.springauth.Authentication;
+import io.github.eetchyza.springauth.api.GrantedAuthority;
+import io.github.eetchyza.springauth.api.UserDetails;
+
+/**
+ * Converts sessions to and from bytes for stores that keep them off the heap.
+ * <p>
+ * Each field is written explicitly rather than with Java serialization, so reading a session back can never create any other class.
+ * Like a {@link SessionSnapshot SessionSnapshot} only the user's id, username, roles and password expiry are kept,
+ * so decoded sessions hold a {@link RestoredUserDetails RestoredUserDetails} and the password hash is never written
+ *
+ * @author Dan Williams
+ * @version 1.0.0
+ * @since 2019-04-20
+ */
+final class SessionCodec {
+	private static final byte VERSION = 1;
+
+	private static final byte TEMPORARY_PASSWORD = 1;
+
+	private SessionCodec() {
+		throw new IllegalStateException("Session codec can not be initialised");
+	}
+
+	static byte[] encode(Session session) {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+		Authentication authentication = session.getAuthentication();
+		UserDetails user = session.getUserDetails();
+		LocalDateTime passwordExpires = user.isTemporaryPassword() ? user.getExpires() : null;
+
+		try (DataOutputStream out = new DataOutputStream(bytes)) {
+			out.writeByte(VERSION);
+			writeString(out, authentication.getAuthenticationToken());
+			writeString(out, authentication.getRefreshToken());
+			out.writeLong(authentication.getExpiresAt());
+			out.writeLong(authentication.getMaxExpiresAt());
+			out.writeLong(authentication.getId());
+			writeString(out, authentication.getUsername());
+			writeString(out, user.getUsername());
+			writeRoles(out, user.getAuthorities());
+			out.writeByte(passwordExpires != null ? TEMPORARY_PASSWORD : 0);
+
+			if (passwordExpires != null) {
+				out.writeLong(passwordExpires.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli());
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException("Unable to encode session", e);
+		}
+
+		return bytes.toByteArray();
+	}
+
+	static Session decode(byte[] bytes) {
+		return decode(bytes, 0, bytes.length);
+	}
+
+	static Session decode(byte[] bytes, int offset, int length) {
+		try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes, offset, length))) {
+			byte version = in.readByte();
+
+			if (version != VERSION) {
+				throw new IllegalStateException("Unable to decode session written in format " + version);
+			}
+
+			String token = readString(in);
+			String refreshToken = readString(in);
+			long expiresAt = in.readLong();
+			long maxExpiresAt = in.readLong();
+			long id = in.readLong();
+			String username = readString(in);
+			String userUsername = readString(in);
+			List<GrantedAuthority> roles = readRoles(in);
+			LocalDateTime passwordExpires = in.readByte() == TEMPORARY_PASSWORD
+					? LocalDateTime.ofInstant(Instant.ofEpochMilli(in.readLong()), ZoneId.systemDefault()) : null;
+
+			Authentication authentication = new Authentication(token, refreshToken, expiresAt, maxExpiresAt, roles, username, id);
+			return new Session(authentication, new RestoredUserDetails(id, userUsername, roles, passwordExpires));
+		} catch (IOException e) {
+			throw new UncheckedIOException("Unable to decode session", e);
+		}
+	}
+
+	private static void writeRoles(DataOutputStream out, Collection<? extends GrantedAuthority> authorities) throws IOException {
+		List<String> names = new ArrayList<>();
+
+		if (authorities != null) {
+			for (GrantedAuthority authority : authorities) {
+				if (authority != null && authority.getAuthority() != null) {
+					names.add(authority.getAuthority());
+				}
+			}
+		}
+
+		out.writeInt(names.size());
+		for (String name : names) {
+			writeString(out, name);
+		}
+	}
+
+	private static List<GrantedAuthority> readRoles(DataInputStream in) throws IOException {
+		int count = readLength(in);
+		List<GrantedAuthority> roles = new ArrayList<>(count);
+
+		for (int i = 0; i < count; i++) {
+			roles.add(new RestoredAuthority(readString(in)));
+		}
+
+		return Collections.unmodifiableList(roles);
+	}
+
+	private static void writeString(DataOutputStream out, String value) throws IOException {
+		if (value == null) {
+			out.writeInt(-1);
+			return;
+		}
+
+		byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	private static String readString(DataInputStream in) throws IOException {
+		int length = in.readInt();
+
+		if (length == -1) {
+			return null;
+		}
+
+		byte[] bytes = new byte[checkLength(in, length)];
+		in.readFully(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	private static int readLength(DataInputStream in) throws IOException {
+		return checkLength(in, in.readInt());
+	}
+
+	private static int checkLength(DataInputStream in, int length) throws IOException {
+		// A corrupt length fails here rather than allocating a huge array, the stream is in memory so available is exact
+		if (length < 0 || length > in.available()) {
+			throw new EOFException("Length " + length + " is past the end of the session");
+		}
+
+		return length;
+	}
+}
@@ -0,0 +1,31 @@
+package io.github.eetchyza.springauth.session;
+
+import java.nio.file.Path;
+import java.nio.file.attribute.FileAttribute;
+import java.nio.file.attribute.PosixFilePermissions;
+
+/**
+ * Creates files that hold sessions, which carry live auth and refresh tokens, readable and writable only by their owner
+ * on file systems with POSIX permissions. Elsewhere the file inherits its directory's permissions, which should be locked down instead.
+ *
+ * @author Dan Williams
+ * @version 1.0.0
+ * @since 2019-09-21
+ */
+final class SessionFiles {
+	private static final FileAttribute<?>[] OWNER_ONLY = { PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rw-------")) };
+
+	private static final FileAttribute<?>[] NONE = new FileAttribute<?>[0];
+
+	private SessionFiles() {
+		throw new IllegalStateException("Session files can not be initialised");
+	}
+
+	/**
+	 * @param path File about to be created
+	 * @return FileAttribute[] Returns the attributes to create it with, only its owner may read or write it where the file system allows
+	 */
+	static FileAttribute<?>[] ownerOnly(Path path) {
+		return path.getFileSystem().supportedFileAttributeViews().contains("posix") ? OWNER_ONLY : NONE;
+	}
+}
@@ -0,0 +1,420 @@
+package io.github.eetchyza.springauth.session;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import io.github.eetchyza.springauth.Authentication;
+import io.github.eetchyza.springauth.api.AuthClock;
+import io.github.eetchyza.springauth.clock.MonotonicClock;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Writes the sessions in a {@link RefreshTokenIndex RefreshTokenIndex} to a file and reads them back,
+ * so restarting a node does not log out everyone it has issued sessions to.
+ * <p>
+ * Only what is needed to authorise requests and refresh sessions is kept: both tokens, both expiry times and how far sliding expiry
+ * can extend the auth token, the user's id and username, their roles and when their password expires if it is temporary.
+ * Role names, and each distinct set of roles, are written once
+ * and referred to by number. The snapshot is written to a temporary file that then replaces the last one,
+ * and read back through a memory mapped buffer skipping sessions whose refresh token has expired.
+ * Sessions read back have {@link RestoredUserDetails RestoredUserDetails} rather than the user's own details.
+ * <p>
+ * The snapshot holds every live auth and refresh token, anyone who can read it can use them. It is created readable and writable
+ * only by its owner where the file system has POSIX permissions, keep it in a directory only the application can read elsewhere.
+ *
+ * @author Dan Williams
+ * @version 1.0.0
+ * @since 2019-07-27
+ */
+public class SessionSnapshot implements Closeable {
+	private static final Logger logger = LoggerFactory.getLogger(SessionSnapshot.class);
+
+	public static final Duration DEFAULT_INTERVAL = Duration.ofMinutes(5);
+
+	private static final int MAGIC = 0x53415353;
+
+	private static final int VERSION = 2;
+
+	private static final byte TEMPORARY_PASSWORD = 1;
+
+	private final Path file;
+
+	private final Duration interval;
+
+	private final AuthClock clock;
+
+	private ScheduledExecutorService writer;
+
+	/**
+	 * Writes the snapshot every 5 minutes as well as on shutdown
+	 *
+	 * @param file File to keep the snapshot in
+	 */
+	public SessionSnapshot(Path file) {
+		this(file, DEFAULT_INTERVAL);
+	}
+
+	/**
+	 * @param file File to keep the snapshot in
+	 * @param interval How often to write the snapshot while running, zero to only write it on shutdown
+	 */
+	public SessionSnapshot(Path file, Duration interval) {
+		this(file, interval, new MonotonicClock());
+	}
+
+	/**
+	 * @param file File to keep the snapshot in
+	 * @param interval How often to write the snapshot while running, zero to only write it on shutdown
+	 * @param clock Clock expiry times are written and checked by, this should be the one given to {@link io.github.eetchyza.springauth.AuthService#setClock(AuthClock) AuthService#setClock}
+	 */
+	public SessionSnapshot(Path file, Duration interval, AuthClock clock) {
+		this.file = file;
+		this.interval = interval;
+		this.clock = clock;
+	}
+
+	/**
+	 * This method is used to write a snapshot every interval until closed
+	 *
+	 * @param refreshTokens Index to write the sessions of
+	 */
+	public synchronized void schedule(RefreshTokenIndex refreshTokens) {
+		if (writer != null || interval.isZero() || interval.isNegative()) {
+			return;
+		}
+
+		writer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "springauth-session-snapshot");
+			thread.setDaemon(true);
+			return thread;
+		});
+		writer.scheduleWithFixedDelay(() -> {
+			try {
+				save(refreshTokens);
+			} catch (RuntimeException e) {
+				// The last snapshot is left in place, the next attempt may succeed
+				logger.warn("Unable to write session snapshot {}", file, e);
+			}
+		}, interval.toMillis(), interval.toMillis(), TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Stops writing the snapshot every interval
+	 */
+	@Override
+	public synchronized void close() {
+		if (writer != null) {
+			writer.shutdownNow();
+			writer = null;
+		}
+	}
+
+	/**
+	 * This method is used to write the latest session of every family in the index, replacing the last snapshot
+	 *
+	 * @param refreshTokens Index to write the sessions of
+	 * @return int Returns the number of sessions written
+	 */
+	public int save(RefreshTokenIndex refreshTokens) {
+		List<IndexedSession> sessions = new ArrayList<>();
+		List<Long> remaining = new ArrayList<>();
+		refreshTokens.forEachLatest((session, millis) -> {
+			sessions.add(session);
+			remaining.add(millis);
+		});
+
+		Map<String, Integer> roleIds = new HashMap<>();
+		Map<List<Integer>, Integer> roleSetIds = new HashMap<>();
+		// Every session in a family shares its role names, so each array only needs to be looked at once
+		Map<String[], Integer> seen = new IdentityHashMap<>();
+		int[] roleSets = new int[sessions.size()];
+
+		for (int i = 0; i < sessions.size(); i++) {
+			String[] names = sessions.get(i).roleNames();
+			Integer roleSetId = seen.get(names);
+
+			if (roleSetId == null) {
+				List<Integer> roleSet = new ArrayList<>(names.length);
+
+				for (String role : names) {
+					roleSet.add(roleIds.computeIfAbsent(role, name -> roleIds.size()));
+				}
+
+				roleSetId = roleSetIds.computeIfAbsent(roleSet, ids -> roleSetIds.size());
+				seen.put(names, roleSetId);
+			}
+
+			roleSets[i] = roleSetId;
+		}
+
+		synchronized (this) {
+			Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+			ZoneId zone = ZoneId.systemDefault();
+			long now = clock.millis();
+
+			try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(createOwnerOnly(temporary)), 1 << 16))) {
+				out.writeInt(MAGIC);
+				out.writeInt(VERSION);
+
+				String[] roles = new String[roleIds.size()];
+				roleIds.forEach((role, id) -> roles[id] = role);
+				writeVarInt(out, roles.length);
+				for (String role : roles) {
+					writeString(out, role);
+				}
+
+				List<List<Integer>> sets = byId(roleSetIds);
+				writeVarInt(out, sets.size());
+				for (List<Integer> set : sets) {
+					writeVarInt(out, set.size());
+					for (int role : set) {
+						writeVarInt(out, role);
+					}
+				}
+
+				writeVarInt(out, sessions.size());
+				for (int i = 0; i < sessions.size(); i++) {
+					IndexedSession session = sessions.get(i);
+					LocalDateTime passwordExpires = session.getPasswordExpires();
+
+					writeString(out, session.getToken());
+					writeString(out, session.getRefreshToken());
+					out.writeLong(session.getExpiresAt());
+					out.writeLong(session.getMaxExpiresAt());
+					out.writeLong(now + remaining.get(i));
+					out.writeLong(session.getUserId());
+					writeString(out, session.getUsername());
+					writeVarInt(out, roleSets[i]);
+					out.writeByte(passwordExpires != null ? TEMPORARY_PASSWORD : 0);
+
+					if (passwordExpires != null) {
+						out.writeLong(toMillis(passwordExpires, zone));
+					}
+				}
+			} catch (IOException e) {
+				throw new UncheckedIOException("Unable to write session snapshot " + file, e);
+			}
+
+			try {
+				Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			} catch (IOException e) {
+				throw new UncheckedIOException("Unable to replace session snapshot " + file, e);
+			}
+		}
+
+		return sessions.size();
+	}
+
+	/**
+	 * This method is used to read the last snapshot back. Sessions whose refresh token has expired are skipped,
+	 * sessions whose auth token has expired are only added to the index so they can still be refreshed
+	 *
+	 * @param sessionStore Store to add sessions to
+	 * @param refreshTokens Index to add sessions to
+	 * @return int Returns the number of sessions read, 0 if there is no snapshot or it can not be read
+	 */
+	public synchronized int load(SessionStore sessionStore, RefreshTokenIndex refreshTokens) {
+		MappedByteBuffer buffer;
+
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			if (channel.size() > Integer.MAX_VALUE) {
+				logger.warn("Session snapshot {} is too large to read", file);
+				return 0;
+			}
+
+			buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		} catch (NoSuchFileException e) {
+			return 0;
+		} catch (IOException e) {
+			throw new UncheckedIOException("Unable to read session snapshot " + file, e);
+		}
+
+		try {
+			return load(new Reader(buffer), sessionStore, refreshTokens);
+		} catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException e) {
+			// A snapshot that can not be read costs users a login, it must not stop the application starting
+			logger.warn("Session snapshot {} is corrupt, no sessions were restored from it", file);
+			return 0;
+		}
+	}
+
+	private int load(Reader in, SessionStore sessionStore, RefreshTokenIndex refreshTokens) {
+		if (in.buffer.remaining() < 8 || in.buffer.getInt() != MAGIC || in.buffer.getInt() != VERSION) {
+			throw new IllegalArgumentException("Not a session snapshot");
+		}
+
+		RestoredAuthority[] roles = new RestoredAuthority[in.readCount()];
+		for (int i = 0; i < roles.length; i++) {
+			roles[i] = new RestoredAuthority(in.readString());
+		}
+
+		int roleSetCount = in.readCount();
+		List<List<RestoredAuthority>> roleSets = new ArrayList<>(roleSetCount);
+		for (int i = 0; i < roleSetCount; i++) {
+			RestoredAuthority[] set = new RestoredAuthority[in.readCount()];
+			for (int j = 0; j < set.length; j++) {
+				set[j] = roles[in.readVarInt()];
+			}
+			// Shared by every session with the same roles
+			roleSets.add(Collections.unmodifiableList(Arrays.asList(set)));
+		}
+
+		int count = in.readCount();
+		int restored = 0;
+		ZoneId zone = ZoneId.systemDefault();
+		long now = clock.millis();
+		// One user for all of a user's sessions, rather than one per session
+		Map<Long, RestoredUserDetails> users = new HashMap<>();
+
+		for (int i = 0; i < count; i++) {
+			String token = in.readString();
+			String refreshToken = in.readString();
+			long expire = in.buffer.getLong();
+			long maxExpire = in.buffer.getLong();
+			long refreshExpire = in.buffer.getLong();
+			long id = in.buffer.getLong();
+			String username = in.readString();
+			List<RestoredAuthority> authorities = roleSets.get(in.readVarInt());
+			LocalDateTime passwordExpires = in.buffer.get() == TEMPORARY_PASSWORD ? toLocalDateTime(in.buffer.getLong(), zone) : null;
+
+			if (refreshExpire <= now) {
+				continue;
+			}
+
+			RestoredUserDetails user = users.get(id);
+
+			if (user == null || !user.isSame(username, authorities, passwordExpires)) {
+				user = new RestoredUserDetails(id, username, authorities, passwordExpires);
+				users.put(id, user);
+			}
+
+			Session session = new Session(new Authentication(token, refreshToken, expire, maxExpire, authorities, user.getUsername(), id), user);
+
+			// A store that keeps sessions itself may already hold it
+			if (expire > now) {
+				sessionStore.putIfAbsent(session);
+			}
+
+			refreshTokens.add(session, refreshExpire - now);
+			restored++;
+		}
+
+		return restored;
+	}
+
+	private static List<List<Integer>> byId(Map<List<Integer>, Integer> roleSetIds) {
+		List<List<Integer>> sets = new ArrayList<>(Collections.nCopies(roleSetIds.size(), null));
+		roleSetIds.forEach((set, id) -> sets.set(id, set));
+		return sets;
+	}
+
+	private static void writeString(DataOutputStream out, String value) throws IOException {
+		byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+		writeVarInt(out, bytes.length);
+		out.write(bytes);
+	}
+
+	private static Path createOwnerOnly(Path path) throws IOException {
+		// A temporary file left by an earlier failed write may have been created with other permissions
+		Files.deleteIfExists(path);
+		return Files.createFile(path, SessionFiles.ownerOnly(path));
+	}
+
+	private static void writeVarInt(DataOutputStream out, int value) throws IOException {
+		while ((value & ~0x7f) != 0) {
+			out.writeByte((value & 0x7f) | 0x80);
+			value >>>= 7;
+		}
+		out.writeByte(value);
+	}
+
+	private static long toMillis(LocalDateTime time, ZoneId zone) {
+		return time.atZone(zone).toInstant().toEpochMilli();
+	}
+
+	private static LocalDateTime toLocalDateTime(long millis, ZoneId zone) {
+		return LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), zone);
+	}
+
+	private static final class Reader {
+		private final MappedByteBuffer buffer;
+
+		private byte[] scratch = new byte[64];
+
+		private Reader(MappedByteBuffer buffer) {
+			this.buffer = buffer;
+		}
+
+		private int readVarInt() {
+			int value = 0;
+
+			for (int shift = 0; shift < 32; shift += 7) {
+				byte b = buffer.get();
+				value |= (b & 0x7f) << shift;
+
+				if (b >= 0) {
+					if (value < 0) {
+						throw new IllegalArgumentException("Negative length");
+					}
+
+					return value;
+				}
+			}
+
+			throw new IllegalArgumentException("Malformed number");
+		}
+
+		private int readCount() {
+			int count = readVarInt();
+
+			// Every item takes at least a byte, so a corrupt count fails here rather than allocating a huge array
+			if (count > buffer.remaining()) {
+				throw new BufferUnderflowException();
+			}
+
+			return count;
+		}
+
+		private String readString() {
+			int length = readVarInt();
+
+			if (length > buffer.remaining()) {
+				throw new BufferUnderflowException();
+			}
+
+			if (length > scratch.length) {
+				scratch = new byte[Math.max(length, scratch.length * 2)];
+			}
+
+			buffer.get(scratch, 0, length);
+			return new String(scratch, 0, length, StandardCharsets.UTF_8);
+		}
+	}
+}
@@ -0,0 +1,99 @@
+package io.github.eetchyza.springauth.session;
+
+import java.util.function.Consumer;
+
+/**
+ * Stores sessions keyed by authentication token.
+ * Implementations must be thread safe, as they are called from every request thread.
+ *
+ * @author Dan Williams
+ * @version 1.0.0
+ * @since 2019-04-20
+ */
+public interface SessionStore {
+
+	/**
+	 * This method is used to look up a session
+	 *
+	 * @param token Users auth token
+	 * @return {@link Session Session} The stored session or null if there is none
+	 */
+	Session get(String token);
+
+	/**
+	 * This method is used to check if a token is already in use
+	 *
+	 * @param token Users auth token
+	 * @return boolean Returns true if a session is stored against the token
+	 */
+	boolean contains(String token);
+
+	/**
+	 * This method is used to store a session unless its token is already in use
+	 *
+	 * @param session Session to store
+	 * @return boolean Returns true if the session was stored
+	 */
+	boolean putIfAbsent(Session session);
+
+	/**
+	 * This method is used to remove a session
+	 *
+	 * @param token Users auth token
+	 * @return {@link Session Session} The removed session or null if there was none
+	 */
+	Session remove(String token);
+
+	/**
+	 * This method is used to remove a session only if it is still the one stored against its token,
+	 * sessions are considered the same when both their auth and refresh tokens match
+	 *
+	 * @param session Session to remove
+	 * @return boolean Returns true if the session was removed
+	 */
+	boolean remove(Session session);
+
+	/**
+	 * @return int The number of stored sessions
+	 */
+	int size();
+
+	/**
+	 * This method is used to tell whether other nodes read and remove the same sessions.
+	 * A shared store must only lose a session before it expires when one of them removes it, never by evicting it
+	 *
+	 * @return boolean Returns true if the sessions are shared with other nodes, false by default
+	 */
+	default boolean isShared() {
+		return false;
+	}
+
+	/**
+	 * This method is used to save a session after sliding expiry has extended it, in place of the stored session with the same tokens.
+	 * A session that has been removed since must stay removed, and the write may be delayed to batch it with others.
+	 * By default nothing is done, which is enough for a store that hands out the stored session object itself
+	 *
+	 * @param session Session whose expiry changed
+	 */
+	default void touch(Session session) {
+	}
+
+	/**
+	 * This method is used to visit every stored session, so a store wrapped after it already holds sessions,
+	 * such as ones loaded from a file, can still expire them.
+	 * By default nothing is visited, which is enough for a store that starts empty or whose backend drops expired values itself
+	 *
+	 * @param action Called with each stored session
+	 */
+	default void forEach(Consumer<? super Session> action) {
+	}
+
+	/**
+	 * This method is used to be told about sessions removed to keep the store within its limits, a store that wraps another passes the listener on to it.
+	 * By default nothing is ever evicted, so the listener is never called
+	 *
+	 * @param listener Listener to call with each evicted session
+	 */
+	default void setEvictionListener(EvictionListener listener) {
+	}
+}
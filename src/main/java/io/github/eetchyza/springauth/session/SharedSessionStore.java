@@ -0,0 +1,187 @@
+package io.github.eetchyza.springauth.session;
+
+import java.io.Closeable;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A session store that keeps sessions in a {@link SessionBackend SessionBackend} shared by every node,
+ * so a token issued by one node is accepted by all of them.
+ * <p>
+ * Sessions touched by sliding expiry are written back together, once a second by default, rather than one write per request.
+ * A session touched again before then is only written once.
+ *
+ * @author Dan Williams
+ * @version 1.0.0
+ * @since 2019-04-20
+ */
+public class SharedSessionStore implements SessionStore, Closeable {
+	private static final Logger logger = LoggerFactory.getLogger(SharedSessionStore.class);
+
+	private static final String KEY_PREFIX = "springauth:session:";
+
+	private static final Duration DEFAULT_TOUCH_INTERVAL = Duration.ofSeconds(1);
+
+	private final SessionBackend backend;
+
+	private final long ttlMillis;
+
+	private final long touchIntervalMillis;
+
+	private final ConcurrentMap<String, Session> touched;
+
+	private volatile ScheduledExecutorService writer;
+
+	/**
+	 * @param backend Backend to keep sessions in
+	 * @param ttl How long the backend should keep a session for, this should be at least as long as a token lives
+	 */
+	public SharedSessionStore(SessionBackend backend, Duration ttl) {
+		this(backend, ttl, DEFAULT_TOUCH_INTERVAL);
+	}
+
+	/**
+	 * @param backend Backend to keep sessions in
+	 * @param ttl How long the backend should keep a session for, this should be at least as long as a token lives
+	 * @param touchInterval How often sessions touched by sliding expiry are written back
+	 */
+	public SharedSessionStore(SessionBackend backend, Duration ttl, Duration touchInterval) {
+		this.backend = backend;
+		this.ttlMillis = ttl.toMillis();
+		this.touchIntervalMillis = touchInterval.toMillis();
+		this.touched = new ConcurrentHashMap<>();
+	}
+
+	@Override
+	public Session get(String token) {
+		byte[] value = token == null ? null : backend.get(KEY_PREFIX + token);
+		return value == null ? null : SessionCodec.decode(value);
+	}
+
+	@Override
+	public boolean contains(String token) {
+		return token != null && backend.get(KEY_PREFIX + token) != null;
+	}
+
+	@Override
+	public boolean putIfAbsent(Session session) {
+		return backend.putIfAbsent(KEY_PREFIX + session.getToken(), SessionCodec.encode(session), ttlMillis);
+	}
+
+	@Override
+	public Session remove(String token) {
+		if (token == null) {
+			return null;
+		}
+
+		touched.remove(token);
+		byte[] value = backend.remove(KEY_PREFIX + token);
+		return value == null ? null : SessionCodec.decode(value);
+	}
+
+	@Override
+	public boolean remove(Session session) {
+		String key = KEY_PREFIX + session.getToken();
+		touched.remove(session.getToken(), session);
+
+		while (true) {
+			byte[] value = backend.get(key);
+
+			if (value == null || !session.equals(SessionCodec.decode(value))) {
+				return false;
+			}
+
+			// Compare and delete the exact bytes we checked, so a session refreshed in between is left alone,
+			// a touch written in between leaves the same session with a new expiry so is checked again
+			if (backend.remove(key, value)) {
+				return true;
+			}
+		}
+	}
+
+	@Override
+	public int size() {
+		return backend.size();
+	}
+
+	@Override
+	public boolean isShared() {
+		return true;
+	}
+
+	@Override
+	public void touch(Session session) {
+		touched.put(session.getToken(), session);
+
+		if (writer == null) {
+			startWriter();
+		}
+	}
+
+	/**
+	 * Writes any touched sessions that are still waiting and stops writing them in the background, a failed write is logged rather than thrown
+	 */
+	@Override
+	public void close() {
+		ScheduledExecutorService current = writer;
+
+		if (current != null) {
+			current.shutdown();
+		}
+
+		writeTouchedQuietly();
+	}
+
+	private void writeTouched() {
+		if (touched.isEmpty()) {
+			return;
+		}
+
+		Map<String, byte[]> values = new HashMap<>();
+
+		for (String token : touched.keySet()) {
+			// Taken one at a time, so a session touched again while writing is kept for the next write
+			Session session = touched.remove(token);
+
+			if (session != null) {
+				values.put(KEY_PREFIX + token, SessionCodec.encode(session));
+			}
+		}
+
+		if (!values.isEmpty()) {
+			backend.replaceAll(values, ttlMillis);
+		}
+	}
+
+	private synchronized void startWriter() {
+		if (writer != null) {
+			return;
+		}
+
+		ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "springauth-session-writer");
+			thread.setDaemon(true);
+			return thread;
+		});
+		executor.scheduleWithFixedDelay(this::writeTouchedQuietly, touchIntervalMillis, touchIntervalMillis, TimeUnit.MILLISECONDS);
+		writer = executor;
+	}
+
+	private void writeTouchedQuietly() {
+		try {
+			writeTouched();
+		} catch (RuntimeException e) {
+			// The sessions keep their old expiry in the backend, a later touch writes them again
+			logger.warn("Unable to write touched sessions", e);
+		}
+	}
+}
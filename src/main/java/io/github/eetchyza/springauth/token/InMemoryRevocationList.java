@@ -0,0 +1,60 @@
+package io.github.eetchyza.springauth.token;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.github.eetchyza.springauth.api.AuthClock;
+import io.github.eetchyza.springauth.clock.MonotonicClock;
+
+/**
+ * A revocation list kept on the heap of this node, revocations are forgotten once the token would have expired
+ *
+ * @author Dan Williams
+ * @version 1.0.0
+ * @since 2019-06-01
+ */
+public class InMemoryRevocationList implements RevocationList {
+	private static final int PURGE_INTERVAL = 1024;
+
+	private final ConcurrentMap<String, Long> revoked;
+
+	private final AtomicInteger revocations;
+
+	private final AuthClock clock;
+
+	public InMemoryRevocationList() {
+		this(new MonotonicClock());
+	}
+
+	/**
+	 * @param clock Clock to forget revocations by, this should be the one given to {@link io.github.eetchyza.springauth.AuthService#setClock(AuthClock) AuthService#setClock}
+	 */
+	public InMemoryRevocationList(AuthClock clock) {
+		this.revoked = new ConcurrentHashMap<>();
+		this.revocations = new AtomicInteger();
+		this.clock = clock;
+	}
+
+	@Override
+	public boolean revoke(String tokenId, long expiresAt) {
+		if (revocations.incrementAndGet() % PURGE_INTERVAL == 0) {
+			purge(clock.millis());
+		}
+
+		return revoked.putIfAbsent(tokenId, expiresAt) == null;
+	}
+
+	@Override
+	public boolean isRevoked(String tokenId) {
+		return !revoked.isEmpty() && revoked.containsKey(tokenId);
+	}
+
+	int size() {
+		return revoked.size();
+	}
+
+	void purge(long now) {
+		revoked.values().removeIf(expiresAt -> expiresAt <= now);
+	}
+}
@@ -0,0 +1,109 @@
+package io.github.eetchyza.springauth.token;
+
+import java.security.GeneralSecurityException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * The HMAC keys used to sign tokens. New tokens are signed with the current key,
+ * tokens signed with any key still on the ring are accepted, so keys can be rotated without logging everyone out.
+ *
+ * @author Dan Williams
+ * @version 1.0.0
+ * @since 2019-06-01
+ */
+public class KeyRing {
+	private static final String ALGORITHM = "HmacSHA256";
+
+	private static final int MIN_KEY_LENGTH = 32;
+
+	private final ConcurrentMap<String, SigningKey> keys;
+
+	private volatile String currentKeyId;
+
+	/**
+	 * @param keyId Id of the first key, it is written into every token signed with it
+	 * @param secret At least 32 bytes of secret key material
+	 */
+	public KeyRing(String keyId, byte[] secret) {
+		this.keys = new ConcurrentHashMap<>();
+		rotate(keyId, secret);
+	}
+
+	/**
+	 * This method is used to start signing tokens with a new key, tokens signed with the previous keys are still accepted
+	 *
+	 * @param keyId Id of the new key, must not contain '.'
+	 * @param secret At least 32 bytes of secret key material
+	 */
+	public void rotate(String keyId, byte[] secret) {
+		if (keyId.isEmpty() || keyId.indexOf('.') >= 0) {
+			throw new IllegalArgumentException("Key id must not be empty or contain '.'");
+		}
+
+		if (secret.length < MIN_KEY_LENGTH) {
+			throw new IllegalArgumentException("Secret must be at least " + MIN_KEY_LENGTH + " bytes");
+		}
+
+		keys.put(keyId, new SigningKey(new SecretKeySpec(secret, ALGORITHM)));
+		currentKeyId = keyId;
+	}
+
+	/**
+	 * This method is used to stop accepting tokens signed with a key, the current key can not be retired
+	 *
+	 * @param keyId Id of the key to retire
+	 */
+	public void retire(String keyId) {
+		if (keyId.equals(currentKeyId)) {
+			throw new IllegalArgumentException("The current key can not be retired");
+		}
+
+		keys.remove(keyId);
+	}
+
+	String getCurrentKeyId() {
+		return currentKeyId;
+	}
+
+	/**
+	 * @return Mac A mac for the key that is only used by the caller, or null if the key is not on the ring
+	 */
+	Mac mac(String keyId) {
+		SigningKey key = keyId == null ? null : keys.get(keyId);
+		return key == null ? null : key.mac();
+	}
+
+	private static final class SigningKey {
+		private final SecretKeySpec secret;
+
+		private final Mac prototype;
+
+		private SigningKey(SecretKeySpec secret) {
+			this.secret = secret;
+			this.prototype = init(secret);
+		}
+
+		private Mac mac() {
+			// Macs are not thread safe, a clone of an initialised one is cheaper than initialising a new one
+			try {
+				return (Mac) prototype.clone();
+			} catch (CloneNotSupportedException e) {
+				return init(secret);
+			}
+		}
+
+		private static Mac init(SecretKeySpec secret) {
+			try {
+				Mac mac = Mac.getInstance(ALGORITHM);
+				mac.init(secret);
+				return mac;
+			} catch (GeneralSecurityException e) {
+				throw new IllegalStateException("Unable to create signing key", e);
+			}
+		}
+	}
+}
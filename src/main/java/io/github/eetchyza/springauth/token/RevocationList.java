@@ -0,0 +1,27 @@
+package io.github.eetchyza.springauth.token;
+
+/**
+ * Tracks signed tokens that were revoked before they expired, such as by logging out.
+ * Every node needs to see the same revocations, so share the implementation between nodes when running more than one.
+ *
+ * @author Dan Williams
+ * @version 1.0.0
+ * @since 2019-06-01
+ */
+public interface RevocationList {
+
+	/**
+	 * This method is used to revoke a token id
+	 *
+	 * @param tokenId Id of the token to revoke
+	 * @param expiresAt Epoch millis after which the token is no longer valid anyway and can be forgotten
+	 * @return boolean Returns true if the id was not already revoked
+	 */
+	boolean revoke(String tokenId, long expiresAt);
+
+	/**
+	 * @param tokenId Id of the token to check
+	 * @return boolean Returns true if the id has been revoked
+	 */
+	boolean isRevoked(String tokenId);
+}
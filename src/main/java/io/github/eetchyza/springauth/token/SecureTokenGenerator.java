@@ -0,0 +1,81 @@
+package io.github.eetchyza.springauth.token;
+
+import java.security.SecureRandom;
+
+import io.github.eetchyza.springauth.api.TokenGenerator;
+
+/**
+ * Generates tokens from a shared {@link SecureRandom SecureRandom}, encoded as unpadded url safe base64.
+ * With at least 128 bits of entropy two tokens will never collide in practice, so they are not checked against the session store.
+ * The random bytes and encoded characters are written to per thread buffers, the only allocation is the token itself
+ *
+ * @author Dan Williams
+ * @version 1.0.0
+ * @since 2019-06-22
+ */
+public class SecureTokenGenerator implements TokenGenerator {
+	public static final int DEFAULT_ENTROPY_BITS = 128;
+
+	private static final int MIN_ENTROPY_BITS = 128;
+
+	private static final char[] ALPHABET = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789-_".toCharArray();
+
+	private final SecureRandom random;
+
+	private final int length;
+
+	private final ThreadLocal<byte[]> bytes;
+
+	private final ThreadLocal<char[]> chars;
+
+	public SecureTokenGenerator() {
+		this(DEFAULT_ENTROPY_BITS);
+	}
+
+	/**
+	 * @param entropyBits Random bits in each token, at least 128 and rounded up to a whole number of bytes
+	 */
+	public SecureTokenGenerator(int entropyBits) {
+		if (entropyBits < MIN_ENTROPY_BITS) {
+			throw new IllegalArgumentException("Tokens need at least " + MIN_ENTROPY_BITS + " bits of entropy");
+		}
+
+		int byteCount = (entropyBits + 7) / 8;
+		this.random = new SecureRandom();
+		this.length = byteCount;
+		this.bytes = ThreadLocal.withInitial(() -> new byte[byteCount]);
+		this.chars = ThreadLocal.withInitial(() -> new char[(byteCount * 8 + 5) / 6]);
+	}
+
+	@Override
+	public String generate() {
+		byte[] buffer = bytes.get();
+		char[] encoded = chars.get();
+		random.nextBytes(buffer);
+
+		int in = 0;
+		int out = 0;
+		int whole = length - length % 3;
+
+		while (in < whole) {
+			int block = (buffer[in++] & 0xff) << 16 | (buffer[in++] & 0xff) << 8 | (buffer[in++] & 0xff);
+			encoded[out++] = ALPHABET[block >>> 18];
+			encoded[out++] = ALPHABET[(block >>> 12) & 0x3f];
+			encoded[out++] = ALPHABET[(block >>> 6) & 0x3f];
+			encoded[out++] = ALPHABET[block & 0x3f];
+		}
+
+		if (length - whole == 1) {
+			int block = buffer[in] & 0xff;
+			encoded[out++] = ALPHABET[block >>> 2];
+			encoded[out++] = ALPHABET[(block << 4) & 0x3f];
+		} else if (length - whole == 2) {
+			int block = (buffer[in] & 0xff) << 8 | (buffer[in + 1] & 0xff);
+			encoded[out++] = ALPHABET[block >>> 10];
+			encoded[out++] = ALPHABET[(block >>> 4) & 0x3f];
+			encoded[out++] = ALPHABET[(block << 2) & 0x3f];
+		}
+
+		return new String(encoded, 0, out);
+	}
+}
@@ -0,0 +1,38 @@
+package io.github.eetchyza.springauth.token;
+
+import io.github.eetchyza.springauth.api.GrantedAuthority;
+
+/**
+ * A role read back out of a signed token
+ *
+ * @author Dan Williams
+ * @version 1.0.0
+ * @since 2019-06-01
+ */
+public final class TokenAuthority implements GrantedAuthority {
+	private final String authority;
+
+	public TokenAuthority(String authority) {
+		this.authority = authority;
+	}
+
+	@Override
+	public String getAuthority() {
+		return authority;
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		return o instanceof TokenAuthority && authority.equals(((TokenAuthority) o).authority);
+	}
+
+	@Override
+	public int hashCode() {
+		return authority.hashCode();
+	}
+
+	@Override
+	public String toString() {
+		return authority;
+	}
+}
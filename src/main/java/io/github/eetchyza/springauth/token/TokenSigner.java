@@ -0,0 +1,350 @@
+package io.github.eetchyza.springauth.token;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import javax.crypto.Mac;
+
+import io.github.eetchyza.springauth.Authentication;
+import io.github.eetchyza.springauth.api.AuthClock;
+import io.github.eetchyza.springauth.api.GrantedAuthority;
+import io.github.eetchyza.springauth.clock.MonotonicClock;
+import io.github.eetchyza.springauth.session.Session;
+
+/**
+ * Issues and verifies stateless tokens that carry the users id, username, roles and expiry,
+ * signed with HMAC-SHA256 so any node holding the key can verify them without looking anything up.
+ * <p>
+ * Tokens are made of three parts separated by '.', the key id, the url safe base64 claims and the signature.
+ * An access token and its refresh token share an id, which is what gets revoked on logout or refresh.
+ *
+ * @author Dan Williams
+ * @version 1.0.0
+ * @since 2019-06-01
+ */
+public class TokenSigner {
+	private static final byte VERSION = 1;
+
+	private static final byte ACCESS = 1;
+
+	private static final byte REFRESH = 2;
+
+	private static final int ID_LENGTH = 16;
+
+	private static final int MAX_ROLES = 255;
+
+	private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+
+	private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+	private final KeyRing keyRing;
+
+	private final RevocationList revocationList;
+
+	private final SecureRandom random;
+
+	private final AuthClock clock;
+
+	public TokenSigner(KeyRing keyRing) {
+		this(keyRing, new InMemoryRevocationList());
+	}
+
+	/**
+	 * @param keyRing Keys to sign and verify tokens with
+	 * @param clock Clock refresh tokens and revocations are checked against, this should be the one given to {@link io.github.eetchyza.springauth.AuthService#setClock(AuthClock) AuthService#setClock}
+	 */
+	public TokenSigner(KeyRing keyRing, AuthClock clock) {
+		this(keyRing, new InMemoryRevocationList(clock), clock);
+	}
+
+	public TokenSigner(KeyRing keyRing, RevocationList revocationList) {
+		this(keyRing, revocationList, new MonotonicClock());
+	}
+
+	/**
+	 * @param keyRing Keys to sign and verify tokens with
+	 * @param revocationList List of revoked token ids
+	 * @param clock Clock refresh tokens are checked against, this should be the one given to {@link io.github.eetchyza.springauth.AuthService#setClock(AuthClock) AuthService#setClock}
+	 */
+	public TokenSigner(KeyRing keyRing, RevocationList revocationList, AuthClock clock) {
+		this.keyRing = keyRing;
+		this.revocationList = revocationList;
+		this.random = new SecureRandom();
+		this.clock = clock;
+	}
+
+	/**
+	 * This method is used to issue a new access and refresh token pair
+	 *
+	 * @param id Users id
+	 * @param username Users username
+	 * @param roles Users roles
+	 * @param expire When the access token expires
+	 * @param refreshExpire When the refresh token expires
+	 * @return {@link Authentication Authentication} Authentication details holding both tokens
+	 */
+	public Authentication issue(long id, String username, Collection<? extends GrantedAuthority> roles, LocalDateTime expire, LocalDateTime refreshExpire) {
+		return issue(id, username, roles, toMillis(expire), toMillis(refreshExpire));
+	}
+
+	/**
+	 * This method is used to issue a new access and refresh token pair
+	 *
+	 * @param id Users id
+	 * @param username Users username
+	 * @param roles Users roles
+	 * @param expiresAt When the access token expires in milliseconds since the epoch
+	 * @param refreshExpiresAt When the refresh token expires in milliseconds since the epoch
+	 * @return {@link Authentication Authentication} Authentication details holding both tokens
+	 */
+	public Authentication issue(long id, String username, Collection<? extends GrantedAuthority> roles, long expiresAt, long refreshExpiresAt) {
+		byte[] tokenId = new byte[ID_LENGTH];
+		random.nextBytes(tokenId);
+
+		List<String> roleNames = new ArrayList<>(roles.size());
+		for (GrantedAuthority role : roles) {
+			roleNames.add(role.getAuthority());
+		}
+
+		if (roleNames.size() > MAX_ROLES) {
+			throw new IllegalArgumentException("Signed tokens can carry at most " + MAX_ROLES + " roles");
+		}
+
+		Claims access = new Claims(ACCESS, tokenId, id, username, roleNames, expiresAt, refreshExpiresAt);
+		Claims refresh = new Claims(REFRESH, tokenId, id, username, roleNames, refreshExpiresAt, refreshExpiresAt);
+
+		return new Authentication(sign(access), sign(refresh), expiresAt, roles, username, id);
+	}
+
+	/**
+	 * This method is used to verify an access token, expired tokens are still returned so the caller can tell them apart
+	 *
+	 * @param token Access token
+	 * @return {@link Session Session} The session the token represents, or null if it is not valid or has been revoked
+	 */
+	public Session verify(String token) {
+		Claims claims = parse(token);
+
+		if (claims == null || claims.type != ACCESS || revocationList.isRevoked(claims.tokenId())) {
+			return null;
+		}
+
+		return toSession(token, claims);
+	}
+
+	/**
+	 * This method is used to exchange a token pair for a new one, the old pair is revoked so it can only be used once
+	 *
+	 * @param token Access token, which may have expired
+	 * @param refreshToken Refresh token issued with it
+	 * @param expire When the new access token expires
+	 * @param refreshExpire When the new refresh token expires
+	 * @return {@link Authentication Authentication} The new authentication details, or null if the pair is not valid
+	 */
+	public Authentication refresh(String token, String refreshToken, LocalDateTime expire, LocalDateTime refreshExpire) {
+		return refresh(token, refreshToken, toMillis(expire), toMillis(refreshExpire));
+	}
+
+	/**
+	 * This method is used to exchange a token pair for a new one, the old pair is revoked so it can only be used once
+	 *
+	 * @param token Access token, which may have expired
+	 * @param refreshToken Refresh token issued with it
+	 * @param expiresAt When the new access token expires in milliseconds since the epoch
+	 * @param refreshExpiresAt When the new refresh token expires in milliseconds since the epoch
+	 * @return {@link Authentication Authentication} The new authentication details, or null if the pair is not valid
+	 */
+	public Authentication refresh(String token, String refreshToken, long expiresAt, long refreshExpiresAt) {
+		Claims access = parse(token);
+		Claims refresh = parse(refreshToken);
+
+		if (access == null || refresh == null || access.type != ACCESS || refresh.type != REFRESH
+				|| !MessageDigest.isEqual(access.tokenId, refresh.tokenId) || refresh.expiresAt <= clock.millis()) {
+			return null;
+		}
+
+		// Only the first refresh of a pair wins, any other attempt finds it already revoked
+		if (!revocationList.revoke(refresh.tokenId(), refresh.refreshExpiresAt)) {
+			return null;
+		}
+
+		return issue(refresh.id, refresh.username, toAuthorities(refresh.roles), expiresAt, refreshExpiresAt);
+	}
+
+	/**
+	 * This method is used to revoke a token and the other token issued with it
+	 *
+	 * @param token Access or refresh token
+	 */
+	public void revoke(String token) {
+		Claims claims = parse(token);
+
+		// Only signed tokens are revoked, so junk can not be used to fill the revocation list
+		if (claims != null) {
+			revocationList.revoke(claims.tokenId(), claims.refreshExpiresAt);
+		}
+	}
+
+	private String sign(Claims claims) {
+		String keyId = keyRing.getCurrentKeyId();
+		String unsigned = keyId + "." + ENCODER.encodeToString(claims.encode());
+		Mac mac = keyRing.mac(keyId);
+
+		return unsigned + "." + ENCODER.encodeToString(mac.doFinal(unsigned.getBytes(StandardCharsets.US_ASCII)));
+	}
+
+	private Claims parse(String token) {
+		if (token == null) {
+			return null;
+		}
+
+		int keyEnd = token.indexOf('.');
+		int claimsEnd = keyEnd < 0 ? -1 : token.indexOf('.', keyEnd + 1);
+
+		if (claimsEnd < 0) {
+			return null;
+		}
+
+		Mac mac = keyRing.mac(token.substring(0, keyEnd));
+
+		if (mac == null) {
+			return null;
+		}
+
+		try {
+			byte[] signature = DECODER.decode(token.substring(claimsEnd + 1));
+			byte[] expected = mac.doFinal(token.substring(0, claimsEnd).getBytes(StandardCharsets.US_ASCII));
+
+			if (!MessageDigest.isEqual(expected, signature)) {
+				return null;
+			}
+
+			return Claims.decode(DECODER.decode(token.substring(keyEnd + 1, claimsEnd)));
+		} catch (IllegalArgumentException | BufferUnderflowException e) {
+			return null;
+		}
+	}
+
+	private static Session toSession(String token, Claims claims) {
+		List<TokenAuthority> authorities = toAuthorities(claims.roles);
+		Authentication authentication = new Authentication(token, null, claims.expiresAt, authorities, claims.username, claims.id);
+
+		return new Session(authentication, new TokenUserDetails(claims.id, claims.username, authorities));
+	}
+
+	private static List<TokenAuthority> toAuthorities(List<String> roles) {
+		List<TokenAuthority> authorities = new ArrayList<>(roles.size());
+		for (String role : roles) {
+			authorities.add(new TokenAuthority(role));
+		}
+
+		return Collections.unmodifiableList(authorities);
+	}
+
+	private static long toMillis(LocalDateTime time) {
+		return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+	}
+
+	private static final class Claims {
+		private final byte type;
+
+		private final byte[] tokenId;
+
+		private final long id;
+
+		private final String username;
+
+		private final List<String> roles;
+
+		private final long expiresAt;
+
+		private final long refreshExpiresAt;
+
+		private Claims(byte type, byte[] tokenId, long id, String username, List<String> roles, long expiresAt, long refreshExpiresAt) {
+			this.type = type;
+			this.tokenId = tokenId;
+			this.id = id;
+			this.username = username;
+			this.roles = roles;
+			this.expiresAt = expiresAt;
+			this.refreshExpiresAt = refreshExpiresAt;
+		}
+
+		private String tokenId() {
+			return ENCODER.encodeToString(tokenId);
+		}
+
+		private byte[] encode() {
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+
+			try (DataOutputStream out = new DataOutputStream(bytes)) {
+				out.writeByte(VERSION);
+				out.writeByte(type);
+				out.write(tokenId);
+				out.writeLong(id);
+				out.writeLong(expiresAt);
+				out.writeLong(refreshExpiresAt);
+				writeString(out, username);
+				out.writeByte(roles.size());
+
+				for (String role : roles) {
+					writeString(out, role);
+				}
+			} catch (IOException e) {
+				throw new UncheckedIOException("Unable to encode token", e);
+			}
+
+			return bytes.toByteArray();
+		}
+
+		private static Claims decode(byte[] bytes) {
+			ByteBuffer buffer = ByteBuffer.wrap(bytes);
+
+			if (buffer.get() != VERSION) {
+				return null;
+			}
+
+			byte type = buffer.get();
+			byte[] tokenId = new byte[ID_LENGTH];
+			buffer.get(tokenId);
+			long id = buffer.getLong();
+			long expiresAt = buffer.getLong();
+			long refreshExpiresAt = buffer.getLong();
+			String username = readString(buffer);
+
+			int roleCount = buffer.get() & 0xff;
+			List<String> roles = new ArrayList<>(roleCount);
+			for (int i = 0; i < roleCount; i++) {
+				roles.add(readString(buffer));
+			}
+
+			return new Claims(type, tokenId, id, username, roles, expiresAt, refreshExpiresAt);
+		}
+
+		private static void writeString(DataOutputStream out, String value) throws IOException {
+			byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+			out.writeShort(bytes.length);
+			out.write(bytes);
+		}
+
+		private static String readString(ByteBuffer buffer) {
+			byte[] bytes = new byte[buffer.getShort() & 0xffff];
+			buffer.get(bytes);
+			return new String(bytes, StandardCharsets.UTF_8);
+		}
+	}
+}
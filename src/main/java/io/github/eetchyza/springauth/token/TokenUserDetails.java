@@ -0,0 +1,59 @@
+package io.github.eetchyza.springauth.token;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+
+import io.github.eetchyza.springauth.api.GrantedAuthority;
+import io.github.eetchyza.springauth.api.UserDetails;
+
+/**
+ * The user a signed token was issued to, only the details carried in the token are known,
+ * so there is no password and the password is never treated as temporary
+ *
+ * @author Dan Williams
+ * @version 1.0.0
+ * @since 2019-06-01
+ */
+public final class TokenUserDetails implements UserDetails {
+	private final long id;
+
+	private final String username;
+
+	private final Collection<TokenAuthority> authorities;
+
+	TokenUserDetails(long id, String username, Collection<TokenAuthority> authorities) {
+		this.id = id;
+		this.username = username;
+		this.authorities = authorities;
+	}
+
+	@Override
+	public long getId() {
+		return id;
+	}
+
+	@Override
+	public Collection<? extends GrantedAuthority> getAuthorities() {
+		return authorities;
+	}
+
+	@Override
+	public String getPassword() {
+		return null;
+	}
+
+	@Override
+	public String getUsername() {
+		return username;
+	}
+
+	@Override
+	public boolean isTemporaryPassword() {
+		return false;
+	}
+
+	@Override
+	public LocalDateTime getExpires() {
+		return null;
+	}
+}
@@ -0,0 +1,74 @@
+package io.github.eetchyza.springauth.web;
+
+import io.github.eetchyza.springauth.exceptions.NotAuthenticatedException;
+import io.github.eetchyza.springauth.exceptions.NotAuthorisedException;
+import io.github.eetchyza.springauth.exceptions.PasswordExpiredException;
+import io.github.eetchyza.springauth.exceptions.TokenExpiredException;
+
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The response for a denied request, the status and JSON body for each reason are encoded once up front
+ * so rejecting a request only copies the bytes out
+ *
+ * @author Dan Williams
+ * @version 1.0.0
+ * @since 2019-08-24
+ */
+final class DeniedResponse {
+    private static final String CONTENT_TYPE = "application/json";
+    private static final DeniedResponse NOT_AUTHENTICATED = new DeniedResponse(401, new NotAuthenticatedException().getMessage());
+    private static final DeniedResponse TOKEN_EXPIRED = new DeniedResponse(401, new TokenExpiredException().getMessage());
+    private static final DeniedResponse NOT_AUTHORISED = new DeniedResponse(403, new NotAuthorisedException().getMessage());
+    private static final DeniedResponse PASSWORD_EXPIRED = new DeniedResponse(403, new PasswordExpiredException().getMessage());
+    private final int status;
+    private final byte[] body;
+
+    private DeniedResponse(int status, String message) {
+        this.status = status;
+        this.body = ("{\"message\":\"" + message + "\"}").getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @param e Why the request was denied
+     * @return {@link DeniedResponse DeniedResponse} Returns the response for the reason, 401 when there is no valid token and 403 when the user is not allowed
+     */
+    static DeniedResponse of(Exception e) {
+        if (e instanceof NotAuthenticatedException) {
+            return NOT_AUTHENTICATED;
+        }
+
+        if (e instanceof TokenExpiredException) {
+            return TOKEN_EXPIRED;
+        }
+
+        if (e instanceof PasswordExpiredException) {
+            return PASSWORD_EXPIRED;
+        }
+
+        return NOT_AUTHORISED;
+    }
+
+    int getStatus() {
+        return status;
+    }
+
+    byte[] getBody() {
+        return body;
+    }
+
+    /**
+     * This method is used to write the response directly, without going through the container's error page handling
+     *
+     * @param response Response to write to
+     * @throws IOException Thrown when the body can not be written
+     */
+    void write(HttpServletResponse response) throws IOException {
+        response.setStatus(status);
+        response.setContentType(CONTENT_TYPE);
+        response.setContentLength(body.length);
+        response.getOutputStream().write(body);
+    }
+}
@@ -0,0 +1,181 @@
+package io.github.eetchyza.springauth.web;
+
+import io.github.eetchyza.springauth.AuthService;
+import io.github.eetchyza.springauth.AuthorizationPlan;
+import io.github.eetchyza.springauth.ReactiveSecurityContext;
+import io.github.eetchyza.springauth.api.AuthMetrics;
+import io.github.eetchyza.springauth.api.UserDetails;
+import io.github.eetchyza.springauth.audit.AuditLog;
+import io.github.eetchyza.springauth.exceptions.NotAuthenticatedException;
+import io.github.eetchyza.springauth.exceptions.NotAuthorisedException;
+import io.github.eetchyza.springauth.exceptions.PasswordExpiredException;
+import io.github.eetchyza.springauth.exceptions.TokenExpiredException;
+import io.github.eetchyza.springauth.session.Session;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.reactive.result.method.annotation.RequestMappingHandlerMapping;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * The {@link SecurityFilter SecurityFilter} for WebFlux applications. Requests to annotated controllers are checked the same way,
+ * and the current user is carried in the Reactor context where {@link ReactiveSecurityContext#getCurrentUser() ReactiveSecurityContext#getCurrentUser}
+ * finds it, as a reactive request is not tied to one thread.
+ * <p>
+ * Sessions in a shared store are looked up over the network, so when {@link AuthService#isBlockingLookup() AuthService#isBlockingLookup}
+ * is true requests are checked on Reactor's elastic scheduler rather than the event loop, and the handler is subscribed to from there.
+ * A custom session store that blocks without being shared should return true from {@link io.github.eetchyza.springauth.session.SessionStore#isShared() isShared}
+ *
+ * @author Dan Williams
+ * @version 1.0.0
+ * @since 2019-08-03
+ */
+public class ReactiveSecurityFilter implements WebFilter, DisposableBean {
+    private static final Object NO_HANDLER = new Object();
+    private final AuthService authService;
+    private final RequestMappingHandlerMapping handlerMapping;
+    private AuthMetrics authMetrics;
+    private final AuditLog defaultAuditLog = new AuditLog();
+    private AuditLog auditLog = defaultAuditLog;
+    private final ConcurrentMap<Class<?>, ConcurrentMap<Method, AuthorizationPlan>> plans = new ConcurrentHashMap<>();
+
+    /**
+     * @param authService Service checking each request's token
+     * @param handlerMapping WebFlux's mapping for annotated controllers, used to find the handler a request is for before it is dispatched
+     */
+    @Autowired
+    public ReactiveSecurityFilter(AuthService authService, RequestMappingHandlerMapping handlerMapping) {
+        this.authService = authService;
+        this.handlerMapping = handlerMapping;
+    }
+
+    /**
+     * This method is used to record how long requests take to check and why they are denied
+     *
+     * @param authMetrics Metrics to record requests in
+     */
+    @Autowired(required = false)
+    public void setAuthMetrics(AuthMetrics authMetrics) {
+        this.authMetrics = authMetrics;
+    }
+
+    /**
+     * This method is used to replace the default audit log, which writes every request to SLF4J from a background thread.
+     * Any {@link AuditLog AuditLog} bean in the context is used automatically
+     *
+     * @param auditLog Log to record allowed and denied requests in
+     */
+    @Autowired(required = false)
+    public void setAuditLog(AuditLog auditLog) {
+        this.auditLog = auditLog;
+        defaultAuditLog.close();
+    }
+
+    /**
+     * Writes any requests still waiting in the default audit log and stops its writer
+     */
+    @Override
+    public void destroy() {
+        defaultAuditLog.close();
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        // Anything other than an annotated controller, such as static resources or a CORS pre-flight, is left alone
+        return handlerMapping.getHandler(exchange)
+                .defaultIfEmpty(NO_HANDLER)
+                .flatMap(handler -> handler instanceof HandlerMethod ? filter(exchange, chain, getPlan((HandlerMethod) handler)) : chain.filter(exchange));
+    }
+
+    private Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain, AuthorizationPlan plan) {
+        if (authService.isBlockingLookup()) {
+            // Waiting on a shared backend would hold up every other request on the event loop
+            return Mono.defer(() -> timedAuthorise(exchange, chain, plan)).subscribeOn(Schedulers.elastic());
+        }
+
+        return timedAuthorise(exchange, chain, plan);
+    }
+
+    private Mono<Void> timedAuthorise(ServerWebExchange exchange, WebFilterChain chain, AuthorizationPlan plan) {
+        if (authMetrics == null) {
+            return authorise(exchange, chain, plan);
+        }
+
+        long start = System.nanoTime();
+        try {
+            return authorise(exchange, chain, plan);
+        } finally {
+            authMetrics.requestFiltered(System.nanoTime() - start);
+        }
+    }
+
+    private Mono<Void> authorise(ServerWebExchange exchange, WebFilterChain chain, AuthorizationPlan plan) {
+        ServerHttpRequest request = exchange.getRequest();
+        String path = request.getPath().pathWithinApplication().value();
+
+        // Looked up once for all three checks, as a shared store reads its backend on every lookup
+        Session session = authService.findSession(request.getHeaders().getFirst("TOKEN"));
+        UserDetails user = null;
+        try {
+            user = authService.getCurrentUser(session);
+
+            if (!plan.isAnonymous()) {
+                authService.checkAuthenticated(session);
+                authService.checkIsAuthorised(session, plan);
+            }
+        } catch (NotAuthorisedException | NotAuthenticatedException | TokenExpiredException | PasswordExpiredException e) {
+            if (authMetrics != null) {
+                authMetrics.denied(e);
+            }
+
+            auditLog.denied(request.getMethodValue(), path, user == null ? null : user.getUsername(), e.getMessage());
+            return deny(exchange.getResponse(), e);
+        }
+
+        auditLog.allowed(request.getMethodValue(), path, user == null ? null : user.getUsername());
+
+        if (user == null) {
+            return chain.filter(exchange);
+        }
+
+        return chain.filter(exchange).subscriberContext(ReactiveSecurityContext.withCurrentUser(user));
+    }
+
+    private static Mono<Void> deny(ServerHttpResponse response, Exception e) {
+        DeniedResponse denied = DeniedResponse.of(e);
+        response.setStatusCode(HttpStatus.valueOf(denied.getStatus()));
+        response.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+        response.getHeaders().setContentLength(denied.getBody().length);
+        return response.writeWith(Mono.just(response.bufferFactory().wrap(denied.getBody())));
+    }
+
+    private AuthorizationPlan getPlan(HandlerMethod handlerMethod) {
+        // Keyed by bean type rather than handler method, which also compares the bean so every prototype or request scoped bean would add a plan
+        Class<?> beanType = handlerMethod.getBeanType();
+        ConcurrentMap<Method, AuthorizationPlan> methods = plans.get(beanType);
+
+        if (methods == null) {
+            methods = plans.computeIfAbsent(beanType, key -> new ConcurrentHashMap<>());
+        }
+
+        AuthorizationPlan plan = methods.get(handlerMethod.getMethod());
+
+        if (plan == null) {
+            plan = methods.computeIfAbsent(handlerMethod.getMethod(), key -> AuthorizationPlan.of(beanType, key));
+        }
+
+        return plan;
+    }
+}
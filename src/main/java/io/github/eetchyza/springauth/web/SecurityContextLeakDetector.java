@@ -0,0 +1,44 @@
+package io.github.eetchyza.springauth.web;
+
+import io.github.eetchyza.springauth.SecurityContext;
+import io.github.eetchyza.springauth.api.UserDetails;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A debugging aid for {@link SecurityFilter SecurityFilter} that checks each request starts on a thread with an empty {@link SecurityContext SecurityContext}.
+ * A user still set means the thread went back to the pool without the last request being cleaned up, each one is counted and logged.
+ * Define one as a bean to turn it on, it is not needed once cleanup has been verified
+ *
+ * @author Dan Williams
+ * @version 1.0.0
+ * @since 2019-08-17
+ */
+public class SecurityContextLeakDetector {
+    private static final Logger logger = LoggerFactory.getLogger(SecurityContextLeakDetector.class);
+    private final LongAdder leaks = new LongAdder();
+
+    /**
+     * This method is used to check the current thread before a request is handled on it
+     *
+     * @param method HTTP method of the request about to be handled
+     * @param path Path of the request about to be handled
+     */
+    public void beforeRequest(String method, String path) {
+        UserDetails stale = SecurityContext.getCurrentUser();
+
+        if (stale != null) {
+            leaks.increment();
+            logger.warn("[{}]: Still in the security context of thread {} when a {} request to '{}' started", stale.getUsername(), Thread.currentThread().getName(), method, path);
+        }
+    }
+
+    /**
+     * @return long Returns how many requests have started on a thread still holding a user
+     */
+    public long getLeakCount() {
+        return leaks.sum();
+    }
+}
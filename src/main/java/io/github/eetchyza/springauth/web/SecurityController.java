@@ -3,14 +3,26 @@ package io.github.eetchyza.springauth.web;
 import io.github.eetchyza.springauth.AuthService;
 import io.github.eetchyza.springauth.Authentication;
 import io.github.eetchyza.springauth.annotations.AllowAnon;
+import io.github.eetchyza.springauth.exceptions.LoginThrottledException;
+import io.github.eetchyza.springauth.exceptions.TooManyRequestsException;
 import io.github.eetchyza.springauth.exceptions.UsernameOrPasswordIncorrectException;
 import io.github.eetchyza.springauth.web.dto.LoginDto;
 import io.github.eetchyza.springauth.web.dto.RefreshDto;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Component;
 import org.springframework.web.bind.annotation.*;
 
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 @RestController
 @RequestMapping(value = "/security", consumes = "application/json", produces = "application/json")
 @Component
@@ -25,8 +37,15 @@ public class SecurityController {
     @PostMapping("/login")
     @AllowAnon
     public @ResponseBody
-    Authentication login(@RequestBody LoginDto loginDto) throws UsernameOrPasswordIncorrectException {
-        return authService.login(loginDto.getUsername(), loginDto.getPassword());
+    Authentication login(@RequestBody LoginDto loginDto, HttpServletRequest request) throws UsernameOrPasswordIncorrectException {
+        return authService.login(loginDto.getUsername(), loginDto.getPassword(), request.getRemoteAddr());
+    }
+
+    @PostMapping("/login/async")
+    @AllowAnon
+    public @ResponseBody
+    CompletableFuture<Authentication> loginAsync(@RequestBody LoginDto loginDto, HttpServletRequest request) {
+        return authService.loginAsync(loginDto.getUsername(), loginDto.getPassword(), request.getRemoteAddr());
     }
 
     @GetMapping("/logout")
@@ -40,4 +59,17 @@ public class SecurityController {
     public @ResponseBody Authentication refresh(@RequestBody RefreshDto refreshDto) {
         return authService.refresh(refreshDto.getToken(), refreshDto.getRefreshToken());
     }
+
+    @ExceptionHandler(TooManyRequestsException.class)
+    @ResponseStatus(HttpStatus.TOO_MANY_REQUESTS)
+    public @ResponseBody Map<String, String> tooManyRequests(TooManyRequestsException e) {
+        return Collections.singletonMap("message", e.getMessage());
+    }
+
+    @ExceptionHandler(LoginThrottledException.class)
+    @ResponseStatus(HttpStatus.TOO_MANY_REQUESTS)
+    public @ResponseBody Map<String, String> loginThrottled(LoginThrottledException e, HttpServletResponse response) {
+        response.setHeader("Retry-After", String.valueOf(TimeUnit.MILLISECONDS.toSeconds(e.getRetryAfterMillis() + 999)));
+        return Collections.singletonMap("message", e.getMessage());
+    }
 }
@@ -1,80 +1,172 @@
 package io.github.eetchyza.springauth.web;
 
 import io.github.eetchyza.springauth.AuthService;
+import io.github.eetchyza.springauth.AuthorizationPlan;
 import io.github.eetchyza.springauth.SecurityContext;
-import io.github.eetchyza.springauth.annotations.AllowAnon;
+import io.github.eetchyza.springauth.api.AuthMetrics;
 import io.github.eetchyza.springauth.api.UserDetails;
+import io.github.eetchyza.springauth.audit.AuditLog;
 import io.github.eetchyza.springauth.exceptions.NotAuthenticatedException;
 import io.github.eetchyza.springauth.exceptions.NotAuthorisedException;
 import io.github.eetchyza.springauth.exceptions.PasswordExpiredException;
 import io.github.eetchyza.springauth.exceptions.TokenExpiredException;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
+import io.github.eetchyza.springauth.session.Session;
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
 import org.springframework.stereotype.Component;
 import org.springframework.web.method.HandlerMethod;
-import org.springframework.web.servlet.HandlerInterceptor;
-import org.springframework.web.servlet.ModelAndView;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
 import org.springframework.web.servlet.resource.ResourceHttpRequestHandler;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
 import java.lang.reflect.Method;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 @Component
-public class SecurityFilter implements HandlerInterceptor {
+public class SecurityFilter implements AsyncHandlerInterceptor, DisposableBean {
     @Autowired
     private AuthService authService;
-    private Logger logger = LoggerFactory.getLogger(SecurityFilter.class);
+    @Autowired(required = false)
+    private AuthMetrics authMetrics;
+    private final AuditLog defaultAuditLog = new AuditLog();
+    private AuditLog auditLog = defaultAuditLog;
+    private SecurityContextLeakDetector leakDetector;
+    private final ConcurrentMap<Class<?>, ConcurrentMap<Method, AuthorizationPlan>> plans = new ConcurrentHashMap<>();
+
+    /**
+     * This method is used to replace the default audit log, which writes every request to SLF4J from a background thread.
+     * Any {@link AuditLog AuditLog} bean in the context is used automatically
+     *
+     * @param auditLog Log to record allowed and denied requests in
+     */
+    @Autowired(required = false)
+    public void setAuditLog(AuditLog auditLog) {
+        this.auditLog = auditLog;
+        defaultAuditLog.close();
+    }
+
+    /**
+     * This method is used to check every request starts with an empty security context, only needed while debugging
+     *
+     * @param leakDetector Detector to count requests starting on a thread still holding a user
+     */
+    @Autowired(required = false)
+    public void setLeakDetector(SecurityContextLeakDetector leakDetector) {
+        this.leakDetector = leakDetector;
+    }
+
+    /**
+     * Writes any requests still waiting in the default audit log and stops its writer
+     */
+    @Override
+    public void destroy() {
+        defaultAuditLog.close();
+    }
 
     @Override
     public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) throws IOException {
 
+        if (leakDetector != null) {
+            leakDetector.beforeRequest(request.getMethod(), request.getPathInfo());
+        }
+
         if(handler.getClass().isAssignableFrom(ResourceHttpRequestHandler.class)){
             return true;
         }
 
-        Method method = ((HandlerMethod) handler).getMethod();
+        // Spring only calls afterCompletion once preHandle has returned true, so the user is cleared here for anything else
+        boolean allowed = false;
+        try {
+            allowed = timedAuthorise(request, response, (HandlerMethod) handler);
+            return allowed;
+        } finally {
+            if (!allowed) {
+                SecurityContext.clear();
+            }
+        }
+    }
+
+    private boolean timedAuthorise(HttpServletRequest request, HttpServletResponse response, HandlerMethod handler) throws IOException {
+        if (authMetrics == null) {
+            return authorise(request, response, handler);
+        }
 
-        String token = request.getHeader("TOKEN");
+        long start = System.nanoTime();
         try {
-            authService.setCurrentUser(token);
-            UserDetails user = SecurityContext.getCurrentUser();
+            return authorise(request, response, handler);
+        } finally {
+            authMetrics.requestFiltered(System.nanoTime() - start);
+        }
+    }
 
-            if (user != null) {
-                logger.info("{} request made to '{}' by user: {}", request.getMethod(), request.getPathInfo(), user.getUsername());
-            } else {
-                logger.info("{} request made to '{}' by anonymous user", request.getMethod(), request.getPathInfo());
-            }
+    private boolean authorise(HttpServletRequest request, HttpServletResponse response, HandlerMethod handler) throws IOException {
 
-            if (!method.isAnnotationPresent(AllowAnon.class)) {
-                authService.checkAuthenticated(token);
-            }
+        AuthorizationPlan plan = getPlan(handler);
 
-            authService.checkIsAuthorised(token, method);
-        } catch (NotAuthorisedException | NotAuthenticatedException | TokenExpiredException | PasswordExpiredException e) {
-            UserDetails user = SecurityContext.getCurrentUser();
-            String username;
+        // Looked up once for all three checks, as a shared store reads its backend on every lookup
+        Session session = authService.findSession(request.getHeader("TOKEN"));
+        try {
+            authService.setCurrentUser(session);
 
-            if (user != null){
-                username = user.getUsername();
-            }else{
-                username = "anonymous user";
+            if (!plan.isAnonymous()) {
+                authService.checkAuthenticated(session);
+                authService.checkIsAuthorised(session, plan);
+            }
+        } catch (NotAuthorisedException | NotAuthenticatedException | TokenExpiredException | PasswordExpiredException e) {
+            if (authMetrics != null) {
+                authMetrics.denied(e);
             }
 
-            logger.warn("[{}]: {}", username, e.getMessage());
-            response.setContentType("application/json");
-            response.getWriter().print("{\"message\":\"" + e.getMessage() + "\"}");
-            response.sendError(403, e.getMessage());
+            auditLog.denied(request.getMethod(), request.getPathInfo(), currentUsername(), e.getMessage());
+            DeniedResponse.of(e).write(response);
             return false;
         }
 
+        auditLog.allowed(request.getMethod(), request.getPathInfo(), currentUsername());
         return true;
     }
 
+    private static String currentUsername() {
+        UserDetails user = SecurityContext.getCurrentUser();
+        return user == null ? null : user.getUsername();
+    }
+
+    private AuthorizationPlan getPlan(HandlerMethod handlerMethod) {
+        // Keyed by bean type rather than handler method, which also compares the bean so every prototype or request scoped bean would add a plan
+        Class<?> beanType = handlerMethod.getBeanType();
+        ConcurrentMap<Method, AuthorizationPlan> methods = plans.get(beanType);
+
+        if (methods == null) {
+            methods = plans.computeIfAbsent(beanType, key -> new ConcurrentHashMap<>());
+        }
+
+        AuthorizationPlan plan = methods.get(handlerMethod.getMethod());
+
+        if (plan == null) {
+            plan = methods.computeIfAbsent(handlerMethod.getMethod(), key -> AuthorizationPlan.of(beanType, key));
+        }
+
+        return plan;
+    }
+
+    /**
+     * Clears the security context once the request is done, this is called even when the handler throws
+     */
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        SecurityContext.clear();
+    }
+
+    /**
+     * Clears the security context once an async handler has started, Spring only calls afterCompletion on the thread that dispatches the result
+     */
     @Override
-    public void postHandle(HttpServletRequest request, HttpServletResponse response, Object handler, ModelAndView modelAndView) throws Exception {
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response, Object handler) {
         SecurityContext.clear();
     }
 }
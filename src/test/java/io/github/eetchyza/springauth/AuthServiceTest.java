@@ -1,21 +1,68 @@
 package io.github.eetchyza.springauth;
 
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BooleanSupplier;
 
 import io.github.eetchyza.springauth.api.GrantedAuthority;
+import io.github.eetchyza.springauth.api.PasswordRehashListener;
 import io.github.eetchyza.springauth.api.UserDetails;
 import io.github.eetchyza.springauth.api.UserDetailsService;
+import io.github.eetchyza.springauth.cache.CachingUserDetailsService;
+import io.github.eetchyza.springauth.exceptions.LoginThrottledException;
 import io.github.eetchyza.springauth.exceptions.NotAuthenticatedException;
 import io.github.eetchyza.springauth.exceptions.PasswordExpiredException;
 import io.github.eetchyza.springauth.exceptions.TokenExpiredException;
+import io.github.eetchyza.springauth.exceptions.TooManyRequestsException;
 import io.github.eetchyza.springauth.exceptions.UsernameOrPasswordIncorrectException;
+import io.github.eetchyza.springauth.metrics.InMemoryAuthMetrics;
+import io.github.eetchyza.springauth.password.BCryptPasswordHasher;
+import io.github.eetchyza.springauth.password.DelegatingPasswordHasher;
+import io.github.eetchyza.springauth.password.Pbkdf2PasswordHasher;
+import io.github.eetchyza.springauth.ratelimit.LoginThrottle;
+import io.github.eetchyza.springauth.session.BoundedSessionStore;
+import io.github.eetchyza.springauth.session.EvictionPolicy;
+import io.github.eetchyza.springauth.session.IndexedSession;
+import io.github.eetchyza.springauth.session.InMemorySessionStore;
+import io.github.eetchyza.springauth.session.RefreshTokenIndex;
+import io.github.eetchyza.springauth.session.RestoredUserDetails;
+import io.github.eetchyza.springauth.session.Session;
+import io.github.eetchyza.springauth.session.SessionSnapshot;
+import io.github.eetchyza.springauth.token.KeyRing;
+import io.github.eetchyza.springauth.token.TokenSigner;
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.startsWith;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 public class AuthServiceTest {
@@ -29,6 +76,11 @@ public class AuthServiceTest {
 		authService = new AuthService(userDetailsService);
 	}
 
+	@After
+	public void tearDown() {
+		authService.destroy();
+	}
+
 	@Test(expected = UsernameOrPasswordIncorrectException.class)
 	public void testLogin_noUser() throws UsernameOrPasswordIncorrectException {
 		String username = "bad-bob";
@@ -52,7 +104,106 @@ public class AuthServiceTest {
 		when(userDetailsService.loadUserByUsername(user.getUsername())).thenReturn(user);
 
 		Authentication actual = authService.login(user.getUsername(), "test-pass");
-		assertThat(actual.isExpired()).isFalse();
+		assertThat(actual.isExpired(System.currentTimeMillis())).isFalse();
+	}
+
+	@Test
+	public void testLogin_rehashesOutdatedPassword() throws UsernameOrPasswordIncorrectException {
+		PasswordRehashListener listener = mock(PasswordRehashListener.class);
+		authService.setPasswordRehashListener(listener);
+		authService.setPasswordHasher(new DelegatingPasswordHasher(new Pbkdf2PasswordHasher(1000), new BCryptPasswordHasher(4)));
+		UserDetails user = createUser(6L, "STANDARD", new BCryptPasswordHasher(4).hash("test-pass"), LocalDateTime.now().plusHours(3));
+		when(userDetailsService.loadUserByUsername(user.getUsername())).thenReturn(user);
+
+		authService.login(user.getUsername(), "test-pass");
+
+		verify(listener).onRehash(eq(user), startsWith("$pbkdf2-sha256$i=1000$"));
+	}
+
+	@Test
+	public void testLogin_rehashInvalidatesCachedUser() throws UsernameOrPasswordIncorrectException {
+		PasswordRehashListener listener = mock(PasswordRehashListener.class);
+		AuthService cachingAuthService = new AuthService(new CachingUserDetailsService(userDetailsService, Duration.ofMinutes(5), Duration.ZERO, 100));
+		try {
+			cachingAuthService.setPasswordRehashListener(listener);
+			cachingAuthService.setPasswordHasher(new DelegatingPasswordHasher(new Pbkdf2PasswordHasher(1000), new BCryptPasswordHasher(4)));
+			UserDetails user = createUser(6L, "STANDARD", new BCryptPasswordHasher(4).hash("test-pass"), LocalDateTime.now().plusHours(3));
+			UserDetails rehashed = createUser(6L, "STANDARD", new Pbkdf2PasswordHasher(1000).hash("test-pass"), LocalDateTime.now().plusHours(3));
+			when(userDetailsService.loadUserByUsername(user.getUsername())).thenReturn(user, rehashed);
+
+			cachingAuthService.login(user.getUsername(), "test-pass");
+			cachingAuthService.login(user.getUsername(), "test-pass");
+			cachingAuthService.login(user.getUsername(), "test-pass");
+
+			// The second login reads the saved hash rather than the cached old one, so it is only rehashed once
+			verify(listener, times(1)).onRehash(any(), anyString());
+			verify(userDetailsService, times(2)).loadUserByUsername(user.getUsername());
+		} finally {
+			cachingAuthService.destroy();
+		}
+	}
+
+	@Test
+	public void testLogin_currentPasswordNotRehashed() throws UsernameOrPasswordIncorrectException {
+		PasswordRehashListener listener = mock(PasswordRehashListener.class);
+		authService.setPasswordRehashListener(listener);
+		UserDetails user = createUser(6L, "STANDARD", authService.hashAndSalt("test-pass"), LocalDateTime.now().plusHours(3));
+		when(userDetailsService.loadUserByUsername(user.getUsername())).thenReturn(user);
+
+		authService.login(user.getUsername(), "test-pass");
+
+		verify(listener, never()).onRehash(any(), anyString());
+	}
+
+	@Test
+	public void testLoginAsync_success() throws Exception {
+		UserDetails user = createUser(6L, "STANDARD", authService.hashAndSalt("test-pass"), LocalDateTime.now().plusHours(3));
+		when(userDetailsService.loadUserByUsername(user.getUsername())).thenReturn(user);
+
+		Authentication actual = authService.loginAsync(user.getUsername(), "test-pass").get(10, TimeUnit.SECONDS);
+
+		authService.checkAuthenticated(actual.getAuthenticationToken());
+	}
+
+	@Test
+	public void testLoginAsync_incorrectPassword() throws Exception {
+		UserDetails user = createUser(6L, "STANDARD", authService.hashAndSalt("test-pass"), LocalDateTime.now().plusHours(3));
+		when(userDetailsService.loadUserByUsername(user.getUsername())).thenReturn(user);
+
+		try {
+			authService.loginAsync(user.getUsername(), "bad-password").get(10, TimeUnit.SECONDS);
+		} catch (ExecutionException e) {
+			assertThat(e.getCause()).isInstanceOf(UsernameOrPasswordIncorrectException.class);
+			return;
+		}
+
+		throw new AssertionError("Login should have failed");
+	}
+
+	@Test
+	public void testLoginAsync_rejectedWhenSaturated() throws Exception {
+		ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.SECONDS, new ArrayBlockingQueue<>(1));
+		authService.setLoginExecutor(executor);
+		CountDownLatch blocked = new CountDownLatch(1);
+		executor.execute(() -> {
+			try {
+				blocked.await();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		});
+		executor.execute(() -> { });
+
+		CompletableFuture<Authentication> future = authService.loginAsync("test-user", "test-pass");
+		blocked.countDown();
+		executor.shutdown();
+
+		assertThat(future).isCompletedExceptionally();
+		try {
+			future.get();
+		} catch (ExecutionException e) {
+			assertThat(e.getCause()).isInstanceOf(TooManyRequestsException.class);
+		}
 	}
 
 	@Test
@@ -100,6 +251,98 @@ public class AuthServiceTest {
 		//If we get here we are authenticated
 	}
 
+	@Test
+	public void testCheckAuthenticated_expiresAfterSessionTtl() throws Exception {
+		AtomicLong now = new AtomicLong(System.currentTimeMillis());
+		authService.setClock(now::get);
+		authService.setSessionTtl(Duration.ofMinutes(10));
+		UserDetails user = createUser(6L, "STANDARD", authService.hashAndSalt("test-pass"), LocalDateTime.now().plusHours(3));
+		when(userDetailsService.loadUserByUsername(user.getUsername())).thenReturn(user);
+
+		Authentication auth = authService.login(user.getUsername(), "test-pass");
+		assertThat(auth.getExpiresAt()).isEqualTo(now.get() + Duration.ofMinutes(10).toMillis());
+
+		now.addAndGet(Duration.ofMinutes(10).toMillis());
+		authService.checkAuthenticated(auth.getAuthenticationToken());
+
+		now.incrementAndGet();
+		assertThatThrownBy(() -> authService.checkAuthenticated(auth.getAuthenticationToken())).isInstanceOf(TokenExpiredException.class);
+
+		Authentication refreshed = authService.refresh(auth.getAuthenticationToken(), auth.getRefreshToken());
+		assertThat(refreshed.getExpiresAt()).isEqualTo(now.get() + Duration.ofMinutes(10).toMillis());
+	}
+
+	@Test
+	public void testCheckAuthenticated_slidingExpiry() throws Exception {
+		AtomicLong now = new AtomicLong(System.currentTimeMillis());
+		long start = now.get();
+		authService.setClock(now::get);
+		authService.setSessionTtl(Duration.ofMinutes(10));
+		authService.setSlidingExpiry(Duration.ofMinutes(5), Duration.ofMinutes(30));
+		UserDetails user = createUser(6L, "STANDARD", authService.hashAndSalt("test-pass"), LocalDateTime.now().plusHours(3));
+		when(userDetailsService.loadUserByUsername(user.getUsername())).thenReturn(user);
+
+		Authentication auth = authService.login(user.getUsername(), "test-pass");
+		assertThat(auth.getMaxExpiresAt()).isEqualTo(start + Duration.ofMinutes(30).toMillis());
+
+		// More than the threshold left, so nothing is written
+		now.set(start + Duration.ofMinutes(4).toMillis());
+		authService.checkAuthenticated(auth.getAuthenticationToken());
+		assertThat(auth.getExpiresAt()).isEqualTo(start + Duration.ofMinutes(10).toMillis());
+
+		now.set(start + Duration.ofMinutes(6).toMillis());
+		authService.checkAuthenticated(auth.getAuthenticationToken());
+		assertThat(auth.getExpiresAt()).isEqualTo(start + Duration.ofMinutes(16).toMillis());
+
+		now.set(start + Duration.ofMinutes(12).toMillis());
+		authService.checkAuthenticated(auth.getAuthenticationToken());
+		now.set(start + Duration.ofMinutes(18).toMillis());
+		authService.checkAuthenticated(auth.getAuthenticationToken());
+		assertThat(auth.getExpiresAt()).isEqualTo(start + Duration.ofMinutes(28).toMillis());
+
+		// Never extended past the max lifetime
+		now.set(start + Duration.ofMinutes(24).toMillis());
+		authService.checkAuthenticated(auth.getAuthenticationToken());
+		assertThat(auth.getExpiresAt()).isEqualTo(start + Duration.ofMinutes(30).toMillis());
+
+		now.set(start + Duration.ofMinutes(30).toMillis() + 1);
+		assertThatThrownBy(() -> authService.checkAuthenticated(auth.getAuthenticationToken())).isInstanceOf(TokenExpiredException.class);
+	}
+
+	@Test
+	public void testSetSlidingExpiry_invalid() {
+		authService.setSessionTtl(Duration.ofMinutes(10));
+
+		assertThatThrownBy(() -> authService.setSlidingExpiry(Duration.ofMinutes(-1), Duration.ofMinutes(30))).isInstanceOf(IllegalArgumentException.class);
+		assertThatThrownBy(() -> authService.setSlidingExpiry(Duration.ofMinutes(11), Duration.ofMinutes(30))).isInstanceOf(IllegalArgumentException.class);
+		assertThatThrownBy(() -> authService.setSlidingExpiry(Duration.ofMinutes(5), Duration.ofMinutes(9))).isInstanceOf(IllegalArgumentException.class);
+
+		authService.setSlidingExpiry(Duration.ofMinutes(10), Duration.ofMinutes(10));
+		authService.setSlidingExpiry(Duration.ofMinutes(5), Duration.ofMinutes(30));
+
+		// Changing the ttl afterwards must keep it between the threshold and the max lifetime too
+		assertThatThrownBy(() -> authService.setSessionTtl(Duration.ofMinutes(4))).isInstanceOf(IllegalArgumentException.class);
+		assertThatThrownBy(() -> authService.setSessionTtl(Duration.ofMinutes(31))).isInstanceOf(IllegalArgumentException.class);
+		authService.setSessionTtl(Duration.ofMinutes(20));
+	}
+
+	@Test
+	public void testCheckAuthenticated_fixedExpiryByDefault() throws Exception {
+		AtomicLong now = new AtomicLong(System.currentTimeMillis());
+		authService.setClock(now::get);
+		UserDetails user = createUser(6L, "STANDARD", authService.hashAndSalt("test-pass"), LocalDateTime.now().plusHours(3));
+		when(userDetailsService.loadUserByUsername(user.getUsername())).thenReturn(user);
+
+		Authentication auth = authService.login(user.getUsername(), "test-pass");
+		long expiresAt = auth.getExpiresAt();
+
+		now.set(expiresAt - 1);
+		authService.checkAuthenticated(auth.getAuthenticationToken());
+
+		assertThat(auth.getExpiresAt()).isEqualTo(expiresAt);
+		assertThat(auth.getMaxExpiresAt()).isEqualTo(expiresAt);
+	}
+
 	@Test(expected = NotAuthenticatedException.class)
 	public void testCheckAuthenticated_notAuthenticated() throws NotAuthenticatedException, TokenExpiredException {
 		UserDetails user = createUser(6L, "STANDARD", authService.hashAndSalt("test-pass"), LocalDateTime.now().plusHours(3));
@@ -108,6 +351,451 @@ public class AuthServiceTest {
 		authService.checkAuthenticated("blabla");
 	}
 
+	@Test
+	public void testRefresh_concurrent() throws Exception {
+		UserDetails user = createUser(6L, "STANDARD", authService.hashAndSalt("test-pass"), LocalDateTime.now().plusHours(3));
+		when(userDetailsService.loadUserByUsername(user.getUsername())).thenReturn(user);
+
+		Authentication auth = authService.login(user.getUsername(), "test-pass");
+
+		int threads = 64;
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		CountDownLatch start = new CountDownLatch(1);
+		List<Future<Authentication>> futures = new ArrayList<>();
+
+		for (int i = 0; i < threads; i++) {
+			futures.add(executor.submit(() -> {
+				start.await();
+				return authService.refresh(auth.getAuthenticationToken(), auth.getRefreshToken());
+			}));
+		}
+		start.countDown();
+
+		List<Authentication> refreshed = new ArrayList<>();
+		for (Future<Authentication> future : futures) {
+			if (future.get() != null) {
+				refreshed.add(future.get());
+			}
+		}
+		executor.shutdown();
+
+		assertThat(refreshed).hasSize(1);
+		authService.checkAuthenticated(refreshed.get(0).getAuthenticationToken());
+	}
+
+	@Test
+	public void testRefresh_losingRefreshDoesNotEvictWinner() throws Exception {
+		authService.setSessionStore(new BoundedSessionStore(new InMemorySessionStore(), 100, 1, EvictionPolicy.LRU));
+		AtomicInteger replaces = new AtomicInteger();
+		AtomicReference<BooleanSupplier> firstReplace = new AtomicReference<>();
+		AtomicBoolean firstReplaced = new AtomicBoolean();
+		AtomicReference<Authentication> loser = new AtomicReference<>();
+		RefreshTokenIndex refreshTokens = new RefreshTokenIndex(Duration.ofDays(1)) {
+			@Override
+			public boolean replace(IndexedSession session, Session replacement) {
+				if (replaces.incrementAndGet() == 1) {
+					// A second refresh of the same session starts before this one swaps in its replacement, and swaps just after it
+					firstReplace.set(() -> super.replace(session, replacement));
+					loser.set(authService.refresh(session.getToken(), session.getRefreshToken()));
+					return firstReplaced.get();
+				}
+
+				firstReplaced.set(firstReplace.get().getAsBoolean());
+				return super.replace(session, replacement);
+			}
+		};
+		authService.setRefreshTokenIndex(refreshTokens);
+		UserDetails user = createUser(6L, "STANDARD", authService.hashAndSalt("test-pass"), LocalDateTime.now().plusHours(3));
+		when(userDetailsService.loadUserByUsername(user.getUsername())).thenReturn(user);
+
+		try {
+			Authentication auth = authService.login(user.getUsername(), "test-pass");
+			Authentication winner = authService.refresh(auth.getAuthenticationToken(), auth.getRefreshToken());
+
+			assertThat(loser.get()).isNull();
+			authService.checkAuthenticated(winner.getAuthenticationToken());
+		} finally {
+			refreshTokens.close();
+		}
+	}
+
+	@Test
+	public void testRefresh_evictedSessionRejected() throws Exception {
+		BoundedSessionStore sessionStore = new BoundedSessionStore(new InMemorySessionStore(), 100, 1, EvictionPolicy.LRU);
+		authService.setSessionStore(sessionStore);
+		UserDetails user = createUser(6L, "STANDARD", authService.hashAndSalt("test-pass"), LocalDateTime.now().plusHours(3));
+		when(userDetailsService.loadUserByUsername(user.getUsername())).thenReturn(user);
+
+		Authentication evicted = authService.login(user.getUsername(), "test-pass");
+		Authentication newer = authService.login(user.getUsername(), "test-pass");
+
+		assertThat(sessionStore.getEvictedCount()).isEqualTo(1);
+		assertThat(authService.refresh(evicted.getAuthenticationToken(), evicted.getRefreshToken())).isNull();
+		authService.checkAuthenticated(newer.getAuthenticationToken());
+	}
+
+	@Test(expected = NotAuthenticatedException.class)
+	public void testRefresh_oldTokenRemoved() throws Exception {
+		UserDetails user = createUser(6L, "STANDARD", authService.hashAndSalt("test-pass"), LocalDateTime.now().plusHours(3));
+		when(userDetailsService.loadUserByUsername(user.getUsername())).thenReturn(user);
+
+		Authentication auth = authService.login(user.getUsername(), "test-pass");
+		authService.refresh(auth.getAuthenticationToken(), auth.getRefreshToken());
+
+		authService.checkAuthenticated(auth.getAuthenticationToken());
+	}
+
+	@Test
+	public void testRefresh_afterAuthTokenEvicted() throws Exception {
+		InMemorySessionStore sessionStore = new InMemorySessionStore();
+		authService.setSessionStore(sessionStore);
+		UserDetails user = createUser(6L, "STANDARD", authService.hashAndSalt("test-pass"), LocalDateTime.now().plusHours(3));
+		when(userDetailsService.loadUserByUsername(user.getUsername())).thenReturn(user);
+
+		Authentication auth = authService.login(user.getUsername(), "test-pass");
+		sessionStore.remove(auth.getAuthenticationToken());
+
+		Authentication refreshed = authService.refresh(null, auth.getRefreshToken());
+		authService.checkAuthenticated(refreshed.getAuthenticationToken());
+		assertThat(refreshed.getUsername()).isEqualTo(user.getUsername());
+		assertThat(authService.refresh(null, null)).isNull();
+	}
+
+	@Test
+	public void testRefresh_afterAuthTokenEvicted_usernameReassigned() throws Exception {
+		InMemorySessionStore sessionStore = new InMemorySessionStore();
+		authService.setSessionStore(sessionStore);
+		UserDetails user = createUser(6L, "STANDARD", authService.hashAndSalt("test-pass"), LocalDateTime.now().plusHours(3));
+		when(userDetailsService.loadUserByUsername(user.getUsername())).thenReturn(user);
+
+		Authentication auth = authService.login(user.getUsername(), "test-pass");
+		sessionStore.remove(auth.getAuthenticationToken());
+		UserDetails other = createUser(7L, "STANDARD", authService.hashAndSalt("other-pass"), LocalDateTime.now().plusHours(3));
+		when(userDetailsService.loadUserByUsername(user.getUsername())).thenReturn(other);
+
+		assertThat(authService.refresh(null, auth.getRefreshToken())).isNull();
+	}
+
+	@Test
+	public void testRefresh_reuseRevokesFamily() throws Exception {
+		RefreshTokenIndex refreshTokens = new RefreshTokenIndex(Duration.ofDays(1), Duration.ZERO);
+		authService.setRefreshTokenIndex(refreshTokens);
+		UserDetails user = createUser(6L, "STANDARD", authService.hashAndSalt("test-pass"), LocalDateTime.now().plusHours(3));
+		when(userDetailsService.loadUserByUsername(user.getUsername())).thenReturn(user);
+
+		try {
+			Authentication auth = authService.login(user.getUsername(), "test-pass");
+			Authentication first = authService.refresh(auth.getAuthenticationToken(), auth.getRefreshToken());
+			Authentication second = authService.refresh(first.getAuthenticationToken(), first.getRefreshToken());
+
+			assertThat(authService.refresh(auth.getAuthenticationToken(), auth.getRefreshToken())).isNull();
+			assertThat(authService.refresh(second.getAuthenticationToken(), second.getRefreshToken())).isNull();
+			assertThat(authService.getSessionCount()).isEqualTo(0);
+		} finally {
+			refreshTokens.close();
+		}
+	}
+
+	@Test
+	public void testLogout_revokesRefreshToken() throws Exception {
+		UserDetails user = createUser(6L, "STANDARD", authService.hashAndSalt("test-pass"), LocalDateTime.now().plusHours(3));
+		when(userDetailsService.loadUserByUsername(user.getUsername())).thenReturn(user);
+
+		Authentication auth = authService.login(user.getUsername(), "test-pass");
+		authService.logout(auth.getAuthenticationToken());
+
+		assertThat(authService.refresh(null, auth.getRefreshToken())).isNull();
+	}
+
+	@Test
+	public void testLogout_afterSessionSwept() throws Exception {
+		InMemorySessionStore sessionStore = new InMemorySessionStore();
+		authService.setSessionStore(sessionStore);
+		UserDetails user = createUser(6L, "STANDARD", authService.hashAndSalt("test-pass"), LocalDateTime.now().plusHours(3));
+		when(userDetailsService.loadUserByUsername(user.getUsername())).thenReturn(user);
+
+		Authentication auth = authService.login(user.getUsername(), "test-pass");
+		sessionStore.remove(auth.getAuthenticationToken());
+		authService.logout(auth.getAuthenticationToken());
+
+		assertThat(authService.refresh(null, auth.getRefreshToken())).isNull();
+	}
+
+	@Test
+	public void testRefresh_alreadyUsedOnAnotherNode() throws Exception {
+		InMemorySessionStore sessionStore = new InMemorySessionStore() {
+			@Override
+			public boolean isShared() {
+				return true;
+			}
+		};
+		authService.setSessionStore(sessionStore);
+		AuthService otherNode = new AuthService(userDetailsService);
+		otherNode.setSessionStore(sessionStore);
+		UserDetails user = createUser(6L, "STANDARD", authService.hashAndSalt("test-pass"), LocalDateTime.now().plusHours(3));
+		when(userDetailsService.loadUserByUsername(user.getUsername())).thenReturn(user);
+
+		try {
+			Authentication auth = authService.login(user.getUsername(), "test-pass");
+			Authentication refreshed = otherNode.refresh(auth.getAuthenticationToken(), auth.getRefreshToken());
+			assertThat(refreshed).isNotNull();
+
+			assertThat(authService.refresh(auth.getAuthenticationToken(), auth.getRefreshToken())).isNull();
+			assertThat(authService.refresh(null, auth.getRefreshToken())).isNull();
+			assertThat(authService.getSessionCount()).isEqualTo(1);
+		} finally {
+			otherNode.destroy();
+		}
+	}
+
+	@Test
+	public void testRevokeAllForUser() throws Exception {
+		InMemorySessionStore sessionStore = new InMemorySessionStore();
+		authService.setSessionStore(sessionStore);
+		UserDetails user = createUser(6L, "STANDARD", authService.hashAndSalt("test-pass"), LocalDateTime.now().plusHours(3));
+		when(userDetailsService.loadUserByUsername(user.getUsername())).thenReturn(user);
+
+		Authentication first = authService.login(user.getUsername(), "test-pass");
+		Authentication second = authService.login(user.getUsername(), "test-pass");
+		// An expired session that has already been swept can still be refreshed until it is revoked
+		sessionStore.remove(second.getAuthenticationToken());
+
+		assertThat(authService.revokeAllForUser(6L)).isEqualTo(2);
+		assertThat(authService.getSessionCount()).isEqualTo(0);
+		assertThat(authService.refresh(first.getAuthenticationToken(), first.getRefreshToken())).isNull();
+		assertThat(authService.refresh(null, second.getRefreshToken())).isNull();
+	}
+
+	@Test
+	public void testRevokeAllWithRole() throws Exception {
+		UserDetails admin = createUser(6L, "ADMIN", authService.hashAndSalt("test-pass"), LocalDateTime.now().plusHours(3));
+		UserDetails standard = createUser(7L, "STANDARD", authService.hashAndSalt("test-pass"), LocalDateTime.now().plusHours(3));
+		when(userDetailsService.loadUserByUsername("admin")).thenReturn(admin);
+		when(userDetailsService.loadUserByUsername("standard")).thenReturn(standard);
+
+		Authentication adminAuth = authService.login("admin", "test-pass");
+		Authentication standardAuth = authService.login("standard", "test-pass");
+
+		assertThat(authService.revokeAllWithRole("ADMIN")).isEqualTo(1);
+		authService.checkAuthenticated(standardAuth.getAuthenticationToken());
+		try {
+			authService.checkAuthenticated(adminAuth.getAuthenticationToken());
+		} catch (NotAuthenticatedException e) {
+			return;
+		}
+
+		throw new AssertionError("Admin session should have been revoked");
+	}
+
+	@Test
+	public void testSessionSnapshot_survivesRestart() throws Exception {
+		Path file = Files.createTempFile("sessions", ".snapshot");
+		Files.delete(file);
+		authService.setSessionSnapshot(new SessionSnapshot(file, Duration.ZERO));
+		authService.afterPropertiesSet();
+		UserDetails user = createUser(6L, "STANDARD", authService.hashAndSalt("test-pass"), LocalDateTime.now().plusHours(3));
+		when(userDetailsService.loadUserByUsername(user.getUsername())).thenReturn(user);
+
+		Authentication auth = authService.login(user.getUsername(), "test-pass");
+		authService.destroy();
+		authService.setSessionSnapshot(null);
+
+		AuthService restarted = new AuthService(userDetailsService);
+		try {
+			restarted.setSessionSnapshot(new SessionSnapshot(file, Duration.ZERO));
+			restarted.afterPropertiesSet();
+
+			restarted.checkAuthenticated(auth.getAuthenticationToken());
+			restarted.checkIsAuthorised(auth.getAuthenticationToken(), AuthorizationPlan.allowRoles("STANDARD"));
+			assertThat(restarted.refresh(auth.getAuthenticationToken(), auth.getRefreshToken())).isNotNull();
+		} finally {
+			restarted.destroy();
+			Files.deleteIfExists(file);
+		}
+	}
+
+	@Test
+	public void testSessionSnapshot_restoredUserReloaded() throws Exception {
+		Path file = Files.createTempFile("sessions", ".snapshot");
+		Files.delete(file);
+		authService.setSessionSnapshot(new SessionSnapshot(file, Duration.ZERO));
+		authService.afterPropertiesSet();
+		UserDetails user = createUser(6L, "STANDARD", authService.hashAndSalt("test-pass"), LocalDateTime.now().plusHours(3));
+		UserDetails otherUser = createUser(7L, "STANDARD", authService.hashAndSalt("test-pass"), LocalDateTime.now().plusHours(3));
+		when(userDetailsService.loadUserByUsername(user.getUsername())).thenReturn(user);
+
+		Authentication auth = authService.login(user.getUsername(), "test-pass");
+		Authentication other = authService.login(user.getUsername(), "test-pass");
+		authService.destroy();
+		authService.setSessionSnapshot(null);
+
+		AuthService restarted = new AuthService(userDetailsService);
+		try {
+			restarted.setSessionSnapshot(new SessionSnapshot(file, Duration.ZERO));
+			restarted.afterPropertiesSet();
+
+			// The application's own class comes back, and is only loaded once
+			restarted.setCurrentUser(auth.getAuthenticationToken());
+			assertThat(SecurityContext.getCurrentUser()).isSameAs(user);
+			assertThat(restarted.getCurrentUser(auth.getAuthenticationToken())).isSameAs(user);
+			verify(userDetailsService, times(3)).loadUserByUsername(user.getUsername());
+
+			// The username now belongs to someone else, so the session keeps what it knew about its own user
+			when(userDetailsService.loadUserByUsername(user.getUsername())).thenReturn(otherUser);
+			UserDetails restored = restarted.getCurrentUser(other.getAuthenticationToken());
+			assertThat(restored).isInstanceOf(RestoredUserDetails.class);
+			assertThat(restored.getId()).isEqualTo(6L);
+		} finally {
+			restarted.destroy();
+			Files.deleteIfExists(file);
+		}
+	}
+
+	@Test
+	public void testSignedTokens() throws Exception {
+		authService.setTokenSigner(new TokenSigner(new KeyRing("k1", "0123456789abcdef0123456789abcdef".getBytes("US-ASCII"))));
+		UserDetails user = createUser(6L, "STANDARD", authService.hashAndSalt("test-pass"), LocalDateTime.now().plusHours(3));
+		when(userDetailsService.loadUserByUsername(user.getUsername())).thenReturn(user);
+
+		Authentication auth = authService.login(user.getUsername(), "test-pass");
+		authService.checkAuthenticated(auth.getAuthenticationToken());
+		authService.setCurrentUser(auth.getAuthenticationToken());
+
+		assertThat(SecurityContext.getCurrentUser().getId()).isEqualTo(6L);
+		assertThat(SecurityContext.getCurrentUser().getUsername()).isEqualTo(user.getUsername());
+
+		Authentication refreshed = authService.refresh(auth.getAuthenticationToken(), auth.getRefreshToken());
+		authService.checkAuthenticated(refreshed.getAuthenticationToken());
+
+		authService.logout(refreshed.getAuthenticationToken());
+		try {
+			authService.checkAuthenticated(refreshed.getAuthenticationToken());
+		} catch (NotAuthenticatedException e) {
+			return;
+		}
+
+		throw new AssertionError("Token should have been revoked");
+	}
+
+	@Test
+	public void testLogin_throttledBeforeLoadingUser() throws Exception {
+		UserDetails user = createUser(6L, "STANDARD", authService.hashAndSalt("test-pass"), LocalDateTime.now().plusHours(3));
+		when(userDetailsService.loadUserByUsername(user.getUsername())).thenReturn(user);
+
+		for (int i = 0; i < LoginThrottle.DEFAULT_MAX_USER_FAILURES; i++) {
+			try {
+				authService.login(user.getUsername(), "bad-password", "10.0.0.1");
+			} catch (UsernameOrPasswordIncorrectException e) {
+				assertThat(e).isNotInstanceOf(LoginThrottledException.class);
+			}
+		}
+
+		try {
+			authService.login(user.getUsername(), "test-pass", "10.0.0.2");
+			throw new AssertionError("Login should have been throttled");
+		} catch (LoginThrottledException e) {
+			assertThat(e.getRetryAfterMillis()).isGreaterThan(0);
+		}
+
+		verify(userDetailsService, times(LoginThrottle.DEFAULT_MAX_USER_FAILURES)).loadUserByUsername(user.getUsername());
+
+		try {
+			authService.loginAsync(user.getUsername(), "test-pass").get();
+			throw new AssertionError("Login should have been throttled");
+		} catch (ExecutionException e) {
+			assertThat(e.getCause()).isInstanceOf(LoginThrottledException.class);
+		}
+	}
+
+	@Test
+	public void testLogin_throttleFollowsClock() throws Exception {
+		AtomicLong now = new AtomicLong(System.currentTimeMillis());
+		authService.setClock(now::get);
+		UserDetails user = createUser(6L, "STANDARD", authService.hashAndSalt("test-pass"), LocalDateTime.now().plusHours(3));
+		when(userDetailsService.loadUserByUsername(user.getUsername())).thenReturn(user);
+
+		for (int i = 0; i < LoginThrottle.DEFAULT_MAX_USER_FAILURES; i++) {
+			try {
+				authService.login(user.getUsername(), "bad-password");
+			} catch (UsernameOrPasswordIncorrectException e) {
+				assertThat(e).isNotInstanceOf(LoginThrottledException.class);
+			}
+		}
+
+		long retryAfter;
+		try {
+			authService.login(user.getUsername(), "test-pass");
+			throw new AssertionError("Login should have been throttled");
+		} catch (LoginThrottledException e) {
+			retryAfter = e.getRetryAfterMillis();
+		}
+
+		now.addAndGet(retryAfter);
+		assertThat(authService.login(user.getUsername(), "test-pass")).isNotNull();
+	}
+
+	@Test
+	public void testRefresh_refreshTokenExpiresByClock() throws Exception {
+		AtomicLong now = new AtomicLong(System.currentTimeMillis());
+		authService.setClock(now::get);
+		UserDetails user = createUser(6L, "STANDARD", authService.hashAndSalt("test-pass"), LocalDateTime.now().plusHours(3));
+		when(userDetailsService.loadUserByUsername(user.getUsername())).thenReturn(user);
+
+		Authentication auth = authService.login(user.getUsername(), "test-pass");
+		Authentication other = authService.login(user.getUsername(), "test-pass");
+
+		now.addAndGet(RefreshTokenIndex.DEFAULT_TTL.toMillis() - 1);
+		assertThat(authService.refresh(null, auth.getRefreshToken())).isNotNull();
+
+		now.addAndGet(1);
+		assertThat(authService.refresh(null, other.getRefreshToken())).isNull();
+	}
+
+	@Test
+	public void testLogin_successClearsFailures() throws Exception {
+		UserDetails user = createUser(6L, "STANDARD", authService.hashAndSalt("test-pass"), LocalDateTime.now().plusHours(3));
+		when(userDetailsService.loadUserByUsername(user.getUsername())).thenReturn(user);
+
+		for (int round = 0; round < 3; round++) {
+			for (int i = 0; i < LoginThrottle.DEFAULT_MAX_USER_FAILURES - 1; i++) {
+				try {
+					authService.login(user.getUsername(), "bad-password");
+				} catch (UsernameOrPasswordIncorrectException e) {
+					// expected
+				}
+			}
+
+			assertThat(authService.login(user.getUsername(), "test-pass")).isNotNull();
+		}
+	}
+
+	@Test
+	public void testMetrics() throws Exception {
+		InMemoryAuthMetrics metrics = new InMemoryAuthMetrics();
+		authService.setAuthMetrics(metrics);
+		UserDetails user = createUser(6L, "STANDARD", authService.hashAndSalt("test-pass"), LocalDateTime.now().plusHours(3));
+		when(userDetailsService.loadUserByUsername(user.getUsername())).thenReturn(user);
+
+		Authentication auth = authService.login(user.getUsername(), "test-pass");
+		try {
+			authService.login(user.getUsername(), "bad-password");
+		} catch (UsernameOrPasswordIncorrectException e) {
+			// counted as a failure
+		}
+		Authentication refreshed = authService.refresh(auth.getAuthenticationToken(), auth.getRefreshToken());
+		authService.refresh(auth.getAuthenticationToken(), auth.getRefreshToken());
+		authService.logout(refreshed.getAuthenticationToken());
+
+		assertThat(metrics.getLoginSuccesses()).isEqualTo(1);
+		assertThat(metrics.getLoginFailures()).isEqualTo(1);
+		assertThat(metrics.getRefreshSuccesses()).isEqualTo(1);
+		assertThat(metrics.getRefreshFailures()).isEqualTo(1);
+		assertThat(metrics.getLogouts()).isEqualTo(1);
+		assertThat(metrics.getUserLoads().getCount()).isEqualTo(2);
+		assertThat(metrics.getPasswordVerifications().getCount()).isEqualTo(2);
+		assertThat(authService.getSessionCount()).isEqualTo(0);
+	}
+
 	private UserDetails createUser(long id, String auth, String password, LocalDateTime expires) {
 		return createUser(id, auth, password, expires, false);
 	}
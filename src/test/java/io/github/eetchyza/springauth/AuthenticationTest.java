@@ -1,6 +1,13 @@
 package io.github.eetchyza.springauth;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 
@@ -51,12 +58,19 @@ public class AuthenticationTest {
 	@Test
 	public void testIsExpired_true() {
 		authentication = new Authentication(authenticationToken, refreshToken, LocalDateTime.now().minusHours(2), roles, username, id);
-		assertTrue(authentication.isExpired());
+		assertTrue(authentication.isExpired(System.currentTimeMillis()));
 	}
 
 	@Test
 	public void testIsExpired_false() {
-		assertFalse(authentication.isExpired());
+		assertFalse(authentication.isExpired(System.currentTimeMillis()));
+	}
+
+	@Test
+	public void testIsExpired_atExpiry() {
+		authentication = new Authentication(authenticationToken, refreshToken, 1000L, roles, username, id);
+		assertFalse(authentication.isExpired(1000L));
+		assertTrue(authentication.isExpired(1001L));
 	}
 
 	@Test
@@ -68,4 +82,33 @@ public class AuthenticationTest {
 	public void testHasRoles_false() {
 		assertFalse(authentication.hasRoles(new String[] { "ADMIN" }));
 	}
-}
\ No newline at end of file
+
+	@Test
+	public void testHasRoles_afterDeserialising() throws IOException, ClassNotFoundException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+			out.writeObject(new Authentication(authenticationToken, refreshToken, expire, new ArrayList<>(Collections.singletonList(new TestAuthority("STANDARD"))), username, id));
+		}
+
+		Authentication read;
+		try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+			read = (Authentication) in.readObject();
+		}
+
+		assertTrue(read.hasRoles(new String[] { "ADMIN", "STANDARD" }));
+		assertFalse(read.hasRoles(new String[] { "ADMIN" }));
+	}
+
+	private static class TestAuthority implements GrantedAuthority, Serializable {
+		private final String authority;
+
+		TestAuthority(String authority) {
+			this.authority = authority;
+		}
+
+		@Override
+		public String getAuthority() {
+			return authority;
+		}
+	}
+}
@@ -0,0 +1,119 @@
+package io.github.eetchyza.springauth;
+
+import java.lang.reflect.Method;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+
+import io.github.eetchyza.springauth.annotations.AllowAnon;
+import io.github.eetchyza.springauth.annotations.AllowRoles;
+import io.github.eetchyza.springauth.api.GrantedAuthority;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class AuthorizationPlanTest {
+
+	@Test
+	public void testOf_methodAnon() throws NoSuchMethodException {
+		AuthorizationPlan plan = plan(AdminController.class, "open");
+
+		assertThat(plan.isAnonymous()).isTrue();
+		assertThat(plan.getRoles()).isEmpty();
+	}
+
+	@Test
+	public void testOf_methodRolesOverrideClassRoles() throws NoSuchMethodException {
+		AuthorizationPlan plan = plan(AdminController.class, "audit");
+
+		assertThat(plan.isAnonymous()).isFalse();
+		assertThat(plan.getRoles()).containsExactly("AUDITOR");
+	}
+
+	@Test
+	public void testOf_classRoles() throws NoSuchMethodException {
+		assertThat(plan(AdminController.class, "inherited").getRoles()).containsExactly("ADMIN");
+	}
+
+	@Test
+	public void testOf_methodRolesOverrideClassAnon() throws NoSuchMethodException {
+		AuthorizationPlan plan = plan(PublicController.class, "restricted");
+
+		assertThat(plan.isAnonymous()).isFalse();
+		assertThat(plan.getRoles()).containsExactly("STANDARD");
+	}
+
+	@Test
+	public void testOf_classAnon() throws NoSuchMethodException {
+		assertThat(plan(PublicController.class, "inherited").isAnonymous()).isTrue();
+	}
+
+	@Test
+	public void testOf_inheritedMethodUsesHandlerClass() throws NoSuchMethodException {
+		Method method = BaseController.class.getMethod("inherited");
+
+		assertThat(AuthorizationPlan.of(AdminController.class, method).getRoles()).containsExactly("ADMIN");
+		assertThat(AuthorizationPlan.of(PublicController.class, method).isAnonymous()).isTrue();
+	}
+
+	@Test
+	public void testOf_notAnnotated() throws NoSuchMethodException {
+		AuthorizationPlan plan = plan(BaseController.class, "inherited");
+
+		assertThat(plan.isAnonymous()).isFalse();
+		assertThat(plan.isAllowed(authentication("ADMIN"))).isFalse();
+	}
+
+	@Test
+	public void testOf_duplicateRoles() throws NoSuchMethodException {
+		assertThat(plan(AdminController.class, "duplicated").getRoles()).containsExactly("ADMIN", "STANDARD");
+	}
+
+	@Test
+	public void testIsAllowed() throws NoSuchMethodException {
+		AuthorizationPlan plan = plan(AdminController.class, "duplicated");
+
+		assertThat(plan.isAllowed(authentication("STANDARD"))).isTrue();
+		assertThat(plan.isAllowed(authentication("AUDITOR"))).isFalse();
+	}
+
+	private static AuthorizationPlan plan(Class<?> type, String method) throws NoSuchMethodException {
+		return AuthorizationPlan.of(type, type.getMethod(method));
+	}
+
+	private static Authentication authentication(String... roles) {
+		GrantedAuthority[] authorities = new GrantedAuthority[roles.length];
+		for (int i = 0; i < roles.length; i++) {
+			String role = roles[i];
+			authorities[i] = () -> role;
+		}
+
+		return new Authentication("token", "refresh", LocalDateTime.now().plusHours(1), Arrays.asList(authorities), "test-user", 1L);
+	}
+
+	public static class BaseController {
+		public void inherited() {
+		}
+	}
+
+	@AllowRoles("ADMIN")
+	public static class AdminController extends BaseController {
+		@AllowAnon
+		public void open() {
+		}
+
+		@AllowRoles("AUDITOR")
+		public void audit() {
+		}
+
+		@AllowRoles({ "ADMIN", "STANDARD", "ADMIN" })
+		public void duplicated() {
+		}
+	}
+
+	@AllowAnon
+	public static class PublicController extends BaseController {
+		@AllowRoles("STANDARD")
+		public void restricted() {
+		}
+	}
+}
@@ -0,0 +1,57 @@
+package io.github.eetchyza.springauth;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import io.github.eetchyza.springauth.api.GrantedAuthority;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class RoleSetTest {
+
+	@Test
+	public void testIntersects_sharedRole() {
+		assertThat(RoleSet.of("STANDARD", "ADMIN").intersects(RoleSet.of("AUDITOR", "ADMIN"))).isTrue();
+	}
+
+	@Test
+	public void testIntersects_noSharedRole() {
+		assertThat(RoleSet.of("STANDARD").intersects(RoleSet.of("AUDITOR", "ADMIN"))).isFalse();
+	}
+
+	@Test
+	public void testIntersects_empty() {
+		assertThat(RoleSet.EMPTY.intersects(RoleSet.of("STANDARD"))).isFalse();
+		assertThat(RoleSet.of("STANDARD").intersects(RoleSet.EMPTY)).isFalse();
+	}
+
+	@Test
+	public void testIntersects_moreThan64Roles() {
+		List<GrantedAuthority> authorities = new ArrayList<>();
+		for (int i = 0; i < 200; i++) {
+			String role = "ROLE_SET_TEST_" + i;
+			authorities.add(() -> role);
+		}
+
+		RoleSet granted = RoleSet.of(authorities);
+
+		assertThat(granted.intersects(RoleSet.of("ROLE_SET_TEST_199"))).isTrue();
+		assertThat(granted.intersects(RoleSet.of("ROLE_SET_TEST_0"))).isTrue();
+		assertThat(granted.intersects(RoleSet.of("ROLE_SET_TEST_200"))).isFalse();
+		assertThat(RoleSet.of("ROLE_SET_TEST_0").intersects(RoleSet.of("ROLE_SET_TEST_199"))).isFalse();
+	}
+
+	@Test
+	public void testOf_ignoresNullAuthority() {
+		RoleSet granted = RoleSet.of(Arrays.asList((GrantedAuthority) () -> null, () -> "STANDARD"));
+
+		assertThat(granted.intersects(RoleSet.of("STANDARD"))).isTrue();
+	}
+
+	@Test
+	public void testOf_nullAuthorities() {
+		assertThat(RoleSet.of((List<GrantedAuthority>) null).intersects(RoleSet.of("STANDARD"))).isFalse();
+	}
+}
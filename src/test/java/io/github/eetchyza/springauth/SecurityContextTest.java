@@ -0,0 +1,104 @@
+package io.github.eetchyza.springauth;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import io.github.eetchyza.springauth.api.GrantedAuthority;
+import io.github.eetchyza.springauth.api.UserDetails;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class SecurityContextTest {
+	private ExecutorService pool;
+
+	@Before
+	public void setup() {
+		pool = Executors.newSingleThreadExecutor();
+	}
+
+	@After
+	public void tearDown() {
+		pool.shutdown();
+		SecurityContext.clear();
+	}
+
+	@Test
+	public void testExecutor_runsAsSubmitter() throws Exception {
+		UserDetails bob = new TestUser(1L);
+		SecurityContext.setCurrentUser(bob);
+
+		UserDetails seen = CompletableFuture.supplyAsync(SecurityContext::getCurrentUser, new SecurityContextExecutor(pool)).get();
+
+		assertThat(seen).isSameAs(bob);
+		// The pool's thread is left as it was
+		assertThat(pool.submit(SecurityContext::getCurrentUser).get()).isNull();
+	}
+
+	@Test
+	public void testWrap_restoresThreadsOwnUser() throws Exception {
+		UserDetails bob = new TestUser(1L);
+		UserDetails alice = new TestUser(2L);
+
+		SecurityContext.setCurrentUser(bob);
+		Runnable asBob = SecurityContext.wrap(() -> {
+			assertThat(SecurityContext.getCurrentUser()).isSameAs(bob);
+		});
+		SecurityContext.clear();
+		Runnable anonymous = SecurityContext.wrap(() -> {
+			assertThat(SecurityContext.getCurrentUser()).isNull();
+		});
+
+		SecurityContext.setCurrentUser(alice);
+		asBob.run();
+		anonymous.run();
+		assertThat(SecurityContext.getCurrentUser()).isSameAs(alice);
+
+		SecurityContext.setCurrentUser(bob);
+		assertThat(pool.submit(SecurityContext.wrap(SecurityContext::getCurrentUser)).get()).isSameAs(bob);
+	}
+
+	private static class TestUser implements UserDetails {
+		private final long id;
+
+		private TestUser(long id) {
+			this.id = id;
+		}
+
+		@Override
+		public long getId() {
+			return id;
+		}
+
+		@Override
+		public Collection<? extends GrantedAuthority> getAuthorities() {
+			return Collections.emptyList();
+		}
+
+		@Override
+		public String getPassword() {
+			return "test-pass";
+		}
+
+		@Override
+		public String getUsername() {
+			return "user-" + id;
+		}
+
+		@Override
+		public boolean isTemporaryPassword() {
+			return false;
+		}
+
+		@Override
+		public LocalDateTime getExpires() {
+			return null;
+		}
+	}
+}
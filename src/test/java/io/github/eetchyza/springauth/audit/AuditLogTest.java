@@ -0,0 +1,127 @@
+package io.github.eetchyza.springauth.audit;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class AuditLogTest {
+	private static final Duration NEVER = Duration.ofHours(1);
+
+	private final List<AuditEvent> written = Collections.synchronizedList(new ArrayList<>());
+
+	private AuditLog auditLog;
+
+	@After
+	public void tearDown() {
+		if (auditLog != null) {
+			auditLog.close();
+		}
+	}
+
+	@Test
+	public void testFlush_writesInOrder() {
+		auditLog = new AuditLog(written::addAll, 1, 64, NEVER);
+		auditLog.allowed("GET", "/users", "bob");
+		auditLog.denied("POST", "/admin", null, "Not authorised");
+		auditLog.flush();
+
+		assertThat(written).hasSize(2);
+		assertThat(written.get(0).isAllowed()).isTrue();
+		assertThat(written.get(0).getUsername()).isEqualTo("bob");
+		assertThat(written.get(1).isAllowed()).isFalse();
+		assertThat(written.get(1).getReason()).isEqualTo("Not authorised");
+		assertThat(auditLog.getWrittenCount()).isEqualTo(2);
+	}
+
+	@Test
+	public void testSampling_deniedAlwaysRecorded() {
+		auditLog = new AuditLog(written::addAll, 0, 64, NEVER);
+		for (int i = 0; i < 10; i++) {
+			auditLog.allowed("GET", "/users", "bob");
+			auditLog.denied("GET", "/admin", "bob", "Not authorised");
+		}
+		auditLog.flush();
+
+		assertThat(written).hasSize(10).noneMatch(AuditEvent::isAllowed);
+	}
+
+	@Test
+	public void testSampling_fraction() {
+		auditLog = new AuditLog(written::addAll, 0.1, 131072, NEVER);
+		for (int i = 0; i < 100_000; i++) {
+			auditLog.allowed("GET", "/users", "bob");
+		}
+		auditLog.flush();
+
+		assertThat(written.size()).isBetween(9_000, 11_000);
+	}
+
+	@Test
+	public void testFull_dropsAllowedBeforeDenied() {
+		auditLog = new AuditLog(written::addAll, 1, 8, NEVER);
+		for (int i = 0; i < 8; i++) {
+			auditLog.allowed("GET", "/users", "bob");
+		}
+		for (int i = 0; i < 4; i++) {
+			auditLog.denied("GET", "/admin", "bob", "Not authorised");
+		}
+
+		// 6 allowed fill three quarters, 2 denials fill the rest
+		assertThat(auditLog.getDroppedCount()).isEqualTo(4);
+
+		auditLog.flush();
+		assertThat(written).hasSize(8);
+		assertThat(written.stream().filter(AuditEvent::isAllowed)).hasSize(6);
+
+		auditLog.denied("GET", "/admin", "bob", "Not authorised");
+		auditLog.flush();
+		assertThat(written).hasSize(9);
+	}
+
+	@Test
+	public void testFailingSink_countsDropped() {
+		auditLog = new AuditLog(events -> {
+			throw new IllegalStateException("disk full");
+		}, 1, 64, NEVER);
+		auditLog.denied("GET", "/admin", "bob", "Not authorised");
+		auditLog.flush();
+
+		assertThat(auditLog.getDroppedCount()).isEqualTo(1);
+		assertThat(auditLog.getWrittenCount()).isEqualTo(0);
+	}
+
+	@Test
+	public void testConcurrent_backgroundWriter() throws InterruptedException {
+		auditLog = new AuditLog(written::addAll, 1, 1 << 20, Duration.ofMillis(1));
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+
+		for (int thread = 0; thread < 8; thread++) {
+			executor.execute(() -> {
+				for (int i = 0; i < 10_000; i++) {
+					auditLog.denied("GET", "/admin", "bob", "Not authorised");
+				}
+			});
+		}
+
+		executor.shutdown();
+		assertThat(executor.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+		auditLog.close();
+
+		assertThat(auditLog.getDroppedCount()).isEqualTo(0);
+		assertThat(written).hasSize(80_000);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testConstructor_invalidSampleRate() {
+		new AuditLog(written::addAll, 1.5);
+	}
+}
@@ -0,0 +1,106 @@
+package io.github.eetchyza.springauth.cache;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import io.github.eetchyza.springauth.api.UserDetails;
+import io.github.eetchyza.springauth.api.UserDetailsService;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class CachingUserDetailsServiceTest {
+	private UserDetailsService delegate;
+
+	private AtomicLong now;
+
+	private CachingUserDetailsService userDetailsService;
+
+	private UserDetails user;
+
+	@Before
+	public void setup() {
+		delegate = mock(UserDetailsService.class);
+		now = new AtomicLong();
+		userDetailsService = new CachingUserDetailsService(delegate, Duration.ofMinutes(5), Duration.ofSeconds(30), 3, now::get);
+		user = mock(UserDetails.class);
+		when(delegate.loadUserByUsername("bob")).thenReturn(user);
+	}
+
+	@Test
+	public void testLoadUserByUsername_cached() {
+		assertThat(userDetailsService.loadUserByUsername("bob")).isSameAs(user);
+		assertThat(userDetailsService.loadUserByUsername("bob")).isSameAs(user);
+
+		verify(delegate, times(1)).loadUserByUsername("bob");
+		assertThat(userDetailsService.getHitCount()).isEqualTo(1);
+		assertThat(userDetailsService.getMissCount()).isEqualTo(1);
+	}
+
+	@Test
+	public void testLoadUserByUsername_expires() {
+		userDetailsService.loadUserByUsername("bob");
+		now.addAndGet(TimeUnit.MINUTES.toNanos(5));
+
+		userDetailsService.loadUserByUsername("bob");
+
+		verify(delegate, times(2)).loadUserByUsername("bob");
+	}
+
+	@Test
+	public void testLoadUserByUsername_negativeCached() {
+		assertThat(userDetailsService.loadUserByUsername("nobody")).isNull();
+		assertThat(userDetailsService.loadUserByUsername("nobody")).isNull();
+		verify(delegate, times(1)).loadUserByUsername("nobody");
+
+		now.addAndGet(TimeUnit.SECONDS.toNanos(30));
+		userDetailsService.loadUserByUsername("nobody");
+		verify(delegate, times(2)).loadUserByUsername("nobody");
+	}
+
+	@Test
+	public void testLoadUserByUsername_negativeCachingDisabled() {
+		userDetailsService = new CachingUserDetailsService(delegate, Duration.ofMinutes(5), Duration.ZERO, 3, now::get);
+
+		userDetailsService.loadUserByUsername("nobody");
+		userDetailsService.loadUserByUsername("nobody");
+
+		verify(delegate, times(2)).loadUserByUsername("nobody");
+	}
+
+	@Test
+	public void testLoadUserByUsername_nullNotCached() {
+		assertThat(userDetailsService.loadUserByUsername(null)).isNull();
+		assertThat(userDetailsService.loadUserByUsername(null)).isNull();
+
+		verify(delegate, times(2)).loadUserByUsername(null);
+		userDetailsService.invalidate(null);
+	}
+
+	@Test
+	public void testInvalidate() {
+		userDetailsService.loadUserByUsername("bob");
+		userDetailsService.invalidate("bob");
+
+		userDetailsService.loadUserByUsername("bob");
+
+		verify(delegate, times(2)).loadUserByUsername("bob");
+	}
+
+	@Test
+	public void testMaxSize() {
+		for (int i = 0; i < 100; i++) {
+			userDetailsService.loadUserByUsername("user-" + i);
+			assertThat(userDetailsService.size()).isLessThanOrEqualTo(3);
+		}
+
+		userDetailsService.loadUserByUsername("user-99");
+		verify(delegate, times(1)).loadUserByUsername("user-99");
+	}
+}
@@ -0,0 +1,50 @@
+package io.github.eetchyza.springauth.clock;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.After;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class CoarseClockTest {
+	private final AtomicLong source = new AtomicLong(1000);
+
+	private final CoarseClock clock = new CoarseClock(source::get, Duration.ofMillis(1));
+
+	@After
+	public void tearDown() {
+		clock.close();
+	}
+
+	@Test
+	public void testMillis_followsSource() throws InterruptedException {
+		assertThat(clock.millis()).isEqualTo(1000);
+
+		source.set(2000);
+
+		assertThat(awaitMillis(2000)).isEqualTo(2000);
+	}
+
+	@Test
+	public void testMillis_neverMovesBackwards() throws InterruptedException {
+		source.set(2000);
+		awaitMillis(2000);
+
+		source.set(1500);
+		Thread.sleep(20);
+
+		assertThat(clock.millis()).isEqualTo(2000);
+	}
+
+	private long awaitMillis(long expected) throws InterruptedException {
+		long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+
+		while (clock.millis() != expected && System.nanoTime() < deadline) {
+			Thread.sleep(1);
+		}
+
+		return clock.millis();
+	}
+}
@@ -0,0 +1,40 @@
+package io.github.eetchyza.springauth.metrics;
+
+import java.util.Map;
+
+import io.github.eetchyza.springauth.exceptions.NotAuthenticatedException;
+import io.github.eetchyza.springauth.exceptions.TokenExpiredException;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class InMemoryAuthMetricsTest {
+
+	@Test
+	public void testDenied_countedByType() {
+		InMemoryAuthMetrics metrics = new InMemoryAuthMetrics();
+		metrics.denied(new NotAuthenticatedException());
+		metrics.denied(new NotAuthenticatedException());
+		metrics.denied(new TokenExpiredException());
+
+		assertThat(metrics.getDenials(NotAuthenticatedException.class)).isEqualTo(2);
+		assertThat(metrics.getDenials(TokenExpiredException.class)).isEqualTo(1);
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	public void testSnapshot() {
+		InMemoryAuthMetrics metrics = new InMemoryAuthMetrics();
+		metrics.loginSucceeded();
+		metrics.loginFailed();
+		metrics.loginFailed();
+		metrics.denied(new TokenExpiredException());
+		metrics.requestFiltered(2_000);
+
+		Map<String, Object> snapshot = metrics.snapshot();
+
+		assertThat(snapshot).containsEntry("springauth.login.success", 1L).containsEntry("springauth.login.failure", 2L);
+		assertThat((Map<String, Long>) snapshot.get("springauth.denied")).containsEntry("TokenExpiredException", 1L);
+		assertThat((Map<String, Object>) snapshot.get("springauth.filter")).containsEntry("count", 1L).containsEntry("maxMicros", 2L);
+	}
+}
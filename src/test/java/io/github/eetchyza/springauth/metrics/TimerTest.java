@@ -0,0 +1,60 @@
+package io.github.eetchyza.springauth.metrics;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TimerTest {
+
+	@Test
+	public void testBuckets_coverEveryDuration() {
+		for (long nanos : new long[] { 0, 1, 3, 4, 7, 8, 1000, 123_456_789, Long.MAX_VALUE }) {
+			int bucket = Timer.bucketOf(nanos);
+
+			assertThat(Timer.upperBoundOf(bucket)).isGreaterThanOrEqualTo(nanos);
+			assertThat(bucket == 0 || Timer.upperBoundOf(bucket - 1) < nanos).isTrue();
+		}
+	}
+
+	@Test
+	public void testPercentile() {
+		Timer timer = new Timer();
+		for (int i = 1; i <= 1000; i++) {
+			timer.record(TimeUnit.MICROSECONDS.toNanos(i));
+		}
+
+		assertThat(timer.getCount()).isEqualTo(1000);
+		assertThat(timer.getMax(TimeUnit.MICROSECONDS)).isEqualTo(1000);
+		assertThat(timer.getTotal(TimeUnit.MICROSECONDS)).isEqualTo(500_500);
+		assertThat(timer.getPercentile(0.5, TimeUnit.MICROSECONDS)).isBetween(500L, 625L);
+		assertThat(timer.getPercentile(0.99, TimeUnit.MICROSECONDS)).isBetween(990L, 1000L);
+	}
+
+	@Test
+	public void testPercentile_empty() {
+		assertThat(new Timer().getPercentile(0.99, TimeUnit.NANOSECONDS)).isEqualTo(0);
+	}
+
+	@Test
+	public void testRecord_concurrent() throws InterruptedException {
+		Timer timer = new Timer();
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+
+		for (int thread = 0; thread < 8; thread++) {
+			executor.execute(() -> {
+				for (int i = 0; i < 10_000; i++) {
+					timer.record(i);
+				}
+			});
+		}
+
+		executor.shutdown();
+		assertThat(executor.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+		assertThat(timer.getCount()).isEqualTo(80_000);
+		assertThat(timer.getMax(TimeUnit.NANOSECONDS)).isEqualTo(9_999);
+	}
+}
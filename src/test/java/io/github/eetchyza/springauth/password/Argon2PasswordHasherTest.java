@@ -0,0 +1,30 @@
+package io.github.eetchyza.springauth.password;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class Argon2PasswordHasherTest {
+	private final Argon2PasswordHasher passwordHasher = new Argon2PasswordHasher(1024, 2, 1);
+
+	@Test
+	public void testMatches() {
+		String hash = passwordHasher.hash("test-password");
+
+		assertThat(hash).startsWith("$argon2id$v=19$m=1024,t=2,p=1$");
+		assertThat(passwordHasher.matches("test-password", hash)).isTrue();
+		assertThat(passwordHasher.matches("bad-password", hash)).isFalse();
+	}
+
+	@Test
+	public void testMatches_saltedPerHash() {
+		assertThat(passwordHasher.hash("test-password")).isNotEqualTo(passwordHasher.hash("test-password"));
+	}
+
+	@Test
+	public void testNeedsRehash() {
+		assertThat(passwordHasher.needsRehash(new Argon2PasswordHasher(512, 2, 1).hash("test-password"))).isTrue();
+		assertThat(passwordHasher.needsRehash(new Argon2PasswordHasher(1024, 1, 1).hash("test-password"))).isTrue();
+		assertThat(passwordHasher.needsRehash(passwordHasher.hash("test-password"))).isFalse();
+	}
+}
@@ -0,0 +1,31 @@
+package io.github.eetchyza.springauth.password;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class BCryptPasswordHasherTest {
+	private final BCryptPasswordHasher passwordHasher = new BCryptPasswordHasher(5);
+
+	@Test
+	public void testMatches() {
+		String hash = passwordHasher.hash("test-password");
+
+		assertThat(hash).startsWith("$2a$05$");
+		assertThat(passwordHasher.matches("test-password", hash)).isTrue();
+		assertThat(passwordHasher.matches("bad-password", hash)).isFalse();
+	}
+
+	@Test
+	public void testSupports() {
+		assertThat(passwordHasher.supports(passwordHasher.hash("test-password"))).isTrue();
+		assertThat(passwordHasher.supports("$pbkdf2-sha256$i=1$c2FsdA$aGFzaA")).isFalse();
+	}
+
+	@Test
+	public void testNeedsRehash() {
+		assertThat(passwordHasher.needsRehash(new BCryptPasswordHasher(4).hash("test-password"))).isTrue();
+		assertThat(passwordHasher.needsRehash(passwordHasher.hash("test-password"))).isFalse();
+		assertThat(passwordHasher.needsRehash(new BCryptPasswordHasher(6).hash("test-password"))).isFalse();
+	}
+}
@@ -0,0 +1,31 @@
+package io.github.eetchyza.springauth.password;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class DelegatingPasswordHasherTest {
+	private final Pbkdf2PasswordHasher pbkdf2 = new Pbkdf2PasswordHasher(1000);
+
+	private final BCryptPasswordHasher bcrypt = new BCryptPasswordHasher(4);
+
+	private final DelegatingPasswordHasher passwordHasher = new DelegatingPasswordHasher(pbkdf2, bcrypt);
+
+	@Test
+	public void testHash_usesPrimaryHasher() {
+		assertThat(pbkdf2.supports(passwordHasher.hash("test-password"))).isTrue();
+	}
+
+	@Test
+	public void testMatches_detectsAlgorithm() {
+		assertThat(passwordHasher.matches("test-password", bcrypt.hash("test-password"))).isTrue();
+		assertThat(passwordHasher.matches("test-password", pbkdf2.hash("test-password"))).isTrue();
+		assertThat(passwordHasher.matches("test-password", "$unknown$hash")).isFalse();
+	}
+
+	@Test
+	public void testNeedsRehash_legacyAlgorithm() {
+		assertThat(passwordHasher.needsRehash(bcrypt.hash("test-password"))).isTrue();
+		assertThat(passwordHasher.needsRehash(pbkdf2.hash("test-password"))).isFalse();
+	}
+}
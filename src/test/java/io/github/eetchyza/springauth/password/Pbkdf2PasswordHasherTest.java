@@ -0,0 +1,34 @@
+package io.github.eetchyza.springauth.password;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class Pbkdf2PasswordHasherTest {
+	private final Pbkdf2PasswordHasher passwordHasher = new Pbkdf2PasswordHasher(1000);
+
+	@Test
+	public void testMatches() {
+		String hash = passwordHasher.hash("test-password");
+
+		assertThat(hash).startsWith("$pbkdf2-sha256$i=1000$");
+		assertThat(passwordHasher.matches("test-password", hash)).isTrue();
+		assertThat(passwordHasher.matches("bad-password", hash)).isFalse();
+	}
+
+	@Test
+	public void testMatches_saltedPerHash() {
+		assertThat(passwordHasher.hash("test-password")).isNotEqualTo(passwordHasher.hash("test-password"));
+	}
+
+	@Test
+	public void testNeedsRehash() {
+		assertThat(passwordHasher.needsRehash(new Pbkdf2PasswordHasher(500).hash("test-password"))).isTrue();
+		assertThat(passwordHasher.needsRehash(passwordHasher.hash("test-password"))).isFalse();
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testMatches_invalidHash() {
+		passwordHasher.matches("test-password", "$pbkdf2-sha256$nonsense");
+	}
+}
@@ -0,0 +1,144 @@
+package io.github.eetchyza.springauth.ratelimit;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class LoginThrottleTest {
+	private AtomicLong clock;
+
+	private LoginThrottle loginThrottle;
+
+	@Before
+	public void setup() {
+		clock = new AtomicLong(System.currentTimeMillis());
+		loginThrottle = new LoginThrottle(3, 10, Duration.ofMinutes(10), Duration.ofSeconds(1), Duration.ofSeconds(10), 1000, clock::get);
+	}
+
+	@Test
+	public void testCheck_allowedUnderLimit() {
+		loginThrottle.failed("bob", "10.0.0.1");
+		loginThrottle.failed("bob", "10.0.0.1");
+
+		assertThat(loginThrottle.check("bob", "10.0.0.1")).isEqualTo(0);
+	}
+
+	@Test
+	public void testCheck_blockedAtLimit() {
+		fail("bob", 3);
+
+		assertThat(loginThrottle.check("bob", null)).isEqualTo(1000);
+		assertThat(loginThrottle.check("alice", null)).isEqualTo(0);
+
+		advance(Duration.ofMillis(400));
+		assertThat(loginThrottle.check("bob", null)).isEqualTo(600);
+
+		advance(Duration.ofMillis(600));
+		assertThat(loginThrottle.check("bob", null)).isEqualTo(0);
+	}
+
+	@Test
+	public void testFailed_backoffDoublesUpToMax() {
+		fail("bob", 3);
+		long[] expected = { 2000, 4000, 8000, 10000, 10000 };
+
+		for (long retryAfter : expected) {
+			advance(Duration.ofMillis(loginThrottle.check("bob", null)));
+			fail("bob", 1);
+
+			assertThat(loginThrottle.check("bob", null)).isEqualTo(retryAfter);
+		}
+	}
+
+	@Test
+	public void testSucceeded_clearsUsername() {
+		fail("bob", 3);
+		loginThrottle.succeeded("bob");
+
+		assertThat(loginThrottle.check("bob", null)).isEqualTo(0);
+	}
+
+	@Test
+	public void testSucceeded_doesNotClearAddress() {
+		for (int i = 0; i < 10; i++) {
+			loginThrottle.failed("user-" + i, "10.0.0.1");
+		}
+		loginThrottle.succeeded("user-0");
+
+		assertThat(loginThrottle.check("someone-else", "10.0.0.1")).isGreaterThan(0);
+		assertThat(loginThrottle.check("someone-else", "10.0.0.2")).isEqualTo(0);
+	}
+
+	@Test
+	public void testAddressesNotLimitedByDefault() {
+		loginThrottle = new LoginThrottle();
+
+		for (int i = 0; i < 100; i++) {
+			loginThrottle.failed("user-" + i, "10.0.0.1");
+		}
+
+		assertThat(loginThrottle.check("someone-else", "10.0.0.1")).isEqualTo(0);
+	}
+
+	@Test
+	public void testWindow_failuresExpire() {
+		fail("bob", 2);
+		advance(Duration.ofMinutes(25));
+		fail("bob", 2);
+
+		assertThat(loginThrottle.check("bob", null)).isEqualTo(0);
+	}
+
+	@Test
+	public void testWindow_slidesAcrossBoundary() {
+		// Align to the start of a window, then fail just before the next one starts
+		advance(Duration.ofMillis(Math.floorMod(-clock.get(), TimeUnit.MINUTES.toMillis(10))));
+		advance(Duration.ofMinutes(9));
+		fail("bob", 2);
+		advance(Duration.ofMinutes(2));
+		fail("bob", 2);
+
+		// Only 2 failures are in the current window, but the previous window still counts for 90% so 2 * 0.9 + 2 is over the limit
+		assertThat(loginThrottle.check("bob", null)).isGreaterThan(0);
+	}
+
+	@Test
+	public void testMaxKeys_blockSurvivesFlood() {
+		loginThrottle = new LoginThrottle(3, 10, Duration.ofMinutes(10), Duration.ofSeconds(1), Duration.ofSeconds(10), 64, clock::get);
+		fail("bob", 3);
+
+		for (int i = 0; i < 10_000; i++) {
+			loginThrottle.failed("user-" + i, null);
+		}
+
+		assertThat(loginThrottle.check("bob", null)).isEqualTo(1000);
+	}
+
+	@Test
+	public void testMaxKeys_expiredDropped() {
+		loginThrottle = new LoginThrottle(1, 10, Duration.ofMinutes(10), Duration.ofSeconds(1), Duration.ofSeconds(10), 64, clock::get);
+
+		for (int i = 0; i < 10_000; i++) {
+			loginThrottle.failed("user-" + i, null);
+		}
+		advance(Duration.ofMinutes(20));
+		loginThrottle.failed("bob", null);
+
+		assertThat(loginThrottle.check("bob", null)).isEqualTo(1000);
+	}
+
+	private void fail(String username, int times) {
+		for (int i = 0; i < times; i++) {
+			loginThrottle.failed(username, null);
+		}
+	}
+
+	private void advance(Duration duration) {
+		clock.addAndGet(duration.toMillis());
+	}
+}
@@ -0,0 +1,107 @@
+package io.github.eetchyza.springauth.session;
+
+import java.time.LocalDateTime;
+
+import io.github.eetchyza.springauth.Authentication;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class BoundedSessionStoreTest extends SessionStoreContractTest {
+
+	@Override
+	protected SessionStore createSessionStore() {
+		return new BoundedSessionStore(new InMemorySessionStore(), 1_000_000, 0, EvictionPolicy.LRU);
+	}
+
+	@Test
+	public void testLru_evictsLeastRecentlyUsed() {
+		BoundedSessionStore store = new BoundedSessionStore(new InMemorySessionStore(), 3, 0, EvictionPolicy.LRU);
+		store.putIfAbsent(createSession("a"));
+		store.putIfAbsent(createSession("b"));
+		store.putIfAbsent(createSession("c"));
+		store.get("a");
+
+		store.putIfAbsent(createSession("d"));
+
+		assertThat(store.contains("a")).isTrue();
+		assertThat(store.contains("b")).isFalse();
+		assertThat(store.size()).isEqualTo(3);
+		assertThat(store.getEvictedCount()).isEqualTo(1);
+	}
+
+	@Test
+	public void testTinyLfu_keepsFrequentlyUsedSessions() {
+		BoundedSessionStore store = new BoundedSessionStore(new InMemorySessionStore(), 100, 0, EvictionPolicy.TINY_LFU);
+		for (int i = 0; i < 100; i++) {
+			store.putIfAbsent(createSession("active-" + i));
+		}
+		for (int round = 0; round < 5; round++) {
+			for (int i = 0; i < 100; i++) {
+				store.get("active-" + i);
+			}
+		}
+
+		// A burst of logins that are never used again, while the active users keep making requests
+		for (int i = 0; i < 10_000; i++) {
+			store.putIfAbsent(createSession("burst-" + i));
+			store.get("active-" + (i % 100));
+		}
+
+		int kept = 0;
+		for (int i = 0; i < 100; i++) {
+			if (store.contains("active-" + i)) {
+				kept++;
+			}
+		}
+
+		assertThat(store.size()).isEqualTo(100);
+		assertThat(kept).isGreaterThanOrEqualTo(95);
+	}
+
+	@Test
+	public void testPerUserLimit_evictsOldestSession() {
+		BoundedSessionStore store = new BoundedSessionStore(new InMemorySessionStore(), 100, 2, EvictionPolicy.LRU);
+		store.putIfAbsent(createUserSession("first", 1L));
+		store.putIfAbsent(createUserSession("second", 1L));
+		store.putIfAbsent(createUserSession("other", 2L));
+
+		store.putIfAbsent(createUserSession("third", 1L));
+
+		assertThat(store.contains("first")).isFalse();
+		assertThat(store.contains("second")).isTrue();
+		assertThat(store.contains("third")).isTrue();
+		assertThat(store.contains("other")).isTrue();
+	}
+
+	@Test
+	public void testPerUserLimit_logoutFreesSlot() {
+		BoundedSessionStore store = new BoundedSessionStore(new InMemorySessionStore(), 100, 2, EvictionPolicy.TINY_LFU);
+		store.putIfAbsent(createUserSession("first", 1L));
+		store.putIfAbsent(createUserSession("second", 1L));
+		store.remove("first");
+
+		store.putIfAbsent(createUserSession("third", 1L));
+
+		assertThat(store.contains("second")).isTrue();
+		assertThat(store.contains("third")).isTrue();
+		assertThat(store.getEvictedCount()).isEqualTo(0);
+	}
+
+	@Test
+	public void testSustainedLogins_sizeStaysBounded() {
+		BoundedSessionStore store = new BoundedSessionStore(new InMemorySessionStore(), 1000, 3, EvictionPolicy.TINY_LFU);
+
+		for (int i = 0; i < 200_000; i++) {
+			store.putIfAbsent(createUserSession("token-" + i, i % 5000));
+			assertThat(store.size()).isLessThanOrEqualTo(1000);
+		}
+	}
+
+	private Session createUserSession(String token, long userId) {
+		Session session = createSession(token);
+		Authentication authentication = new Authentication(token, "refresh-" + token, LocalDateTime.now().plusHours(1),
+				session.getUserDetails().getAuthorities(), "user-" + userId, userId);
+		return new Session(authentication, session.getUserDetails());
+	}
+}
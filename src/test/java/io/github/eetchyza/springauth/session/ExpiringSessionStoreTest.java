@@ -0,0 +1,139 @@
+package io.github.eetchyza.springauth.session;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.After;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ExpiringSessionStoreTest extends SessionStoreContractTest {
+	private ExpiringSessionStore expiringStore;
+
+	@Override
+	protected SessionStore createSessionStore() {
+		expiringStore = new ExpiringSessionStore(new InMemorySessionStore(), Duration.ZERO, Duration.ofMillis(100), 64);
+		return expiringStore;
+	}
+
+	@After
+	public void closeStore() {
+		expiringStore.close();
+	}
+
+	@Test
+	public void testSweep_removesExpired() {
+		LocalDateTime now = LocalDateTime.now();
+		sessionStore.putIfAbsent(createSession("expired", "refresh", now.minusMinutes(1)));
+		sessionStore.putIfAbsent(createSession("live", "refresh", now.plusHours(1)));
+
+		// Sessions already due are swept on the next tick
+		expiringStore.sweep(millis(now.plusSeconds(1)));
+
+		assertThat(sessionStore.contains("expired")).isFalse();
+		assertThat(sessionStore.contains("live")).isTrue();
+		assertThat(expiringStore.getEvictedCount()).isEqualTo(1);
+		assertThat(expiringStore.getLiveCount()).isEqualTo(1);
+	}
+
+	@Test
+	public void testSweep_keepsSessionsWithinGrace() {
+		expiringStore.close();
+		expiringStore = new ExpiringSessionStore(new InMemorySessionStore(), Duration.ofHours(1), Duration.ofMillis(100), 64);
+		LocalDateTime now = LocalDateTime.now();
+		expiringStore.putIfAbsent(createSession("expired", "refresh", now.minusMinutes(1)));
+
+		expiringStore.sweep(millis(now.plusSeconds(1)));
+		assertThat(expiringStore.contains("expired")).isTrue();
+
+		expiringStore.sweep(millis(now.plusHours(1)));
+		assertThat(expiringStore.contains("expired")).isFalse();
+	}
+
+	@Test
+	public void testSweep_byClock() throws Exception {
+		expiringStore.close();
+		LocalDateTime now = LocalDateTime.now();
+		AtomicLong clock = new AtomicLong(millis(now));
+		expiringStore = new ExpiringSessionStore(new InMemorySessionStore(), Duration.ZERO, Duration.ofMillis(10), 64, clock::get);
+		expiringStore.putIfAbsent(createSession("token", "refresh", now.plusHours(1)));
+
+		clock.set(millis(now.plusHours(2)));
+
+		for (int i = 0; i < 500 && expiringStore.contains("token"); i++) {
+			Thread.sleep(10);
+		}
+		assertThat(expiringStore.contains("token")).isFalse();
+	}
+
+	@Test
+	public void testSweep_sessionsAlreadyStored() {
+		expiringStore.close();
+		LocalDateTime now = LocalDateTime.now();
+		InMemorySessionStore delegate = new InMemorySessionStore();
+		delegate.putIfAbsent(createSession("expired", "refresh", now.minusMinutes(1)));
+		delegate.putIfAbsent(createSession("live", "refresh", now.plusHours(1)));
+		expiringStore = new ExpiringSessionStore(delegate, Duration.ZERO, Duration.ofMillis(100), 64);
+
+		expiringStore.sweep(millis(now.plusSeconds(1)));
+
+		assertThat(expiringStore.contains("expired")).isFalse();
+		assertThat(expiringStore.contains("live")).isTrue();
+	}
+
+	@Test
+	public void testSweep_keepsReplacedSession() {
+		LocalDateTime now = LocalDateTime.now();
+		sessionStore.putIfAbsent(createSession("token", "old-refresh", now.plusMinutes(1)));
+		sessionStore.remove("token");
+		sessionStore.putIfAbsent(createSession("token", "new-refresh", now.plusHours(1)));
+
+		expiringStore.sweep(millis(now.plusMinutes(2)));
+
+		assertThat(sessionStore.get("token").getAuthentication().isRefreshToken("new-refresh")).isTrue();
+		assertThat(expiringStore.getEvictedCount()).isEqualTo(0);
+	}
+
+	@Test
+	public void testSweep_afterLongPause() {
+		LocalDateTime now = LocalDateTime.now();
+		for (int i = 0; i < 100; i++) {
+			sessionStore.putIfAbsent(createSession("token-" + i, "refresh", now.plusSeconds(i)));
+		}
+
+		expiringStore.sweep(millis(now.plusDays(1)));
+
+		assertThat(sessionStore.size()).isEqualTo(0);
+		assertThat(expiringStore.getEvictedCount()).isEqualTo(100);
+	}
+
+	@Test
+	public void testSoak_liveSessionsStayBounded() {
+		LocalDateTime now = LocalDateTime.now();
+		int perRound = 2000;
+		int rounds = 100;
+
+		for (int round = 0; round < rounds; round++) {
+			LocalDateTime roundTime = now.plusSeconds(round);
+
+			for (int i = 0; i < perRound; i++) {
+				sessionStore.putIfAbsent(createSession(round + "-" + i, "refresh", roundTime.plusSeconds(1)));
+			}
+
+			expiringStore.sweep(millis(roundTime));
+			assertThat(sessionStore.size()).isLessThanOrEqualTo(2 * perRound);
+		}
+
+		expiringStore.sweep(millis(now.plusSeconds(rounds + 1)));
+
+		assertThat(sessionStore.size()).isEqualTo(0);
+		assertThat(expiringStore.getEvictedCount()).isEqualTo(rounds * perRound);
+	}
+
+	private long millis(LocalDateTime time) {
+		return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+	}
+}
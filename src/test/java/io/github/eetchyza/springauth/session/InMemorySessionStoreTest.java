@@ -0,0 +1,9 @@
+package io.github.eetchyza.springauth.session;
+
+public class InMemorySessionStoreTest extends SessionStoreContractTest {
+
+	@Override
+	protected SessionStore createSessionStore() {
+		return new InMemorySessionStore();
+	}
+}
@@ -0,0 +1,143 @@
+package io.github.eetchyza.springauth.session;
+
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.After;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assume.assumeTrue;
+
+public class MappedFileSessionStoreTest extends SessionStoreContractTest {
+	private static final int CAPACITY = 64 * 1024 * 1024;
+
+	private Path file;
+
+	@Override
+	protected SessionStore createSessionStore() throws IOException {
+		file = Files.createTempFile("sessions", ".dat");
+		return new MappedFileSessionStore(file, CAPACITY);
+	}
+
+	@After
+	public void deleteFile() throws IOException {
+		((MappedFileSessionStore) sessionStore).close();
+		Files.deleteIfExists(file);
+	}
+
+	@Test
+	public void testCreatedOwnerOnly() throws IOException {
+		assumeTrue(FileSystems.getDefault().supportedFileAttributeViews().contains("posix"));
+		Path directory = Files.createTempDirectory("sessions");
+		Path created = directory.resolve("sessions.dat");
+
+		try (MappedFileSessionStore store = new MappedFileSessionStore(created, 1024)) {
+			assertThat(Files.getPosixFilePermissions(created)).isEqualTo(PosixFilePermissions.fromString("rw-------"));
+		} finally {
+			Files.deleteIfExists(created);
+			Files.delete(directory);
+		}
+	}
+
+	@Test
+	public void testSessionsSurviveRestart() throws IOException {
+		sessionStore.putIfAbsent(createSession("kept"));
+		sessionStore.putIfAbsent(createSession("removed"));
+		sessionStore.remove("removed");
+		((MappedFileSessionStore) sessionStore).close();
+
+		sessionStore = new MappedFileSessionStore(file, CAPACITY);
+
+		assertThat(sessionStore.get("kept")).isEqualTo(createSession("kept"));
+		assertThat(sessionStore.contains("removed")).isFalse();
+		assertThat(sessionStore.size()).isEqualTo(1);
+	}
+
+	@Test
+	public void testCompactsWhenFull() throws IOException {
+		((MappedFileSessionStore) sessionStore).close();
+		sessionStore = new MappedFileSessionStore(file, 64 * 1024);
+
+		for (int i = 0; i < 1000; i++) {
+			sessionStore.putIfAbsent(createSession("token-" + i));
+			sessionStore.remove("token-" + i);
+		}
+		sessionStore.putIfAbsent(createSession("kept"));
+		((MappedFileSessionStore) sessionStore).close();
+
+		sessionStore = new MappedFileSessionStore(file, 64 * 1024);
+
+		assertThat(sessionStore.get("kept")).isEqualTo(createSession("kept"));
+		assertThat(sessionStore.size()).isEqualTo(1);
+	}
+
+	@Test
+	public void testExpiredDroppedOnRestart() throws IOException {
+		LocalDateTime now = LocalDateTime.now();
+		AtomicLong clock = new AtomicLong(millis(now));
+		((MappedFileSessionStore) sessionStore).close();
+		sessionStore = new MappedFileSessionStore(file, CAPACITY, clock::get);
+
+		sessionStore.putIfAbsent(createSession("expired", "refresh-expired", now.plusMinutes(1)));
+		sessionStore.putIfAbsent(createSession("live", "refresh-live", now.plusHours(2)));
+		((MappedFileSessionStore) sessionStore).close();
+
+		clock.set(millis(now.plusHours(1)));
+		sessionStore = new MappedFileSessionStore(file, CAPACITY, clock::get);
+
+		assertThat(sessionStore.contains("expired")).isFalse();
+		assertThat(sessionStore.contains("live")).isTrue();
+	}
+
+	@Test
+	public void testReplayedSessionsSwept() throws IOException {
+		LocalDateTime now = LocalDateTime.now();
+		sessionStore.putIfAbsent(createSession("token", "refresh", now.plusMinutes(1)));
+		((MappedFileSessionStore) sessionStore).close();
+
+		sessionStore = new MappedFileSessionStore(file, CAPACITY);
+
+		try (ExpiringSessionStore expiringStore = new ExpiringSessionStore(sessionStore, Duration.ZERO, Duration.ofMillis(100), 64)) {
+			expiringStore.sweep(millis(now.plusMinutes(2)));
+
+			assertThat(expiringStore.contains("token")).isFalse();
+			assertThat(expiringStore.getEvictedCount()).isEqualTo(1);
+		}
+	}
+
+	@Test
+	public void testCompactionDropsExpired() throws IOException {
+		LocalDateTime now = LocalDateTime.now();
+		AtomicLong clock = new AtomicLong(millis(now));
+		((MappedFileSessionStore) sessionStore).close();
+		sessionStore = new MappedFileSessionStore(file, 64 * 1024, clock::get);
+
+		// Far more sessions than fit in the file, but only one round is ever live
+		for (int round = 0; round < 100; round++) {
+			LocalDateTime roundTime = now.plusMinutes(round * 2);
+			clock.set(millis(roundTime));
+
+			for (int i = 0; i < 10; i++) {
+				sessionStore.putIfAbsent(createSession(round + "-" + i, "refresh", roundTime.plusMinutes(1)));
+			}
+		}
+		((MappedFileSessionStore) sessionStore).close();
+
+		sessionStore = new MappedFileSessionStore(file, 64 * 1024, clock::get);
+
+		assertThat(sessionStore.size()).isEqualTo(10);
+		assertThat(sessionStore.contains("99-0")).isTrue();
+	}
+
+	private static long millis(LocalDateTime time) {
+		return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+	}
+}
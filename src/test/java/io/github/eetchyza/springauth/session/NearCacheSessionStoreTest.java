@@ -0,0 +1,92 @@
+package io.github.eetchyza.springauth.session;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class NearCacheSessionStoreTest extends SessionStoreContractTest {
+	private LocalSessionBackend backend;
+
+	private LocalInvalidationChannel channel;
+
+	private AtomicLong now;
+
+	private SharedSessionStore sharedStore;
+
+	@Override
+	protected SessionStore createSessionStore() {
+		backend = new LocalSessionBackend();
+		channel = new LocalInvalidationChannel();
+		now = new AtomicLong();
+		sharedStore = new SharedSessionStore(backend, Duration.ofHours(1));
+		return new NearCacheSessionStore(sharedStore, Duration.ofSeconds(5), 100, channel, now::get);
+	}
+
+	@Override
+	protected void awaitTouches() {
+		sharedStore.close();
+	}
+
+	@Test
+	public void testGet_cached() {
+		NearCacheSessionStore node = (NearCacheSessionStore) sessionStore;
+		node.putIfAbsent(createSession("token"));
+		backend.remove("springauth:session:token");
+
+		// Removed behind the cache's back, so only noticed once the entry expires
+		assertThat(node.get("token")).isNotNull();
+		assertThat(node.getHitCount()).isEqualTo(1);
+
+		now.addAndGet(Duration.ofSeconds(5).toNanos());
+		assertThat(node.get("token")).isNull();
+		assertThat(node.getMissCount()).isEqualTo(1);
+	}
+
+	@Test
+	public void testRemove_invalidatesOtherNodes() {
+		NearCacheSessionStore other = createNode();
+		Session session = createSession("token");
+		sessionStore.putIfAbsent(session);
+		assertThat(other.get("token")).isEqualTo(session);
+		assertThat(other.getCachedCount()).isEqualTo(1);
+
+		sessionStore.remove(session);
+
+		assertThat(other.getCachedCount()).isEqualTo(0);
+		assertThat(other.get("token")).isNull();
+	}
+
+	@Test
+	public void testRemove_lostMessageBoundedByTtl() {
+		NearCacheSessionStore other = new NearCacheSessionStore(new SharedSessionStore(backend, Duration.ofHours(1)), Duration.ofSeconds(5), 100, null, now::get);
+		sessionStore.putIfAbsent(createSession("token"));
+		assertThat(other.get("token")).isNotNull();
+
+		sessionStore.remove("token");
+		assertThat(other.get("token")).isNotNull();
+
+		now.addAndGet(Duration.ofSeconds(5).toNanos());
+		assertThat(other.get("token")).isNull();
+	}
+
+	@Test
+	public void testMaxSize() {
+		NearCacheSessionStore node = new NearCacheSessionStore(new SharedSessionStore(backend, Duration.ofHours(1)), Duration.ofSeconds(5), 10, channel, now::get);
+
+		for (int i = 0; i < 100; i++) {
+			node.putIfAbsent(createSession("token-" + i));
+		}
+
+		assertThat(node.getCachedCount()).isEqualTo(10);
+		assertThat(node.size()).isEqualTo(100);
+		assertThat(node.get("token-0")).isNotNull();
+		assertThat(node.getMissCount()).isEqualTo(1);
+	}
+
+	private NearCacheSessionStore createNode() {
+		return new NearCacheSessionStore(new SharedSessionStore(backend, Duration.ofHours(1)), Duration.ofSeconds(5), 100, channel, now::get);
+	}
+}
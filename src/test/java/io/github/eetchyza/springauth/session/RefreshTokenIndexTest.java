@@ -0,0 +1,271 @@
+package io.github.eetchyza.springauth.session;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import io.github.eetchyza.springauth.Authentication;
+import io.github.eetchyza.springauth.api.GrantedAuthority;
+import io.github.eetchyza.springauth.api.UserDetails;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class RefreshTokenIndexTest {
+	private AtomicLong now;
+
+	private RefreshTokenIndex index;
+
+	@Before
+	public void setup() {
+		now = new AtomicLong();
+		index = new RefreshTokenIndex(Duration.ofHours(1), Duration.ofSeconds(5), RefreshTokenIndex.DEFAULT_MAX_FAMILIES, now::get, false);
+	}
+
+	@Test
+	public void testGet() {
+		UserDetails user = new TestUser(5L, "STANDARD");
+		index.add(createSession("token", "refresh", user));
+
+		IndexedSession session = index.get("refresh");
+		assertThat(session.getToken()).isEqualTo("token");
+		assertThat(session.getUserId()).isEqualTo(5L);
+		assertThat(session.getUsername()).isEqualTo("test-user");
+		assertThat(session.getRoles()).containsExactly("STANDARD");
+		assertThat(index.get("token")).isNull();
+		assertThat(index.get(null)).isNull();
+	}
+
+	@Test
+	public void testReplace_onlyOnce() {
+		index.add(createSession("token", "refresh"));
+		IndexedSession session = index.get("refresh");
+
+		assertThat(index.replace(session, createSession("token-1", "refresh-1"))).isTrue();
+		assertThat(index.replace(session, createSession("token-2", "refresh-2"))).isFalse();
+		assertThat(index.get("refresh-1").getToken()).isEqualTo("token-1");
+		assertThat(index.get("refresh-2")).isNull();
+	}
+
+	@Test
+	public void testGet_usedTokenWithinLeeway() {
+		index.add(createSession("token", "refresh"));
+		index.replace(index.get("refresh"), createSession("token-1", "refresh-1"));
+
+		now.addAndGet(Duration.ofSeconds(1).toMillis());
+		assertThat(index.get("refresh")).isNull();
+		assertThat(index.contains("refresh")).isTrue();
+		assertThat(index.contains("unknown")).isFalse();
+
+		// After the leeway the latest session is returned, so the caller can tell the used token is being reused
+		now.addAndGet(Duration.ofSeconds(5).toMillis());
+		assertThat(index.get("refresh").getToken()).isEqualTo("token-1");
+	}
+
+	@Test
+	public void testRevoke_wholeFamily() {
+		index.add(createSession("token", "refresh"));
+		index.replace(index.get("refresh"), createSession("token-1", "refresh-1"));
+		IndexedSession replacement = index.get("refresh-1");
+
+		assertThat(index.revoke("refresh")).isSameAs(replacement);
+		assertThat(index.revoke("refresh-1")).isNull();
+		assertThat(index.get("refresh-1")).isNull();
+		assertThat(index.replace(replacement, createSession("token-2", "refresh-2"))).isFalse();
+		assertThat(index.getFamilyCount()).isEqualTo(0);
+	}
+
+	@Test
+	public void testRevokeByAuthToken() {
+		index.add(createSession("token", "refresh"));
+		index.replace(index.get("refresh"), createSession("token-1", "refresh-1"));
+
+		assertThat(index.revokeByAuthToken("token")).isNull();
+		assertThat(index.revokeByAuthToken("token-1").getToken()).isEqualTo("token-1");
+		assertThat(index.get("refresh-1")).isNull();
+		assertThat(index.revokeByAuthToken(null)).isNull();
+	}
+
+	@Test
+	public void testExpiry() {
+		index.add(createSession("token", "refresh"));
+		index.add(createSession("other-token", "other-refresh"));
+		index.revoke("other-refresh");
+
+		now.addAndGet(Duration.ofMinutes(59).toMillis());
+		assertThat(index.get("refresh")).isNotNull();
+
+		now.addAndGet(Duration.ofMinutes(1).toMillis());
+		assertThat(index.get("refresh")).isNull();
+
+		index.add(createSession("new-token", "new-refresh"));
+		index.sweep();
+		assertThat(index.size()).isEqualTo(1);
+	}
+
+	@Test
+	public void testReplace_concurrent() throws Exception {
+		index.add(createSession("token", "refresh"));
+		IndexedSession session = index.get("refresh");
+
+		int threads = 32;
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		CountDownLatch start = new CountDownLatch(1);
+		List<Future<Boolean>> futures = new ArrayList<>();
+
+		for (int i = 0; i < threads; i++) {
+			Session replacement = createSession("token-" + i, "refresh-" + i);
+			futures.add(executor.submit(() -> {
+				start.await();
+				return index.replace(session, replacement);
+			}));
+		}
+		start.countDown();
+
+		int replaced = 0;
+		for (Future<Boolean> future : futures) {
+			replaced += future.get() ? 1 : 0;
+		}
+		executor.shutdown();
+
+		assertThat(replaced).isEqualTo(1);
+		assertThat(index.size()).isEqualTo(2);
+	}
+
+	@Test
+	public void testRevokeAllForUser() {
+		index.add(createSession("token-1", "refresh-1", new TestUser(1L, "STANDARD")));
+		index.add(createSession("token-2", "refresh-2", new TestUser(1L, "STANDARD")));
+		index.add(createSession("token-3", "refresh-3", new TestUser(2L, "STANDARD")));
+		index.replace(index.get("refresh-2"), createSession("token-4", "refresh-4", new TestUser(1L, "STANDARD")));
+
+		assertThat(index.revokeAllForUser(1L)).extracting(IndexedSession::getToken).containsOnly("token-1", "token-4");
+		assertThat(index.revokeAllForUser(1L)).isEmpty();
+		assertThat(index.get("refresh-1")).isNull();
+		assertThat(index.get("refresh-4")).isNull();
+		assertThat(index.get("refresh-3").getToken()).isEqualTo("token-3");
+	}
+
+	@Test
+	public void testRevokeAllWithRole() {
+		index.add(createSession("token-1", "refresh-1", new TestUser(1L, "STANDARD", "ADMIN")));
+		index.add(createSession("token-2", "refresh-2", new TestUser(2L, "STANDARD")));
+
+		assertThat(index.revokeAllWithRole("ADMIN")).extracting(IndexedSession::getToken).containsOnly("token-1");
+		assertThat(index.revokeAllWithRole(null)).isEmpty();
+		assertThat(index.get("refresh-2").getToken()).isEqualTo("token-2");
+
+		// The admin's family is gone from the other indexes too
+		assertThat(index.revokeAllForUser(1L)).isEmpty();
+		assertThat(index.revokeAllWithRole("STANDARD")).extracting(IndexedSession::getToken).containsOnly("token-2");
+	}
+
+	@Test
+	public void testRevoke_millionSessions() {
+		int users = 100_000;
+		int sessionsPerUser = 10;
+		TestUser[] testUsers = new TestUser[users];
+
+		for (int user = 0; user < users; user++) {
+			testUsers[user] = user % 1000 == 0 ? new TestUser(user, "STANDARD", "ADMIN") : new TestUser(user, "STANDARD");
+		}
+
+		for (int i = 0; i < users * sessionsPerUser; i++) {
+			index.add(createSession("token-" + i, "refresh-" + i, testUsers[i % users]));
+		}
+
+		List<IndexedSession> revoked = index.revokeAllForUser(42L);
+		assertThat(revoked).hasSize(sessionsPerUser);
+		assertThat(revoked).allMatch(session -> session.getUserId() == 42L);
+		assertThat(index.get("refresh-42")).isNull();
+		assertThat(index.get("refresh-43")).isNotNull();
+
+		revoked = index.revokeAllWithRole("ADMIN");
+		assertThat(revoked).hasSize(users / 1000 * sessionsPerUser);
+		assertThat(revoked).allMatch(session -> session.getUserId() % 1000 == 0);
+		assertThat(index.get("refresh-" + users)).isNull();
+		assertThat(index.get("refresh-" + (users + 1))).isNotNull();
+
+		index.sweep();
+		assertThat(index.size()).isEqualTo(users * sessionsPerUser - sessionsPerUser - revoked.size());
+	}
+
+	@Test
+	public void testMaxFamilies_oldestRevoked() {
+		index = new RefreshTokenIndex(Duration.ofHours(1), Duration.ofSeconds(5), 2, now::get, false);
+		index.add(createSession("token-1", "refresh-1"));
+		index.add(createSession("token-2", "refresh-2"));
+		index.revoke("refresh-2");
+		index.add(createSession("token-3", "refresh-3"));
+		index.add(createSession("token-4", "refresh-4"));
+
+		assertThat(index.getFamilyCount()).isEqualTo(2);
+		assertThat(index.get("refresh-1")).isNull();
+		assertThat(index.get("refresh-3")).isNotNull();
+		assertThat(index.get("refresh-4")).isNotNull();
+
+		index.sweep();
+		assertThat(index.size()).isEqualTo(2);
+	}
+
+	private static Session createSession(String token, String refreshToken) {
+		return createSession(token, refreshToken, new TestUser(5L));
+	}
+
+	private static Session createSession(String token, String refreshToken, UserDetails user) {
+		return new Session(new Authentication(token, refreshToken, LocalDateTime.now().plusHours(1), user.getAuthorities(), user.getUsername(), user.getId()), user);
+	}
+
+	private static class TestUser implements UserDetails {
+		private final long id;
+
+		private final List<GrantedAuthority> authorities;
+
+		private TestUser(long id, String... roles) {
+			this.id = id;
+			this.authorities = new ArrayList<>();
+
+			for (String role : roles) {
+				authorities.add(() -> role);
+			}
+		}
+
+		@Override
+		public long getId() {
+			return id;
+		}
+
+		@Override
+		public Collection<? extends GrantedAuthority> getAuthorities() {
+			return authorities;
+		}
+
+		@Override
+		public String getPassword() {
+			return "test-pass";
+		}
+
+		@Override
+		public String getUsername() {
+			return "test-user";
+		}
+
+		@Override
+		public boolean isTemporaryPassword() {
+			return false;
+		}
+
+		@Override
+		public LocalDateTime getExpires() {
+			return null;
+		}
+	}
+}
@@ -0,0 +1,136 @@
+package io.github.eetchyza.springauth.session;
+
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectOutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+import io.github.eetchyza.springauth.Authentication;
+import io.github.eetchyza.springauth.api.GrantedAuthority;
+import io.github.eetchyza.springauth.api.UserDetails;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class SessionCodecTest {
+
+	@Test
+	public void testDecode() {
+		LocalDateTime passwordExpires = LocalDateTime.now().plusHours(3).truncatedTo(ChronoUnit.MILLIS);
+		TestUser user = new TestUser(7L, passwordExpires, "STANDARD", "ADMIN");
+		Authentication authentication = new Authentication("token", "refresh", 1000L, 5000L, user.getAuthorities(), "Bob", 7L);
+
+		Session session = SessionCodec.decode(SessionCodec.encode(new Session(authentication, user)));
+
+		assertThat(session.getToken()).isEqualTo("token");
+		assertThat(session.getAuthentication().isRefreshToken("refresh")).isTrue();
+		assertThat(session.getAuthentication().getExpiresAt()).isEqualTo(1000L);
+		assertThat(session.getAuthentication().getMaxExpiresAt()).isEqualTo(5000L);
+		assertThat(session.getAuthentication().getUsername()).isEqualTo("Bob");
+		assertThat(session.getAuthentication().getId()).isEqualTo(7L);
+
+		UserDetails decoded = session.getUserDetails();
+		assertThat(decoded).isInstanceOf(RestoredUserDetails.class);
+		assertThat(decoded.getId()).isEqualTo(7L);
+		assertThat(decoded.getUsername()).isEqualTo("bob");
+		assertThat(decoded.getAuthorities()).extracting(GrantedAuthority::getAuthority).containsExactly("STANDARD", "ADMIN");
+		assertThat(decoded.isTemporaryPassword()).isTrue();
+		assertThat(decoded.getExpires()).isEqualTo(passwordExpires);
+		assertThat(decoded.getPassword()).isNull();
+	}
+
+	@Test
+	public void testDecode_nullRefreshToken() {
+		TestUser user = new TestUser(7L, null);
+		Session session = SessionCodec.decode(SessionCodec.encode(new Session(new Authentication("token", null, 1000L, null, "bob", 7L), user)));
+
+		assertThat(session.getAuthentication().getRefreshToken()).isNull();
+		assertThat(session.getUserDetails().getAuthorities()).isEmpty();
+		assertThat(session.getUserDetails().isTemporaryPassword()).isFalse();
+	}
+
+	@Test
+	public void testEncode_passwordNotWritten() {
+		TestUser user = new TestUser(7L, null, "STANDARD");
+		byte[] bytes = SessionCodec.encode(new Session(new Authentication("token", "refresh", 1000L, user.getAuthorities(), "bob", 7L), user));
+
+		assertThat(new String(bytes, StandardCharsets.ISO_8859_1)).doesNotContain(user.getPassword());
+	}
+
+	@Test
+	public void testDecode_serializedObjectRejected() throws Exception {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+			out.writeObject(new ArrayList<>(Arrays.asList("token", "refresh")));
+		}
+
+		assertThatThrownBy(() -> SessionCodec.decode(bytes.toByteArray())).isInstanceOf(IllegalStateException.class);
+	}
+
+	@Test
+	public void testDecode_truncated() {
+		TestUser user = new TestUser(7L, null, "STANDARD");
+		byte[] bytes = SessionCodec.encode(new Session(new Authentication("token", "refresh", 1000L, user.getAuthorities(), "bob", 7L), user));
+
+		assertThatThrownBy(() -> SessionCodec.decode(bytes, 0, bytes.length - 4)).isInstanceOf(UncheckedIOException.class);
+
+		// A corrupt length fails rather than allocating an array of that size
+		bytes[1] = 0x7f;
+		assertThatThrownBy(() -> SessionCodec.decode(bytes)).isInstanceOf(UncheckedIOException.class);
+	}
+
+	private static class TestUser implements UserDetails {
+		private final long id;
+
+		private final LocalDateTime expires;
+
+		private final List<GrantedAuthority> authorities;
+
+		private TestUser(long id, LocalDateTime expires, String... roles) {
+			this.id = id;
+			this.expires = expires;
+			this.authorities = new ArrayList<>();
+
+			for (String role : roles) {
+				authorities.add(() -> role);
+			}
+		}
+
+		@Override
+		public long getId() {
+			return id;
+		}
+
+		@Override
+		public Collection<? extends GrantedAuthority> getAuthorities() {
+			return authorities;
+		}
+
+		@Override
+		public String getPassword() {
+			return "$2a$10$secret-password-hash";
+		}
+
+		@Override
+		public String getUsername() {
+			return "bob";
+		}
+
+		@Override
+		public boolean isTemporaryPassword() {
+			return expires != null;
+		}
+
+		@Override
+		public LocalDateTime getExpires() {
+			return expires;
+		}
+	}
+}
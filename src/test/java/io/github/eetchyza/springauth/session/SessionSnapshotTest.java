@@ -0,0 +1,185 @@
+package io.github.eetchyza.springauth.session;
+
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import io.github.eetchyza.springauth.Authentication;
+import io.github.eetchyza.springauth.api.GrantedAuthority;
+import io.github.eetchyza.springauth.api.UserDetails;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assume.assumeTrue;
+
+public class SessionSnapshotTest {
+	private Path file;
+
+	private SessionSnapshot snapshot;
+
+	private RefreshTokenIndex refreshTokens;
+
+	@Before
+	public void setup() throws IOException {
+		file = Files.createTempFile("sessions", ".snapshot");
+		Files.delete(file);
+		snapshot = new SessionSnapshot(file, Duration.ZERO);
+		refreshTokens = createIndex();
+	}
+
+	@After
+	public void tearDown() throws IOException {
+		snapshot.close();
+		Files.deleteIfExists(file);
+	}
+
+	@Test
+	public void testRoundTrip() {
+		LocalDateTime expire = LocalDateTime.now().plusHours(1).truncatedTo(ChronoUnit.MILLIS);
+		LocalDateTime passwordExpires = LocalDateTime.now().plusDays(1).truncatedTo(ChronoUnit.MILLIS);
+		refreshTokens.add(createSession("token-1", "refresh-1", expire, new TestUser(1L, "bob", null, "STANDARD", "ADMIN")));
+		refreshTokens.add(createSession("token-2", "refresh-2", expire, new TestUser(2L, "alice", passwordExpires, "STANDARD")));
+
+		assertThat(snapshot.save(refreshTokens)).isEqualTo(2);
+
+		InMemorySessionStore sessionStore = new InMemorySessionStore();
+		RefreshTokenIndex restored = createIndex();
+		assertThat(snapshot.load(sessionStore, restored)).isEqualTo(2);
+
+		Session bob = sessionStore.get("token-1");
+		assertThat(bob.getAuthentication().getRefreshToken()).isEqualTo("refresh-1");
+		assertThat(bob.getAuthentication().getExpire()).isEqualTo(expire);
+		assertThat(bob.getAuthentication().getUsername()).isEqualTo("bob");
+		assertThat(bob.getUserDetails()).isInstanceOf(RestoredUserDetails.class);
+		assertThat(bob.getUserDetails().getId()).isEqualTo(1L);
+		assertThat(bob.getUserDetails().isTemporaryPassword()).isFalse();
+		assertThat(bob.getUserDetails().getAuthorities()).extracting(GrantedAuthority::getAuthority).containsExactly("STANDARD", "ADMIN");
+
+		Session alice = sessionStore.get("token-2");
+		assertThat(alice.getUserDetails().isTemporaryPassword()).isTrue();
+		assertThat(alice.getUserDetails().getExpires()).isEqualTo(passwordExpires);
+
+		assertThat(restored.get("refresh-2").getToken()).isEqualTo("token-2");
+		assertThat(restored.revokeAllWithRole("ADMIN")).extracting(IndexedSession::getToken).containsOnly("token-1");
+	}
+
+	@Test
+	public void testLoad_skipsExpired() throws Exception {
+		TestUser user = new TestUser(1L, "bob", null, "STANDARD");
+		refreshTokens.add(createSession("live", "live-refresh", LocalDateTime.now().plusHours(1), user));
+		refreshTokens.add(createSession("expired", "expired-refresh", LocalDateTime.now().minusMinutes(1), user));
+		refreshTokens.add(createSession("gone", "gone-refresh", LocalDateTime.now().minusMinutes(1), user), 1);
+		snapshot.save(refreshTokens);
+		Thread.sleep(10);
+
+		InMemorySessionStore sessionStore = new InMemorySessionStore();
+		RefreshTokenIndex restored = createIndex();
+
+		assertThat(snapshot.load(sessionStore, restored)).isEqualTo(2);
+		assertThat(sessionStore.contains("live")).isTrue();
+		// Its auth token has expired, but it can still be refreshed
+		assertThat(sessionStore.contains("expired")).isFalse();
+		assertThat(restored.get("expired-refresh")).isNotNull();
+		assertThat(restored.get("gone-refresh")).isNull();
+	}
+
+	@Test
+	public void testSave_onlyLatestSessions() {
+		TestUser user = new TestUser(1L, "bob", null, "STANDARD");
+		refreshTokens.add(createSession("token", "refresh", LocalDateTime.now().plusHours(1), user));
+		refreshTokens.replace(refreshTokens.get("refresh"), createSession("token-1", "refresh-1", LocalDateTime.now().plusHours(1), user));
+
+		assertThat(snapshot.save(refreshTokens)).isEqualTo(1);
+	}
+
+	@Test
+	public void testSave_ownerOnly() throws IOException {
+		assumeTrue(FileSystems.getDefault().supportedFileAttributeViews().contains("posix"));
+		refreshTokens.add(createSession("token", "refresh", LocalDateTime.now().plusHours(1), new TestUser(1L, "bob", null, "STANDARD")));
+
+		snapshot.save(refreshTokens);
+
+		assertThat(Files.getPosixFilePermissions(file)).isEqualTo(PosixFilePermissions.fromString("rw-------"));
+	}
+
+	@Test
+	public void testLoad_missingFile() {
+		assertThat(snapshot.load(new InMemorySessionStore(), refreshTokens)).isEqualTo(0);
+	}
+
+	@Test
+	public void testLoad_corruptFile() throws IOException {
+		Files.write(file, new byte[] { 0x53, 0x41, 0x53, 0x53, 0, 0, 0, 1, (byte) 0xff, (byte) 0xff, 0x7f });
+
+		assertThat(snapshot.load(new InMemorySessionStore(), refreshTokens)).isEqualTo(0);
+	}
+
+	private static RefreshTokenIndex createIndex() {
+		return new RefreshTokenIndex(Duration.ofDays(1), Duration.ofSeconds(5), RefreshTokenIndex.DEFAULT_MAX_FAMILIES, System::currentTimeMillis, false);
+	}
+
+	private static Session createSession(String token, String refreshToken, LocalDateTime expire, UserDetails user) {
+		return new Session(new Authentication(token, refreshToken, expire, user.getAuthorities(), user.getUsername(), user.getId()), user);
+	}
+
+	private static class TestUser implements UserDetails {
+		private final long id;
+
+		private final String username;
+
+		private final LocalDateTime expires;
+
+		private final List<GrantedAuthority> authorities;
+
+		private TestUser(long id, String username, LocalDateTime expires, String... roles) {
+			this.id = id;
+			this.username = username;
+			this.expires = expires;
+			this.authorities = new ArrayList<>();
+
+			for (String role : roles) {
+				authorities.add(() -> role);
+			}
+		}
+
+		@Override
+		public long getId() {
+			return id;
+		}
+
+		@Override
+		public Collection<? extends GrantedAuthority> getAuthorities() {
+			return authorities;
+		}
+
+		@Override
+		public String getPassword() {
+			return "test-pass";
+		}
+
+		@Override
+		public String getUsername() {
+			return username;
+		}
+
+		@Override
+		public boolean isTemporaryPassword() {
+			return expires != null;
+		}
+
+		@Override
+		public LocalDateTime getExpires() {
+			return expires;
+		}
+	}
+}
@@ -0,0 +1,229 @@
+package io.github.eetchyza.springauth.session;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import io.github.eetchyza.springauth.Authentication;
+import io.github.eetchyza.springauth.api.GrantedAuthority;
+import io.github.eetchyza.springauth.api.UserDetails;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public abstract class SessionStoreContractTest {
+	private static final int THREADS = 64;
+
+	private static final int SESSIONS_PER_THREAD = 500;
+
+	protected SessionStore sessionStore;
+
+	private ExecutorService executor;
+
+	protected abstract SessionStore createSessionStore() throws Exception;
+
+	/**
+	 * Waits for touched sessions to be written, for stores that write them in the background
+	 */
+	protected void awaitTouches() throws Exception {
+	}
+
+	@Before
+	public void setup() throws Exception {
+		sessionStore = createSessionStore();
+		executor = Executors.newFixedThreadPool(THREADS);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		executor.shutdownNow();
+	}
+
+	@Test
+	public void testGet() {
+		Session session = createSession("token");
+		sessionStore.putIfAbsent(session);
+
+		Session actual = sessionStore.get("token");
+		assertThat(actual).isEqualTo(session);
+		assertThat(actual.getUserDetails().getUsername()).isEqualTo("test-user");
+		assertThat(actual.getAuthentication().isRefreshToken("refresh-token")).isTrue();
+	}
+
+	@Test
+	public void testGet_missing() {
+		assertThat(sessionStore.get("missing")).isNull();
+		assertThat(sessionStore.get(null)).isNull();
+		assertThat(sessionStore.contains("missing")).isFalse();
+	}
+
+	@Test
+	public void testRemove() {
+		sessionStore.putIfAbsent(createSession("token"));
+
+		assertThat(sessionStore.remove("token")).isEqualTo(createSession("token"));
+		assertThat(sessionStore.contains("token")).isFalse();
+		assertThat(sessionStore.remove("token")).isNull();
+		assertThat(sessionStore.size()).isEqualTo(0);
+	}
+
+	@Test
+	public void testPutIfAbsent_duplicateToken() {
+		assertThat(sessionStore.putIfAbsent(createSession("token"))).isTrue();
+		assertThat(sessionStore.putIfAbsent(createSession("token"))).isFalse();
+		assertThat(sessionStore.size()).isEqualTo(1);
+	}
+
+	@Test
+	public void testRemove_onlyCurrentSession() {
+		Session stale = createSession("token", "stale-refresh-token");
+		Session current = createSession("token");
+		sessionStore.putIfAbsent(current);
+
+		assertThat(sessionStore.remove(stale)).isFalse();
+		assertThat(sessionStore.get("token")).isEqualTo(current);
+		assertThat(sessionStore.remove(current)).isTrue();
+		assertThat(sessionStore.get("token")).isNull();
+		assertThat(sessionStore.remove(current)).isFalse();
+	}
+
+	@Test
+	public void testConcurrentWrites_noLostUpdates() throws Exception {
+		CountDownLatch start = new CountDownLatch(1);
+		List<Callable<Void>> tasks = new ArrayList<>();
+
+		for (int t = 0; t < THREADS; t++) {
+			int thread = t;
+			tasks.add(() -> {
+				start.await();
+				for (int i = 0; i < SESSIONS_PER_THREAD; i++) {
+					String token = thread + "-" + i;
+					assertThat(sessionStore.putIfAbsent(createSession(token))).isTrue();
+					assertThat(sessionStore.get(token)).isNotNull();
+
+					if (i % 2 == 0) {
+						assertThat(sessionStore.remove(token)).isNotNull();
+					}
+				}
+				return null;
+			});
+		}
+
+		List<Future<Void>> futures = new ArrayList<>();
+		for (Callable<Void> task : tasks) {
+			futures.add(executor.submit(task));
+		}
+		start.countDown();
+
+		for (Future<Void> future : futures) {
+			future.get();
+		}
+
+		assertThat(sessionStore.size()).isEqualTo(THREADS * SESSIONS_PER_THREAD / 2);
+	}
+
+	@Test
+	public void testConcurrentRemove_singleWinner() throws Exception {
+		Session session = createSession("token");
+		sessionStore.putIfAbsent(session);
+		CountDownLatch start = new CountDownLatch(1);
+
+		List<Future<Boolean>> futures = new ArrayList<>();
+		for (int t = 0; t < THREADS; t++) {
+			futures.add(executor.submit(() -> {
+				start.await();
+				return sessionStore.remove(session);
+			}));
+		}
+		start.countDown();
+
+		int winners = 0;
+		for (Future<Boolean> future : futures) {
+			if (future.get()) {
+				winners++;
+			}
+		}
+
+		assertThat(winners).isEqualTo(1);
+	}
+
+	@Test
+	public void testTouch() throws Exception {
+		sessionStore.putIfAbsent(createSession("token", "refresh-token"));
+		LocalDateTime later = LocalDateTime.now().plusHours(2).truncatedTo(ChronoUnit.MILLIS);
+
+		sessionStore.touch(createSession("token", "refresh-token", later));
+		sessionStore.touch(createSession("missing", "refresh-missing", later));
+		awaitTouches();
+
+		assertThat(sessionStore.get("token").getAuthentication().getExpire()).isEqualTo(later);
+		assertThat(sessionStore.contains("missing")).isFalse();
+	}
+
+	@Test
+	public void testTouch_removedStaysRemoved() throws Exception {
+		sessionStore.putIfAbsent(createSession("token", "refresh-token"));
+
+		sessionStore.touch(createSession("token", "refresh-token", LocalDateTime.now().plusHours(2)));
+		sessionStore.remove("token");
+		awaitTouches();
+
+		assertThat(sessionStore.contains("token")).isFalse();
+	}
+
+	protected Session createSession(String token) {
+		return createSession(token, "refresh-" + token);
+	}
+
+	protected Session createSession(String token, String refreshToken) {
+		return createSession(token, refreshToken, LocalDateTime.now().plusHours(1));
+	}
+
+	protected Session createSession(String token, String refreshToken, LocalDateTime expire) {
+		TestUser user = new TestUser();
+		Authentication authentication = new Authentication(token, refreshToken, expire, user.getAuthorities(), user.getUsername(), user.getId());
+		return new Session(authentication, user);
+	}
+
+	private static class TestUser implements UserDetails {
+		@Override
+		public long getId() {
+			return 5L;
+		}
+
+		@Override
+		public Collection<? extends GrantedAuthority> getAuthorities() {
+			return Collections.singletonList((GrantedAuthority) () -> "STANDARD");
+		}
+
+		@Override
+		public String getPassword() {
+			return "test-pass";
+		}
+
+		@Override
+		public String getUsername() {
+			return "test-user";
+		}
+
+		@Override
+		public boolean isTemporaryPassword() {
+			return false;
+		}
+
+		@Override
+		public LocalDateTime getExpires() {
+			return LocalDateTime.now().plusHours(3);
+		}
+	}
+}
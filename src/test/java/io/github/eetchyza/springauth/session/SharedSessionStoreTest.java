@@ -0,0 +1,75 @@
+package io.github.eetchyza.springauth.session;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class SharedSessionStoreTest extends SessionStoreContractTest {
+	private final AtomicInteger batches = new AtomicInteger();
+
+	private LocalSessionBackend backend;
+
+	@Override
+	protected SessionStore createSessionStore() {
+		backend = new LocalSessionBackend() {
+			@Override
+			public void replaceAll(Map<String, byte[]> replacements, long ttlMillis) {
+				batches.incrementAndGet();
+				super.replaceAll(replacements, ttlMillis);
+			}
+		};
+		return new SharedSessionStore(backend, Duration.ofHours(1), Duration.ofHours(1));
+	}
+
+	@Override
+	protected void awaitTouches() {
+		((SharedSessionStore) sessionStore).close();
+	}
+
+	@Test
+	public void testSessionsSharedBetweenNodes() {
+		SessionStore otherNode = new SharedSessionStore(backend, Duration.ofHours(1));
+		sessionStore.putIfAbsent(createSession("token"));
+
+		assertThat(otherNode.get("token")).isEqualTo(createSession("token"));
+		assertThat(otherNode.remove("token")).isNotNull();
+		assertThat(sessionStore.contains("token")).isFalse();
+	}
+
+	@Test
+	public void testTouch_writtenTogether() {
+		LocalDateTime later = LocalDateTime.now().plusHours(2).withNano(0);
+		for (int i = 0; i < 10; i++) {
+			sessionStore.putIfAbsent(createSession("token-" + i));
+			sessionStore.touch(createSession("token-" + i, "refresh-token-" + i, later.minusMinutes(1)));
+			sessionStore.touch(createSession("token-" + i, "refresh-token-" + i, later));
+		}
+
+		assertThat(sessionStore.get("token-0").getAuthentication().getExpire()).isBefore(later);
+		assertThat(batches.get()).isEqualTo(0);
+
+		awaitTouches();
+
+		assertThat(batches.get()).isEqualTo(1);
+		assertThat(sessionStore.get("token-9").getAuthentication().getExpire()).isEqualTo(later);
+	}
+
+	@Test
+	public void testClose_failedWriteNotThrown() {
+		SharedSessionStore store = new SharedSessionStore(new LocalSessionBackend() {
+			@Override
+			public void replaceAll(Map<String, byte[]> replacements, long ttlMillis) {
+				throw new IllegalStateException("Backend unavailable");
+			}
+		}, Duration.ofHours(1), Duration.ofHours(1));
+		store.putIfAbsent(createSession("token"));
+		store.touch(createSession("token"));
+
+		store.close();
+	}
+}
@@ -0,0 +1,52 @@
+package io.github.eetchyza.springauth.token;
+
+import java.util.Base64;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class SecureTokenGeneratorTest {
+
+	@Test
+	public void testGenerate_defaultLength() {
+		String token = new SecureTokenGenerator().generate();
+
+		assertThat(token).hasSize(22).matches("[A-Za-z0-9_-]+");
+		assertThat(Base64.getUrlDecoder().decode(token)).hasSize(16);
+	}
+
+	@Test
+	public void testGenerate_partialBlocks() {
+		for (int bits = 128; bits <= 256; bits += 8) {
+			String token = new SecureTokenGenerator(bits).generate();
+
+			assertThat(token).matches("[A-Za-z0-9_-]+");
+			assertThat(Base64.getUrlDecoder().decode(token)).hasSize(bits / 8);
+		}
+	}
+
+	@Test
+	public void testGenerate_roundsUpToWholeBytes() {
+		assertThat(Base64.getUrlDecoder().decode(new SecureTokenGenerator(130).generate())).hasSize(17);
+	}
+
+	@Test
+	public void testGenerate_unique() {
+		SecureTokenGenerator tokenGenerator = new SecureTokenGenerator();
+		Set<String> tokens = new HashSet<>();
+
+		for (int i = 0; i < 100_000; i++) {
+			tokens.add(tokenGenerator.generate());
+		}
+
+		assertThat(tokens).hasSize(100_000);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testConstructor_tooLittleEntropy() {
+		new SecureTokenGenerator(64);
+	}
+}
@@ -0,0 +1,153 @@
+package io.github.eetchyza.springauth.token;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import io.github.eetchyza.springauth.Authentication;
+import io.github.eetchyza.springauth.api.GrantedAuthority;
+import io.github.eetchyza.springauth.session.Session;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TokenSignerTest {
+	private static final byte[] SECRET = "0123456789abcdef0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+
+	private static final byte[] NEW_SECRET = "fedcba9876543210fedcba9876543210".getBytes(StandardCharsets.US_ASCII);
+
+	private KeyRing keyRing;
+
+	private InMemoryRevocationList revocationList;
+
+	private TokenSigner tokenSigner;
+
+	private List<GrantedAuthority> roles;
+
+	@Before
+	public void setup() {
+		keyRing = new KeyRing("k1", SECRET);
+		revocationList = new InMemoryRevocationList();
+		tokenSigner = new TokenSigner(keyRing, revocationList);
+		roles = Arrays.asList(new TokenAuthority("STANDARD"), new TokenAuthority("ADMIN"));
+	}
+
+	@Test
+	public void testVerify() {
+		LocalDateTime expire = LocalDateTime.now().plusHours(1).withNano(0);
+		Authentication authentication = tokenSigner.issue(5L, "test-user", roles, expire, expire.plusHours(1));
+
+		Session session = tokenSigner.verify(authentication.getAuthenticationToken());
+
+		assertThat(session.getToken()).isEqualTo(authentication.getAuthenticationToken());
+		assertThat(session.getAuthentication().getExpire()).isEqualTo(expire);
+		assertThat(session.getUserDetails().getId()).isEqualTo(5L);
+		assertThat(session.getUserDetails().getUsername()).isEqualTo("test-user");
+		assertThat(new ArrayList<GrantedAuthority>(session.getUserDetails().getAuthorities())).isEqualTo(roles);
+	}
+
+	@Test
+	public void testVerify_tampered() {
+		String token = issue().getAuthenticationToken();
+		String[] parts = token.split("\\.");
+		char flipped = parts[1].charAt(10) == 'A' ? 'B' : 'A';
+		String tampered = parts[0] + "." + parts[1].substring(0, 10) + flipped + parts[1].substring(11) + "." + parts[2];
+
+		assertThat(tokenSigner.verify(tampered)).isNull();
+		assertThat(tokenSigner.verify("k1.nonsense")).isNull();
+		assertThat(tokenSigner.verify("garbage")).isNull();
+		assertThat(tokenSigner.verify(null)).isNull();
+	}
+
+	@Test
+	public void testVerify_refreshTokenIsNotAnAccessToken() {
+		assertThat(tokenSigner.verify(issue().getRefreshToken())).isNull();
+	}
+
+	@Test
+	public void testVerify_otherKey() {
+		String token = new TokenSigner(new KeyRing("k1", NEW_SECRET)).issue(5L, "test-user", roles, LocalDateTime.now().plusHours(1), LocalDateTime.now().plusHours(2)).getAuthenticationToken();
+
+		assertThat(tokenSigner.verify(token)).isNull();
+	}
+
+	@Test
+	public void testRotate_oldTokensStillAccepted() {
+		String oldToken = issue().getAuthenticationToken();
+		keyRing.rotate("k2", NEW_SECRET);
+		String newToken = issue().getAuthenticationToken();
+
+		assertThat(newToken).startsWith("k2.");
+		assertThat(tokenSigner.verify(oldToken)).isNotNull();
+		assertThat(tokenSigner.verify(newToken)).isNotNull();
+
+		keyRing.retire("k1");
+		assertThat(tokenSigner.verify(oldToken)).isNull();
+	}
+
+	@Test
+	public void testRevoke() {
+		Authentication authentication = issue();
+		tokenSigner.revoke(authentication.getAuthenticationToken());
+
+		assertThat(tokenSigner.verify(authentication.getAuthenticationToken())).isNull();
+		assertThat(tokenSigner.refresh(authentication.getAuthenticationToken(), authentication.getRefreshToken(), LocalDateTime.now().plusHours(1), LocalDateTime.now().plusHours(2))).isNull();
+	}
+
+	@Test
+	public void testRevoke_unsignedTokenIgnored() {
+		tokenSigner.revoke("k1.junk.junk");
+
+		assertThat(revocationList.size()).isEqualTo(0);
+	}
+
+	@Test
+	public void testRefresh_onlyOnce() {
+		Authentication authentication = issue();
+
+		Authentication refreshed = tokenSigner.refresh(authentication.getAuthenticationToken(), authentication.getRefreshToken(), LocalDateTime.now().plusHours(1), LocalDateTime.now().plusHours(2));
+
+		assertThat(refreshed).isNotNull();
+		assertThat(tokenSigner.verify(refreshed.getAuthenticationToken())).isNotNull();
+		assertThat(tokenSigner.verify(authentication.getAuthenticationToken())).isNull();
+		assertThat(tokenSigner.refresh(authentication.getAuthenticationToken(), authentication.getRefreshToken(), LocalDateTime.now().plusHours(1), LocalDateTime.now().plusHours(2))).isNull();
+	}
+
+	@Test
+	public void testRefresh_mismatchedPair() {
+		Authentication first = issue();
+		Authentication second = issue();
+
+		assertThat(tokenSigner.refresh(first.getAuthenticationToken(), second.getRefreshToken(), LocalDateTime.now().plusHours(1), LocalDateTime.now().plusHours(2))).isNull();
+	}
+
+	@Test
+	public void testRefresh_expiredByClock() {
+		AtomicLong now = new AtomicLong(System.currentTimeMillis());
+		tokenSigner = new TokenSigner(keyRing, revocationList, now::get);
+		Authentication authentication = tokenSigner.issue(5L, "test-user", roles, now.get() + 1000, now.get() + 2000);
+
+		now.addAndGet(2000);
+
+		assertThat(tokenSigner.refresh(authentication.getAuthenticationToken(), authentication.getRefreshToken(), now.get() + 1000, now.get() + 2000)).isNull();
+	}
+
+	@Test
+	public void testPurge_forgetsExpiredRevocations() {
+		revocationList.revoke("old", 1000L);
+		revocationList.revoke("current", Long.MAX_VALUE);
+
+		revocationList.purge(2000L);
+
+		assertThat(revocationList.isRevoked("old")).isFalse();
+		assertThat(revocationList.isRevoked("current")).isTrue();
+	}
+
+	private Authentication issue() {
+		return tokenSigner.issue(5L, "test-user", roles, LocalDateTime.now().plusHours(1), LocalDateTime.now().plusHours(2));
+	}
+}
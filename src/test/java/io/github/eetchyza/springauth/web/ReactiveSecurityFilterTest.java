@@ -0,0 +1,268 @@
+package io.github.eetchyza.springauth.web;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import io.github.eetchyza.springauth.AuthService;
+import io.github.eetchyza.springauth.Authentication;
+import io.github.eetchyza.springauth.ReactiveSecurityContext;
+import io.github.eetchyza.springauth.SecurityContext;
+import io.github.eetchyza.springauth.annotations.AllowAnon;
+import io.github.eetchyza.springauth.annotations.AllowRoles;
+import io.github.eetchyza.springauth.api.GrantedAuthority;
+import io.github.eetchyza.springauth.api.UserDetails;
+import io.github.eetchyza.springauth.session.InMemorySessionStore;
+import io.github.eetchyza.springauth.session.Session;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.reactive.result.method.annotation.RequestMappingHandlerMapping;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class ReactiveSecurityFilterTest {
+	private InMemorySessionStore sessionStore;
+
+	private AuthService authService;
+
+	private RequestMappingHandlerMapping handlerMapping;
+
+	private ReactiveSecurityFilter securityFilter;
+
+	@Before
+	public void setup() {
+		sessionStore = new InMemorySessionStore();
+		authService = new AuthService(username -> null);
+		authService.setSessionStore(sessionStore);
+		handlerMapping = mock(RequestMappingHandlerMapping.class);
+		securityFilter = new ReactiveSecurityFilter(authService, handlerMapping);
+	}
+
+	@After
+	public void tearDown() {
+		securityFilter.destroy();
+		authService.destroy();
+	}
+
+	@Test
+	public void testFilter_carriesUserInContext() {
+		addSession("token", new TestUser(1L, "ADMIN"));
+		mapTo("admin");
+		AtomicReference<UserDetails> seen = new AtomicReference<>();
+		SecurityContext.clear();
+
+		// The handler finishes on another thread, the user goes with the request rather than the thread
+		securityFilter.filter(exchange("token"), exchange -> Mono.delay(Duration.ofMillis(1))
+				.then(ReactiveSecurityContext.getCurrentUser())
+				.doOnNext(seen::set)
+				.then()).block();
+
+		assertThat(seen.get().getId()).isEqualTo(1L);
+		assertThat(SecurityContext.getCurrentUser()).isNull();
+	}
+
+	@Test
+	public void testFilter_sharedStoreOffEventLoop() {
+		AtomicReference<String> lookupThread = new AtomicReference<>();
+		sessionStore = new InMemorySessionStore() {
+			@Override
+			public Session get(String token) {
+				lookupThread.set(Thread.currentThread().getName());
+				return super.get(token);
+			}
+
+			@Override
+			public boolean isShared() {
+				return true;
+			}
+		};
+		authService.setSessionStore(sessionStore);
+		addSession("token", new TestUser(1L, "ADMIN"));
+		mapTo("admin");
+		AtomicBoolean called = new AtomicBoolean();
+
+		securityFilter.filter(exchange("token"), chain(called)).block();
+
+		assertThat(called).isTrue();
+		assertThat(lookupThread.get()).startsWith("elastic-");
+	}
+
+	@Test
+	public void testFilter_deniedWithoutRole() {
+		addSession("token", new TestUser(1L, "STANDARD"));
+		mapTo("admin");
+		MockServerWebExchange exchange = exchange("token");
+		AtomicBoolean called = new AtomicBoolean();
+
+		securityFilter.filter(exchange, chain(called)).block();
+
+		assertThat(called).isFalse();
+		assertThat(exchange.getResponse().getStatusCode()).isEqualTo(HttpStatus.FORBIDDEN);
+		assertThat(exchange.getResponse().getBodyAsString().block()).isEqualTo("{\"message\":\"Not authorised\"}");
+	}
+
+	@Test
+	public void testFilter_notAuthenticated() {
+		mapTo("admin");
+		MockServerWebExchange exchange = exchange(null);
+
+		securityFilter.filter(exchange, chain(new AtomicBoolean())).block();
+
+		assertThat(exchange.getResponse().getStatusCode()).isEqualTo(HttpStatus.UNAUTHORIZED);
+		assertThat(exchange.getResponse().getBodyAsString().block()).isEqualTo("{\"message\":\"User is not authenticated\"}");
+	}
+
+	@Test
+	public void testFilter_anonymousHandler() {
+		mapTo("anonymous");
+		AtomicBoolean called = new AtomicBoolean();
+		AtomicBoolean hasUser = new AtomicBoolean();
+
+		securityFilter.filter(exchange(null), exchange -> {
+			called.set(true);
+			return ReactiveSecurityContext.getCurrentUser().doOnNext(user -> hasUser.set(true)).then();
+		}).block();
+
+		assertThat(called).isTrue();
+		assertThat(hasUser).isFalse();
+	}
+
+	@Test
+	public void testFilter_noHandler() {
+		when(handlerMapping.getHandler(any())).thenReturn(Mono.empty());
+		AtomicBoolean called = new AtomicBoolean();
+
+		securityFilter.filter(exchange(null), chain(called)).block();
+
+		assertThat(called).isTrue();
+	}
+
+	@Test
+	public void testFilter_concurrentRequests() {
+		int requests = 1000;
+		for (int i = 0; i < requests; i++) {
+			addSession("token-" + i, new TestUser(i, "ADMIN"));
+		}
+		mapTo("admin");
+
+		List<Long> seen = Flux.range(0, requests)
+				.flatMap(i -> {
+					AtomicLong id = new AtomicLong(-1L);
+					return securityFilter.filter(exchange("token-" + i), exchange -> ReactiveSecurityContext.getCurrentUser()
+							.publishOn(Schedulers.parallel())
+							.doOnNext(user -> id.set(user.getId()))
+							.then())
+							.subscribeOn(Schedulers.parallel())
+							.then(Mono.fromCallable(() -> id.get() == i ? id.get() : -1L));
+				}, 256)
+				.collectList()
+				.block();
+
+		assertThat(seen).hasSize(requests).doesNotContain(-1L).doesNotHaveDuplicates();
+	}
+
+	private void mapTo(String methodName) {
+		try {
+			HandlerMethod handler = new HandlerMethod(new Controller(), Controller.class.getMethod(methodName));
+			when(handlerMapping.getHandler(any())).thenReturn(Mono.just(handler));
+		} catch (NoSuchMethodException e) {
+			throw new IllegalArgumentException(e);
+		}
+	}
+
+	private void addSession(String token, TestUser user) {
+		sessionStore.putIfAbsent(new Session(new Authentication(token, "refresh-" + token, LocalDateTime.now().plusHours(1), user.getAuthorities(), user.getUsername(), user.getId()), user));
+	}
+
+	private static MockServerWebExchange exchange(String token) {
+		MockServerHttpRequest.BaseBuilder<?> request = MockServerHttpRequest.get("/admin");
+
+		if (token != null) {
+			request.header("TOKEN", token);
+		}
+
+		return MockServerWebExchange.from(request);
+	}
+
+	private static WebFilterChain chain(AtomicBoolean called) {
+		return (ServerWebExchange exchange) -> {
+			called.set(true);
+			return Mono.empty();
+		};
+	}
+
+	public static class Controller {
+		@AllowRoles("ADMIN")
+		public String admin() {
+			return "admin";
+		}
+
+		@AllowAnon
+		public String anonymous() {
+			return "anonymous";
+		}
+	}
+
+	private static class TestUser implements UserDetails {
+		private final long id;
+
+		private final List<GrantedAuthority> authorities;
+
+		private TestUser(long id, String... roles) {
+			this.id = id;
+			this.authorities = new ArrayList<>();
+
+			for (String role : roles) {
+				authorities.add(() -> role);
+			}
+		}
+
+		@Override
+		public long getId() {
+			return id;
+		}
+
+		@Override
+		public Collection<? extends GrantedAuthority> getAuthorities() {
+			return authorities;
+		}
+
+		@Override
+		public String getPassword() {
+			return "test-pass";
+		}
+
+		@Override
+		public String getUsername() {
+			return "user-" + id;
+		}
+
+		@Override
+		public boolean isTemporaryPassword() {
+			return false;
+		}
+
+		@Override
+		public LocalDateTime getExpires() {
+			return null;
+		}
+	}
+}
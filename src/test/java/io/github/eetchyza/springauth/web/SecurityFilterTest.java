@@ -0,0 +1,336 @@
+package io.github.eetchyza.springauth.web;
+
+import java.lang.reflect.Method;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.github.eetchyza.springauth.AuthService;
+import io.github.eetchyza.springauth.Authentication;
+import io.github.eetchyza.springauth.SecurityContext;
+import io.github.eetchyza.springauth.annotations.AllowAnon;
+import io.github.eetchyza.springauth.annotations.AllowRoles;
+import io.github.eetchyza.springauth.api.GrantedAuthority;
+import io.github.eetchyza.springauth.api.UserDetails;
+import io.github.eetchyza.springauth.session.InMemorySessionStore;
+import io.github.eetchyza.springauth.session.Session;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.method.HandlerMethod;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+
+public class SecurityFilterTest {
+	private InMemorySessionStore sessionStore;
+
+	private AuthService authService;
+
+	private SecurityFilter securityFilter;
+
+	@Before
+	public void setup() {
+		SecurityContext.clear();
+		sessionStore = new InMemorySessionStore();
+		authService = new AuthService(username -> null);
+		authService.setSessionStore(sessionStore);
+		securityFilter = new SecurityFilter();
+		ReflectionTestUtils.setField(securityFilter, "authService", authService);
+	}
+
+	@After
+	public void tearDown() {
+		securityFilter.destroy();
+		authService.destroy();
+	}
+
+	@Test
+	public void testPreHandle_threadPerTask() throws Exception {
+		int requests = 1000;
+		for (int i = 0; i < requests; i++) {
+			addSession("token-" + i, new TestUser(i, "ADMIN"));
+		}
+
+		List<CompletableFuture<Boolean>> futures = new ArrayList<>();
+		Executor executor = threadPerTaskExecutor();
+		for (int i = 0; i < requests; i++) {
+			long id = i;
+			futures.add(CompletableFuture.supplyAsync(() -> handle("token-" + id, "admin", id), executor));
+		}
+
+		for (CompletableFuture<Boolean> future : futures) {
+			assertThat(future.get()).isTrue();
+		}
+
+		if (executor instanceof ExecutorService) {
+			((ExecutorService) executor).shutdown();
+		}
+	}
+
+	@Test
+	public void testPreHandle_pooledThreadsDoNotLeakUser() throws Exception {
+		addSession("token", new TestUser(1L, "STANDARD"));
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		List<CompletableFuture<Boolean>> futures = new ArrayList<>();
+
+		// Denied requests are never passed to afterCompletion, so the next request on the same thread must not see their user
+		for (int i = 0; i < 200; i++) {
+			futures.add(CompletableFuture.supplyAsync(() -> !handle("token", "admin", 1L), executor));
+			futures.add(CompletableFuture.supplyAsync(() -> handle(null, "anonymous", -1L), executor));
+		}
+
+		for (CompletableFuture<Boolean> future : futures) {
+			assertThat(future.get()).isTrue();
+		}
+		executor.shutdown();
+	}
+
+	@Test
+	public void testPreHandle_notAuthorised() throws Exception {
+		addSession("token", new TestUser(1L, "STANDARD"));
+		MockHttpServletResponse response = new MockHttpServletResponse();
+
+		assertThat(securityFilter.preHandle(request("token"), response, handler("admin"))).isFalse();
+		assertThat(response.getStatus()).isEqualTo(403);
+		assertThat(response.getContentAsString()).isEqualTo("{\"message\":\"Not authorised\"}");
+		assertThat(response.getContentType()).isEqualTo("application/json");
+		// Written directly rather than through the container's error page
+		assertThat(response.getErrorMessage()).isNull();
+	}
+
+	@Test
+	public void testPreHandle_notAuthenticated() throws Exception {
+		MockHttpServletResponse response = new MockHttpServletResponse();
+
+		assertThat(securityFilter.preHandle(request("missing"), response, handler("admin"))).isFalse();
+		assertThat(response.getStatus()).isEqualTo(401);
+		assertThat(response.getContentAsString()).isEqualTo("{\"message\":\"User is not authenticated\"}");
+		assertThat(response.getContentLength()).isEqualTo(response.getContentAsByteArray().length);
+	}
+
+	@Test
+	public void testPreHandle_deniedClearsContext() throws Exception {
+		addSession("token", new TestUser(1L, "STANDARD"));
+
+		assertThat(securityFilter.preHandle(request("token"), new MockHttpServletResponse(), handler("admin"))).isFalse();
+		assertThat(SecurityContext.getCurrentUser()).isNull();
+	}
+
+	@Test
+	public void testAfterCompletion_clearsWhenHandlerThrows() throws Exception {
+		addSession("token", new TestUser(1L, "ADMIN"));
+		MockHttpServletRequest request = request("token");
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		HandlerMethod handler = handler("admin");
+
+		assertThat(securityFilter.preHandle(request, response, handler)).isTrue();
+		assertThat(SecurityContext.getCurrentUser()).isNotNull();
+
+		// Spring skips postHandle when the handler throws, but still completes the request
+		securityFilter.afterCompletion(request, response, handler, new IllegalStateException());
+		assertThat(SecurityContext.getCurrentUser()).isNull();
+	}
+
+	@Test
+	public void testAfterConcurrentHandlingStarted_clearsAsyncRequest() throws Exception {
+		addSession("token", new TestUser(1L, "ADMIN"));
+		CompletableFuture<String> result = new CompletableFuture<>();
+		MockMvc mockMvc = MockMvcBuilders.standaloneSetup(new AsyncController(result)).addInterceptors(securityFilter).build();
+
+		MvcResult started = mockMvc.perform(get("/async").header("TOKEN", "token")).andExpect(MockMvcResultMatchers.request().asyncStarted()).andReturn();
+
+		// The request thread goes back to the pool before the result is ready, so must not keep the user
+		assertThat(SecurityContext.getCurrentUser()).isNull();
+
+		result.complete("done");
+		mockMvc.perform(asyncDispatch(started)).andExpect(content().string("done"));
+		assertThat(SecurityContext.getCurrentUser()).isNull();
+	}
+
+	@Test
+	public void testPreHandle_looksUpSessionOnce() throws Exception {
+		AtomicInteger lookups = new AtomicInteger();
+		sessionStore = new InMemorySessionStore() {
+			@Override
+			public Session get(String token) {
+				lookups.incrementAndGet();
+				return super.get(token);
+			}
+		};
+		authService.setSessionStore(sessionStore);
+		addSession("token", new TestUser(1L, "ADMIN"));
+
+		assertThat(securityFilter.preHandle(request("token"), new MockHttpServletResponse(), handler("admin"))).isTrue();
+		assertThat(lookups.get()).isEqualTo(1);
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	public void testPreHandle_onePlanPerMethod() throws Exception {
+		addSession("token", new TestUser(1L, "ADMIN"));
+
+		// Each handler wraps a new bean, as a prototype or request scoped controller would
+		for (int i = 0; i < 100; i++) {
+			securityFilter.preHandle(request("token"), new MockHttpServletResponse(), handler(i % 2 == 0 ? "admin" : "anonymous"));
+			SecurityContext.clear();
+		}
+
+		Map<Class<?>, Map<Method, ?>> plans = (Map<Class<?>, Map<Method, ?>>) ReflectionTestUtils.getField(securityFilter, "plans");
+		assertThat(plans).containsOnlyKeys(Controller.class);
+		assertThat(plans.get(Controller.class)).hasSize(2);
+	}
+
+	@Test
+	public void testLeakDetector() throws Exception {
+		SecurityContextLeakDetector leakDetector = new SecurityContextLeakDetector();
+		securityFilter.setLeakDetector(leakDetector);
+		addSession("token", new TestUser(1L, "ADMIN"));
+
+		securityFilter.preHandle(request("token"), new MockHttpServletResponse(), handler("admin"));
+		assertThat(leakDetector.getLeakCount()).isEqualTo(0);
+
+		// The last request was never completed
+		securityFilter.preHandle(request("token"), new MockHttpServletResponse(), handler("admin"));
+		assertThat(leakDetector.getLeakCount()).isEqualTo(1);
+		SecurityContext.clear();
+	}
+
+	private static MockHttpServletRequest request(String token) {
+		MockHttpServletRequest request = new MockHttpServletRequest("GET", "/admin");
+		request.addHeader("TOKEN", token);
+		return request;
+	}
+
+	private static HandlerMethod handler(String methodName) throws NoSuchMethodException {
+		return new HandlerMethod(new Controller(), Controller.class.getMethod(methodName));
+	}
+
+	private boolean handle(String token, String methodName, long expectedId) {
+		try {
+			MockHttpServletRequest request = new MockHttpServletRequest("GET", "/" + methodName);
+			if (token != null) {
+				request.addHeader("TOKEN", token);
+			}
+			MockHttpServletResponse response = new MockHttpServletResponse();
+			HandlerMethod handler = new HandlerMethod(new Controller(), Controller.class.getMethod(methodName));
+
+			if (!securityFilter.preHandle(request, response, handler)) {
+				return false;
+			}
+
+			UserDetails user = SecurityContext.getCurrentUser();
+			boolean expected = expectedId < 0 ? user == null : user != null && user.getId() == expectedId;
+			securityFilter.afterCompletion(request, response, handler, null);
+
+			return expected && SecurityContext.getCurrentUser() == null;
+		} catch (Exception e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private void addSession(String token, TestUser user) {
+		sessionStore.putIfAbsent(new Session(new Authentication(token, "refresh-" + token, LocalDateTime.now().plusHours(1), user.getAuthorities(), user.getUsername(), user.getId()), user));
+	}
+
+	/**
+	 * Virtual threads on Java 21 and later, otherwise a new platform thread for each task which uses the security context the same way
+	 */
+	private static Executor threadPerTaskExecutor() {
+		try {
+			return (Executor) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+		} catch (ReflectiveOperationException e) {
+			return command -> new Thread(command).start();
+		}
+	}
+
+	public static class Controller {
+		@AllowRoles("ADMIN")
+		public String admin() {
+			return "admin";
+		}
+
+		@AllowAnon
+		public String anonymous() {
+			return "anonymous";
+		}
+	}
+
+	@RestController
+	public static class AsyncController {
+		private final CompletableFuture<String> result;
+
+		private AsyncController(CompletableFuture<String> result) {
+			this.result = result;
+		}
+
+		@AllowRoles("ADMIN")
+		@GetMapping("/async")
+		public CompletableFuture<String> async() {
+			return result;
+		}
+	}
+
+	private static class TestUser implements UserDetails {
+		private final long id;
+
+		private final List<GrantedAuthority> authorities;
+
+		private TestUser(long id, String... roles) {
+			this.id = id;
+			this.authorities = new ArrayList<>();
+
+			for (String role : roles) {
+				authorities.add(() -> role);
+			}
+		}
+
+		@Override
+		public long getId() {
+			return id;
+		}
+
+		@Override
+		public Collection<? extends GrantedAuthority> getAuthorities() {
+			return authorities;
+		}
+
+		@Override
+		public String getPassword() {
+			return "test-pass";
+		}
+
+		@Override
+		public String getUsername() {
+			return "user-" + id;
+		}
+
+		@Override
+		public boolean isTemporaryPassword() {
+			return false;
+		}
+
+		@Override
+		public LocalDateTime getExpires() {
+			return null;
+		}
+	}
+}